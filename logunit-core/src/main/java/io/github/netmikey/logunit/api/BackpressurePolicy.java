@@ -0,0 +1,20 @@
+package io.github.netmikey.logunit.api;
+
+/**
+ * Determines what happens to a new log event when a subscriber's buffer is
+ * full because the subscriber consumes events slower than they are logged.
+ * Either way, the thread that wrote the log event never waits for the
+ * subscriber.
+ */
+public enum BackpressurePolicy {
+
+    /**
+     * Discard the new event, keeping the buffered ones.
+     */
+    DROP,
+
+    /**
+     * Discard the oldest buffered event to make room for the new one.
+     */
+    LATEST
+}
@@ -0,0 +1,43 @@
+package io.github.netmikey.logunit.api;
+
+import org.slf4j.event.LoggingEvent;
+
+/**
+ * SPI for observing LogUnit's own activity from the outside, e.g. to feed
+ * profiling or monitoring tools. Implementations are discovered using the
+ * {@link java.util.ServiceLoader} mechanism and are notified by every
+ * {@link LogProvider}.
+ * <p>
+ * Log providers only map a captured event and call
+ * {@link #eventCaptured(LoggingEvent)} if {@link #isEnabled()} returns
+ * <code>true</code>, so an implementation that is currently not interested in
+ * events costs no more than that check.
+ */
+public interface CaptureInstrumentation extends CaptureListener {
+
+    /**
+     * Whether this instrumentation currently wants to be notified about
+     * captured events. This is called for every captured event and must be
+     * cheap.
+     * 
+     * @return <code>true</code> if {@link #eventCaptured(LoggingEvent)}
+     *         should be called.
+     */
+    boolean isEnabled();
+
+    /**
+     * Called around each reconfiguration of the logging framework performed
+     * by a {@link LogProvider}. Implementations must run the specified
+     * reconfiguration exactly once on the calling thread. The default
+     * implementation just runs it.
+     * 
+     * @param phase
+     *            The test lifecycle phase the reconfiguration belongs to, e.g.
+     *            <code>"beforeTestExecution"</code>.
+     * @param reconfiguration
+     *            The reconfiguration.
+     */
+    default void reconfigure(String phase, Runnable reconfiguration) {
+        reconfiguration.run();
+    }
+}
@@ -0,0 +1,23 @@
+package io.github.netmikey.logunit.api;
+
+import org.slf4j.event.LoggingEvent;
+
+/**
+ * Callback that gets notified about each {@link LoggingEvent} right after a
+ * {@link LogProvider} has captured it.
+ * <p>
+ * Listeners are invoked on the thread that wrote the log event, potentially
+ * while the logging framework holds a lock. Implementations must therefore
+ * return quickly and must never block.
+ */
+@FunctionalInterface
+public interface CaptureListener {
+
+    /**
+     * Called after the specified event has been captured.
+     * 
+     * @param event
+     *            The captured {@link LoggingEvent}.
+     */
+    void eventCaptured(LoggingEvent event);
+}
@@ -0,0 +1,166 @@
+package io.github.netmikey.logunit.api;
+
+/**
+ * Snapshot of the overhead a {@link LogProvider} has incurred while
+ * capturing, so that LogUnit's own influence on timing-sensitive tests can be
+ * quantified.
+ */
+public class CaptureStats {
+
+    private final long eventsCaptured;
+
+    private final long eventsDropped;
+
+    private final long eventsEvicted;
+
+    private final long estimatedRetainedBytes;
+
+    private final LatencyHistogram appendLatency;
+
+    private final long beforeTestExecutionNanos;
+
+    private final long afterTestExecutionNanos;
+
+    /**
+     * Create a new snapshot of a log provider that never evicts captured
+     * events.
+     * 
+     * @param eventsCaptured
+     *            The number of events captured.
+     * @param eventsDropped
+     *            The number of events that reached LogUnit but have not been
+     *            retained.
+     * @param estimatedRetainedBytes
+     *            The estimated heap size retained by the captured events.
+     * @param appendLatency
+     *            The distribution of the time spent capturing each event.
+     * @param beforeTestExecutionNanos
+     *            The time spent reconfiguring the logging framework before
+     *            the test.
+     * @param afterTestExecutionNanos
+     *            The time spent resetting the logging framework after the
+     *            test.
+     */
+    public CaptureStats(long eventsCaptured, long eventsDropped, long estimatedRetainedBytes,
+        LatencyHistogram appendLatency, long beforeTestExecutionNanos, long afterTestExecutionNanos) {
+
+        this(eventsCaptured, eventsDropped, 0, estimatedRetainedBytes, appendLatency, beforeTestExecutionNanos,
+            afterTestExecutionNanos);
+    }
+
+    /**
+     * Create a new snapshot.
+     * 
+     * @param eventsCaptured
+     *            The number of events captured.
+     * @param eventsDropped
+     *            The number of events that reached LogUnit but have not been
+     *            retained.
+     * @param eventsEvicted
+     *            The number of retained events that have been discarded later
+     *            to make room for newer ones.
+     * @param estimatedRetainedBytes
+     *            The estimated heap size retained by the captured events.
+     * @param appendLatency
+     *            The distribution of the time spent capturing each event.
+     * @param beforeTestExecutionNanos
+     *            The time spent reconfiguring the logging framework before
+     *            the test.
+     * @param afterTestExecutionNanos
+     *            The time spent resetting the logging framework after the
+     *            test.
+     */
+    public CaptureStats(long eventsCaptured, long eventsDropped, long eventsEvicted, long estimatedRetainedBytes,
+        LatencyHistogram appendLatency, long beforeTestExecutionNanos, long afterTestExecutionNanos) {
+
+        this.eventsCaptured = eventsCaptured;
+        this.eventsDropped = eventsDropped;
+        this.eventsEvicted = eventsEvicted;
+        this.estimatedRetainedBytes = estimatedRetainedBytes;
+        this.appendLatency = appendLatency;
+        this.beforeTestExecutionNanos = beforeTestExecutionNanos;
+        this.afterTestExecutionNanos = afterTestExecutionNanos;
+    }
+
+    /**
+     * Get the number of events captured.
+     * 
+     * @return Returns the eventsCaptured.
+     */
+    public long getEventsCaptured() {
+        return eventsCaptured;
+    }
+
+    /**
+     * Get the number of events that reached LogUnit but have not been
+     * retained.
+     * 
+     * @return Returns the eventsDropped.
+     */
+    public long getEventsDropped() {
+        return eventsDropped;
+    }
+
+    /**
+     * Get the number of events that have been retained but were discarded
+     * later to make room for newer ones: evicted to stay within a memory
+     * budget or overwritten by garbage-free capture.
+     * 
+     * @return Returns the eventsEvicted.
+     */
+    public long getEventsEvicted() {
+        return eventsEvicted;
+    }
+
+    /**
+     * Get the estimated heap size in bytes retained by the captured events.
+     * This is a rough, shallow estimate: objects passed as log arguments are
+     * only accounted for with their own header, not with what they reference.
+     * 
+     * @return Returns the estimatedRetainedBytes.
+     */
+    public long getEstimatedRetainedBytes() {
+        return estimatedRetainedBytes;
+    }
+
+    /**
+     * Get the distribution of the time spent capturing each event, measured
+     * on the logging threads.
+     * 
+     * @return Returns the appendLatency.
+     */
+    public LatencyHistogram getAppendLatency() {
+        return appendLatency;
+    }
+
+    /**
+     * Get the time in nanoseconds spent reconfiguring the logging framework
+     * before the test.
+     * 
+     * @return Returns the beforeTestExecutionNanos.
+     */
+    public long getBeforeTestExecutionNanos() {
+        return beforeTestExecutionNanos;
+    }
+
+    /**
+     * Get the time in nanoseconds spent resetting the logging framework after
+     * the test.
+     * 
+     * @return Returns the afterTestExecutionNanos.
+     */
+    public long getAfterTestExecutionNanos() {
+        return afterTestExecutionNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "CaptureStats [eventsCaptured=" + eventsCaptured
+            + ", eventsDropped=" + eventsDropped
+            + ", eventsEvicted=" + eventsEvicted
+            + ", estimatedRetainedBytes=" + estimatedRetainedBytes
+            + ", appendLatency=(" + appendLatency + ")"
+            + ", beforeTestExecutionNanos=" + beforeTestExecutionNanos
+            + ", afterTestExecutionNanos=" + afterTestExecutionNanos + "]";
+    }
+}
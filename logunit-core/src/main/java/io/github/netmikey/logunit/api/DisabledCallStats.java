@@ -0,0 +1,71 @@
+package io.github.netmikey.logunit.api;
+
+/**
+ * Snapshot of the log calls a {@link LogProvider} has seen being rejected
+ * because their level was disabled, of how many of them did work up front
+ * that was wasted because of it, and of how many of them would do costly
+ * work if the level was enabled.
+ */
+public class DisabledCallStats {
+
+    private final long disabledCalls;
+
+    private final long callsWithEagerMessages;
+
+    private final long callsWithNonTrivialArguments;
+
+    /**
+     * Create a new snapshot.
+     * 
+     * @param disabledCalls
+     *            The number of log calls rejected by level.
+     * @param callsWithEagerMessages
+     *            The number of those whose message had been built at runtime.
+     * @param callsWithNonTrivialArguments
+     *            The number of those with an argument that isn't an
+     *            immutable value.
+     */
+    public DisabledCallStats(long disabledCalls, long callsWithEagerMessages, long callsWithNonTrivialArguments) {
+        this.disabledCalls = disabledCalls;
+        this.callsWithEagerMessages = callsWithEagerMessages;
+        this.callsWithNonTrivialArguments = callsWithNonTrivialArguments;
+    }
+
+    /**
+     * Get the number of log calls rejected because their level was disabled.
+     * 
+     * @return Returns the disabledCalls.
+     */
+    public long getDisabledCalls() {
+        return disabledCalls;
+    }
+
+    /**
+     * Get the number of disabled log calls whose message wasn't a constant
+     * but had been built at runtime, e.g. by string concatenation.
+     * 
+     * @return Returns the callsWithEagerMessages.
+     */
+    public long getCallsWithEagerMessages() {
+        return callsWithEagerMessages;
+    }
+
+    /**
+     * Get the number of disabled log calls with at least one argument that
+     * isn't an immutable value like a string, number or date, so that its
+     * <code>toString()</code> may be costly. Such calls are cheap while the
+     * level is disabled, but format the argument whenever it is enabled.
+     * 
+     * @return Returns the callsWithNonTrivialArguments.
+     */
+    public long getCallsWithNonTrivialArguments() {
+        return callsWithNonTrivialArguments;
+    }
+
+    @Override
+    public String toString() {
+        return "DisabledCallStats [disabledCalls=" + disabledCalls
+            + ", callsWithEagerMessages=" + callsWithEagerMessages
+            + ", callsWithNonTrivialArguments=" + callsWithNonTrivialArguments + "]";
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.netmikey.logunit.api;
+
+/**
+ * Interfaces for publishing log events to subscribers as they are captured.
+ * <p>
+ * LogUnit supports Java 8, so it cannot use <code>java.util.concurrent.Flow</code>
+ * which has only been introduced in Java 9. The interfaces declared here
+ * mirror their <code>Flow</code> counterparts method by method and follow the
+ * same Reactive Streams rules, so adapting them is a matter of delegation.
+ * On Java 11 and above, the <code>logunit-flow</code> module's
+ * <code>FlowAdapters</code> adapt them to <code>Flow</code>.
+ */
+public final class EventFlow {
+
+    private EventFlow() {
+        // Do not instantiate.
+    }
+
+    /**
+     * A producer of items received by {@link Subscriber}s.
+     * 
+     * @param <T>
+     *            The published item type.
+     */
+    @FunctionalInterface
+    public interface Publisher<T> {
+
+        /**
+         * Add the specified subscriber. The subscriber is notified via
+         * {@link Subscriber#onSubscribe(Subscription)} before receiving any
+         * item.
+         * 
+         * @param subscriber
+         *            The subscriber.
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items. The methods of a subscriber are invoked in strict
+     * sequential order for each {@link Subscription}.
+     * 
+     * @param <T>
+     *            The subscribed item type.
+     */
+    public interface Subscriber<T> {
+
+        /**
+         * Invoked prior to any other method for the given subscription.
+         * 
+         * @param subscription
+         *            The new subscription.
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Invoked with the next item, at most as often as items have been
+         * requested via {@link Subscription#request(long)}.
+         * 
+         * @param item
+         *            The item.
+         */
+        void onNext(T item);
+
+        /**
+         * Invoked upon an unrecoverable error. No other method is invoked
+         * afterwards.
+         * 
+         * @param throwable
+         *            The error.
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Invoked when no more items will be published. No other method is
+         * invoked afterwards.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Link between a {@link Publisher} and a {@link Subscriber}.
+     */
+    public interface Subscription {
+
+        /**
+         * Add the specified number of items to the unfulfilled demand of this
+         * subscription.
+         * 
+         * @param n
+         *            The increment of demand. A value of {@link Long#MAX_VALUE}
+         *            is considered unbounded.
+         */
+        void request(long n);
+
+        /**
+         * Stop receiving items. Items already in flight might still be
+         * delivered.
+         */
+        void cancel();
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.netmikey.logunit.api;
+
+import org.slf4j.event.LoggingEvent;
+
+/**
+ * Callback visiting captured {@link LoggingEvent}s one after another, see
+ * {@link LogCapturer#forEachEvent(EventVisitor)}.
+ * <p>
+ * To avoid allocating an object per event, log providers may pass the same
+ * mutable view instance for every event, pointed at the current one. The
+ * event passed is therefore only valid during the call: implementations must
+ * not keep references to it, but extract whatever they need.
+ */
+@FunctionalInterface
+public interface EventVisitor {
+
+    /**
+     * Visit a captured event.
+     * 
+     * @param event
+     *            The captured {@link LoggingEvent}, only valid during this
+     *            call.
+     */
+    void visit(LoggingEvent event);
+}
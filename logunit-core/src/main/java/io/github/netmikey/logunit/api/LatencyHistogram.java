@@ -0,0 +1,156 @@
+package io.github.netmikey.logunit.api;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of latencies in nanoseconds, in the style of
+ * HdrHistogram: values are counted in log-linear buckets so that each value
+ * is represented with a relative error of at most 1/16 (6.25%) across the full
+ * <code>long</code> range, using a fixed amount of memory. Recording a value
+ * never allocates, so it can be done on the logging threads' hot path.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT
+        + (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT;
+
+    private final AtomicLongArray counts;
+
+    private final AtomicLong totalCount = new AtomicLong();
+
+    private final AtomicLong totalValue = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Create a new, empty histogram.
+     */
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(BUCKET_COUNT);
+    }
+
+    private LatencyHistogram(LatencyHistogram original) {
+        long[] copiedCounts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copiedCounts[i] = original.counts.get(i);
+        }
+        counts = new AtomicLongArray(copiedCounts);
+        totalCount.set(original.totalCount.get());
+        totalValue.set(original.totalValue.get());
+        max.set(original.max.get());
+    }
+
+    /**
+     * Record a value. Negative values are recorded as <code>0</code>.
+     * 
+     * @param nanos
+     *            The latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketIndex(value));
+        totalCount.incrementAndGet();
+        totalValue.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Create an independent copy of the current state of this histogram.
+     * 
+     * @return The copy.
+     */
+    public LatencyHistogram copy() {
+        return new LatencyHistogram(this);
+    }
+
+    /**
+     * The number of recorded values.
+     * 
+     * @return The number of recorded values.
+     */
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * The largest recorded value.
+     * 
+     * @return The largest recorded value in nanoseconds, <code>0</code> if
+     *         the histogram is empty.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * The mean of all recorded values.
+     * 
+     * @return The mean in nanoseconds, <code>0</code> if the histogram is
+     *         empty.
+     */
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalValue.get() / count;
+    }
+
+    /**
+     * Get the value at or below which the specified percentage of recorded
+     * values lie, within the histogram's precision.
+     * 
+     * @param percentile
+     *            The percentile between <code>0</code> and <code>100</code>,
+     *            e.g. <code>99.9</code>.
+     * @return The value in nanoseconds, <code>0</code> if the histogram is
+     *         empty.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueInBucket(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + (subBucket - SUB_BUCKET_HALF_COUNT);
+    }
+
+    private static long highestValueInBucket(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        long highest = ((subBucket + 1) << shift) - 1;
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getTotalCount()
+            + ", p50=" + getValueAtPercentile(50) + "ns"
+            + ", p99=" + getValueAtPercentile(99) + "ns"
+            + ", p99.9=" + getValueAtPercentile(99.9) + "ns"
+            + ", max=" + getMax() + "ns";
+    }
+}
@@ -1,8 +1,23 @@
 package io.github.netmikey.logunit.api;
 
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
@@ -14,7 +29,17 @@ import org.slf4j.Logger;
 import org.slf4j.event.Level;
 import org.slf4j.event.LoggingEvent;
 
+import io.github.netmikey.logunit.core.BufferedEventPublisher;
+import io.github.netmikey.logunit.core.ConstantStrings;
 import io.github.netmikey.logunit.core.LogProviderFactorySpiLoader;
+import io.github.netmikey.logunit.core.LogRateBuckets;
+import io.github.netmikey.logunit.core.LogSnapshot;
+import io.github.netmikey.logunit.core.LogVolume;
+import io.github.netmikey.logunit.core.LoggerPatternMatcher;
+import io.github.netmikey.logunit.core.NdjsonExporter;
+import io.github.netmikey.logunit.core.NearestMessageFinder;
+import io.github.netmikey.logunit.core.TemplateCardinalityCollector;
+import io.github.netmikey.logunit.core.ThrowableSnapshotFactory;
 
 /**
  * JUnit Extension for capturing log messages. This forms the main API surface
@@ -22,10 +47,84 @@ import io.github.netmikey.logunit.core.LogProviderFactorySpiLoader;
  */
 public class LogCapturer implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
 
+    private static final int DEFAULT_PUBLISHER_BUFFER_SIZE = 1024;
+
+    /**
+     * The system property configuring the directory volume baselines are
+     * stored in, relative to the working directory. Defaults to
+     * <code>build/logunit-baselines</code>.
+     */
+    public static final String BASELINE_DIR_PROPERTY = "logunit.baseline.dir";
+
+    /**
+     * The system property that, when set to <code>true</code>, makes all
+     * volume baselines be rewritten from the current run instead of being
+     * compared against.
+     */
+    public static final String BASELINE_UPDATE_PROPERTY = "logunit.baseline.update";
+
+    /**
+     * The system property configuring the directory captures of failed tests
+     * are exported to, relative to the working directory. Defaults to
+     * <code>build/logunit</code>.
+     */
+    public static final String EXPORT_DIR_PROPERTY = "logunit.export.dir";
+
+    /**
+     * The system property configuring the directory log snapshots are stored
+     * in, relative to the working directory. Defaults to
+     * <code>src/test/resources/logunit-snapshots</code>.
+     */
+    public static final String SNAPSHOT_DIR_PROPERTY = "logunit.snapshot.dir";
+
+    /**
+     * The system property that, when set to <code>true</code>, makes all log
+     * snapshots be rewritten from the current run instead of being compared
+     * against.
+     */
+    public static final String SNAPSHOT_UPDATE_PROPERTY = "logunit.snapshot.update";
+
+    /**
+     * The default maximum size of a capture export: 64 MiB.
+     */
+    public static final long DEFAULT_EXPORT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final double DEFAULT_VOLUME_TOLERANCE = 0.1;
+
+    private static final int MAX_REPORTED_EXAMPLES = 5;
+
+    private static final Duration DEFAULT_SYNC_TIMEOUT = Duration.ofSeconds(10);
+
     private LogProvider logProvider;
 
     private Level defaultLevel = Level.INFO;
 
+    private final List<BufferedEventPublisher> publishers = new ArrayList<>();
+
+    private Predicate<? super LoggingEvent> failFastPredicate;
+
+    private final AtomicReference<LoggingEvent> failFastEvent = new AtomicReference<>();
+
+    private volatile Thread testThread;
+
+    private long memoryBudget;
+
+    private boolean garbageFreeCapture;
+
+    private String retentionOption;
+
+    private boolean volumeBaseline;
+
+    private Path volumeBaselineFile;
+
+    private double volumeTolerance;
+
+    private boolean exportOnFailure;
+
+    private long exportMaxBytes;
+
+    private boolean exportGzip;
+
     private LogCapturer() {
         // Do not instantiate directly.
     }
@@ -41,6 +140,22 @@ public class LogCapturer implements BeforeTestExecutionCallback, AfterTestExecut
         return logCapturer;
     }
 
+    /**
+     * Create a new {@link LogCapturer} using the specified LogUnit
+     * implementation, for builds with more than one of them on the classpath.
+     * 
+     * @param provider
+     *            The name of the implementation, e.g. <code>logback</code>,
+     *            or the fully qualified class name of its
+     *            {@link LogProviderFactory}.
+     * @return A new log capturer.
+     */
+    public static LogCapturer create(String provider) {
+        LogCapturer logCapturer = new LogCapturer();
+        logCapturer.setLogProvider(LogProviderFactorySpiLoader.getLogProviderFactory(provider).create());
+        return logCapturer;
+    }
+
     /**
      * Set the default log level (default: {@link Level#INFO}).
      * 
@@ -107,10 +222,522 @@ public class LogCapturer implements BeforeTestExecutionCallback, AfterTestExecut
         return this;
     }
 
+    /**
+     * Configure this {@link LogCapturer} to capture logs written by all
+     * {@link Logger}s within the specified package and its sub-packages at
+     * the default log level. See {@link #captureForPackage(String, Level)}.
+     * 
+     * @param packageName
+     *            The package to capture for, e.g.
+     *            <code>com.acme.billing</code>.
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer captureForPackage(String packageName) {
+        return captureForPackage(packageName, defaultLevel);
+    }
+
+    /**
+     * Configure this {@link LogCapturer} to capture logs written by all
+     * {@link Logger}s within the specified package and its sub-packages at
+     * the specified log level, including loggers created after the test has
+     * started. Capturing is set up once for the package instead of once per
+     * logger. A package only contains loggers whose name continues with a
+     * dot, so <code>com.acme</code> doesn't contain
+     * <code>com.acmecorp.Service</code>.
+     * 
+     * @param packageName
+     *            The package to capture for, e.g.
+     *            <code>com.acme.billing</code>.
+     * @param level
+     *            The {@link Level} up to which logs should be captured.
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer captureForPackage(String packageName, Level level) {
+        if (packageName.isEmpty() || packageName.startsWith(".") || packageName.endsWith(".")) {
+            throw new IllegalArgumentException("Invalid package name: '" + packageName + "'");
+        }
+        logProvider.provideForPackage(packageName, level);
+        return this;
+    }
+
+    /**
+     * Configure this {@link LogCapturer} to capture logs written by all
+     * {@link Logger}s whose whole name matches the specified pattern at the
+     * default log level. See {@link #captureForLoggers(Pattern, Level)}.
+     * 
+     * @param pattern
+     *            The regular expression logger names are matched against,
+     *            e.g. <code>com\.acme\..*Client</code>.
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer captureForLoggers(Pattern pattern) {
+        return captureForLoggers(pattern, defaultLevel);
+    }
+
+    /**
+     * Configure this {@link LogCapturer} to capture logs written by all
+     * {@link Logger}s whose whole name matches the specified pattern at the
+     * specified log level, including loggers created after the test has
+     * started. Capturing is attached once near the root of the logger
+     * hierarchy and events are routed by their logger's name, evaluating
+     * each distinct name against the pattern only once. Loggers captured by
+     * name or package take precedence. Events of loggers that don't pass
+     * their events up to the root logger (additivity disabled) are not
+     * captured.
+     * 
+     * @param pattern
+     *            The regular expression logger names are matched against,
+     *            e.g. <code>com\.acme\..*Client</code>.
+     * @param level
+     *            The {@link Level} up to which logs should be captured.
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer captureForLoggers(Pattern pattern, Level level) {
+        logProvider.provideForLoggers(pattern, level);
+        return this;
+    }
+
+    /**
+     * Configure this {@link LogCapturer} to capture logs written by all
+     * {@link Logger}s whose name matches the specified glob at the default
+     * log level. See {@link #captureForLoggersMatching(String, Level)}.
+     * 
+     * @param glob
+     *            The glob, e.g. <code>*.repository.*</code>.
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer captureForLoggersMatching(String glob) {
+        return captureForLoggersMatching(glob, defaultLevel);
+    }
+
+    /**
+     * Configure this {@link LogCapturer} to capture logs written by all
+     * {@link Logger}s whose name matches the specified glob at the specified
+     * log level: <code>*</code> matches any sequence of characters including
+     * dots and <code>?</code> matches a single character. See
+     * {@link #captureForLoggers(Pattern, Level)}.
+     * 
+     * @param glob
+     *            The glob, e.g. <code>*.repository.*</code>.
+     * @param level
+     *            The {@link Level} up to which logs should be captured.
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer captureForLoggersMatching(String glob, Level level) {
+        return captureForLoggers(LoggerPatternMatcher.globToPattern(glob), level);
+    }
+
+    /**
+     * Make the test fail fast as soon as a captured {@link LoggingEvent}
+     * matches the specified predicate, instead of letting it run on until a
+     * final assertion or its timeout. The offending event is recorded and the
+     * test's thread gets interrupted right away, which aborts whatever
+     * blocking operation it is waiting on. After the test, it is failed with
+     * the recorded event. If called multiple times, any of the predicates
+     * triggers.
+     * 
+     * @param predicate
+     *            The predicate identifying events that doom the test, e.g.
+     *            <code>e -&gt; e.getLevel() == Level.ERROR</code>.
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer failFastOn(Predicate<? super LoggingEvent> predicate) {
+        if (failFastPredicate == null) {
+            failFastPredicate = predicate;
+            logProvider.addCaptureListener(this::checkFailFast);
+        } else {
+            Predicate<? super LoggingEvent> previous = failFastPredicate;
+            failFastPredicate = event -> previous.test(event) || predicate.test(event);
+        }
+        return this;
+    }
+
+    /**
+     * Limit the estimated heap size retained by the captured
+     * {@link LoggingEvent}s, evicting the oldest events when the budget is
+     * reached. Events are sized when they are captured, based on their
+     * message, arguments and throwable, which makes this a better guard
+     * against large payloads than counting events. The budget includes the
+     * events' entries in LogUnit's indexes, which are trimmed along with
+     * evicted events. Only the dictionaries of distinct logger names and
+     * message templates are not. A single capture holds at most
+     * {@link Integer#MAX_VALUE} events over its lifetime, evicted ones
+     * included, and drops any further ones.
+     * 
+     * @param maxBytes
+     *            The maximum estimated heap size in bytes.
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer withMemoryBudget(long maxBytes) {
+        return withMemoryBudget(maxBytes, MemoryBudgetPolicy.EVICT_OLDEST);
+    }
+
+    /**
+     * Limit the estimated heap size retained by the captured
+     * {@link LoggingEvent}s. Events are sized when they are captured, based
+     * on their message, arguments and throwable, which makes this a better
+     * guard against large payloads than counting events.
+     * 
+     * @param maxBytes
+     *            The maximum estimated heap size in bytes.
+     * @param policy
+     *            What to do when retaining another event would exceed the
+     *            budget.
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer withMemoryBudget(long maxBytes, MemoryBudgetPolicy policy) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("The memory budget must be positive but was " + maxBytes);
+        }
+        requireRetainedEvents("A memory budget");
+        logProvider.setMemoryBudget(maxBytes, policy);
+        memoryBudget = maxBytes;
+        return this;
+    }
+
+    /**
+     * Retain compact, interned {@link ThrowableSnapshot}s instead of the live
+     * throwables logged along with the captured {@link LoggingEvent}s, keeping
+     * the top {@value ThrowableSnapshotFactory#DEFAULT_MAX_FRAMES} stack trace
+     * frames per throwable. This releases the full stack traces and whatever
+     * the throwables reference for garbage collection right away.
+     * 
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer withCompactThrowables() {
+        return withCompactThrowables(ThrowableSnapshotFactory.DEFAULT_MAX_FRAMES);
+    }
+
+    /**
+     * Retain compact, interned {@link ThrowableSnapshot}s instead of the live
+     * throwables logged along with the captured {@link LoggingEvent}s. This
+     * releases the full stack traces and whatever the throwables reference for
+     * garbage collection right away.
+     * 
+     * @param maxFrames
+     *            The maximum number of stack trace frames to retain per
+     *            throwable.
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer withCompactThrowables(int maxFrames) {
+        requireRetainedEvents("Compact throwables");
+        logProvider.setCompactThrowables(maxFrames);
+        return this;
+    }
+
+    /**
+     * Retain detached copies of the captured {@link LoggingEvent}s' arguments
+     * instead of the objects passed to the logger: immutable values like
+     * strings, numbers, enums or dates are kept as they are, any other
+     * argument is replaced by its string representation at the time it has
+     * been logged. This allows entities, buffers, sessions and the like the
+     * code under test has logged to be garbage collected during the test.
+     * 
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer withDetachedArguments() {
+        requireRetainedEvents("Detached arguments");
+        logProvider.setDetachArguments(true);
+        return this;
+    }
+
+    /**
+     * Index the values of the specified keys as events are captured, so that
+     * {@link #eventsWithKey(String, Object)} looks events up by these keys
+     * without scanning the capture. Lookups by other keys still scan.
+     * 
+     * @param keys
+     *            The keys of key-value pairs or MDC entries to index.
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer withKeyIndex(String... keys) {
+        requireRetainedEvents("A key index");
+        logProvider.setIndexedKeys(new HashSet<>(Arrays.asList(keys)));
+        return this;
+    }
+
+    /**
+     * Export the captured {@link LoggingEvent}s when the test fails, see
+     * {@link #exportOnFailure(long, boolean)}, uncompressed and up to
+     * {@value #DEFAULT_EXPORT_MAX_BYTES} bytes.
+     * 
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer exportOnFailure() {
+        return exportOnFailure(DEFAULT_EXPORT_MAX_BYTES, false);
+    }
+
+    /**
+     * Export the captured {@link LoggingEvent}s as newline-delimited JSON
+     * when the test fails, either by throwing or by failing one of this
+     * capturer's checks after the test. The events are streamed to a file
+     * named after the test class and method in the directory configured by
+     * the {@value #EXPORT_DIR_PROPERTY} system property, so that CI can keep
+     * it as an artifact. Passing tests don't incur any serialization cost.
+     * 
+     * @param maxBytes
+     *            The maximum uncompressed size of the exported events. The
+     *            events exceeding it are omitted and counted in a final
+     *            <code>{"truncated":true,"omittedEvents":n}</code> line.
+     * @param gzip
+     *            Whether to gzip the export, adding <code>.gz</code> to its
+     *            name.
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer exportOnFailure(long maxBytes, boolean gzip) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("The maximum export size must be positive but was " + maxBytes);
+        }
+        exportOnFailure = true;
+        exportMaxBytes = maxBytes;
+        exportGzip = gzip;
+        return this;
+    }
+
+    /**
+     * Stream the captured {@link LoggingEvent}s to the specified file as
+     * newline-delimited JSON, one object per event with its timestamp, level,
+     * logger, thread, message, template and throwable.
+     * 
+     * @param file
+     *            The file, which is replaced if it exists.
+     * @param maxBytes
+     *            The maximum uncompressed size of the exported events. The
+     *            events exceeding it are omitted and counted in a final
+     *            <code>{"truncated":true,"omittedEvents":n}</code> line.
+     * @param gzip
+     *            Whether to gzip the file.
+     * @return The number of events exported.
+     */
+    public long exportTo(Path file, long maxBytes, boolean gzip) {
+        try (NdjsonExporter exporter = new NdjsonExporter(file, maxBytes, gzip)) {
+            sync();
+            logProvider.forEachEvent(exporter);
+            return exporter.getEventsWritten();
+        }
+    }
+
+    /**
+     * Capture into a fixed number of preallocated slots, formatting messages
+     * into reusable buffers, so that capturing doesn't allocate per event and
+     * allocation tests of garbage-free logging configurations stay
+     * meaningful. Once all slots are used, each event overwrites the oldest
+     * one. {@link LoggingEvent}s are only created when the captured events
+     * are read. Fail-fast predicates and publishers still receive a copy of
+     * each event. Overwritten events are reported as
+     * {@link CaptureStats#getEventsEvicted() evicted}. Supported by Log4j2
+     * only. The events' arguments, markers, key-value pairs and context data
+     * are not retained.
+     * 
+     * @param capacity
+     *            The maximum number of events retained.
+     * @return A self-reference to this {@link LogCapturer}.
+     * @throws IllegalStateException
+     *             If compact throwables, detached arguments, a memory budget
+     *             or a key index have been configured, none of which applies
+     *             to events captured this way.
+     */
+    public LogCapturer withGarbageFreeCapture(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive but was " + capacity);
+        }
+        if (retentionOption != null) {
+            throw new IllegalStateException(retentionOption + " can't be combined with garbage-free capture");
+        }
+        logProvider.setGarbageFreeCapture(capacity);
+        garbageFreeCapture = true;
+        return this;
+    }
+
+    /**
+     * Record the volume of log output captured during each test into a
+     * baseline file and fail later runs if it grows by more than 10% per
+     * logger, level and message template. See
+     * {@link #withVolumeBaseline(double)}.
+     * 
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer withVolumeBaseline() {
+        return withVolumeBaseline(DEFAULT_VOLUME_TOLERANCE);
+    }
+
+    /**
+     * Record the volume of log output captured during each test, i.e. the
+     * number of events and their messages' size per logger, level and
+     * message template, into a baseline file. If a baseline exists already,
+     * the test fails instead if the volume grows by more than the specified
+     * tolerance. Messages logged without arguments are accounted for together
+     * per logger and level, and templates that are new since the baseline
+     * only fail the test if the whole volume grows beyond the tolerance.
+     * Baselines are stored below the directory configured by the
+     * {@value #BASELINE_DIR_PROPERTY} system property, in a file named after
+     * the test class and method. Setting the
+     * {@value #BASELINE_UPDATE_PROPERTY} system property to <code>true</code>
+     * rewrites them.
+     * 
+     * @param tolerance
+     *            The acceptable relative growth, e.g. <code>0.1</code> for
+     *            10%.
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer withVolumeBaseline(double tolerance) {
+        return withVolumeBaseline(null, tolerance);
+    }
+
+    /**
+     * Like {@link #withVolumeBaseline(double)}, but using the specified
+     * baseline file instead of one derived from the test.
+     * 
+     * @param baselineFile
+     *            The baseline file, or <code>null</code> to derive it from
+     *            the test.
+     * @param tolerance
+     *            The acceptable relative growth, e.g. <code>0.1</code> for
+     *            10%.
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer withVolumeBaseline(Path baselineFile, double tolerance) {
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("The volume tolerance must not be negative: " + tolerance);
+        }
+        this.volumeBaseline = true;
+        this.volumeBaselineFile = baselineFile;
+        this.volumeTolerance = tolerance;
+        return this;
+    }
+
+    /**
+     * Count log calls to the captured loggers that are rejected because their
+     * level is disabled, how many of them built their message up front, which
+     * is work wasted in production when the level is off, and how many pass
+     * arguments with non-trivial <code>toString()</code>s, which would be
+     * formatted if the level was on. See {@link #disabledCalls()} and
+     * {@link #assertNoEagerDisabledCalls()}.
+     * <p>
+     * Logback and Log4j2 see disabled calls through a context-wide filter
+     * consulted before their level check. JUL has no such hook: its captured
+     * loggers are opened up to all levels and a filter rejects what is below
+     * the captured level. Code guarding its log calls with
+     * <code>Logger.isLoggable(Level)</code> is therefore counted as well.
+     * 
+     * @return A self-reference to this {@link LogCapturer}.
+     */
+    public LogCapturer withDisabledCallDetection() {
+        logProvider.setDisabledCallDetection(true);
+        return this;
+    }
+
+    /**
+     * Return the log calls to the captured loggers that have been rejected
+     * because their level was disabled, as counted when enabled using
+     * {@link #withDisabledCallDetection()}.
+     * 
+     * @return The {@link DisabledCallStats}.
+     */
+    public DisabledCallStats disabledCalls() {
+        return logProvider.getDisabledCallStats();
+    }
+
+    /**
+     * Assert that no log call rejected because of its disabled level has
+     * built its message up front, e.g. by string concatenation. Requires
+     * {@link #withDisabledCallDetection()}.
+     */
+    public void assertNoEagerDisabledCalls() {
+        DisabledCallStats stats = disabledCalls();
+        if (stats.getCallsWithEagerMessages() > 0) {
+            Assertions.fail("Of " + stats.getDisabledCalls() + " log calls with a disabled level, "
+                + stats.getCallsWithEagerMessages() + " built their message up front");
+        }
+    }
+
+    /**
+     * Measure the heap allocations and CPU time the logging threads spend on
+     * each captured log call, using the JVM's {@link java.lang.management.ThreadMXBean
+     * ThreadMXBean}. With Logback and Log4j2, measuring starts with the log
+     * call; with JUL, it starts when the log record reaches LogUnit, so the
+     * record's creation isn't included. Measurement ends when the event has
+     * been captured. See {@link #loggingCosts()} and
+     * {@link #assertAllocatedBytesPerEventBelow(String, long)}.
+     * 
+     * @return A self-reference to this {@link LogCapturer}.
+     * @throws IllegalStateException
+     *             If the JVM doesn't support measuring per-thread allocations
+     *             and CPU time.
+     */
+    public LogCapturer measureLoggingCost() {
+        logProvider.setLoggingCostMeasurement(true);
+        return this;
+    }
+
+    /**
+     * Return the costs of the captured log calls per logger, as measured when
+     * enabled using {@link #measureLoggingCost()}.
+     * 
+     * @return The {@link LoggingCost}s by logger name.
+     */
+    public Map<String, LoggingCost> loggingCosts() {
+        return logProvider.getLoggingCosts();
+    }
+
+    /**
+     * Assert that the captured log calls to the specified logger allocated
+     * less than the specified number of bytes per event on average. Requires
+     * {@link #measureLoggingCost()}.
+     * 
+     * @param loggerName
+     *            The logger's name.
+     * @param maxBytes
+     *            The exclusive upper bound of bytes allocated per event.
+     */
+    public void assertAllocatedBytesPerEventBelow(String loggerName, long maxBytes) {
+        LoggingCost cost = requireLoggingCost(loggerName);
+        if (cost.getAllocatedBytesPerEvent() >= maxBytes) {
+            Assertions.fail("Logging to " + loggerName + " allocated " + Math.round(cost.getAllocatedBytesPerEvent())
+                + " bytes per event, expected less than " + maxBytes + " (" + cost + ")");
+        }
+    }
+
+    /**
+     * Assert that the captured log calls to the specified logger took less
+     * than the specified CPU time per event on average. Requires
+     * {@link #measureLoggingCost()}.
+     * 
+     * @param loggerName
+     *            The logger's name.
+     * @param maxCpuTime
+     *            The exclusive upper bound of CPU time per event.
+     */
+    public void assertCpuTimePerEventBelow(String loggerName, Duration maxCpuTime) {
+        LoggingCost cost = requireLoggingCost(loggerName);
+        if (cost.getCpuNanosPerEvent() >= maxCpuTime.toNanos()) {
+            Assertions.fail("Logging to " + loggerName + " took " + Math.round(cost.getCpuNanosPerEvent())
+                + "ns CPU time per event, expected less than " + maxCpuTime.toNanos() + "ns (" + cost + ")");
+        }
+    }
+
+    /**
+     * Visit all captured {@link LoggingEvent}s in the order they have been
+     * captured. Unlike {@link #getEvents()}, log providers don't allocate an
+     * object per event but present each one through a reused view, so
+     * assertions over huge captures don't cause garbage collection noise. The
+     * event passed to the visitor is only valid during the call.
+     * 
+     * @param visitor
+     *            The visitor.
+     */
+    public void forEachEvent(EventVisitor visitor) {
+        sync();
+        logProvider.forEachEvent(visitor);
+    }
+
     /**
      * Convenience method that searches all captured {@link LoggingEvent}s'
      * messages for the specified loggingStatement. This method uses
-     * {@link String#contains(CharSequence)} for matching.
+     * {@link String#contains(CharSequence)} for matching. If no message
+     * contains it, the failure reports the captured messages that come
+     * closest, by the number of characters that would need to be inserted,
+     * deleted or replaced.
      * 
      * @param loggingStatement
      *            The statement to look for.
@@ -119,7 +746,7 @@ public class LogCapturer implements BeforeTestExecutionCallback, AfterTestExecut
      */
     public LoggingEvent assertContains(String loggingStatement) {
         return assertContains(event -> event.getMessage().contains(loggingStatement),
-            "Contain the string <" + loggingStatement + ">");
+            "Contain the string <" + loggingStatement + ">", () -> describeNearestMessages(loggingStatement));
     }
 
     /**
@@ -145,7 +772,8 @@ public class LogCapturer implements BeforeTestExecutionCallback, AfterTestExecut
      *            A custom message to be used if the assertion fails.
      */
     public void assertDoesNotContain(Predicate<? super LoggingEvent> predicate, String message) {
-        Optional<LoggingEvent> foundStatement = getEvents().stream()
+        sync();
+        Optional<LoggingEvent> foundStatement = logProvider.streamEvents(false)
             .filter(predicate)
             .findFirst();
 
@@ -167,43 +795,480 @@ public class LogCapturer implements BeforeTestExecutionCallback, AfterTestExecut
      *         loggingStatement.
      */
     public LoggingEvent assertContains(Predicate<? super LoggingEvent> predicate, String message) {
-        return getEvents().stream()
+        return assertContains(predicate, message, () -> "");
+    }
+
+    private LoggingEvent assertContains(Predicate<? super LoggingEvent> predicate, String message,
+        Supplier<String> hint) {
+
+        sync();
+        return logProvider.streamEvents(false)
             .filter(predicate)
             .findFirst()
             .orElseGet(() -> {
                 Assertions.fail(buildPrefix(message) + "None of the " + size()
-                    + " captured log events matched the filter predicate");
+                    + " captured log events matched the filter predicate" + hint.get());
+                // appeasing the compiler: this line will never be executed.
+                return null;
+            });
+    }
+
+    private String describeNearestMessages(String loggingStatement) {
+        NearestMessageFinder finder = new NearestMessageFinder(loggingStatement, MAX_REPORTED_EXAMPLES);
+        logProvider.forEachEvent(finder);
+        List<String> nearest = finder.getNearest();
+        return nearest.isEmpty() ? "" : ", closest messages by edit distance:\n  " + String.join("\n  ", nearest);
+    }
+
+    /**
+     * Convenience method that searches the {@link LoggingEvent}s captured
+     * within the specified duration up to now for any match using the
+     * specified predicate for filtering.
+     * 
+     * @param window
+     *            How far back from now to search.
+     * @param predicate
+     *            The predicate to be used for filtering
+     * @return The first {@link LoggingEvent} found within the time window that
+     *         matches the predicate.
+     */
+    public LoggingEvent assertContainsWithin(Duration window, Predicate<? super LoggingEvent> predicate) {
+        return assertContainsWithin(window, predicate, null);
+    }
+
+    /**
+     * Convenience method that searches the {@link LoggingEvent}s captured
+     * within the specified duration up to now for any match using the
+     * specified predicate for filtering.
+     * 
+     * @param window
+     *            How far back from now to search.
+     * @param predicate
+     *            The predicate to be used for filtering
+     * @param message
+     *            A custom message to be used if the assertion fails.
+     * @return The first {@link LoggingEvent} found within the time window that
+     *         matches the predicate.
+     */
+    public LoggingEvent assertContainsWithin(Duration window, Predicate<? super LoggingEvent> predicate,
+        String message) {
+
+        Instant now = Instant.now();
+        List<LoggingEvent> candidates = eventsBetween(now.minus(window), now);
+        return candidates.stream()
+            .filter(predicate)
+            .findFirst()
+            .orElseGet(() -> {
+                Assertions.fail(buildPrefix(message) + "None of the " + candidates.size()
+                    + " log events captured within the last " + window + " matched the filter predicate");
                 // appeasing the compiler: this line will never be executed.
                 return null;
             });
     }
 
+    /**
+     * Assert that the sequence of captured {@link LoggingEvent}s matches the
+     * golden snapshot with the specified name: event by event, the level, the
+     * logger name and the message, with UUIDs and ISO-8601 date-times
+     * normalized as described in {@link LogSnapshot#normalize(String)}. On
+     * mismatch, a minimal line diff is reported.
+     * <p>
+     * Snapshots are stored below the directory configured by the
+     * {@value #SNAPSHOT_DIR_PROPERTY} system property, one line per event, as
+     * <code>&lt;name&gt;.log</code>. If the snapshot doesn't exist yet, it is
+     * written from the current capture. Set the
+     * {@value #SNAPSHOT_UPDATE_PROPERTY} system property to <code>true</code>
+     * to rewrite all snapshots from the current run.
+     * 
+     * @param name
+     *            The snapshot's name, which may contain <code>/</code> to
+     *            organize snapshots in subdirectories.
+     */
+    public void assertMatchesSnapshot(String name) {
+        assertMatchesSnapshot(name, LogSnapshot::normalize);
+    }
+
+    /**
+     * Like {@link #assertMatchesSnapshot(String)}, but normalizing messages
+     * with the specified function instead of the default normalization.
+     * 
+     * @param name
+     *            The snapshot's name.
+     * @param normalizer
+     *            Normalizes the messages, e.g. by masking values that differ
+     *            between runs.
+     */
+    public void assertMatchesSnapshot(String name, UnaryOperator<String> normalizer) {
+        if (StringUtils.isBlank(name)) {
+            throw new IllegalArgumentException("The snapshot name must not be blank");
+        }
+        Path snapshotFile = Paths.get(System.getProperty(SNAPSHOT_DIR_PROPERTY,
+            "src/test/resources/logunit-snapshots"), name + ".log");
+        sync();
+        if (!Files.exists(snapshotFile) || Boolean.getBoolean(SNAPSHOT_UPDATE_PROPERTY)) {
+            LogSnapshot.write(snapshotFile, logProvider::forEachEvent, normalizer);
+            return;
+        }
+        String differences = LogSnapshot.compare(snapshotFile, logProvider::forEachEvent, normalizer);
+        if (differences != null) {
+            Assertions.fail("Captured log events don't match the snapshot " + snapshotFile + ", "
+                + differences + "Run with -D" + SNAPSHOT_UPDATE_PROPERTY + "=true to accept the changes.");
+        }
+    }
+
+    /**
+     * Assert that all captured {@link LoggingEvent}s have been logged with a
+     * constant message template, passing variable values as arguments to
+     * placeholders instead of concatenating them into the message. Messages
+     * built at runtime cost allocations even when their level is disabled and
+     * defeat grouping events by template.
+     * <p>
+     * Templates built at runtime are told apart from constants by identity,
+     * so templates read from resources or configuration count as built at
+     * runtime as well.
+     */
+    public void assertAllParameterized() {
+        long[] counts = new long[2];
+        List<String> examples = new ArrayList<>();
+        sync();
+        logProvider.forEachEvent(event -> {
+            counts[0]++;
+            if (ConstantStrings.isBuiltAtRuntime(TemplatedLoggingEvent.messageTemplateOf(event))) {
+                counts[1]++;
+                if (examples.size() < MAX_REPORTED_EXAMPLES) {
+                    examples.add(event.getLoggerName() + ": \"" + event.getMessage() + "\"");
+                }
+            }
+        });
+        if (counts[1] > 0) {
+            Assertions.fail(counts[1] + " of " + counts[0] + " captured log events have a message built at "
+                + "runtime instead of a constant template with placeholders, e.g.:\n  "
+                + String.join("\n  ", examples));
+        }
+    }
+
+    /**
+     * Report the families of captured message templates that only differ in
+     * their variable parts, such as numbers, ids and dates, and that comprise
+     * at least the specified number of distinct templates. Such families
+     * usually come from values concatenated into the message instead of being
+     * passed as arguments.
+     * 
+     * @param minDistinctTemplates
+     *            The minimum number of distinct templates per family.
+     * @return The potentially empty list of template families, the largest
+     *         first.
+     */
+    public List<TemplateCardinality> highCardinalityTemplates(int minDistinctTemplates) {
+        TemplateCardinalityCollector collector = new TemplateCardinalityCollector();
+        sync();
+        logProvider.forEachEvent(collector::add);
+        return collector.getHighCardinalityTemplates(minDistinctTemplates);
+    }
+
+    /**
+     * Assert that the logger with the specified name has logged fewer than
+     * the specified number of captured events within every second. Events
+     * are counted in fixed one-second buckets aligned to the epoch second as
+     * they are captured, so a burst straddling two buckets is split between
+     * them. On failure, the per-second histogram is reported.
+     * 
+     * @param loggerName
+     *            The logger's name.
+     * @param eventsPerSecond
+     *            The exclusive limit of events per second.
+     */
+    public void assertRateBelow(String loggerName, int eventsPerSecond) {
+        assertRateBelow(rateHistogram(loggerName), eventsPerSecond, "logger " + loggerName);
+    }
+
+    /**
+     * Assert that fewer than the specified number of captured events
+     * matching the predicate have been logged within every second, counted
+     * in fixed one-second buckets aligned to the epoch second. On failure,
+     * the per-second histogram is reported.
+     * 
+     * @param predicate
+     *            The predicate selecting the events.
+     * @param eventsPerSecond
+     *            The exclusive limit of events per second.
+     */
+    public void assertRateBelow(Predicate<? super LoggingEvent> predicate, int eventsPerSecond) {
+        assertRateBelow(rateHistogram(predicate), eventsPerSecond, "matching events");
+    }
+
+    private void assertRateBelow(RateHistogram histogram, int eventsPerSecond, String description) {
+        if (histogram.getPeakEventsPerSecond() >= eventsPerSecond) {
+            Assertions.fail("Expected fewer than " + eventsPerSecond + " events per second from " + description
+                + " but got " + histogram.getPeakEventsPerSecond() + " at " + histogram.getPeakSecond() + ":\n"
+                + histogram);
+        }
+    }
+
+    /**
+     * Return the number of captured events per second that the logger with
+     * the specified name has logged, counted as they have been captured.
+     * 
+     * @param loggerName
+     *            The logger's name.
+     * @return The {@link RateHistogram}.
+     */
+    public RateHistogram rateHistogram(String loggerName) {
+        sync();
+        return logProvider.getRateHistogram(loggerName);
+    }
+
+    /**
+     * Return the number of captured events matching the predicate per second.
+     * 
+     * @param predicate
+     *            The predicate selecting the events.
+     * @return The {@link RateHistogram}.
+     */
+    public RateHistogram rateHistogram(Predicate<? super LoggingEvent> predicate) {
+        LogRateBuckets buckets = new LogRateBuckets();
+        sync();
+        logProvider.forEachEvent(event -> {
+            if (predicate.test(event)) {
+                buckets.record(event.getTimeStamp(), 0);
+            }
+        });
+        return buckets.histogram(0);
+    }
+
+    /**
+     * Return the captured {@link LoggingEvent}s that have been logged within
+     * the specified time window. The lookup uses a binary search over the
+     * events' timestamps instead of scanning all captured events.
+     * 
+     * @param from
+     *            The inclusive start of the time window.
+     * @param to
+     *            The inclusive end of the time window.
+     * @return The potentially empty list of {@link LoggingEvent}s within the
+     *         time window, in the order they have been captured.
+     */
+    public List<LoggingEvent> eventsBetween(Instant from, Instant to) {
+        sync();
+        return logProvider.getEventsBetween(from.toEpochMilli(), to.toEpochMilli());
+    }
+
+    /**
+     * Return the captured {@link LoggingEvent}s logged by the logger with the
+     * specified name. Log providers intern captured logger names into a
+     * dictionary, so the lookup compares integer ids instead of strings.
+     * 
+     * @param loggerName
+     *            The logger's name.
+     * @return The potentially empty list of matching {@link LoggingEvent}s,
+     *         in the order they have been captured.
+     */
+    public List<LoggingEvent> eventsFromLogger(String loggerName) {
+        sync();
+        return logProvider.getEventsFromLogger(loggerName);
+    }
+
+    /**
+     * Return the captured {@link LoggingEvent}s logged with the specified raw
+     * message template, e.g. <code>"User {} logged in"</code>. Log providers
+     * intern captured templates into a dictionary, so the lookup compares
+     * integer ids instead of strings.
+     * 
+     * @param template
+     *            The message template, before argument substitution.
+     * @return The potentially empty list of matching {@link LoggingEvent}s,
+     *         in the order they have been captured.
+     */
+    public List<LoggingEvent> eventsWithTemplate(String template) {
+        sync();
+        return logProvider.getEventsWithTemplate(template);
+    }
+
+    /**
+     * Return the captured {@link LoggingEvent}s that carry the specified value
+     * for a key, either as structured key-value pair, e.g. logged with
+     * <code>logger.atInfo().addKeyValue("orderId", 42)</code>, or in their
+     * MDC. Values are compared by their string representation, so
+     * <code>42</code> matches <code>"42"</code>. Keys indexed using
+     * {@link #withKeyIndex(String...)} are looked up without scanning.
+     * 
+     * @param key
+     *            The key.
+     * @param value
+     *            The value.
+     * @return The potentially empty list of matching {@link LoggingEvent}s,
+     *         in the order they have been captured.
+     */
+    public List<LoggingEvent> eventsWithKey(String key, Object value) {
+        sync();
+        return logProvider.getEventsWithKey(key, value);
+    }
+
+    /**
+     * Create a {@link EventFlow.Publisher} that publishes each
+     * {@link LoggingEvent} to its subscribers as soon as it is captured. Each
+     * subscriber gets its own buffer of 1024 events; if it falls behind, the
+     * oldest buffered events are discarded (see
+     * {@link BackpressurePolicy#LATEST}). Subscriptions complete after the
+     * test.
+     * 
+     * @return A new publisher of captured events.
+     */
+    public EventFlow.Publisher<LoggingEvent> publisher() {
+        return publisher(DEFAULT_PUBLISHER_BUFFER_SIZE, BackpressurePolicy.LATEST);
+    }
+
+    /**
+     * Create a {@link EventFlow.Publisher} that publishes each
+     * {@link LoggingEvent} to its subscribers as soon as it is captured.
+     * Delivery is asynchronous: a slow subscriber never blocks the thread that
+     * wrote the log event. Subscriptions complete after the test.
+     * 
+     * @param bufferSize
+     *            The maximum number of events buffered per subscriber.
+     * @param backpressurePolicy
+     *            What to do when a subscriber's buffer is full.
+     * @return A new publisher of captured events.
+     */
+    public EventFlow.Publisher<LoggingEvent> publisher(int bufferSize, BackpressurePolicy backpressurePolicy) {
+        BufferedEventPublisher publisher = new BufferedEventPublisher(bufferSize, backpressurePolicy);
+        synchronized (publishers) {
+            publishers.add(publisher);
+        }
+        logProvider.addCaptureListener(publisher);
+        return publisher;
+    }
+
+    /**
+     * Wait until all events logged before this call have been captured,
+     * which may take a while with asynchronous logging such as Log4j2's async
+     * loggers. Methods querying the captured events call this automatically,
+     * waiting up to 10 seconds.
+     */
+    public void sync() {
+        sync(DEFAULT_SYNC_TIMEOUT);
+    }
+
+    /**
+     * Wait until all events logged before this call have been captured,
+     * which may take a while with asynchronous logging such as Log4j2's async
+     * loggers.
+     * 
+     * @param timeout
+     *            The maximum time to wait.
+     * @throws IllegalStateException
+     *             If the log provider can tell right away that the events
+     *             can't be waited for, e.g. because the logging configuration
+     *             has been replaced since the capture started.
+     */
+    public void sync(Duration timeout) {
+        // When failing fast, the interrupt is reported after the test.
+        if (!logProvider.sync(timeout) && !Thread.currentThread().isInterrupted()) {
+            Assertions.fail("Log events logged asynchronously have not been captured within " + timeout);
+        }
+    }
+
     /**
      * Return all captured {@link LoggingEvent}s.
      * 
      * @return The potentially empty list of {@link LoggingEvent}s caputred.
      */
     public List<LoggingEvent> getEvents() {
+        sync();
         return logProvider.getEvents();
     }
 
+    /**
+     * Return a parallel stream over all captured {@link LoggingEvent}s. The
+     * stream reads directly from the capture storage, which splits evenly, so
+     * expensive filters (e.g. regular expressions over huge captures) are
+     * spread over all cores of the common fork-join pool.
+     * 
+     * @return A parallel {@link Stream} of the captured {@link LoggingEvent}s.
+     */
+    public Stream<LoggingEvent> parallelEvents() {
+        sync();
+        return logProvider.streamEvents(true);
+    }
+
+    /**
+     * Return a snapshot of the overhead LogUnit has incurred while capturing:
+     * the number of events captured and dropped, their estimated retained
+     * heap size, the distribution of the time spent capturing each event and
+     * the time spent reconfiguring the logging framework around the test.
+     * 
+     * @return The {@link CaptureStats}.
+     */
+    public CaptureStats stats() {
+        return logProvider.getStats();
+    }
+
     /**
      * The total number of {@link LoggingEvent}s captured.
      * 
      * @return The total number of {@link LoggingEvent}s captured.
      */
     public int size() {
+        sync();
         return logProvider.getEvents().size();
     }
 
     @Override
     public void beforeTestExecution(ExtensionContext context) throws Exception {
+        failFastEvent.set(null);
+        testThread = Thread.currentThread();
         logProvider.beforeTestExecution(context);
     }
 
     @Override
     public void afterTestExecution(ExtensionContext context) throws Exception {
         logProvider.afterTestExecution(context);
+        synchronized (publishers) {
+            for (BufferedEventPublisher publisher : publishers) {
+                logProvider.removeCaptureListener(publisher);
+                publisher.close();
+            }
+            publishers.clear();
+        }
+
+        testThread = null;
+        AssertionError failure = null;
+        try {
+            checkAfterTestExecution(context);
+        } catch (AssertionError e) {
+            failure = e;
+        }
+        boolean failed = failure != null || context != null && context.getExecutionException().isPresent();
+        if (exportOnFailure && failed) {
+            try {
+                exportTo(exportFileFor(context), exportMaxBytes, exportGzip);
+            } catch (UncheckedIOException e) {
+                if (failure == null) {
+                    throw e;
+                }
+                failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void checkAfterTestExecution(ExtensionContext context) {
+        LoggingEvent offendingEvent = failFastEvent.get();
+        if (offendingEvent != null) {
+            // Don't leak our interrupt into subsequent callbacks and tests.
+            Thread.interrupted();
+            Assertions.fail("Failing fast on log event <" + loggingEventToString(offendingEvent)
+                + "> captured on thread <" + offendingEvent.getThreadName() + ">");
+        }
+        if (logProvider.isMemoryBudgetExceeded()) {
+            Assertions.fail("Captured log events exceeded the memory budget of " + memoryBudget + " bytes, "
+                + logProvider.getStats().getEventsDropped() + " events have not been retained");
+        }
+        if (volumeBaseline) {
+            checkVolumeBaseline(volumeBaselineFile != null ? volumeBaselineFile : baselineFileFor(context));
+        }
     }
 
     /**
@@ -225,6 +1290,81 @@ public class LogCapturer implements BeforeTestExecutionCallback, AfterTestExecut
         this.logProvider = logProvider;
     }
 
+    /*
+     * The garbage-free ring neither indexes nor sizes nor post-processes the
+     * events it retains, so options doing so must not be silently ignored.
+     */
+    private void requireRetainedEvents(String option) {
+        if (garbageFreeCapture) {
+            throw new IllegalStateException(option + " can't be combined with garbage-free capture");
+        }
+        retentionOption = option;
+    }
+
+    private void checkFailFast(LoggingEvent event) {
+        Thread thread = testThread;
+        if (thread != null && failFastPredicate.test(event) && failFastEvent.compareAndSet(null, event)) {
+            thread.interrupt();
+        }
+    }
+
+    private void checkVolumeBaseline(Path baselineFile) {
+        LogVolume volume = new LogVolume();
+        logProvider.forEachEvent(volume::add);
+        if (!Files.exists(baselineFile) || Boolean.getBoolean(BASELINE_UPDATE_PROPERTY)) {
+            volume.write(baselineFile);
+            return;
+        }
+        List<String> growth = volume.findGrowth(LogVolume.read(baselineFile), volumeTolerance);
+        if (!growth.isEmpty()) {
+            Assertions.fail("Log volume grew by more than " + Math.round(volumeTolerance * 100)
+                + "% compared to the baseline " + baselineFile + ":\n  " + String.join("\n  ", growth));
+        }
+    }
+
+    private Path baselineFileFor(ExtensionContext context) {
+        if (!hasTestMethod(context)) {
+            throw new IllegalStateException("A volume baseline without an explicit file requires a test method");
+        }
+        return testFileFor(context, System.getProperty(BASELINE_DIR_PROPERTY, "build/logunit-baselines"), ".tsv");
+    }
+
+    /*
+     * Without a test method, e.g. when called manually, the capturer's
+     * identity keeps exports apart.
+     */
+    private Path exportFileFor(ExtensionContext context) {
+        String dir = System.getProperty(EXPORT_DIR_PROPERTY, "build/logunit");
+        String extension = exportGzip ? ".ndjson.gz" : ".ndjson";
+        if (!hasTestMethod(context)) {
+            return Paths.get(dir, "LogCapturer-" + Integer.toHexString(System.identityHashCode(this)) + extension);
+        }
+        return testFileFor(context, dir, extension);
+    }
+
+    private static boolean hasTestMethod(ExtensionContext context) {
+        return context != null && context.getTestClass().isPresent() && context.getTestMethod().isPresent();
+    }
+
+    private static Path testFileFor(ExtensionContext context, String dir, String extension) {
+        String fileName = context.getRequiredTestMethod().getName();
+        // Repeated and parameterized tests get a file per invocation.
+        if (context.getUniqueId().contains("-invocation:")) {
+            fileName += "-" + context.getDisplayName();
+        }
+        return Paths.get(dir, context.getRequiredTestClass().getName(),
+            fileName.replaceAll("[^A-Za-z0-9._-]", "_") + extension);
+    }
+
+    private LoggingCost requireLoggingCost(String loggerName) {
+        LoggingCost cost = logProvider.getLoggingCosts().get(loggerName);
+        if (cost == null) {
+            Assertions.fail("No logging cost has been measured for " + loggerName
+                + ", measured: " + logProvider.getLoggingCosts().keySet());
+        }
+        return cost;
+    }
+
     private String buildPrefix(String message) {
         return (StringUtils.isNotBlank(message) ? message + " ==> " : "");
     }
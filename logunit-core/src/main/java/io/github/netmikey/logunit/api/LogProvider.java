@@ -1,6 +1,13 @@
 package io.github.netmikey.logunit.api;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.extension.ExtensionContext;
 import org.slf4j.Logger;
@@ -37,6 +44,40 @@ public interface LogProvider {
      */
     public void provideForLogger(String name, Level level);
 
+    /**
+     * Configure the {@link LogProvider} to capture log events for all
+     * {@link Logger}s whose whole name matches the specified pattern,
+     * including those created after the test has started.
+     * 
+     * @param pattern
+     *            The regular expression logger names are matched against.
+     * @param level
+     *            The Level up to which log events should be captured for the
+     *            matching {@link Logger}s.
+     */
+    default void provideForLoggers(Pattern pattern, Level level) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support logger patterns");
+    }
+
+    /**
+     * Configure the {@link LogProvider} to capture log events for all
+     * {@link Logger}s whose name starts with the specified package name,
+     * including those created after the test has started. The default
+     * implementation captures for the package's own logger, which covers all
+     * descendant loggers in logging frameworks that route events up the
+     * logger hierarchy.
+     * 
+     * @param packageName
+     *            The dot-separated package name, e.g.
+     *            <code>com.acme.billing</code>.
+     * @param level
+     *            The Level up to which log events should be captured for the
+     *            {@link Logger}s in the package.
+     */
+    default void provideForPackage(String packageName, Level level) {
+        provideForLogger(packageName, level);
+    }
+
     /**
      * Return the captured {@link LoggingEvent}s.
      * 
@@ -44,6 +85,293 @@ public interface LogProvider {
      */
     List<LoggingEvent> getEvents();
 
+    /**
+     * Stream the captured {@link LoggingEvent}s. The default implementation
+     * streams a copy of {@link #getEvents()}; implementations should override
+     * it to stream directly from their storage.
+     * 
+     * @param parallel
+     *            Whether to return a parallel stream.
+     * @return The stream of captured {@link LoggingEvent}s.
+     */
+    default Stream<LoggingEvent> streamEvents(boolean parallel) {
+        List<LoggingEvent> events = getEvents();
+        return parallel ? events.parallelStream() : events.stream();
+    }
+
+    /**
+     * Visit the captured {@link LoggingEvent}s in the order they have been
+     * captured. The default implementation visits the events of
+     * {@link #streamEvents(boolean)}; implementations should override it to
+     * visit their storage through a reusable view without allocating per
+     * event.
+     * 
+     * @param visitor
+     *            The visitor.
+     */
+    default void forEachEvent(EventVisitor visitor) {
+        streamEvents(false).forEach(visitor::visit);
+    }
+
+    /**
+     * Return the captured {@link LoggingEvent}s whose timestamp lies within
+     * the specified time window, in the order they have been captured. The
+     * default implementation scans all captured events; implementations
+     * should override it with a more efficient lookup.
+     * 
+     * @param fromMillis
+     *            The inclusive start of the time window in milliseconds since
+     *            the epoch.
+     * @param toMillis
+     *            The inclusive end of the time window in milliseconds since
+     *            the epoch.
+     * @return The potentially empty list of {@link LoggingEvent}s within the
+     *         time window.
+     */
+    default List<LoggingEvent> getEventsBetween(long fromMillis, long toMillis) {
+        return getEvents().stream()
+            .filter(event -> event.getTimeStamp() >= fromMillis && event.getTimeStamp() <= toMillis)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Return the captured {@link LoggingEvent}s logged by the logger with the
+     * specified name, in the order they have been captured. The default
+     * implementation compares the names of all captured events;
+     * implementations should override it with a more efficient lookup.
+     * 
+     * @param loggerName
+     *            The logger's name.
+     * @return The potentially empty list of matching {@link LoggingEvent}s.
+     */
+    default List<LoggingEvent> getEventsFromLogger(String loggerName) {
+        return getEvents().stream()
+            .filter(event -> Objects.equals(event.getLoggerName(), loggerName))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Return the captured {@link LoggingEvent}s logged with the specified raw
+     * message template, i.e. the message before its arguments have been
+     * substituted, in the order they have been captured. Events that don't
+     * expose their template are matched by their message. The default
+     * implementation compares the templates of all captured events;
+     * implementations should override it with a more efficient lookup.
+     * 
+     * @param template
+     *            The message template.
+     * @return The potentially empty list of matching {@link LoggingEvent}s.
+     */
+    default List<LoggingEvent> getEventsWithTemplate(String template) {
+        return getEvents().stream()
+            .filter(event -> Objects.equals(TemplatedLoggingEvent.messageTemplateOf(event), template))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Return the captured {@link LoggingEvent}s that carry the specified value
+     * for a key, either as key-value pair or in their MDC, in the order they
+     * have been captured. Values are compared by their string representation.
+     * The default implementation scans all captured events; implementations
+     * should override it to look up keys indexed by
+     * {@link #setIndexedKeys(Set)}.
+     * 
+     * @param key
+     *            The key.
+     * @param value
+     *            The value.
+     * @return The potentially empty list of matching {@link LoggingEvent}s.
+     */
+    default List<LoggingEvent> getEventsWithKey(String key, Object value) {
+        return streamEvents(false)
+            .filter(event -> {
+                Object eventValue = TemplatedLoggingEvent.valueOf(event, key);
+                return eventValue != null && String.valueOf(eventValue).equals(String.valueOf(value));
+            })
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Index the values of the specified keys as events are captured, so that
+     * {@link #getEventsWithKey(String, Object)} doesn't need to scan the
+     * capture for them. The default implementation does nothing, leaving
+     * lookups to scan.
+     * 
+     * @param keys
+     *            The keys to index.
+     */
+    default void setIndexedKeys(Set<String> keys) {
+        // Indexes are an optimization providers may omit.
+    }
+
+    /**
+     * Return the number of captured events per second that the logger with
+     * the specified name has logged. The default implementation buckets the
+     * events of {@link #getEventsFromLogger(String)}; implementations should
+     * override it to count events into buckets as they capture them.
+     * 
+     * @param loggerName
+     *            The logger's name.
+     * @return The {@link RateHistogram}.
+     */
+    default RateHistogram getRateHistogram(String loggerName) {
+        return RateHistogram.ofTimestamps(getEventsFromLogger(loggerName).stream()
+            .mapToLong(LoggingEvent::getTimeStamp)
+            .toArray());
+    }
+
+    /**
+     * Wait until all events logged before this call have reached this
+     * {@link LogProvider}. The default implementation returns immediately,
+     * which is right for log providers that capture synchronously on the
+     * logging thread.
+     * 
+     * @param timeout
+     *            The maximum time to wait.
+     * @return <code>true</code> if all events have been delivered,
+     *         <code>false</code> if the timeout elapsed or the waiting thread
+     *         has been interrupted.
+     * @throws IllegalStateException
+     *             If the log provider can tell right away that the events
+     *             logged before this call can't be waited for.
+     */
+    default boolean sync(Duration timeout) {
+        return true;
+    }
+
+    /**
+     * Register a {@link CaptureListener} that gets notified about each event
+     * captured from now on.
+     * 
+     * @param listener
+     *            The listener to add.
+     */
+    default void addCaptureListener(CaptureListener listener) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support capture listeners");
+    }
+
+    /**
+     * Unregister a previously registered {@link CaptureListener}.
+     * 
+     * @param listener
+     *            The listener to remove.
+     */
+    default void removeCaptureListener(CaptureListener listener) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support capture listeners");
+    }
+
+    /**
+     * Return a snapshot of the overhead this {@link LogProvider} has incurred
+     * while capturing. The default implementation only reports the number of
+     * captured events, for log providers that don't record their overhead.
+     * 
+     * @return The {@link CaptureStats}.
+     */
+    default CaptureStats getStats() {
+        return new CaptureStats(getEvents().size(), 0, 0, new LatencyHistogram(), 0, 0);
+    }
+
+    /**
+     * Limit the estimated heap size retained by the captured events.
+     * 
+     * @param maxBytes
+     *            The maximum estimated heap size in bytes.
+     * @param policy
+     *            What to do when retaining another event would exceed the
+     *            budget.
+     */
+    default void setMemoryBudget(long maxBytes, MemoryBudgetPolicy policy) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support memory budgets");
+    }
+
+    /**
+     * Whether events have been rejected because they would have exceeded the
+     * memory budget under the {@link MemoryBudgetPolicy#FAIL} policy.
+     * 
+     * @return <code>true</code> if the memory budget has been exceeded.
+     */
+    default boolean isMemoryBudgetExceeded() {
+        return false;
+    }
+
+    /**
+     * Retain compact {@link ThrowableSnapshot}s instead of the live
+     * throwables logged along with the captured events.
+     * 
+     * @param maxFrames
+     *            The maximum number of stack trace frames to retain per
+     *            throwable.
+     */
+    default void setCompactThrowables(int maxFrames) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support compact throwables");
+    }
+
+    /**
+     * Retain detached copies of the captured events' arguments instead of
+     * the objects passed to the logger.
+     * 
+     * @param detachArguments
+     *            Whether to detach arguments.
+     */
+    default void setDetachArguments(boolean detachArguments) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support detaching arguments");
+    }
+
+    /**
+     * Capture into a fixed number of preallocated slots without allocating
+     * per event, overwriting the oldest events once all slots are used.
+     * 
+     * @param capacity
+     *            The maximum number of events retained.
+     */
+    default void setGarbageFreeCapture(int capacity) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support garbage-free capture");
+    }
+
+    /**
+     * Count log calls to the captured loggers that are rejected because their
+     * level is disabled, see {@link #getDisabledCallStats()}.
+     * 
+     * @param disabledCallDetection
+     *            Whether to count disabled log calls.
+     */
+    default void setDisabledCallDetection(boolean disabledCallDetection) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support disabled call detection");
+    }
+
+    /**
+     * Return a snapshot of the log calls to the captured loggers that have
+     * been rejected because their level was disabled, as counted since
+     * {@link #setDisabledCallDetection(boolean) detection} has been enabled.
+     * 
+     * @return The {@link DisabledCallStats}.
+     */
+    default DisabledCallStats getDisabledCallStats() {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support disabled call detection");
+    }
+
+    /**
+     * Measure the heap allocations and CPU time the logging threads spend on
+     * each captured log call, see {@link #getLoggingCosts()}.
+     * 
+     * @param loggingCostMeasurement
+     *            Whether to measure logging costs.
+     */
+    default void setLoggingCostMeasurement(boolean loggingCostMeasurement) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support measuring logging costs");
+    }
+
+    /**
+     * Return the costs of the captured log calls per logger, as measured since
+     * {@link #setLoggingCostMeasurement(boolean) measurement} has been
+     * enabled.
+     * 
+     * @return The {@link LoggingCost}s by logger name.
+     */
+    default Map<String, LoggingCost> getLoggingCosts() {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support measuring logging costs");
+    }
+
     /**
      * Callback function that gets executed before the test. Used to set up the
      * {@link LogProvider} within the logging framework.
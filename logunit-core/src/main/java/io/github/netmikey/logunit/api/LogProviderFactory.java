@@ -1,13 +1,33 @@
 package io.github.netmikey.logunit.api;
 
+import java.util.Locale;
+
 /**
  * Factory that creates {@link LogProvider} instances, used as SPI.
  */
 public interface LogProviderFactory {
+
     /**
      * Create a new {@link LogProvider} instance.
      * 
      * @return The new instance.
      */
     public LogProvider create();
+
+    /**
+     * Get the name this factory can be selected by if there is more than one
+     * on the classpath. The default implementation derives it from the simple
+     * class name: without the <code>LogProviderFactory</code> suffix, in
+     * lower case.
+     * 
+     * @return The name, e.g. <code>logback</code>.
+     */
+    default String getName() {
+        String name = getClass().getSimpleName();
+        String suffix = LogProviderFactory.class.getSimpleName();
+        if (name.endsWith(suffix) && name.length() > suffix.length()) {
+            name = name.substring(0, name.length() - suffix.length());
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
 }
@@ -0,0 +1,98 @@
+package io.github.netmikey.logunit.api;
+
+/**
+ * The heap allocations and CPU time spent by the logging threads on the log
+ * calls of one logger that have been captured.
+ */
+public class LoggingCost {
+
+    private final String loggerName;
+
+    private final long events;
+
+    private final long allocatedBytes;
+
+    private final long cpuNanos;
+
+    /**
+     * Create a new instance.
+     * 
+     * @param loggerName
+     *            The logger's name.
+     * @param events
+     *            The number of captured events measured.
+     * @param allocatedBytes
+     *            The bytes allocated while logging them.
+     * @param cpuNanos
+     *            The CPU time spent logging them.
+     */
+    public LoggingCost(String loggerName, long events, long allocatedBytes, long cpuNanos) {
+        this.loggerName = loggerName;
+        this.events = events;
+        this.allocatedBytes = allocatedBytes;
+        this.cpuNanos = cpuNanos;
+    }
+
+    /**
+     * Get the logger's name.
+     * 
+     * @return Returns the loggerName.
+     */
+    public String getLoggerName() {
+        return loggerName;
+    }
+
+    /**
+     * Get the number of captured events measured.
+     * 
+     * @return Returns the events.
+     */
+    public long getEvents() {
+        return events;
+    }
+
+    /**
+     * Get the number of bytes allocated on the heap while logging the
+     * events.
+     * 
+     * @return Returns the allocatedBytes.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Get the CPU time in nanoseconds spent logging the events.
+     * 
+     * @return Returns the cpuNanos.
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * Get the mean number of bytes allocated per event.
+     * 
+     * @return The mean, <code>0</code> if no events have been measured.
+     */
+    public double getAllocatedBytesPerEvent() {
+        return events == 0 ? 0 : (double) allocatedBytes / events;
+    }
+
+    /**
+     * Get the mean CPU time in nanoseconds spent per event.
+     * 
+     * @return The mean, <code>0</code> if no events have been measured.
+     */
+    public double getCpuNanosPerEvent() {
+        return events == 0 ? 0 : (double) cpuNanos / events;
+    }
+
+    @Override
+    public String toString() {
+        return "LoggingCost [loggerName=" + loggerName
+            + ", events=" + events
+            + ", allocatedBytes=" + allocatedBytes
+            + ", cpuNanos=" + cpuNanos + "]";
+    }
+}
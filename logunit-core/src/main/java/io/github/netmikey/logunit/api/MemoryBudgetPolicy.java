@@ -0,0 +1,21 @@
+package io.github.netmikey.logunit.api;
+
+/**
+ * What a {@link LogCapturer} does when retaining another captured event would
+ * exceed its memory budget.
+ */
+public enum MemoryBudgetPolicy {
+
+    /**
+     * Evict the oldest captured events until the new one fits. Assertions
+     * only see the most recent events, but the test goes on undisturbed.
+     */
+    EVICT_OLDEST,
+
+    /**
+     * Stop retaining events and fail the test after its execution, so that
+     * an unexpectedly chatty test is noticed instead of silently running with
+     * partial logs.
+     */
+    FAIL
+}
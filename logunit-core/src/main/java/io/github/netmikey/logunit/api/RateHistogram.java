@@ -0,0 +1,136 @@
+package io.github.netmikey.logunit.api;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * The number of captured events per second, in fixed one-second buckets
+ * aligned to the epoch second, from the first to the last second in which
+ * events have been captured.
+ */
+public class RateHistogram {
+
+    private static final int MAX_BAR_LENGTH = 50;
+
+    private final long firstSecond;
+
+    private final int[] counts;
+
+    /**
+     * Create a new histogram.
+     * 
+     * @param firstSecond
+     *            The epoch second of the first bucket.
+     * @param counts
+     *            The number of events per bucket, one bucket per consecutive
+     *            second. Empty if there have been no events.
+     */
+    public RateHistogram(long firstSecond, int[] counts) {
+        this.firstSecond = firstSecond;
+        this.counts = counts.clone();
+    }
+
+    /**
+     * Create a histogram of events with the specified timestamps.
+     * 
+     * @param timestampsMillis
+     *            The events' timestamps in milliseconds since the epoch, in
+     *            any order.
+     * @return The new histogram.
+     */
+    public static RateHistogram ofTimestamps(long[] timestampsMillis) {
+        if (timestampsMillis.length == 0) {
+            return new RateHistogram(0, new int[0]);
+        }
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (long timestamp : timestampsMillis) {
+            first = Math.min(first, Math.floorDiv(timestamp, 1000));
+            last = Math.max(last, Math.floorDiv(timestamp, 1000));
+        }
+        int[] counts = new int[Math.toIntExact(last - first + 1)];
+        for (long timestamp : timestampsMillis) {
+            counts[(int) (Math.floorDiv(timestamp, 1000) - first)]++;
+        }
+        return new RateHistogram(first, counts);
+    }
+
+    /**
+     * Get the start of the first bucket.
+     * 
+     * @return The start, or <code>null</code> if there have been no events.
+     */
+    public Instant getStart() {
+        return counts.length == 0 ? null : Instant.ofEpochSecond(firstSecond);
+    }
+
+    /**
+     * Get the number of events per bucket, one bucket per consecutive second
+     * starting at {@link #getStart()}.
+     * 
+     * @return A copy of the counts.
+     */
+    public int[] getCounts() {
+        return counts.clone();
+    }
+
+    /**
+     * Get the total number of events.
+     * 
+     * @return The number of events.
+     */
+    public long getTotalEvents() {
+        return Arrays.stream(counts).asLongStream().sum();
+    }
+
+    /**
+     * Get the highest number of events captured within a single bucket.
+     * 
+     * @return The number of events, <code>0</code> if there have been none.
+     */
+    public int getPeakEventsPerSecond() {
+        return counts.length == 0 ? 0 : counts[peakIndex()];
+    }
+
+    /**
+     * Get the start of the bucket with the most events.
+     * 
+     * @return The start, or <code>null</code> if there have been no events.
+     */
+    public Instant getPeakSecond() {
+        return counts.length == 0 ? null : Instant.ofEpochSecond(firstSecond + peakIndex());
+    }
+
+    private int peakIndex() {
+        int peak = 0;
+        for (int i = 1; i < counts.length; i++) {
+            if (counts[i] > counts[peak]) {
+                peak = i;
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * Render the histogram as one line per second with the number of events
+     * and a bar scaled to the peak.
+     */
+    @Override
+    public String toString() {
+        if (counts.length == 0) {
+            return "(no events)";
+        }
+        int peak = getPeakEventsPerSecond();
+        StringBuilder report = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            int barLength = peak == 0 ? 0 : (int) ((long) counts[i] * MAX_BAR_LENGTH / peak);
+            report.append(Instant.ofEpochSecond(firstSecond + i))
+                .append(String.format(" %8d ", counts[i]));
+            for (int j = 0; j < barLength; j++) {
+                report.append('#');
+            }
+            report.append('\n');
+        }
+        return report.toString();
+    }
+}
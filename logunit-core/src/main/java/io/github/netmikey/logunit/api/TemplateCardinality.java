@@ -0,0 +1,97 @@
+package io.github.netmikey.logunit.api;
+
+/**
+ * A family of captured message templates that only differ in their variable
+ * parts, such as numbers and ids. Many distinct templates within a family
+ * indicate that values have been concatenated into the message instead of
+ * being passed as arguments to placeholders.
+ */
+public class TemplateCardinality {
+
+    private final String loggerName;
+
+    private final String skeleton;
+
+    private final int distinctTemplates;
+
+    private final long events;
+
+    private final String example;
+
+    /**
+     * Create a new instance.
+     * 
+     * @param loggerName
+     *            The name of the logger the templates have been logged with.
+     * @param skeleton
+     *            The templates' common form, with variable parts replaced by
+     *            <code>#</code>.
+     * @param distinctTemplates
+     *            The number of distinct templates in the family.
+     * @param events
+     *            The number of captured events with a template of the family.
+     * @param example
+     *            One of the templates.
+     */
+    public TemplateCardinality(String loggerName, String skeleton, int distinctTemplates, long events,
+        String example) {
+
+        this.loggerName = loggerName;
+        this.skeleton = skeleton;
+        this.distinctTemplates = distinctTemplates;
+        this.events = events;
+        this.example = example;
+    }
+
+    /**
+     * Get the name of the logger the templates have been logged with.
+     * 
+     * @return Returns the loggerName.
+     */
+    public String getLoggerName() {
+        return loggerName;
+    }
+
+    /**
+     * Get the templates' common form, with variable parts replaced by
+     * <code>#</code>.
+     * 
+     * @return Returns the skeleton.
+     */
+    public String getSkeleton() {
+        return skeleton;
+    }
+
+    /**
+     * Get the number of distinct templates in the family.
+     * 
+     * @return Returns the distinctTemplates.
+     */
+    public int getDistinctTemplates() {
+        return distinctTemplates;
+    }
+
+    /**
+     * Get the number of captured events with a template of the family.
+     * 
+     * @return Returns the events.
+     */
+    public long getEvents() {
+        return events;
+    }
+
+    /**
+     * Get one of the templates.
+     * 
+     * @return Returns the example.
+     */
+    public String getExample() {
+        return example;
+    }
+
+    @Override
+    public String toString() {
+        return loggerName + " \"" + skeleton + "\": " + distinctTemplates + " distinct templates in " + events
+            + " events, e.g. \"" + example + "\"";
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.netmikey.logunit.api;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.event.KeyValuePair;
+import org.slf4j.event.LoggingEvent;
+
+/**
+ * A {@link LoggingEvent} that also exposes its message as it has been passed
+ * to the logger, before any arguments have been substituted into it, and the
+ * MDC that was in effect when it was logged. The events captured by LogUnit's
+ * log providers implement this interface.
+ */
+public interface TemplatedLoggingEvent extends LoggingEvent {
+
+    /**
+     * Get the message before argument substitution, e.g.
+     * <code>"Hello {}"</code> while {@link #getMessage()} returns
+     * <code>"Hello world"</code>.
+     * 
+     * @return The message template, which is the message itself if the
+     *         logging framework doesn't distinguish both.
+     */
+    String getMessageTemplate();
+
+    /**
+     * Get the mapped diagnostic context (MDC) the event has been logged with,
+     * called context data by Log4j2. Captured events with equal MDCs may share
+     * the same instance.
+     * 
+     * @return The unmodifiable, potentially empty MDC.
+     */
+    default Map<String, String> getMdc() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Get the message template of any {@link LoggingEvent}.
+     * 
+     * @param event
+     *            The event.
+     * @return The event's {@link #getMessageTemplate() message template} if
+     *         it is a {@link TemplatedLoggingEvent}, its message otherwise.
+     */
+    static String messageTemplateOf(LoggingEvent event) {
+        return event instanceof TemplatedLoggingEvent
+            ? ((TemplatedLoggingEvent) event).getMessageTemplate()
+            : event.getMessage();
+    }
+
+    /**
+     * Get the MDC of any {@link LoggingEvent}.
+     * 
+     * @param event
+     *            The event.
+     * @return The event's {@link #getMdc() MDC} if it is a
+     *         {@link TemplatedLoggingEvent}, an empty map otherwise.
+     */
+    static Map<String, String> mdcOf(LoggingEvent event) {
+        return event instanceof TemplatedLoggingEvent
+            ? ((TemplatedLoggingEvent) event).getMdc()
+            : Collections.emptyMap();
+    }
+
+    /**
+     * Get the value any {@link LoggingEvent} carries for the specified key:
+     * the value of its first key-value pair with that key or, failing that,
+     * its MDC's value.
+     * 
+     * @param event
+     *            The event.
+     * @param key
+     *            The key.
+     * @return The value, or <code>null</code> if the event doesn't carry the
+     *         key.
+     */
+    static Object valueOf(LoggingEvent event, String key) {
+        if (event.getKeyValuePairs() != null) {
+            for (KeyValuePair pair : event.getKeyValuePairs()) {
+                if (Objects.equals(pair.key, key)) {
+                    return pair.value;
+                }
+            }
+        }
+        return mdcOf(event).get(key);
+    }
+}
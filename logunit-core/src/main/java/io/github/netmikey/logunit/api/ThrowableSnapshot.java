@@ -0,0 +1,84 @@
+package io.github.netmikey.logunit.api;
+
+/**
+ * Compact, immutable copy of a {@link Throwable} captured along with a log
+ * event: it keeps the original's class name, message, a truncated stack
+ * trace and the chain of causes, but none of the object graph the original
+ * may reference. Suppressed exceptions are not retained.
+ * <p>
+ * Since the original class is not instantiated, <code>instanceof</code>
+ * checks and catch clauses don't match its type; use {@link #getClassName()}
+ * instead.
+ */
+public class ThrowableSnapshot extends Throwable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String className;
+
+    private final int omittedFrameCount;
+
+    /**
+     * Create a new snapshot.
+     * 
+     * @param className
+     *            The fully qualified class name of the original throwable.
+     * @param message
+     *            The original throwable's message.
+     * @param stackTrace
+     *            The retained, topmost frames of the original throwable's
+     *            stack trace.
+     * @param omittedFrameCount
+     *            The number of bottommost frames that have not been retained.
+     * @param cause
+     *            The snapshot of the original throwable's cause, or
+     *            <code>null</code>.
+     */
+    public ThrowableSnapshot(String className, String message, StackTraceElement[] stackTrace,
+        int omittedFrameCount, ThrowableSnapshot cause) {
+
+        super(message, cause, false, true);
+        this.className = className;
+        this.omittedFrameCount = omittedFrameCount;
+        setStackTrace(stackTrace);
+    }
+
+    /**
+     * Get the fully qualified class name of the original throwable.
+     * 
+     * @return Returns the className.
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Get the number of bottommost stack trace frames of the original
+     * throwable that have not been retained.
+     * 
+     * @return Returns the omittedFrameCount.
+     */
+    public int getOmittedFrameCount() {
+        return omittedFrameCount;
+    }
+
+    @Override
+    public ThrowableSnapshot getCause() {
+        return (ThrowableSnapshot) super.getCause();
+    }
+
+    /**
+     * The stack trace is taken from the original, so there's no point in
+     * capturing the snapshot's own.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        String message = getLocalizedMessage();
+        return message != null ? className + ": " + message : className;
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.netmikey.logunit.core;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Detaches captured log arguments from the objects the code under test has
+ * passed to the logger, so that those can be garbage collected while the
+ * captured events are still retained.
+ */
+public final class ArgumentSnapshots {
+
+    /**
+     * Immutable value types that are retained as they are: they cannot change
+     * after being logged and don't reference anything else.
+     */
+    private static final Set<Class<?>> VALUE_TYPES = new HashSet<>(Arrays.asList(
+        String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+        Float.class, Double.class, BigInteger.class, BigDecimal.class, UUID.class,
+        java.time.Instant.class, java.time.Duration.class, java.time.Period.class, java.time.LocalDate.class,
+        java.time.LocalTime.class, java.time.LocalDateTime.class, java.time.OffsetDateTime.class,
+        java.time.ZonedDateTime.class));
+
+    private ArgumentSnapshots() {
+        // Do not instantiate.
+    }
+
+    /**
+     * Create a detached copy of a log event's argument array: immutable
+     * values and enum constants are kept as they are, any other argument is
+     * replaced by its string representation as of now.
+     * 
+     * @param arguments
+     *            The arguments, may be <code>null</code>.
+     * @return The detached copy, or <code>null</code> if the arguments were
+     *         <code>null</code>.
+     */
+    public static Object[] detach(Object[] arguments) {
+        if (arguments == null) {
+            return null;
+        }
+        Object[] detached = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            detached[i] = detach(arguments[i]);
+        }
+        return detached;
+    }
+
+    /**
+     * Whether the specified argument is retained as it is by
+     * {@link #detach(Object[])}: <code>null</code>, an enum constant or an
+     * immutable value whose string representation is cheap to compute.
+     * 
+     * @param argument
+     *            The argument, may be <code>null</code>.
+     * @return <code>true</code> if the argument is a value.
+     */
+    public static boolean isValue(Object argument) {
+        return argument == null || argument instanceof Enum || VALUE_TYPES.contains(argument.getClass());
+    }
+
+    private static Object detach(Object argument) {
+        if (isValue(argument)) {
+            return argument;
+        }
+        try {
+            if (argument instanceof Object[]) {
+                return Arrays.deepToString((Object[]) argument);
+            } else if (argument.getClass().isArray()) {
+                // Primitive arrays: wrap to reuse deepToString's formatting.
+                String wrapped = Arrays.deepToString(new Object[] { argument });
+                return wrapped.substring(1, wrapped.length() - 1);
+            }
+            return String.valueOf(argument);
+        } catch (RuntimeException e) {
+            return "[" + argument.getClass().getName() + ".toString() failed: " + e + "]";
+        }
+    }
+}
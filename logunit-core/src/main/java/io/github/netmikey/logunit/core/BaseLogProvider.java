@@ -1,11 +1,25 @@
 package io.github.netmikey.logunit.core;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 
 import org.slf4j.event.Level;
+import org.slf4j.event.LoggingEvent;
 
+import io.github.netmikey.logunit.api.CaptureInstrumentation;
+import io.github.netmikey.logunit.api.CaptureListener;
+import io.github.netmikey.logunit.api.CaptureStats;
+import io.github.netmikey.logunit.api.DisabledCallStats;
 import io.github.netmikey.logunit.api.LogProvider;
+import io.github.netmikey.logunit.api.LoggingCost;
+import io.github.netmikey.logunit.api.MemoryBudgetPolicy;
 
 /**
  * Base class for log providers, handling the registration of type- and
@@ -17,6 +31,29 @@ public abstract class BaseLogProvider implements LogProvider {
 
     private final Map<String, Level> loggerNames = new HashMap<>();
 
+    private final LoggerNameTrie<Level> captureLevels = new LoggerNameTrie<>();
+
+    private final LoggerPatternMatcher loggerPatterns = new LoggerPatternMatcher();
+
+    private final List<CaptureListener> captureListeners = new CopyOnWriteArrayList<>();
+
+    private final CaptureStatistics statistics = new CaptureStatistics();
+
+    private final MemoryBudgetGuard memoryBudgetGuard = new MemoryBudgetGuard(statistics);
+
+    private volatile ThrowableSnapshotFactory throwableSnapshotFactory;
+
+    private volatile boolean detachArguments;
+
+    private final DisabledCallCounter disabledCallCounter = new DisabledCallCounter();
+
+    private volatile boolean disabledCallDetection;
+
+    private volatile LoggingCostRecorder loggingCostRecorder;
+
+    private final List<CaptureInstrumentation> instrumentations = CaptureInstrumentationSpiLoader
+        .getInstrumentations();
+
     @Override
     public void provideForType(Class<?> type, Level level) {
         if (loggerTypes.containsKey(type)) {
@@ -24,6 +61,10 @@ public abstract class BaseLogProvider implements LogProvider {
                 + type.getName() + ". Each logger must only be captured once!");
         }
         loggerTypes.put(type, level);
+        // Levels registered by name take precedence over those by type.
+        if (!loggerNames.containsKey(type.getName())) {
+            captureLevels.put(type.getName(), level);
+        }
     }
 
     @Override
@@ -33,6 +74,425 @@ public abstract class BaseLogProvider implements LogProvider {
                 + name + ". Each logger must only be captured once!");
         }
         loggerNames.put(name, level);
+        captureLevels.put(name, level);
+    }
+
+    @Override
+    public void provideForLoggers(Pattern pattern, Level level) {
+        loggerPatterns.add(pattern, level);
+    }
+
+    @Override
+    public void addCaptureListener(CaptureListener listener) {
+        captureListeners.add(listener);
+    }
+
+    @Override
+    public void removeCaptureListener(CaptureListener listener) {
+        captureListeners.remove(listener);
+    }
+
+    @Override
+    public CaptureStats getStats() {
+        return statistics.snapshot();
+    }
+
+    @Override
+    public void setMemoryBudget(long maxBytes, MemoryBudgetPolicy policy) {
+        memoryBudgetGuard.setBudget(maxBytes, policy);
+    }
+
+    @Override
+    public boolean isMemoryBudgetExceeded() {
+        return memoryBudgetGuard.isExceeded();
+    }
+
+    @Override
+    public void setCompactThrowables(int maxFrames) {
+        throwableSnapshotFactory = new ThrowableSnapshotFactory(maxFrames);
+    }
+
+    @Override
+    public void setDetachArguments(boolean detachArguments) {
+        this.detachArguments = detachArguments;
+    }
+
+    @Override
+    public void setDisabledCallDetection(boolean disabledCallDetection) {
+        this.disabledCallDetection = disabledCallDetection;
+    }
+
+    @Override
+    public DisabledCallStats getDisabledCallStats() {
+        return disabledCallCounter.snapshot();
+    }
+
+    @Override
+    public void setLoggingCostMeasurement(boolean loggingCostMeasurement) {
+        loggingCostRecorder = loggingCostMeasurement ? new LoggingCostRecorder() : null;
+    }
+
+    @Override
+    public Map<String, LoggingCost> getLoggingCosts() {
+        LoggingCostRecorder recorder = loggingCostRecorder;
+        return recorder == null ? Collections.emptyMap() : recorder.snapshot();
+    }
+
+    /**
+     * Get the recorder for this provider's capture overhead.
+     * 
+     * @return Returns the statistics.
+     */
+    protected CaptureStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Get the guard accounting for the heap size retained by this provider's
+     * captured events, to be handed to the appender.
+     * 
+     * @return Returns the memoryBudgetGuard.
+     */
+    protected MemoryBudgetGuard getMemoryBudgetGuard() {
+        return memoryBudgetGuard;
+    }
+
+    /**
+     * Get the factory for the snapshots to retain instead of captured
+     * throwables.
+     * 
+     * @return The factory, or <code>null</code> if live throwables should be
+     *         retained.
+     */
+    protected ThrowableSnapshotFactory getThrowableSnapshotFactory() {
+        return throwableSnapshotFactory;
+    }
+
+    /**
+     * Whether captured events' arguments should be replaced by
+     * {@link ArgumentSnapshots#detach(Object[]) detached copies} before the
+     * events are stored.
+     * 
+     * @return Returns the detachArguments.
+     */
+    protected boolean isDetachArguments() {
+        return detachArguments;
+    }
+
+    /**
+     * Whether log calls rejected by level should be counted, which requires
+     * hooking into the logging framework before its level check.
+     * 
+     * @return Returns the disabledCallDetection.
+     */
+    protected boolean isDisabledCallDetection() {
+        return disabledCallDetection;
+    }
+
+    /**
+     * Get the counter for log calls rejected by level, to be fed by the
+     * logging framework's hook.
+     * 
+     * @return Returns the disabledCallCounter.
+     */
+    protected DisabledCallCounter getDisabledCallCounter() {
+        return disabledCallCounter;
+    }
+
+    /**
+     * Get the recorder measuring the costs of the captured log calls, to be
+     * handed to the appender and the logging framework's hook.
+     * 
+     * @return The recorder, or <code>null</code> if logging costs are not
+     *         measured.
+     */
+    protected LoggingCostRecorder getLoggingCostRecorder() {
+        return loggingCostRecorder;
+    }
+
+    /**
+     * Get the level at which events of the specified logger are captured,
+     * which is the level registered for the logger itself or, failing that,
+     * for its nearest ancestor in the dot-separated logger hierarchy or,
+     * failing that, for the first pattern its name matches.
+     * 
+     * @param loggerName
+     *            The logger's name.
+     * @return The level, or <code>null</code> if events of the logger are not
+     *         captured.
+     */
+    protected Level getCaptureLevel(String loggerName) {
+        if (loggerName == null) {
+            return null;
+        }
+        Level level = captureLevels.findNearest(loggerName);
+        return level != null || loggerPatterns.isEmpty() ? level : loggerPatterns.match(loggerName);
+    }
+
+    /**
+     * Get the level at which events of the specified logger are captured
+     * because its name matches a pattern. Loggers captured by their own or
+     * their ancestor's name are excluded, since implementations capture them
+     * where they are attached to.
+     * 
+     * @param loggerName
+     *            The logger's name.
+     * @return The level, or <code>null</code> if events of the logger are not
+     *         captured by pattern.
+     */
+    protected Level getPatternCaptureLevel(String loggerName) {
+        if (loggerName == null || loggerPatterns.isEmpty() || captureLevels.findNearest(loggerName) != null) {
+            return null;
+        }
+        return loggerPatterns.match(loggerName);
+    }
+
+    /**
+     * Whether any {@link CaptureListener} is registered or any
+     * {@link CaptureInstrumentation} is enabled. Implementations should check
+     * this before mapping a captured event for
+     * {@link #fireEventCaptured(LoggingEvent)} so that capturing stays cheap
+     * when nobody is listening.
+     * 
+     * @return <code>true</code> if there is at least one listener.
+     */
+    protected boolean hasCaptureListeners() {
+        if (!captureListeners.isEmpty()) {
+            return true;
+        }
+        for (int i = 0; i < instrumentations.size(); i++) {
+            if (instrumentations.get(i).isEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Notify all registered {@link CaptureListener}s and all enabled
+     * {@link CaptureInstrumentation}s about a captured event.
+     * 
+     * @param event
+     *            The captured event.
+     */
+    protected void fireEventCaptured(LoggingEvent event) {
+        for (CaptureListener listener : captureListeners) {
+            listener.eventCaptured(event);
+        }
+        for (int i = 0; i < instrumentations.size(); i++) {
+            CaptureInstrumentation instrumentation = instrumentations.get(i);
+            if (instrumentation.isEnabled()) {
+                instrumentation.eventCaptured(event);
+            }
+        }
+    }
+
+    /**
+     * Run the reconfiguration of the logging framework that prepares the
+     * capturing before the test, recording its duration and reporting it to
+     * the {@link CaptureInstrumentation}s.
+     * 
+     * @param reconfiguration
+     *            The reconfiguration.
+     */
+    protected void reconfigureBeforeTestExecution(Runnable reconfiguration) {
+        getStatistics().recordBeforeTestExecution(reconfigure("beforeTestExecution", reconfiguration));
+    }
+
+    /**
+     * Run the reconfiguration of the logging framework that resets it after
+     * the test, recording its duration and reporting it to the
+     * {@link CaptureInstrumentation}s.
+     * 
+     * @param reconfiguration
+     *            The reconfiguration.
+     */
+    protected void reconfigureAfterTestExecution(Runnable reconfiguration) {
+        getStatistics().recordAfterTestExecution(reconfigure("afterTestExecution", reconfiguration));
+    }
+
+    private long reconfigure(String phase, Runnable reconfiguration) {
+        long[] nanos = new long[1];
+        Runnable timed = () -> {
+            long start = System.nanoTime();
+            reconfiguration.run();
+            nanos[0] = System.nanoTime() - start;
+        };
+        reconfigure(phase, timed, 0);
+        return nanos[0];
+    }
+
+    private void reconfigure(String phase, Runnable reconfiguration, int instrumentationIndex) {
+        if (instrumentationIndex == instrumentations.size()) {
+            reconfiguration.run();
+        } else {
+            instrumentations.get(instrumentationIndex).reconfigure(phase,
+                () -> reconfigure(phase, reconfiguration, instrumentationIndex + 1));
+        }
+    }
+
+    /**
+     * Collect the events within the specified time window from an appender's
+     * event storage. The appender's {@link TimestampIndex} narrows down the
+     * range of positions that can contain matching events so that only those
+     * have to be visited.
+     * 
+     * @param <E>
+     *            The appender's event type.
+     * @param events
+     *            The appender's events in capture order.
+     * @param index
+     *            The appender's {@link TimestampIndex}, aligned with the
+     *            events.
+     * @param fromMillis
+     *            The inclusive start of the time window.
+     * @param toMillis
+     *            The inclusive end of the time window.
+     * @param mapper
+     *            The function mapping the appender's events to
+     *            {@link LoggingEvent}s.
+     * @return The potentially empty list of matching {@link LoggingEvent}s.
+     */
+    protected <E> List<LoggingEvent> getEventsBetween(ChunkedArray<E> events, TimestampIndex index,
+        long fromMillis, long toMillis, Function<? super E, LoggingEvent> mapper) {
+
+        // Evicted events keep their position in the index.
+        int lowerBound = Math.max(index.lowerBound(fromMillis), events.firstIndex());
+        int upperBound = index.upperBound(toMillis);
+        List<LoggingEvent> result = new ArrayList<>();
+        for (int i = lowerBound; i < upperBound; i++) {
+            long timestamp = index.timestampAt(i);
+            if (timestamp >= fromMillis && timestamp <= toMillis) {
+                E event = events.get(i);
+                if (event != null) {
+                    result.add(mapper.apply(event));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Collect the events whose logger name or message template has the
+     * specified id in an {@link EventDictionary}'s column, comparing ids
+     * instead of strings.
+     * 
+     * @param <E>
+     *            The appender's event type.
+     * @param events
+     *            The appender's events in capture order.
+     * @param ids
+     *            The dictionary's column of ids, aligned with the events.
+     * @param id
+     *            The id to look for, as returned by
+     *            {@link StringDictionary#lookup(String)}.
+     * @param mapper
+     *            The function mapping the appender's events to
+     *            {@link LoggingEvent}s.
+     * @return The potentially empty list of matching {@link LoggingEvent}s.
+     */
+    protected <E> List<LoggingEvent> getEventsWithId(ChunkedArray<E> events, IntColumn ids, int id,
+        Function<? super E, LoggingEvent> mapper) {
+
+        List<LoggingEvent> result = new ArrayList<>();
+        if (id == StringDictionary.UNKNOWN_ID) {
+            return result;
+        }
+        // The column is written after the events, so it bounds both.
+        int size = ids.size();
+        for (int i = events.firstIndex(); i < size; i++) {
+            if (ids.get(i) == id) {
+                E event = events.get(i);
+                if (event != null) {
+                    result.add(mapper.apply(event));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Collect the events with the specified message template, comparing the
+     * ids of interned templates and the messages of events without arguments,
+     * whose templates an {@link EventDictionary} doesn't intern.
+     * 
+     * @param <E>
+     *            The appender's event type.
+     * @param events
+     *            The appender's events in capture order.
+     * @param dictionary
+     *            The appender's {@link EventDictionary}.
+     * @param template
+     *            The message template.
+     * @param templateExtractor
+     *            The function extracting the appender's events' message
+     *            templates.
+     * @param mapper
+     *            The function mapping the appender's events to
+     *            {@link LoggingEvent}s.
+     * @return The potentially empty list of matching {@link LoggingEvent}s.
+     */
+    protected <E> List<LoggingEvent> getEventsWithTemplate(ChunkedArray<E> events,
+        EventDictionary<?> dictionary, String template, Function<? super E, String> templateExtractor,
+        Function<? super E, LoggingEvent> mapper) {
+
+        List<LoggingEvent> result = new ArrayList<>();
+        int id = dictionary.getTemplates().lookup(template);
+        IntColumn ids = dictionary.getTemplateIds();
+        // The column is written after the events, so it bounds both.
+        int size = ids.size();
+        for (int i = events.firstIndex(); i < size; i++) {
+            int eventId = ids.get(i);
+            if (eventId == id || eventId == StringDictionary.UNKNOWN_ID) {
+                E event = events.get(i);
+                if (event != null && (eventId != StringDictionary.UNKNOWN_ID
+                    || Objects.equals(template, templateExtractor.apply(event)))) {
+                    result.add(mapper.apply(event));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Collect the events carrying the specified value for a key indexed by an
+     * {@link EventDictionary}, visiting only the indexed positions.
+     * 
+     * @param <E>
+     *            The appender's event type.
+     * @param events
+     *            The appender's events in capture order.
+     * @param index
+     *            The dictionary's index, which must index the key.
+     * @param key
+     *            The key.
+     * @param value
+     *            The value.
+     * @param mapper
+     *            The function mapping the appender's events to
+     *            {@link LoggingEvent}s.
+     * @return The potentially empty list of matching {@link LoggingEvent}s.
+     */
+    protected <E> List<LoggingEvent> getEventsWithKey(ChunkedArray<E> events, KeyValueIndex index, String key,
+        Object value, Function<? super E, LoggingEvent> mapper) {
+
+        List<LoggingEvent> result = new ArrayList<>();
+        IntColumn positions = index.getPositions(key, value);
+        if (positions == null) {
+            return result;
+        }
+        int first = events.firstIndex();
+        int size = positions.size();
+        for (int i = positions.firstIndex(); i < size; i++) {
+            int position = positions.get(i);
+            if (position >= first) {
+                E event = events.get(position);
+                if (event != null) {
+                    result.add(mapper.apply(event));
+                }
+            }
+        }
+        return result;
     }
 
     /**
@@ -53,4 +513,13 @@ public abstract class BaseLogProvider implements LogProvider {
         return loggerNames;
     }
 
+    /**
+     * Get the loggerPatterns.
+     * 
+     * @return Returns the loggerPatterns.
+     */
+    protected LoggerPatternMatcher getLoggerPatterns() {
+        return loggerPatterns;
+    }
+
 }
@@ -0,0 +1,252 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.event.LoggingEvent;
+
+import io.github.netmikey.logunit.api.BackpressurePolicy;
+import io.github.netmikey.logunit.api.CaptureListener;
+import io.github.netmikey.logunit.api.EventFlow.Publisher;
+import io.github.netmikey.logunit.api.EventFlow.Subscriber;
+import io.github.netmikey.logunit.api.EventFlow.Subscription;
+
+/**
+ * {@link Publisher} of captured log events that decouples the logging threads
+ * from its subscribers.
+ * <p>
+ * Each subscriber gets its own bounded buffer. Capturing an event merely puts
+ * it into those buffers (applying the {@link BackpressurePolicy} if one is
+ * full) and signals the subscriber's delivery task, so a slow subscriber never
+ * stalls the thread that wrote the log event. Deliveries run on a shared pool
+ * of daemon threads, sequentially per subscriber.
+ */
+public class BufferedEventPublisher implements Publisher<LoggingEvent>, CaptureListener {
+
+    private static final ExecutorService DELIVERY_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "logunit-event-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<BufferedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final int bufferSize;
+
+    private final BackpressurePolicy backpressurePolicy;
+
+    private final Executor executor;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * Create a new instance delivering events on LogUnit's shared delivery
+     * threads.
+     * 
+     * @param bufferSize
+     *            The maximum number of events buffered per subscriber.
+     * @param backpressurePolicy
+     *            What to do when a subscriber's buffer is full.
+     */
+    public BufferedEventPublisher(int bufferSize, BackpressurePolicy backpressurePolicy) {
+        this(bufferSize, backpressurePolicy, DELIVERY_EXECUTOR);
+    }
+
+    /**
+     * Create a new instance.
+     * 
+     * @param bufferSize
+     *            The maximum number of events buffered per subscriber.
+     * @param backpressurePolicy
+     *            What to do when a subscriber's buffer is full.
+     * @param executor
+     *            The {@link Executor} that runs the deliveries to the
+     *            subscribers.
+     */
+    public BufferedEventPublisher(int bufferSize, BackpressurePolicy backpressurePolicy, Executor executor) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive but was " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.backpressurePolicy = backpressurePolicy;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super LoggingEvent> subscriber) {
+        BufferedSubscription subscription = new BufferedSubscription(subscriber);
+        subscriptions.add(subscription);
+        if (closed) {
+            subscription.complete();
+        }
+        subscription.schedule();
+    }
+
+    @Override
+    public void eventCaptured(LoggingEvent event) {
+        for (BufferedSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Complete all subscriptions once their buffered events have been
+     * delivered. Subscribers that subscribe afterwards are completed right
+     * away.
+     */
+    public void close() {
+        closed = true;
+        for (BufferedSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * The total number of events dropped because a subscriber's buffer was
+     * full.
+     * 
+     * @return The number of dropped events.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * The state of a single subscriber: its buffer, its outstanding demand and
+     * its delivery task.
+     */
+    private class BufferedSubscription implements Subscription {
+
+        private final Subscriber<? super LoggingEvent> subscriber;
+
+        private final ArrayDeque<LoggingEvent> buffer = new ArrayDeque<>();
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private final AtomicInteger pendingSignals = new AtomicInteger();
+
+        private boolean subscribed;
+
+        private volatile boolean completed;
+
+        private volatile Throwable error;
+
+        private volatile boolean terminated;
+
+        BufferedSubscription(Subscriber<? super LoggingEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(LoggingEvent event) {
+            if (terminated || completed) {
+                return;
+            }
+            synchronized (buffer) {
+                if (buffer.size() >= bufferSize) {
+                    droppedCount.incrementAndGet();
+                    if (backpressurePolicy == BackpressurePolicy.DROP) {
+                        return;
+                    }
+                    buffer.pollFirst();
+                }
+                buffer.addLast(event);
+            }
+            schedule();
+        }
+
+        void complete() {
+            completed = true;
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested item count must be positive but was " + n);
+                schedule();
+                return;
+            }
+            requested.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            terminate();
+        }
+
+        private void terminate() {
+            terminated = true;
+            subscriptions.remove(this);
+            synchronized (buffer) {
+                buffer.clear();
+            }
+        }
+
+        void schedule() {
+            if (pendingSignals.getAndIncrement() == 0) {
+                executor.execute(this::deliver);
+            }
+        }
+
+        private void deliver() {
+            int missed = 1;
+            do {
+                try {
+                    deliverPending();
+                } catch (RuntimeException e) {
+                    // A subscriber violating the rules is cancelled, as by the
+                    // Reactive Streams specification
+                    terminate();
+                }
+                missed = pendingSignals.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void deliverPending() {
+            if (!subscribed) {
+                subscribed = true;
+                subscriber.onSubscribe(this);
+            }
+            if (error != null && !terminated) {
+                terminate();
+                subscriber.onError(error);
+                return;
+            }
+            long emitted = 0;
+            long demand = requested.get();
+            while (emitted < demand && !terminated) {
+                LoggingEvent event;
+                synchronized (buffer) {
+                    event = buffer.pollFirst();
+                }
+                if (event == null) {
+                    break;
+                }
+                subscriber.onNext(event);
+                emitted++;
+            }
+            if (emitted > 0 && demand != Long.MAX_VALUE) {
+                requested.addAndGet(-emitted);
+            }
+            if (completed && !terminated) {
+                boolean drained;
+                synchronized (buffer) {
+                    drained = buffer.isEmpty();
+                }
+                if (drained) {
+                    terminate();
+                    subscriber.onComplete();
+                }
+            }
+        }
+    }
+}
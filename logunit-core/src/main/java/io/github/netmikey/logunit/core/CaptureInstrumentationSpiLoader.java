@@ -0,0 +1,41 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import io.github.netmikey.logunit.api.CaptureInstrumentation;
+
+/**
+ * Lazily loads the {@link CaptureInstrumentation} SPI implementations and
+ * provides references to them. Unlike the LogProviderFactory, this SPI is
+ * optional: there may be any number of implementations on the classpath,
+ * including none.
+ */
+public class CaptureInstrumentationSpiLoader {
+
+    private static ServiceLoader<CaptureInstrumentation> serviceLoader = ServiceLoader
+        .load(CaptureInstrumentation.class);
+
+    private static volatile List<CaptureInstrumentation> instrumentations;
+
+    /**
+     * Lazily loads the {@link CaptureInstrumentation} SPI implementations. If
+     * they have already been loaded, provides references to them.
+     * 
+     * @return The unmodifiable, potentially empty list of SPI instances.
+     */
+    public static List<CaptureInstrumentation> getInstrumentations() {
+        if (instrumentations == null) {
+            synchronized (CaptureInstrumentationSpiLoader.class) {
+                if (instrumentations == null) {
+                    List<CaptureInstrumentation> loaded = new ArrayList<>();
+                    serviceLoader.forEach(loaded::add);
+                    instrumentations = Collections.unmodifiableList(loaded);
+                }
+            }
+        }
+        return instrumentations;
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.netmikey.logunit.api.CaptureStats;
+import io.github.netmikey.logunit.api.LatencyHistogram;
+
+/**
+ * Thread-safe recorder of a log provider's capture overhead. Recording never
+ * allocates, so it can be done on the logging threads' hot path.
+ */
+public class CaptureStatistics {
+
+    private final LongAdder eventsCaptured = new LongAdder();
+
+    private final LongAdder eventsDropped = new LongAdder();
+
+    private final LongAdder eventsEvicted = new LongAdder();
+
+    private final AtomicLong retainedBytes = new AtomicLong();
+
+    private final LatencyHistogram appendLatency = new LatencyHistogram();
+
+    private final LongAdder beforeTestExecutionNanos = new LongAdder();
+
+    private final LongAdder afterTestExecutionNanos = new LongAdder();
+
+    /**
+     * Record that an event has been captured.
+     * 
+     * @param latencyNanos
+     *            The time it took to capture the event.
+     */
+    public void recordCaptured(long latencyNanos) {
+        eventsCaptured.increment();
+        appendLatency.record(latencyNanos);
+    }
+
+    /**
+     * Record that an event has been dropped instead of being retained.
+     */
+    public void recordDropped() {
+        eventsDropped.increment();
+    }
+
+    /**
+     * Record that a retained event has been discarded to make room for a
+     * newer one.
+     */
+    public void recordEvicted() {
+        eventsEvicted.increment();
+    }
+
+    /**
+     * Record a change in the estimated heap size retained by captured events.
+     * 
+     * @param bytes
+     *            The number of bytes now retained additionally, negative when
+     *            memory has been released.
+     */
+    public void recordRetainedBytes(long bytes) {
+        retainedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Record the time spent reconfiguring the logging framework before the
+     * test.
+     * 
+     * @param nanos
+     *            The duration in nanoseconds.
+     */
+    public void recordBeforeTestExecution(long nanos) {
+        beforeTestExecutionNanos.add(nanos);
+    }
+
+    /**
+     * Record the time spent resetting the logging framework after the test.
+     * 
+     * @param nanos
+     *            The duration in nanoseconds.
+     */
+    public void recordAfterTestExecution(long nanos) {
+        afterTestExecutionNanos.add(nanos);
+    }
+
+    /**
+     * Get the estimated heap size currently retained by captured events.
+     * 
+     * @return The estimate in bytes.
+     */
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    /**
+     * Take a snapshot of the statistics recorded so far.
+     * 
+     * @return The snapshot.
+     */
+    public CaptureStats snapshot() {
+        return new CaptureStats(eventsCaptured.sum(), eventsDropped.sum(), eventsEvicted.sum(), retainedBytes.get(),
+            appendLatency.copy(), beforeTestExecutionNanos.sum(), afterTestExecutionNanos.sum());
+    }
+}
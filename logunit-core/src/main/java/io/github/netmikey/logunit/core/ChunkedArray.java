@@ -0,0 +1,249 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Storage for captured events, backed by fixed-size array chunks. Elements
+ * are appended at the tail and can only be removed from the head, which
+ * releases them (and eventually their chunk) for garbage collection.
+ * Positions are never reused: an element keeps its position until it is
+ * removed.
+ * <p>
+ * Unlike a linked queue, the storage supports constant-time positional
+ * access and its {@link #spliterator()} splits in even halves, which is what
+ * parallel streams need to spread work over the fork-join pool. Growing never
+ * copies elements, only the small chunk directory.
+ * <p>
+ * Writes must be serialized by the caller (appenders append under their own
+ * lock). Reads may happen concurrently to writes and see a consistent prefix
+ * of the storage, minus the elements removed in the meantime. Spliterators
+ * are snapshots instead: they share the chunks with the storage, and the head
+ * chunk is copied before an element is removed from it whenever a
+ * spliterator may share it, at most once per chunk and spliterator. All
+ * spliterators therefore still see removed elements and know their exact
+ * size.
+ * 
+ * @param <E>
+ *            The element type.
+ */
+public class ChunkedArray<E> {
+
+    private static final int CHUNK_SHIFT = 10;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private Object[][] chunks = new Object[16][];
+
+    private volatile int head;
+
+    private volatile int size;
+
+    /*
+     * Incremented by each spliterator. Elements are only ever removed from
+     * the head chunk, so it is the only chunk that must be copied for the
+     * spliterators sharing it: if one has been created since the head chunk
+     * has last been copied, it may share the current copy.
+     */
+    private int spliteratorEpoch;
+
+    /*
+     * The spliterator epoch the head chunk has last been copied at, or -1 if
+     * it hasn't been copied since becoming the head chunk.
+     */
+    private int headChunkEpoch = -1;
+
+    /**
+     * Append an element. Must not be called concurrently.
+     * 
+     * @param element
+     *            The element, must not be <code>null</code>.
+     */
+    public void add(E element) {
+        int index = size;
+        int chunk = index >>> CHUNK_SHIFT;
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunk * 2);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new Object[CHUNK_SIZE];
+        }
+        chunks[chunk][index & CHUNK_MASK] = element;
+
+        // Publishes the slot written above to concurrent readers.
+        size = index + 1;
+    }
+
+    /**
+     * Remove the oldest element. Must not be called concurrently to
+     * {@link #add(Object)} or itself.
+     * 
+     * @return The removed element.
+     * @throws NoSuchElementException
+     *             if the storage is empty.
+     */
+    public synchronized E removeFirst() {
+        int index = head;
+        if (index == size) {
+            throw new NoSuchElementException();
+        }
+        int chunk = index >>> CHUNK_SHIFT;
+        Object[] slots = chunks[chunk];
+        @SuppressWarnings("unchecked")
+        E element = (E) slots[index & CHUNK_MASK];
+        if ((index & CHUNK_MASK) == CHUNK_MASK) {
+            // The whole chunk has been removed.
+            chunks[chunk] = null;
+            headChunkEpoch = -1;
+        } else {
+            if (spliteratorEpoch != 0 && headChunkEpoch != spliteratorEpoch) {
+                slots = slots.clone();
+                chunks[chunk] = slots;
+                headChunkEpoch = spliteratorEpoch;
+            }
+            slots[index & CHUNK_MASK] = null;
+        }
+        head = index + 1;
+        return element;
+    }
+
+    /**
+     * The position of the oldest element that has not been removed.
+     * 
+     * @return The position, which equals {@link #size()} if the storage is
+     *         empty.
+     */
+    public int firstIndex() {
+        return head;
+    }
+
+    /**
+     * The number of elements ever appended, i.e. the position the next
+     * element will be stored at. This includes removed elements.
+     * 
+     * @return The number of elements appended.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Whether no more elements can be appended because positions would
+     * overflow. This happens after {@link Integer#MAX_VALUE} elements,
+     * removed ones included.
+     * 
+     * @return <code>true</code> if the storage is full.
+     */
+    public boolean isFull() {
+        return size == Integer.MAX_VALUE;
+    }
+
+    /**
+     * Whether there are no elements that have not been removed.
+     * 
+     * @return <code>true</code> if the storage is empty.
+     */
+    public boolean isEmpty() {
+        return head == size;
+    }
+
+    /**
+     * Get the element at the specified position.
+     * 
+     * @param index
+     *            The element's position in insertion order.
+     * @return The element, or <code>null</code> if it has been removed.
+     */
+    public E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return elementAt(chunks, index);
+    }
+
+    /**
+     * Get a {@link Spliterator} over the elements present at the time of the
+     * call, in insertion order. The spliterator is a snapshot: elements
+     * removed while traversing are still visited, so it knows its exact size.
+     * 
+     * @return The {@link Spliterator}.
+     */
+    public synchronized Spliterator<E> spliterator() {
+        int currentSize = size;
+        spliteratorEpoch++;
+        return new ChunkedSpliterator(chunks.clone(), head, currentSize);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> E elementAt(Object[][] chunks, int index) {
+        Object[] chunk = chunks[index >>> CHUNK_SHIFT];
+        return chunk == null ? null : (E) chunk[index & CHUNK_MASK];
+    }
+
+    /**
+     * {@link Spliterator} over a fixed range of positions of a chunk
+     * directory snapshot.
+     */
+    private class ChunkedSpliterator implements Spliterator<E> {
+
+        private final Object[][] chunks;
+
+        private int index;
+
+        private final int fence;
+
+        ChunkedSpliterator(Object[][] chunks, int origin, int fence) {
+            this.chunks = chunks;
+            this.index = origin;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (index >= fence) {
+                return false;
+            }
+            action.accept(elementAt(chunks, index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            int i = index;
+            index = fence;
+            while (i < fence) {
+                @SuppressWarnings("unchecked")
+                E[] chunk = (E[]) chunks[i >>> CHUNK_SHIFT];
+                int chunkEnd = Math.min(fence, (i | CHUNK_MASK) + 1);
+                for (int offset = i & CHUNK_MASK; i < chunkEnd; i++, offset++) {
+                    action.accept(chunk[offset]);
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            int origin = index;
+            int mid = (origin + fence) >>> 1;
+            if (origin >= mid) {
+                return null;
+            }
+            index = mid;
+            return new ChunkedSpliterator(chunks, origin, mid);
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+}
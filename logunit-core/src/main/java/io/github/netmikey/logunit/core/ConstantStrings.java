@@ -0,0 +1,33 @@
+package io.github.netmikey.logunit.core;
+
+/**
+ * Tells string constants from strings built at runtime by their identity:
+ * string constants are interned by the JVM, strings built by concatenation,
+ * formatting or <code>toString()</code> are not. This is how LogUnit spots log
+ * messages that have been concatenated instead of using placeholders.
+ * <p>
+ * Finding out interns a copy of runtime strings, which adds it to the JVM's
+ * string table until it is garbage collected, so this should only be used
+ * where explicitly asked for and only for message templates, not for the
+ * arguments logged along with them.
+ */
+public final class ConstantStrings {
+
+    private ConstantStrings() {
+        // Do not instantiate.
+    }
+
+    /**
+     * Whether the specified string has been built at runtime rather than
+     * being a constant. Interning a copy yields the pooled instance, which is
+     * the string itself only if it is a constant.
+     * 
+     * @param string
+     *            The string, may be <code>null</code>.
+     * @return <code>true</code> if the string is neither <code>null</code>,
+     *         empty nor a constant.
+     */
+    public static boolean isBuiltAtRuntime(String string) {
+        return string != null && !string.isEmpty() && new String(string).intern() != string;
+    }
+}
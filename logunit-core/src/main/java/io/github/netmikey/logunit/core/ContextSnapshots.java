@@ -0,0 +1,84 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Shares immutable snapshots of MDC or context data maps between captured
+ * events. Most events are logged with one of few distinct contexts, so
+ * instead of retaining a copy per event, a context is only copied if no equal
+ * snapshot has been taken recently, and events with equal contexts reference
+ * the same snapshot.
+ * <p>
+ * Recent snapshots are kept in a small table indexed by the contexts' hash
+ * codes, so a lookup compares against a single candidate. Thread-safe:
+ * threads racing for a slot may replace each other's snapshots, which only
+ * costs an extra copy.
+ */
+public class ContextSnapshots {
+
+    private static final int SLOTS = 64;
+
+    private final AtomicReferenceArray<Snapshot> slots = new AtomicReferenceArray<>(SLOTS);
+
+    /**
+     * Get a snapshot equal to the specified context, sharing a recent one if
+     * possible.
+     * 
+     * @param hash
+     *            The context's hash code as defined by {@link Map#hashCode()}.
+     * @param size
+     *            The context's number of entries.
+     * @param containsEntry
+     *            Tests whether the context maps the key passed to the value
+     *            passed.
+     * @param copier
+     *            Copies the context into a new map the snapshot may keep.
+     * @return The unmodifiable snapshot.
+     */
+    public Map<String, String> share(int hash, int size, BiPredicate<String, String> containsEntry,
+        Supplier<Map<String, String>> copier) {
+
+        if (size == 0) {
+            return Collections.emptyMap();
+        }
+        int slot = (hash ^ hash >>> 16) & (SLOTS - 1);
+        Snapshot snapshot = slots.get(slot);
+        if (snapshot != null && snapshot.matches(hash, size, containsEntry)) {
+            return snapshot.map;
+        }
+        snapshot = new Snapshot(hash, Collections.unmodifiableMap(copier.get()));
+        slots.set(slot, snapshot);
+        return snapshot.map;
+    }
+
+    /**
+     * A shared snapshot along with its hash code.
+     */
+    private static final class Snapshot {
+
+        private final int hash;
+
+        private final Map<String, String> map;
+
+        private Snapshot(int hash, Map<String, String> map) {
+            this.hash = hash;
+            this.map = map;
+        }
+
+        private boolean matches(int otherHash, int otherSize, BiPredicate<String, String> containsEntry) {
+            if (hash != otherHash || map.size() != otherSize) {
+                return false;
+            }
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                if (!containsEntry.test(entry.getKey(), entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
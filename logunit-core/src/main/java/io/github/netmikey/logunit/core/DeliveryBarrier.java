@@ -0,0 +1,70 @@
+package io.github.netmikey.logunit.core;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets a thread wait until the events logged before a point in time have
+ * been delivered asynchronously. The waiting thread {@link #issue() issues}
+ * a token and logs it as a sentinel event through the same asynchronous
+ * path. Since that path delivers in order, all earlier events have been
+ * delivered once the appender {@link #deliver(long) delivers} the sentinel.
+ */
+public class DeliveryBarrier {
+
+    private final AtomicLong lastToken = new AtomicLong();
+
+    private final Map<Long, CountDownLatch> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Issue a new token to be logged as a sentinel event.
+     * 
+     * @return The token.
+     */
+    public long issue() {
+        long token = lastToken.incrementAndGet();
+        pending.put(token, new CountDownLatch(1));
+        return token;
+    }
+
+    /**
+     * Signal that the sentinel event carrying the specified token has been
+     * delivered. Unknown tokens are ignored.
+     * 
+     * @param token
+     *            The token.
+     */
+    public void deliver(long token) {
+        CountDownLatch latch = pending.get(token);
+        if (latch != null) {
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Wait until the sentinel event carrying the specified token has been
+     * delivered.
+     * 
+     * @param token
+     *            The token returned by {@link #issue()}.
+     * @param timeout
+     *            The maximum time to wait.
+     * @return <code>true</code> if the sentinel has been delivered,
+     *         <code>false</code> if the timeout elapsed or the thread has been
+     *         interrupted.
+     */
+    public boolean await(long token, Duration timeout) {
+        try {
+            return pending.get(token).await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            pending.remove(token);
+        }
+    }
+}
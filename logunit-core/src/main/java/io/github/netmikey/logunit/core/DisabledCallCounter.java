@@ -0,0 +1,59 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.netmikey.logunit.api.DisabledCallStats;
+
+/**
+ * Thread-safe counter of log calls rejected because their level was
+ * disabled, fed by the logging frameworks' pre-level-check hooks.
+ * <p>
+ * Whether a message has been built at runtime is told by
+ * {@link ConstantStrings#isBuiltAtRuntime(String)}, whether an argument is
+ * non-trivial by {@link ArgumentSnapshots#isValue(Object)}. Arguments are not
+ * checked for having been built at runtime, as logging runtime values is what
+ * arguments are for.
+ */
+public class DisabledCallCounter {
+
+    private final LongAdder disabledCalls = new LongAdder();
+
+    private final LongAdder callsWithEagerMessages = new LongAdder();
+
+    private final LongAdder callsWithNonTrivialArguments = new LongAdder();
+
+    /**
+     * Record a log call rejected by level.
+     * 
+     * @param message
+     *            The message or format passed to the logger, may be
+     *            <code>null</code>.
+     * @param arguments
+     *            The arguments passed to the logger, may be
+     *            <code>null</code>.
+     */
+    public void record(String message, Object[] arguments) {
+        disabledCalls.increment();
+        if (ConstantStrings.isBuiltAtRuntime(message)) {
+            callsWithEagerMessages.increment();
+        }
+        if (arguments != null) {
+            for (Object argument : arguments) {
+                if (!ArgumentSnapshots.isValue(argument)) {
+                    callsWithNonTrivialArguments.increment();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Take a snapshot of the calls recorded so far.
+     * 
+     * @return The snapshot.
+     */
+    public DisabledCallStats snapshot() {
+        return new DisabledCallStats(disabledCalls.sum(), callsWithEagerMessages.sum(),
+            callsWithNonTrivialArguments.sum());
+    }
+}
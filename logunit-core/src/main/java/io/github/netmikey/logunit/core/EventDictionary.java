@@ -0,0 +1,215 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Per-capture dictionary of the captured events' logger names and message
+ * templates. For each event stored by an appender, it records the ids of the
+ * event's logger name and template in columns aligned with the appender's
+ * event storage, so that events can be selected by logger or template using
+ * <code>int</code> comparisons. It also counts the events per logger in
+ * one-second {@link LogRateBuckets} and, if configured, indexes the values of
+ * selected keys in a {@link KeyValueIndex}. Evicted events are
+ * {@link #removeFirst(long) removed} again, releasing their share of these
+ * structures; only the dictionaries of distinct logger names and templates
+ * are kept. Only the templates of events with arguments are interned: the
+ * message of an event without arguments is its own template, and interning
+ * every distinct message would retain them beyond their events' eviction.
+ * Such events are recorded with the template id
+ * {@link StringDictionary#UNKNOWN_ID}.
+ * 
+ * @param <E>
+ *            The appender's event type.
+ */
+public class EventDictionary<E> {
+
+    private final Function<? super E, String> loggerNameExtractor;
+
+    private final Function<? super E, String> templateExtractor;
+
+    private final Function<? super E, Object[]> argumentsExtractor;
+
+    private final ToLongFunction<? super E> timestampExtractor;
+
+    private final StringDictionary loggerNames = new StringDictionary();
+
+    private final StringDictionary templates = new StringDictionary();
+
+    private final IntColumn loggerNameIds = new IntColumn();
+
+    private final IntColumn templateIds = new IntColumn();
+
+    private final LogRateBuckets loggerRates = new LogRateBuckets();
+
+    private volatile KeyValueIndex keyValueIndex;
+
+    private BiFunction<? super E, String, Object> valueExtractor;
+
+    /**
+     * The position of the first event that has not been removed. Only
+     * accessed under the appender's lock.
+     */
+    private int firstPosition;
+
+    /**
+     * Create a new, empty dictionary.
+     * 
+     * @param loggerNameExtractor
+     *            The function extracting an event's logger name.
+     * @param templateExtractor
+     *            The function extracting an event's message template.
+     * @param argumentsExtractor
+     *            The function extracting an event's arguments, may return
+     *            <code>null</code>.
+     * @param timestampExtractor
+     *            The function extracting an event's timestamp in
+     *            milliseconds since the epoch.
+     */
+    public EventDictionary(Function<? super E, String> loggerNameExtractor,
+        Function<? super E, String> templateExtractor, Function<? super E, Object[]> argumentsExtractor,
+        ToLongFunction<? super E> timestampExtractor) {
+
+        this.loggerNameExtractor = loggerNameExtractor;
+        this.templateExtractor = templateExtractor;
+        this.argumentsExtractor = argumentsExtractor;
+        this.timestampExtractor = timestampExtractor;
+    }
+
+    /**
+     * Record the next event stored by the appender. Must be called under the
+     * appender's lock, right after storing the event.
+     * 
+     * @param event
+     *            The event.
+     */
+    public void add(E event) {
+        KeyValueIndex index = keyValueIndex;
+        if (index != null) {
+            int position = loggerNameIds.size();
+            for (String key : index.getKeys()) {
+                Object value = valueExtractor.apply(event, key);
+                if (value != null) {
+                    index.add(position, key, value);
+                }
+            }
+        }
+        int loggerNameId = loggerNames.intern(loggerNameExtractor.apply(event));
+        loggerNameIds.add(loggerNameId);
+        templateIds.add(hasArguments(argumentsExtractor.apply(event))
+            ? templates.intern(templateExtractor.apply(event))
+            : StringDictionary.UNKNOWN_ID);
+        loggerRates.record(timestampExtractor.applyAsLong(event), loggerNameId);
+    }
+
+    /**
+     * Remove the oldest recorded event, which the appender has evicted. Must
+     * be called under the appender's lock.
+     * 
+     * @param timestampMillis
+     *            The evicted event's timestamp in milliseconds since the
+     *            epoch.
+     */
+    public void removeFirst(long timestampMillis) {
+        int position = firstPosition++;
+        loggerRates.remove(timestampMillis, loggerNameIds.get(position));
+        loggerNameIds.trimTo(firstPosition);
+        templateIds.trimTo(firstPosition);
+        KeyValueIndex index = keyValueIndex;
+        if (index != null) {
+            index.trimTo(firstPosition);
+        }
+    }
+
+    /**
+     * Get the canonical instance of an event's message template if the event
+     * has arguments, see {@link StringDictionary#canonicalize(String)}.
+     * Otherwise, return the template as is, without interning it.
+     * 
+     * @param template
+     *            The event's message template.
+     * @param arguments
+     *            The event's arguments, may be <code>null</code>.
+     * @return The template or its canonical instance.
+     */
+    public String canonicalizeTemplate(String template, Object[] arguments) {
+        return hasArguments(arguments) ? templates.canonicalize(template) : template;
+    }
+
+    /**
+     * Index the values of the specified keys for the events recorded from now
+     * on.
+     * 
+     * @param keys
+     *            The keys to index.
+     * @param valueExtractor
+     *            The function extracting an event's value for a key, see
+     *            {@link KeyValueIndex#valueOf(java.util.List, java.util.Map, String)}.
+     */
+    public void indexKeys(Set<String> keys, BiFunction<? super E, String, Object> valueExtractor) {
+        this.valueExtractor = valueExtractor;
+        this.keyValueIndex = new KeyValueIndex(keys);
+    }
+
+    /**
+     * Get the index of key values.
+     * 
+     * @return The index, or <code>null</code> if no keys are indexed.
+     */
+    public KeyValueIndex getKeyValueIndex() {
+        return keyValueIndex;
+    }
+
+    /**
+     * Get the dictionary of logger names.
+     * 
+     * @return Returns the loggerNames.
+     */
+    public StringDictionary getLoggerNames() {
+        return loggerNames;
+    }
+
+    /**
+     * Get the dictionary of message templates.
+     * 
+     * @return Returns the templates.
+     */
+    public StringDictionary getTemplates() {
+        return templates;
+    }
+
+    /**
+     * Get the logger name ids, aligned with the appender's event storage.
+     * 
+     * @return Returns the loggerNameIds.
+     */
+    public IntColumn getLoggerNameIds() {
+        return loggerNameIds;
+    }
+
+    /**
+     * Get the message template ids, aligned with the appender's event
+     * storage. Events without arguments have the id
+     * {@link StringDictionary#UNKNOWN_ID}.
+     * 
+     * @return Returns the templateIds.
+     */
+    public IntColumn getTemplateIds() {
+        return templateIds;
+    }
+
+    /**
+     * Get the events' counts per second, keyed by their logger name id.
+     * 
+     * @return Returns the loggerRates.
+     */
+    public LogRateBuckets getLoggerRates() {
+        return loggerRates;
+    }
+
+    private static boolean hasArguments(Object[] arguments) {
+        return arguments != null && arguments.length > 0;
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.Arrays;
+
+/**
+ * Append-only column of <code>int</code>s, backed by fixed-size array chunks
+ * so that growing never copies the values. Used to keep per-event data
+ * aligned with an appender's event storage.
+ * <p>
+ * Values at the head of the column can be {@link #trimTo(int) trimmed} once
+ * the events they belong to have been evicted, releasing their chunks.
+ * Positions are not reused.
+ * <p>
+ * Writes must be serialized by the caller. Reads may happen concurrently to
+ * writes and see a consistent prefix of the column, minus the values trimmed
+ * in the meantime.
+ */
+public class IntColumn {
+
+    private static final int CHUNK_SHIFT = 10;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private int[][] chunks = new int[16][];
+
+    private volatile int size;
+
+    private volatile int firstIndex;
+
+    /**
+     * Append a value. Must not be called concurrently.
+     * 
+     * @param value
+     *            The value.
+     */
+    public void add(int value) {
+        int index = size;
+        int chunk = index >>> CHUNK_SHIFT;
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunk * 2);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new int[CHUNK_SIZE];
+        }
+        chunks[chunk][index & CHUNK_MASK] = value;
+
+        // Publishes the slot written above to concurrent readers.
+        size = index + 1;
+    }
+
+    /**
+     * The number of values.
+     * 
+     * @return The number of values.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The position of the first value that has not been trimmed. Trimming
+     * releases whole chunks, so values before the position passed to
+     * {@link #trimTo(int)} may remain.
+     * 
+     * @return The position, which equals {@link #size()} if all values have
+     *         been trimmed.
+     */
+    public int firstIndex() {
+        return firstIndex;
+    }
+
+    /**
+     * Get the value at the specified position.
+     * 
+     * @param index
+     *            The value's position in insertion order.
+     * @return The value, or <code>-1</code> if it has been trimmed.
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int[] chunk = chunks[index >>> CHUNK_SHIFT];
+        return chunk == null ? -1 : chunk[index & CHUNK_MASK];
+    }
+
+    /**
+     * Release the values before the specified position, as far as they fill
+     * whole chunks. Must not be called concurrently to {@link #add(int)}.
+     * 
+     * @param index
+     *            The position of the first value that must be retained.
+     */
+    public void trimTo(int index) {
+        int first = firstIndex;
+        int end = Math.min(index, size) & ~CHUNK_MASK;
+        if (end <= first) {
+            return;
+        }
+        for (int chunk = first >>> CHUNK_SHIFT; chunk < end >>> CHUNK_SHIFT; chunk++) {
+            chunks[chunk] = null;
+        }
+        firstIndex = end;
+    }
+}
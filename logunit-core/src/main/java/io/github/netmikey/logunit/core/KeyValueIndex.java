@@ -0,0 +1,175 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.event.KeyValuePair;
+
+/**
+ * Inverted index from the values of selected keys to the positions of the
+ * captured events carrying them, as key-value pair or in their MDC. Positions
+ * are those of the appender's event storage, so events with a given value are
+ * looked up without scanning the capture. Values are compared by their string
+ * representation.
+ * <p>
+ * Positions of evicted events are {@link #trimTo(int) trimmed} in batches,
+ * dropping the values no retained event carries anymore.
+ * <p>
+ * Writes must be serialized by the caller. Reads may happen concurrently to
+ * writes.
+ */
+public class KeyValueIndex {
+
+    private static final int TRIM_INTERVAL = 1024;
+
+    private final Set<String> keys;
+
+    private final Map<String, ConcurrentMap<String, IntColumn>> positions = new HashMap<>();
+
+    private int trimmedTo;
+
+    /**
+     * Create an empty index for the specified keys.
+     * 
+     * @param keys
+     *            The keys to index.
+     */
+    public KeyValueIndex(Set<String> keys) {
+        this.keys = Collections.unmodifiableSet(new HashSet<>(keys));
+        for (String key : keys) {
+            positions.put(key, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Get the indexed keys.
+     * 
+     * @return The unmodifiable set of keys.
+     */
+    public Set<String> getKeys() {
+        return keys;
+    }
+
+    /**
+     * Whether the specified key is indexed.
+     * 
+     * @param key
+     *            The key.
+     * @return <code>true</code> if events can be looked up by the key.
+     */
+    public boolean isIndexed(String key) {
+        return positions.containsKey(key);
+    }
+
+    /**
+     * Record that the event at the specified position carries a value for an
+     * indexed key.
+     * 
+     * @param position
+     *            The event's position in the appender's event storage.
+     * @param key
+     *            The indexed key.
+     * @param value
+     *            The value, not <code>null</code>.
+     */
+    public void add(int position, String key, Object value) {
+        positions.get(key).computeIfAbsent(String.valueOf(value), v -> new IntColumn()).add(position);
+    }
+
+    /**
+     * Get the positions of the events carrying the specified value for an
+     * indexed key.
+     * 
+     * @param key
+     *            The indexed key.
+     * @param value
+     *            The value.
+     * @return The ascending positions, or <code>null</code> if no event
+     *         carries the value.
+     */
+    public IntColumn getPositions(String key, Object value) {
+        return positions.get(key).get(String.valueOf(value));
+    }
+
+    /**
+     * Release the positions before the specified one. Trimming visits all
+     * indexed values, so it only happens once the position has advanced by a
+     * batch since the last trim. Must not be called concurrently to
+     * {@link #add(int, String, Object)}.
+     * 
+     * @param position
+     *            The position of the first event that is retained.
+     */
+    public void trimTo(int position) {
+        if (position - trimmedTo < TRIM_INTERVAL) {
+            return;
+        }
+        trimmedTo = position;
+        for (ConcurrentMap<String, IntColumn> values : positions.values()) {
+            values.values().removeIf(column -> {
+                int size = column.size();
+                if (column.get(size - 1) < position) {
+                    return true;
+                }
+                // Positions are ascending: find the first one retained.
+                int low = column.firstIndex();
+                int high = size - 1;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (column.get(mid) < position) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                column.trimTo(low);
+                return false;
+            });
+        }
+    }
+
+    /**
+     * Get the value an event carries for the specified key: the value of its
+     * first key-value pair with that key or, failing that, its MDC's value.
+     * 
+     * @param keyValuePairs
+     *            The event's key-value pairs, may be <code>null</code>.
+     * @param mdc
+     *            The event's MDC, may be <code>null</code>.
+     * @param key
+     *            The key.
+     * @return The value, or <code>null</code> if the event doesn't carry the
+     *         key.
+     */
+    public static Object valueOf(List<KeyValuePair> keyValuePairs, Map<String, String> mdc, String key) {
+        if (keyValuePairs != null) {
+            for (KeyValuePair pair : keyValuePairs) {
+                if (Objects.equals(pair.key, key)) {
+                    return pair.value;
+                }
+            }
+        }
+        return mdc == null ? null : mdc.get(key);
+    }
+
+    /**
+     * Whether the specified values are equal by their string representation,
+     * as values are compared by this index.
+     * 
+     * @param value
+     *            A value carried by an event, may be <code>null</code>.
+     * @param expected
+     *            The value looked for.
+     * @return <code>true</code> if the values match.
+     */
+    public static boolean matches(Object value, Object expected) {
+        return value != null && String.valueOf(value).equals(String.valueOf(expected));
+    }
+}
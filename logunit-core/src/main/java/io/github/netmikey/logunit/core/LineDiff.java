@@ -0,0 +1,179 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Computes a minimal line diff between two lists of lines using Myers'
+ * algorithm and renders it with a few lines of context around each change.
+ * The algorithm takes O((N + M) D) time and, as only the diagonals reached so
+ * far are recorded per edit step, O(D^2) memory beyond the lines themselves,
+ * where D is the number of differing lines. Diffs with more differing lines
+ * than a limit are not computed.
+ */
+public class LineDiff {
+
+    private static final int CONTEXT_LINES = 2;
+
+    private final List<String> expected;
+
+    private final List<String> actual;
+
+    private final int firstLineNumber;
+
+    private final List<Edit> edits = new ArrayList<>();
+
+    private final boolean complete;
+
+    /**
+     * Compute the diff between the specified lines.
+     * 
+     * @param expected
+     *            The expected lines.
+     * @param actual
+     *            The actual lines.
+     * @param firstLineNumber
+     *            The line number of the first lines, used when rendering.
+     * @param maxDifferences
+     *            The maximum number of differing lines to compute the diff
+     *            for.
+     */
+    public LineDiff(List<String> expected, List<String> actual, int firstLineNumber, int maxDifferences) {
+        this.expected = expected;
+        this.actual = actual;
+        this.firstLineNumber = firstLineNumber;
+        this.complete = compute(Math.min(maxDifferences, expected.size() + actual.size()));
+    }
+
+    /**
+     * Whether the lines differ by no more than the limit, so the diff has
+     * been computed.
+     * 
+     * @return <code>true</code> if the diff is available.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    private boolean compute(int maxDifferences) {
+        int n = expected.size();
+        int m = actual.size();
+        int offset = maxDifferences + 1;
+        // v[offset + k]: the furthest expected index reached on diagonal k.
+        int[] v = new int[2 * maxDifferences + 3];
+        List<int[]> trace = new ArrayList<>();
+        for (int d = 0; d <= maxDifferences; d++) {
+            int[] previous = new int[2 * d + 1];
+            System.arraycopy(v, offset - d, previous, 0, previous.length);
+            trace.add(previous);
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || k != d && v[offset + k - 1] < v[offset + k + 1]
+                    ? v[offset + k + 1]
+                    : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && expected.get(x).equals(actual.get(y))) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    backtrack(trace, d, n, m);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void backtrack(List<int[]> trace, int differences, int n, int m) {
+        int x = n;
+        int y = m;
+        for (int d = differences; d >= 0; d--) {
+            int[] previous = trace.get(d);
+            int k = x - y;
+            int previousX = 0;
+            int previousY = 0;
+            if (d > 0) {
+                // previous holds the diagonals -d..d of the step before d.
+                int previousK = k == -d || k != d && previous[k - 1 + d] < previous[k + 1 + d] ? k + 1 : k - 1;
+                previousX = previous[previousK + d];
+                previousY = previousX - previousK;
+            }
+            while (x > previousX && y > previousY) {
+                x--;
+                y--;
+                edits.add(new Edit(' ', x, y));
+            }
+            if (d > 0) {
+                edits.add(x == previousX ? new Edit('+', x, previousY) : new Edit('-', previousX, y));
+            }
+            x = previousX;
+            y = previousY;
+        }
+        Collections.reverse(edits);
+    }
+
+    /**
+     * Render the diff: lines only expected are prefixed with <code>-</code>,
+     * lines only present in the actual lines with <code>+</code>, and
+     * unchanged lines shown as context with a blank. Each group of changes is
+     * headed by its line numbers in the expected and the actual lines.
+     * 
+     * @param maxLines
+     *            The maximum number of diff lines rendered.
+     * @return The rendered diff, or the empty string if the lines are equal
+     *         or the diff is not complete.
+     */
+    public String render(int maxLines) {
+        boolean[] shown = new boolean[edits.size()];
+        for (int i = 0; i < edits.size(); i++) {
+            if (edits.get(i).type != ' ') {
+                int to = Math.min(edits.size() - 1, i + CONTEXT_LINES);
+                for (int j = Math.max(0, i - CONTEXT_LINES); j <= to; j++) {
+                    shown[j] = true;
+                }
+            }
+        }
+        StringBuilder result = new StringBuilder();
+        int rendered = 0;
+        for (int i = 0; i < edits.size(); i++) {
+            if (!shown[i]) {
+                continue;
+            }
+            if (rendered == maxLines) {
+                result.append("... (diff truncated)\n");
+                break;
+            }
+            Edit edit = edits.get(i);
+            if (i == 0 || !shown[i - 1]) {
+                result.append("@@ -").append(firstLineNumber + edit.expectedIndex)
+                    .append(" +").append(firstLineNumber + edit.actualIndex).append(" @@\n");
+            }
+            String line = edit.type == '+' ? actual.get(edit.actualIndex) : expected.get(edit.expectedIndex);
+            result.append(edit.type).append(' ').append(line).append('\n');
+            rendered++;
+        }
+        return result.toString();
+    }
+
+    /**
+     * A line of the edit script: unchanged (<code>' '</code>), deleted
+     * (<code>'-'</code>) or inserted (<code>'+'</code>), with the positions
+     * it is at in the expected and the actual lines.
+     */
+    private static final class Edit {
+
+        private final char type;
+
+        private final int expectedIndex;
+
+        private final int actualIndex;
+
+        private Edit(char type, int expectedIndex, int actualIndex) {
+            this.type = type;
+            this.expectedIndex = expectedIndex;
+            this.actualIndex = actualIndex;
+        }
+    }
+}
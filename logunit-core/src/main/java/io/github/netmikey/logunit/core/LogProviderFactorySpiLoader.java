@@ -1,46 +1,160 @@
 package io.github.netmikey.logunit.core;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
 
 import io.github.netmikey.logunit.api.LogProviderFactory;
 
 /**
  * Lazily loads the {@link LogProviderFactory} SPI and provides a reference to
  * it.
+ * <p>
+ * The factory to use can be selected by the {@value #PROVIDER_PROPERTY}
+ * system property or, failing that, the entry of the same name in
+ * <code>junit-platform.properties</code>. Its value is either the
+ * {@link LogProviderFactory#getName() name} of a factory on the classpath,
+ * e.g. <code>logback</code>, or the fully qualified class name of a factory,
+ * which is then instantiated directly without scanning the classpath. A
+ * selection is required if more than one factory is on the classpath.
  */
 public class LogProviderFactorySpiLoader {
 
-    private static ServiceLoader<LogProviderFactory> serviceLoader = ServiceLoader.load(LogProviderFactory.class);
+    /**
+     * The system property and <code>junit-platform.properties</code> entry
+     * selecting the {@link LogProviderFactory} to use.
+     */
+    public static final String PROVIDER_PROPERTY = "logunit.provider";
+
+    private static final String JUNIT_PLATFORM_PROPERTIES = "junit-platform.properties";
 
-    private static LogProviderFactory logProviderFactory;
+    private static volatile LogProviderFactory logProviderFactory;
+
+    private static final ConcurrentMap<String, LogProviderFactory> namedLogProviderFactories =
+        new ConcurrentHashMap<>();
 
     /**
-     * Lazily loads the {@link LogProviderFactory} SPI. If it has already been
+     * Lazily loads the selected {@link LogProviderFactory} or, if none has
+     * been selected, the only one on the classpath. If it has already been
      * loaded, provides a reference to it.
      * 
      * @return The SPI instance.
      */
     public static LogProviderFactory getLogProviderFactory() {
-        if (logProviderFactory == null) {
+        LogProviderFactory factory = logProviderFactory;
+        if (factory == null) {
             synchronized (LogProviderFactorySpiLoader.class) {
-                List<LogProviderFactory> logProviderFactories = new ArrayList<>();
-                serviceLoader.forEach(logProviderFactories::add);
-
-                if (logProviderFactories.isEmpty()) {
-                    throw new IllegalStateException("Could not find any " + LogProviderFactory.class.getName()
-                        + " implementation on the classpath. Do you have the LogUnit implementation module approriate "
-                        + "for your logging framework in your classpath?");
-                } else if (logProviderFactories.size() > 1) {
-                    throw new IllegalStateException("Found more than one " + LogProviderFactory.class.getSimpleName()
-                        + " implementation on the classpath. Found all of these: " + logProviderFactories);
-                } else {
-                    logProviderFactory = logProviderFactories.get(0);
+                factory = logProviderFactory;
+                if (factory == null) {
+                    String selected = getSelectedProvider();
+                    factory = selected == null ? loadOnlyFactory() : getLogProviderFactory(selected);
+                    logProviderFactory = factory;
                 }
             }
         }
+        return factory;
+    }
+
+    /**
+     * Lazily loads the {@link LogProviderFactory} with the specified name or
+     * class name, for builds with more than one LogUnit implementation module
+     * on the classpath. If it has already been loaded, provides a reference
+     * to it.
+     * 
+     * @param name
+     *            The factory's {@link LogProviderFactory#getName() name} or
+     *            fully qualified class name.
+     * @return The SPI instance.
+     */
+    public static LogProviderFactory getLogProviderFactory(String name) {
+        return namedLogProviderFactories.computeIfAbsent(name, LogProviderFactorySpiLoader::loadNamedFactory);
+    }
+
+    private static LogProviderFactory loadOnlyFactory() {
+        List<LogProviderFactory> logProviderFactories = loadAll();
+        if (logProviderFactories.isEmpty()) {
+            throw new IllegalStateException("Could not find any " + LogProviderFactory.class.getName()
+                + " implementation on the classpath. Do you have the LogUnit implementation module approriate "
+                + "for your logging framework in your classpath?");
+        } else if (logProviderFactories.size() > 1) {
+            throw new IllegalStateException("Found more than one " + LogProviderFactory.class.getSimpleName()
+                + " implementation on the classpath: " + describe(logProviderFactories) + ". Select one by setting "
+                + "the " + PROVIDER_PROPERTY + " system property or " + JUNIT_PLATFORM_PROPERTIES
+                + " entry to its name.");
+        }
+        return logProviderFactories.get(0);
+    }
+
+    private static LogProviderFactory loadNamedFactory(String name) {
+        if (name.indexOf('.') >= 0) {
+            return instantiate(name);
+        }
+        List<LogProviderFactory> logProviderFactories = loadAll();
+        for (LogProviderFactory factory : logProviderFactories) {
+            if (name.equals(factory.getName())) {
+                return factory;
+            }
+        }
+        throw new IllegalStateException("Could not find the " + LogProviderFactory.class.getSimpleName()
+            + " named " + name + " on the classpath. Found: " + describe(logProviderFactories));
+    }
+
+    private static LogProviderFactory instantiate(String className) {
+        try {
+            Class<?> type = Class.forName(className, true, getClassLoader());
+            if (!LogProviderFactory.class.isAssignableFrom(type)) {
+                throw new IllegalStateException(className + " is not a " + LogProviderFactory.class.getName());
+            }
+            return (LogProviderFactory) type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not instantiate the " + LogProviderFactory.class.getSimpleName()
+                + " " + className, e);
+        }
+    }
+
+    /*
+     * A fresh ServiceLoader per scan, as ServiceLoaders must not be used
+     * concurrently.
+     */
+    private static List<LogProviderFactory> loadAll() {
+        List<LogProviderFactory> logProviderFactories = new ArrayList<>();
+        ServiceLoader.load(LogProviderFactory.class, getClassLoader()).forEach(logProviderFactories::add);
+        return logProviderFactories;
+    }
+
+    private static String describe(List<LogProviderFactory> logProviderFactories) {
+        return logProviderFactories.stream()
+            .map(factory -> factory.getName() + " (" + factory.getClass().getName() + ")")
+            .collect(Collectors.joining(", "));
+    }
+
+    private static String getSelectedProvider() {
+        String selected = System.getProperty(PROVIDER_PROPERTY);
+        if (selected != null && !selected.trim().isEmpty()) {
+            return selected.trim();
+        }
+        try (InputStream in = getClassLoader().getResourceAsStream(JUNIT_PLATFORM_PROPERTIES)) {
+            if (in == null) {
+                return null;
+            }
+            Properties properties = new Properties();
+            properties.load(in);
+            selected = properties.getProperty(PROVIDER_PROPERTY);
+            return selected == null || selected.trim().isEmpty() ? null : selected.trim();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read " + JUNIT_PLATFORM_PROPERTIES, e);
+        }
+    }
 
-        return logProviderFactory;
+    private static ClassLoader getClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return classLoader != null ? classLoader : LogProviderFactorySpiLoader.class.getClassLoader();
     }
 }
@@ -0,0 +1,107 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.github.netmikey.logunit.api.RateHistogram;
+
+/**
+ * Counts captured events in fixed one-second buckets per key, e.g. per logger
+ * name id, as they are captured, so that rates can be reported without
+ * sorting the events' timestamps afterwards. Events may arrive slightly out
+ * of order, each is counted in the bucket of its own timestamp. Evicted
+ * events are {@link #remove(long, int) removed} again, so that only retained
+ * events are counted and buckets don't accumulate over a long capture.
+ * <p>
+ * Thread-safe. Recording only allocates when the first event of a second or
+ * of a new key within a second arrives.
+ */
+public class LogRateBuckets {
+
+    private static final int INITIAL_KEYS = 8;
+
+    private final Map<Long, int[]> buckets = new HashMap<>();
+
+    private long lastSecond = Long.MIN_VALUE;
+
+    private int[] lastCounts;
+
+    /**
+     * Count an event.
+     * 
+     * @param timestampMillis
+     *            The event's timestamp in milliseconds since the epoch.
+     * @param key
+     *            The non-negative key to count the event for.
+     */
+    public synchronized void record(long timestampMillis, int key) {
+        long second = Math.floorDiv(timestampMillis, 1000);
+        int[] counts = second == lastSecond ? lastCounts : buckets.get(second);
+        if (counts == null || key >= counts.length) {
+            counts = counts == null ? new int[Math.max(INITIAL_KEYS, key + 1)]
+                : Arrays.copyOf(counts, Math.max(counts.length * 2, key + 1));
+            buckets.put(second, counts);
+        }
+        counts[key]++;
+        lastSecond = second;
+        lastCounts = counts;
+    }
+
+    /**
+     * Stop counting an event, dropping its bucket once it counts no events.
+     * 
+     * @param timestampMillis
+     *            The event's timestamp in milliseconds since the epoch.
+     * @param key
+     *            The key the event has been counted for.
+     */
+    public synchronized void remove(long timestampMillis, int key) {
+        long second = Math.floorDiv(timestampMillis, 1000);
+        int[] counts = buckets.get(second);
+        if (counts == null || key < 0 || key >= counts.length || counts[key] == 0) {
+            return;
+        }
+        counts[key]--;
+        for (int count : counts) {
+            if (count > 0) {
+                return;
+            }
+        }
+        buckets.remove(second);
+        if (second == lastSecond) {
+            lastSecond = Long.MIN_VALUE;
+            lastCounts = null;
+        }
+    }
+
+    /**
+     * Create a histogram of the events counted for the specified key.
+     * 
+     * @param key
+     *            The key.
+     * @return The {@link RateHistogram}, which is empty if no events have
+     *         been counted for the key.
+     */
+    public synchronized RateHistogram histogram(int key) {
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (Map.Entry<Long, int[]> bucket : buckets.entrySet()) {
+            if (key >= 0 && key < bucket.getValue().length && bucket.getValue()[key] > 0) {
+                first = Math.min(first, bucket.getKey());
+                last = Math.max(last, bucket.getKey());
+            }
+        }
+        if (first > last) {
+            return new RateHistogram(0, new int[0]);
+        }
+        int[] counts = new int[Math.toIntExact(last - first + 1)];
+        for (int i = 0; i < counts.length; i++) {
+            int[] bucket = buckets.get(first + i);
+            if (bucket != null && key < bucket.length) {
+                counts[i] = bucket[key];
+            }
+        }
+        return new RateHistogram(first, counts);
+    }
+}
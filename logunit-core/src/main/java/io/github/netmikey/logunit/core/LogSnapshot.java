@@ -0,0 +1,238 @@
+package io.github.netmikey.logunit.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+import org.slf4j.event.LoggingEvent;
+
+import io.github.netmikey.logunit.api.EventVisitor;
+
+/**
+ * Writes captured events to golden snapshot files and compares captures
+ * against them, one line per event holding its level, logger name and
+ * normalized message separated by tabs.
+ * <p>
+ * Comparisons stream both the snapshot file and the captured events and only
+ * buffer lines from the first difference on, up to a fixed window per side,
+ * so captures of any size are compared in bounded memory. The window is
+ * diffed using {@link LineDiff}.
+ */
+public class LogSnapshot {
+
+    private static final int MAX_WINDOW_LINES = 10_000;
+
+    private static final int MAX_DIFFERENCES = 1_000;
+
+    private static final int MAX_RENDERED_LINES = 100;
+
+    private static final int CONTEXT_LINES = 2;
+
+    private static final Pattern UUID = Pattern.compile(
+        "\\b[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}\\b");
+
+    private static final Pattern TIMESTAMP = Pattern.compile(
+        "\\b\\d{4}-\\d{2}-\\d{2}[T ]\\d{2}:\\d{2}(:\\d{2}([.,]\\d+)?)?(Z|[+-]\\d{2}:?\\d{2})?\\b");
+
+    private LogSnapshot() {
+        // Static utility class
+    }
+
+    /**
+     * The default message normalization: replaces UUIDs by
+     * <code>&lt;uuid&gt;</code> and ISO-8601 date-times by
+     * <code>&lt;timestamp&gt;</code>, as they usually differ between runs.
+     * 
+     * @param message
+     *            The message.
+     * @return The normalized message.
+     */
+    public static String normalize(String message) {
+        if (message == null) {
+            return null;
+        }
+        return TIMESTAMP.matcher(UUID.matcher(message).replaceAll("<uuid>")).replaceAll("<timestamp>");
+    }
+
+    /**
+     * Write the captured events to a snapshot file, creating parent
+     * directories as needed.
+     * 
+     * @param file
+     *            The snapshot file.
+     * @param events
+     *            Visits the captured events with the visitor passed.
+     * @param normalizer
+     *            Normalizes the events' messages.
+     */
+    public static void write(Path file, Consumer<EventVisitor> events, UnaryOperator<String> normalizer) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                events.accept(event -> {
+                    try {
+                        writer.write(line(event, normalizer));
+                        writer.newLine();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write log snapshot " + file, e);
+        } catch (UncheckedIOException e) {
+            throw new UncheckedIOException("Unable to write log snapshot " + file, e.getCause());
+        }
+    }
+
+    /**
+     * Compare the captured events to a snapshot file.
+     * 
+     * @param file
+     *            The snapshot file.
+     * @param events
+     *            Visits the captured events with the visitor passed.
+     * @param normalizer
+     *            Normalizes the events' messages.
+     * @return <code>null</code> if the capture matches the snapshot, else a
+     *         description of the differences.
+     */
+    public static String compare(Path file, Consumer<EventVisitor> events, UnaryOperator<String> normalizer) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Comparison comparison = new Comparison(reader, normalizer);
+            events.accept(comparison);
+            return comparison.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read log snapshot " + file, e);
+        } catch (UncheckedIOException e) {
+            throw new UncheckedIOException("Unable to read log snapshot " + file, e.getCause());
+        }
+    }
+
+    private static String line(LoggingEvent event, UnaryOperator<String> normalizer) {
+        return event.getLevel() + "\t" + LogVolume.escape(event.getLoggerName()) + "\t"
+            + LogVolume.escape(normalizer.apply(event.getMessage()));
+    }
+
+    /**
+     * Streams the captured lines against the snapshot's until they differ,
+     * then buffers the remaining lines of both sides up to the window size.
+     */
+    private static final class Comparison implements EventVisitor {
+
+        private final BufferedReader reader;
+
+        private final UnaryOperator<String> normalizer;
+
+        private final Deque<String> context = new ArrayDeque<>(CONTEXT_LINES + 1);
+
+        private final List<String> expected = new ArrayList<>();
+
+        private final List<String> actual = new ArrayList<>();
+
+        private int matchingLines;
+
+        private boolean differs;
+
+        private long omittedActual;
+
+        private Comparison(BufferedReader reader, UnaryOperator<String> normalizer) {
+            this.reader = reader;
+            this.normalizer = normalizer;
+        }
+
+        @Override
+        public void visit(LoggingEvent event) {
+            String line = line(event, normalizer);
+            if (differs) {
+                if (actual.size() < MAX_WINDOW_LINES) {
+                    actual.add(line);
+                } else {
+                    omittedActual++;
+                }
+                return;
+            }
+            String expectedLine = readLine();
+            if (line.equals(expectedLine)) {
+                matchingLines++;
+                if (context.size() == CONTEXT_LINES) {
+                    context.removeFirst();
+                }
+                context.addLast(line);
+                return;
+            }
+            startDiff(expectedLine);
+            actual.add(line);
+        }
+
+        private String finish() {
+            if (!differs) {
+                String expectedLine = readLine();
+                if (expectedLine == null) {
+                    return null;
+                }
+                startDiff(expectedLine);
+            }
+            long omittedExpected = 0;
+            String expectedLine;
+            while ((expectedLine = readLine()) != null) {
+                if (expected.size() < MAX_WINDOW_LINES) {
+                    expected.add(expectedLine);
+                } else {
+                    omittedExpected++;
+                }
+            }
+            int firstLineNumber = matchingLines - context.size() + 1;
+            StringBuilder description = new StringBuilder("first difference at line ")
+                .append(matchingLines + 1).append(":\n");
+            LineDiff diff = new LineDiff(expected, actual, firstLineNumber, MAX_DIFFERENCES);
+            if (diff.isComplete()) {
+                description.append(diff.render(MAX_RENDERED_LINES));
+            } else {
+                description.append("more than ").append(MAX_DIFFERENCES).append(" lines differ, e.g.:\n")
+                    .append("- ").append(expected.size() > context.size() ? expected.get(context.size()) : "")
+                    .append("\n+ ").append(actual.size() > context.size() ? actual.get(context.size()) : "")
+                    .append('\n');
+            }
+            if (omittedExpected > 0 || omittedActual > 0) {
+                description.append("... (").append(omittedExpected).append(" snapshot and ").append(omittedActual)
+                    .append(" captured lines beyond the compared window)\n");
+            }
+            return description.toString();
+        }
+
+        /*
+         * Both windows start with the last matching lines, so the diff shows
+         * them as context.
+         */
+        private void startDiff(String expectedLine) {
+            differs = true;
+            expected.addAll(context);
+            actual.addAll(context);
+            if (expectedLine != null) {
+                expected.add(expectedLine);
+            }
+        }
+
+        private String readLine() {
+            try {
+                return reader.readLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
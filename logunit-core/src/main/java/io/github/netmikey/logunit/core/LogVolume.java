@@ -0,0 +1,304 @@
+package io.github.netmikey.logunit.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.slf4j.event.Level;
+import org.slf4j.event.LoggingEvent;
+
+import io.github.netmikey.logunit.api.TemplatedLoggingEvent;
+
+/**
+ * The volume of log output captured during a test: the number of events and
+ * the UTF-8 size of their messages, per logger, level and message template.
+ * Volumes can be stored as a baseline file and compared against later runs to
+ * detect log output growing unexpectedly.
+ * <p>
+ * Messages logged without arguments are often built by concatenation and
+ * differ between runs, so they are accounted for together per logger and
+ * level, under the template {@value #WITHOUT_ARGUMENTS}.
+ */
+public class LogVolume {
+
+    private static final String HEADER = "# LogUnit log volume baseline: level, logger, count, bytes, template";
+
+    private static final char SEPARATOR = '\t';
+
+    /**
+     * The template messages logged without arguments are accounted for
+     * under.
+     */
+    public static final String WITHOUT_ARGUMENTS = "<without arguments>";
+
+    private final Map<Key, long[]> entries = new TreeMap<>();
+
+    /**
+     * Account for a captured event. The event is not retained, so reused
+     * views may be passed.
+     * 
+     * @param event
+     *            The event.
+     */
+    public void add(LoggingEvent event) {
+        List<Object> arguments = event.getArguments();
+        String template = arguments == null || arguments.isEmpty()
+            ? WITHOUT_ARGUMENTS
+            : TemplatedLoggingEvent.messageTemplateOf(event);
+        add(new Key(event.getLevel(), event.getLoggerName(), template), 1, utf8Length(event.getMessage()));
+    }
+
+    private void add(Key key, long count, long bytes) {
+        long[] volume = entries.computeIfAbsent(key, k -> new long[2]);
+        volume[0] += count;
+        volume[1] += bytes;
+    }
+
+    /**
+     * The total number of events accounted for.
+     * 
+     * @return The number of events.
+     */
+    public long getCount() {
+        return entries.values().stream().mapToLong(volume -> volume[0]).sum();
+    }
+
+    /**
+     * The total UTF-8 size of the messages accounted for.
+     * 
+     * @return The size in bytes.
+     */
+    public long getBytes() {
+        return entries.values().stream().mapToLong(volume -> volume[1]).sum();
+    }
+
+    /**
+     * Compare this volume against a baseline. Loggers, levels and templates
+     * that are new since the baseline only count as growth if the total
+     * count or size grew beyond the tolerance, so that a new log statement
+     * doesn't fail the comparison on its own.
+     * 
+     * @param baseline
+     *            The baseline volume.
+     * @param tolerance
+     *            The relative growth that is acceptable per logger, level and
+     *            template, e.g. <code>0.1</code> for 10%.
+     * @return Descriptions of the loggers, levels and templates whose count
+     *         or size grew beyond the tolerance. Empty if there are none.
+     */
+    public List<String> findGrowth(LogVolume baseline, double tolerance) {
+        boolean totalExceeds = exceeds(getCount(), baseline.getCount(), tolerance)
+            || exceeds(getBytes(), baseline.getBytes(), tolerance);
+        List<String> growth = new ArrayList<>();
+        for (Map.Entry<Key, long[]> entry : entries.entrySet()) {
+            long[] volume = entry.getValue();
+            long[] baselineVolume = baseline.entries.get(entry.getKey());
+            if (baselineVolume == null) {
+                if (totalExceeds) {
+                    growth.add(entry.getKey() + ": " + volume[0] + " events (" + volume[1]
+                        + " bytes), not in the baseline");
+                }
+            } else if (exceeds(volume[0], baselineVolume[0], tolerance)
+                || exceeds(volume[1], baselineVolume[1], tolerance)) {
+                growth.add(entry.getKey() + ": " + volume[0] + " events (" + volume[1] + " bytes), baseline "
+                    + baselineVolume[0] + " events (" + baselineVolume[1] + " bytes)");
+            }
+        }
+        return growth;
+    }
+
+    private static boolean exceeds(long value, long baselineValue, double tolerance) {
+        return value > baselineValue * (1 + tolerance);
+    }
+
+    /**
+     * Write this volume to a baseline file, creating parent directories as
+     * needed.
+     * 
+     * @param file
+     *            The file.
+     */
+    public void write(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (Map.Entry<Key, long[]> entry : entries.entrySet()) {
+                    Key key = entry.getKey();
+                    long[] volume = entry.getValue();
+                    writer.write(key.level.name() + SEPARATOR + escape(key.loggerName) + SEPARATOR + volume[0]
+                        + SEPARATOR + volume[1] + SEPARATOR + escape(key.template));
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write log volume baseline " + file, e);
+        }
+    }
+
+    /**
+     * Read a volume from a baseline file.
+     * 
+     * @param file
+     *            The file written by {@link #write(Path)}.
+     * @return The volume.
+     */
+    public static LogVolume read(Path file) {
+        LogVolume volume = new LogVolume();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(String.valueOf(SEPARATOR), 5);
+                if (fields.length != 5) {
+                    throw new IllegalArgumentException("Malformed log volume baseline " + file + ": " + line);
+                }
+                volume.add(new Key(Level.valueOf(fields[0]), unescape(fields[1]), unescape(fields[4])),
+                    Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read log volume baseline " + file, e);
+        }
+        return volume;
+    }
+
+    static long utf8Length(CharSequence string) {
+        if (string == null) {
+            return 0;
+        }
+        long length = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < string.length()
+                && Character.isLowSurrogate(string.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /*
+     * Null is written as a lone backslash, which escape() never produces.
+     */
+    static String escape(String string) {
+        if (string == null) {
+            return "\\";
+        }
+        StringBuilder escaped = new StringBuilder(string.length());
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static String unescape(String string) {
+        if ("\\".equals(string)) {
+            return null;
+        }
+        StringBuilder unescaped = new StringBuilder(string.length());
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c == '\\' && i + 1 < string.length()) {
+                char next = string.charAt(++i);
+                unescaped.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+
+    /**
+     * The logger, level and template an event is accounted for under.
+     */
+    private static final class Key implements Comparable<Key> {
+
+        private final Level level;
+
+        private final String loggerName;
+
+        private final String template;
+
+        private Key(Level level, String loggerName, String template) {
+            this.level = level;
+            this.loggerName = loggerName;
+            this.template = template;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int result = compareNullsFirst(loggerName, other.loggerName);
+            if (result == 0) {
+                result = level.compareTo(other.level);
+            }
+            if (result == 0) {
+                result = compareNullsFirst(template, other.template);
+            }
+            return result;
+        }
+
+        private static int compareNullsFirst(String a, String b) {
+            if (a == null || b == null) {
+                return a == null ? (b == null ? 0 : -1) : 1;
+            }
+            return a.compareTo(b);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return level == other.level && Objects.equals(loggerName, other.loggerName)
+                && Objects.equals(template, other.template);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(level, loggerName, template);
+        }
+
+        @Override
+        public String toString() {
+            return level + " " + loggerName + " \"" + template + "\"";
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.Arrays;
+
+/**
+ * Maps dot-separated logger names to values and finds the value registered
+ * for a logger's nearest ancestor in O(name length), without allocating. A
+ * name only matches a registered prefix at a segment boundary, so
+ * <code>com.acme</code> is an ancestor of <code>com.acme.billing</code> but
+ * not of <code>com.acmecorp</code>. The empty name is the ancestor of all
+ * loggers.
+ * <p>
+ * Lookups may run concurrently with each other, but not with
+ * {@link #put(String, Object)}.
+ * 
+ * @param <V>
+ *            The type of the values.
+ */
+public class LoggerNameTrie<V> {
+
+    private final Node<V> root = new Node<>();
+
+    /**
+     * Register a value for the specified logger name, replacing the value
+     * registered before, if any.
+     * 
+     * @param name
+     *            The logger name.
+     * @param value
+     *            The value, not <code>null</code>.
+     */
+    public void put(String name, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("The value for logger " + name + " must not be null");
+        }
+        Node<V> node = root;
+        for (int i = 0; i < name.length(); i++) {
+            node = node.childForPut(name.charAt(i));
+        }
+        node.value = value;
+    }
+
+    /**
+     * Get the value registered for the specified logger name or, failing
+     * that, for its nearest ancestor.
+     * 
+     * @param name
+     *            The logger name.
+     * @return The value, or <code>null</code> if neither the logger nor any of
+     *         its ancestors has one.
+     */
+    public V findNearest(String name) {
+        Node<V> node = root;
+        V nearest = root.value;
+        for (int i = 0; i < name.length(); i++) {
+            node = node.child(name.charAt(i));
+            if (node == null) {
+                return nearest;
+            }
+            if (node.value != null && (i + 1 == name.length() || name.charAt(i + 1) == '.')) {
+                nearest = node.value;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * A trie node with its children kept in arrays sorted by their char.
+     * 
+     * @param <V>
+     *            The type of the values.
+     */
+    private static final class Node<V> {
+
+        private char[] keys = new char[0];
+
+        private Node<V>[] children = newArray(0);
+
+        private V value;
+
+        private Node<V> child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index < 0 ? null : children[index];
+        }
+
+        private Node<V> childForPut(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node<V>[] newChildren = newArray(keys.length + 1);
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, keys.length - insertAt);
+            Node<V> child = new Node<>();
+            newKeys[insertAt] = key;
+            newChildren[insertAt] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V>[] newArray(int length) {
+            return (Node<V>[]) new Node<?>[length];
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.slf4j.event.Level;
+
+/**
+ * Matches logger names against regular expressions, each associated with the
+ * level at which matching loggers are captured. The decision for each
+ * distinct logger name is cached, so each name is evaluated against the
+ * patterns only once and later lookups are a single map access.
+ * <p>
+ * Lookups are thread-safe, but patterns must be added before the first
+ * lookup.
+ */
+public class LoggerPatternMatcher {
+
+    private final List<Pattern> patterns = new ArrayList<>();
+
+    private final List<Level> levels = new ArrayList<>();
+
+    private final ConcurrentMap<String, Optional<Level>> decisions = new ConcurrentHashMap<>();
+
+    /**
+     * Capture the loggers whose whole name matches the specified pattern. If
+     * a logger matches several patterns, the first one added wins.
+     * 
+     * @param pattern
+     *            The pattern.
+     * @param level
+     *            The level at which matching loggers are captured.
+     */
+    public void add(Pattern pattern, Level level) {
+        patterns.add(pattern);
+        levels.add(level);
+        decisions.clear();
+    }
+
+    /**
+     * Whether no pattern has been added.
+     * 
+     * @return <code>true</code> if there are no patterns.
+     */
+    public boolean isEmpty() {
+        return patterns.isEmpty();
+    }
+
+    /**
+     * Get the lowest level of all patterns.
+     * 
+     * @return The level, or <code>null</code> if there are no patterns.
+     */
+    public Level getLowestLevel() {
+        Level lowest = null;
+        for (Level level : levels) {
+            if (lowest == null || level.toInt() < lowest.toInt()) {
+                lowest = level;
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * Get the level at which the specified logger is captured.
+     * 
+     * @param loggerName
+     *            The logger's name.
+     * @return The level of the first pattern the name matches, or
+     *         <code>null</code> if it matches none.
+     */
+    public Level match(String loggerName) {
+        Optional<Level> decision = decisions.get(loggerName);
+        if (decision == null) {
+            // Racing threads may evaluate the same name, but agree on the result.
+            decision = evaluate(loggerName);
+            decisions.putIfAbsent(loggerName, decision);
+        }
+        return decision.orElse(null);
+    }
+
+    private Optional<Level> evaluate(String loggerName) {
+        for (int i = 0; i < patterns.size(); i++) {
+            if (patterns.get(i).matcher(loggerName).matches()) {
+                return Optional.of(levels.get(i));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Convert a glob to a pattern matching whole logger names:
+     * <code>*</code> matches any sequence of characters including dots and
+     * <code>?</code> matches a single character. All other characters match
+     * themselves.
+     * 
+     * @param glob
+     *            The glob, e.g. <code>*.repository.*</code>.
+     * @return The pattern.
+     */
+    public static Pattern globToPattern(String glob) {
+        StringBuilder regex = new StringBuilder(glob.length() + 16);
+        int literalStart = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                if (literalStart < i) {
+                    regex.append(Pattern.quote(glob.substring(literalStart, i)));
+                }
+                regex.append(c == '*' ? ".*" : ".");
+                literalStart = i + 1;
+            }
+        }
+        if (literalStart < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(literalStart)));
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
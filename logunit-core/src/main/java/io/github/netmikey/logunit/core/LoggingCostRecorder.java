@@ -0,0 +1,146 @@
+package io.github.netmikey.logunit.core;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.netmikey.logunit.api.LoggingCost;
+
+/**
+ * Measures the heap allocations and CPU time of the logging threads per
+ * captured log call, using the {@link ThreadMXBean}.
+ * <p>
+ * A measurement starts with {@link #begin()}, called by the logging
+ * framework's hook consulted at the start of a log call where there is one,
+ * or with {@link #beginIfIdle()} when the appender is reached otherwise. It
+ * ends with {@link #end(String)} when the appender has stored the event. The
+ * recorder's own sampling overhead is calibrated once and deducted.
+ */
+public class LoggingCostRecorder {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = threadMxBean();
+
+    private static final int CALIBRATION_ROUNDS = 16;
+
+    /**
+     * Per thread: whether a measurement is active, the allocated bytes and
+     * the CPU time at its start.
+     */
+    private final ThreadLocal<long[]> starts = ThreadLocal.withInitial(() -> new long[3]);
+
+    private final Map<String, Accumulator> costs = new ConcurrentHashMap<>();
+
+    private final long samplingBytes;
+
+    private final long samplingNanos;
+
+    /**
+     * Create a new recorder, calibrating its sampling overhead.
+     * 
+     * @throws IllegalStateException
+     *             If the JVM doesn't support measuring per-thread allocations
+     *             and CPU time.
+     */
+    public LoggingCostRecorder() {
+        if (!isSupported()) {
+            throw new IllegalStateException("The JVM does not support measuring per-thread allocations and CPU time");
+        }
+        long minBytes = Long.MAX_VALUE;
+        long minNanos = Long.MAX_VALUE;
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+            long bytes = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+            long nanos = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+            minBytes = Math.min(minBytes, THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - bytes);
+            minNanos = Math.min(minNanos, THREAD_MX_BEAN.getCurrentThreadCpuTime() - nanos);
+        }
+        samplingBytes = minBytes;
+        samplingNanos = minNanos;
+    }
+
+    /**
+     * Whether the JVM supports measuring per-thread allocations and CPU time
+     * and has it enabled.
+     * 
+     * @return <code>true</code> if logging costs can be measured.
+     */
+    public static boolean isSupported() {
+        return THREAD_MX_BEAN != null
+            && THREAD_MX_BEAN.isThreadAllocatedMemorySupported() && THREAD_MX_BEAN.isThreadAllocatedMemoryEnabled()
+            && THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+    }
+
+    private static com.sun.management.ThreadMXBean threadMxBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+
+    /**
+     * Start measuring a log call on the current thread, replacing any
+     * measurement started before.
+     */
+    public void begin() {
+        long[] start = starts.get();
+        start[0] = 1;
+        start[1] = THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+        start[2] = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+    }
+
+    /**
+     * Start measuring a log call on the current thread unless a measurement
+     * has been started already.
+     */
+    public void beginIfIdle() {
+        if (starts.get()[0] == 0) {
+            begin();
+        }
+    }
+
+    /**
+     * End the current thread's measurement and account for it under the
+     * specified logger. Does nothing if no measurement has been started.
+     * 
+     * @param loggerName
+     *            The name of the logger the measured call has been made to.
+     */
+    public void end(String loggerName) {
+        long bytes = THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long nanos = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+        long[] start = starts.get();
+        if (start[0] == 0) {
+            return;
+        }
+        start[0] = 0;
+        Accumulator accumulator = costs.computeIfAbsent(String.valueOf(loggerName), name -> new Accumulator());
+        accumulator.events.increment();
+        accumulator.allocatedBytes.add(Math.max(0, bytes - start[1] - samplingBytes));
+        accumulator.cpuNanos.add(Math.max(0, nanos - start[2] - samplingNanos));
+    }
+
+    /**
+     * Take a snapshot of the costs measured so far.
+     * 
+     * @return The costs by logger name, sorted by name.
+     */
+    public Map<String, LoggingCost> snapshot() {
+        Map<String, LoggingCost> result = new TreeMap<>();
+        costs.forEach((loggerName, accumulator) -> result.put(loggerName, new LoggingCost(loggerName,
+            accumulator.events.sum(), accumulator.allocatedBytes.sum(), accumulator.cpuNanos.sum())));
+        return result;
+    }
+
+    /**
+     * The costs measured for one logger.
+     */
+    private static final class Accumulator {
+
+        private final LongAdder events = new LongAdder();
+
+        private final LongAdder allocatedBytes = new LongAdder();
+
+        private final LongAdder cpuNanos = new LongAdder();
+    }
+}
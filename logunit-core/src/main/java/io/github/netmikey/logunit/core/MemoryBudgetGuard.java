@@ -0,0 +1,153 @@
+package io.github.netmikey.logunit.core;
+
+import io.github.netmikey.logunit.api.MemoryBudgetPolicy;
+
+/**
+ * Keeps track of the estimated heap size retained by an appender's captured
+ * events and enforces a memory budget on it.
+ * <p>
+ * Appenders estimate an event's size, then call {@link #tryRetain(long)}
+ * and, after storing the event,
+ * {@link #evictExcess(ChunkedArray, TimestampIndex, EventDictionary)}, both
+ * while holding their lock. The guard remembers the size each event has been
+ * charged in a column aligned with the appender's storage and releases
+ * exactly that size on eviction: estimating it again could yield a different
+ * result, since events may reference mutable objects.
+ * <p>
+ * Each event is also charged for its entries in the structures kept aligned
+ * with the appender's storage, which are trimmed along with it on eviction.
+ */
+public class MemoryBudgetGuard {
+
+    /**
+     * The approximate size of an event's entries in the storage and the
+     * structures aligned with it: its storage slot, its timestamp and running
+     * maximum in the {@link TimestampIndex}, its logger name and template ids
+     * in the {@link EventDictionary} and its charged size.
+     */
+    static final long INDEX_BYTES_PER_EVENT = 8 + 2 * 8 + 2 * 4 + 4;
+
+    private final CaptureStatistics statistics;
+
+    private volatile long maxBytes = Long.MAX_VALUE;
+
+    private volatile MemoryBudgetPolicy policy = MemoryBudgetPolicy.EVICT_OLDEST;
+
+    private volatile boolean exceeded;
+
+    /**
+     * Only accessed under the appender's lock.
+     */
+    private long retainedBytes;
+
+    /**
+     * The size each retained event has been charged, aligned with the
+     * appender's storage. Only accessed under the appender's lock.
+     */
+    private final IntColumn chargedBytes = new IntColumn();
+
+    /**
+     * Create a new guard without a budget.
+     * 
+     * @param statistics
+     *            The recorder to report retained and dropped events to.
+     */
+    public MemoryBudgetGuard(CaptureStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Set the budget.
+     * 
+     * @param maxBytes
+     *            The maximum estimated heap size the captured events may
+     *            retain.
+     * @param policy
+     *            What to do when the budget would be exceeded.
+     */
+    public void setBudget(long maxBytes, MemoryBudgetPolicy policy) {
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+    }
+
+    /**
+     * Get the maximum estimated heap size the captured events may retain.
+     * 
+     * @return The budget in bytes, {@link Long#MAX_VALUE} if there is none.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Whether an event has been rejected because of the
+     * {@link MemoryBudgetPolicy#FAIL} policy.
+     * 
+     * @return <code>true</code> if the budget has been exceeded.
+     */
+    public boolean isExceeded() {
+        return exceeded;
+    }
+
+    /**
+     * Account for a new event about to be stored. Must be called under the
+     * appender's lock, for each event the appender stores, right before
+     * storing it.
+     * 
+     * @param eventBytes
+     *            The event's estimated retained size.
+     * @return <code>false</code> if the event must not be stored because
+     *         the budget would be exceeded and the policy is
+     *         {@link MemoryBudgetPolicy#FAIL}.
+     */
+    public boolean tryRetain(long eventBytes) {
+        // Charged sizes are stored as ints, no estimate comes close.
+        long bytes = Math.min(eventBytes + INDEX_BYTES_PER_EVENT, Integer.MAX_VALUE);
+        if (policy == MemoryBudgetPolicy.FAIL && (exceeded || bytes > maxBytes - retainedBytes)) {
+            exceeded = true;
+            statistics.recordDropped();
+            return false;
+        }
+        retainedBytes += bytes;
+        chargedBytes.add((int) bytes);
+        statistics.recordRetainedBytes(bytes);
+        return true;
+    }
+
+    /**
+     * Evict the oldest events from the appender's storage until the retained
+     * size fits into the budget again, trimming the structures aligned with
+     * the storage along with them. Must be called under the appender's lock.
+     * 
+     * @param <E>
+     *            The appender's event type.
+     * @param items
+     *            The appender's event storage.
+     * @param timestampIndex
+     *            The appender's timestamp index.
+     * @param dictionary
+     *            The appender's event dictionary, or <code>null</code> if it
+     *            has none.
+     */
+    public <E> void evictExcess(ChunkedArray<E> items, TimestampIndex timestampIndex,
+        EventDictionary<?> dictionary) {
+
+        if (retainedBytes <= maxBytes) {
+            return;
+        }
+        while (retainedBytes > maxBytes && !items.isEmpty()) {
+            int position = items.firstIndex();
+            long timestamp = timestampIndex.timestampAt(position);
+            long bytes = chargedBytes.get(position);
+            items.removeFirst();
+            retainedBytes -= bytes;
+            statistics.recordRetainedBytes(-bytes);
+            statistics.recordEvicted();
+            if (dictionary != null) {
+                dictionary.removeFirst(timestamp);
+            }
+        }
+        timestampIndex.trimTo(items.firstIndex());
+        chargedBytes.trimTo(items.firstIndex());
+    }
+}
@@ -0,0 +1,197 @@
+package io.github.netmikey.logunit.core;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.event.LoggingEvent;
+
+import io.github.netmikey.logunit.api.EventVisitor;
+import io.github.netmikey.logunit.api.TemplatedLoggingEvent;
+
+/**
+ * Streams visited events to a file as newline-delimited JSON, one object per
+ * event, without collecting them first. Each line is built in a reused
+ * buffer and written right away. Once the next line would exceed the size
+ * cap, the remaining events are only counted and a final
+ * <code>{"truncated":true,"omittedEvents":n}</code> line is written on
+ * {@link #close()}.
+ */
+public class NdjsonExporter implements EventVisitor, Closeable {
+
+    private final Path file;
+
+    private final Writer writer;
+
+    private final long maxBytes;
+
+    private final StringBuilder line = new StringBuilder(512);
+
+    private long bytesWritten;
+
+    private long eventsWritten;
+
+    private long eventsOmitted;
+
+    /**
+     * Create the file, replacing an existing one, and its parent directories.
+     * 
+     * @param file
+     *            The file to write to.
+     * @param maxBytes
+     *            The maximum uncompressed size of the exported events in
+     *            bytes, not counting the truncation line.
+     * @param gzip
+     *            Whether to gzip the file.
+     */
+    public NdjsonExporter(Path file, long maxBytes, boolean gzip) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            OutputStream out = Files.newOutputStream(file);
+            if (gzip) {
+                out = new GZIPOutputStream(out);
+            }
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create log capture export " + file, e);
+        }
+    }
+
+    @Override
+    public void visit(LoggingEvent event) {
+        if (eventsOmitted > 0) {
+            eventsOmitted++;
+            return;
+        }
+        line.setLength(0);
+        appendEvent(event);
+        long length = LogVolume.utf8Length(line) + 1;
+        if (bytesWritten + length > maxBytes) {
+            eventsOmitted++;
+            return;
+        }
+        write();
+        bytesWritten += length;
+        eventsWritten++;
+    }
+
+    private void appendEvent(LoggingEvent event) {
+        line.append("{\"timestamp\":\"").append(Instant.ofEpochMilli(event.getTimeStamp())).append('"');
+        appendField("level", event.getLevel() == null ? null : event.getLevel().name());
+        appendField("logger", event.getLoggerName());
+        appendField("thread", event.getThreadName());
+        appendField("message", event.getMessage());
+        String template = TemplatedLoggingEvent.messageTemplateOf(event);
+        if (template != null && !template.equals(event.getMessage())) {
+            appendField("template", template);
+        }
+        Throwable throwable = event.getThrowable();
+        if (throwable != null) {
+            appendField("throwable", throwable.toString());
+            line.append(",\"stackTrace\":[");
+            StackTraceElement[] frames = throwable.getStackTrace();
+            for (int i = 0; i < frames.length; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                appendString(frames[i].toString());
+            }
+            line.append(']');
+        }
+        line.append('}');
+    }
+
+    private void appendField(String name, String value) {
+        if (value != null) {
+            line.append(",\"").append(name).append("\":");
+            appendString(value);
+        }
+    }
+
+    private void appendString(String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+
+    private void write() {
+        try {
+            writer.append(line).write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write log capture export " + file, e);
+        }
+    }
+
+    /**
+     * Get the number of events written.
+     * 
+     * @return The number of events.
+     */
+    public long getEventsWritten() {
+        return eventsWritten;
+    }
+
+    /**
+     * Get the number of events omitted because of the size cap.
+     * 
+     * @return The number of events.
+     */
+    public long getEventsOmitted() {
+        return eventsOmitted;
+    }
+
+    /**
+     * Write the truncation line, if events have been omitted, and close the
+     * file.
+     */
+    @Override
+    public void close() {
+        try (Writer out = writer) {
+            if (eventsOmitted > 0) {
+                line.setLength(0);
+                line.append("{\"truncated\":true,\"omittedEvents\":").append(eventsOmitted).append('}');
+                out.append(line).write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write log capture export " + file, e);
+        }
+    }
+}
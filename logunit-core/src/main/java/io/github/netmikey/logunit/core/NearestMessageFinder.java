@@ -0,0 +1,212 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.event.Level;
+import org.slf4j.event.LoggingEvent;
+
+import io.github.netmikey.logunit.api.EventVisitor;
+
+/**
+ * Finds the captured messages closest to an expected statement, to explain
+ * why a search for it failed. The distance of a message is the edit distance
+ * between the statement and the closest substring of the message, i.e. the
+ * number of characters that would need to be inserted, deleted or replaced
+ * for the message to contain the statement. Messages at a distance of more
+ * than half the statement's length are not considered close.
+ * <p>
+ * Only the closest candidates are retained, in a bounded heap, and the
+ * distance of the worst one retained is the cutoff for all further messages:
+ * the distance computation only evaluates the cells of the dynamic
+ * programming table that can still beat the cutoff and skips messages too
+ * short to do so. Visiting millions of events thus runs in memory bound by
+ * the statement's length and the number of candidates, and mostly in time
+ * linear in the messages' lengths.
+ */
+public class NearestMessageFinder implements EventVisitor {
+
+    private final String statement;
+
+    private final int[] column;
+
+    private final int[] distances;
+
+    private final long[] ordinals;
+
+    private final String[] messages;
+
+    private final String[] loggerNames;
+
+    private final Level[] levels;
+
+    private int size;
+
+    private long visited;
+
+    /**
+     * Create a new finder.
+     * 
+     * @param statement
+     *            The expected statement.
+     * @param maxCandidates
+     *            The maximum number of closest messages retained.
+     */
+    public NearestMessageFinder(String statement, int maxCandidates) {
+        this.statement = statement;
+        column = new int[statement.length() + 1];
+        distances = new int[maxCandidates];
+        ordinals = new long[maxCandidates];
+        messages = new String[maxCandidates];
+        loggerNames = new String[maxCandidates];
+        levels = new Level[maxCandidates];
+    }
+
+    @Override
+    public void visit(LoggingEvent event) {
+        long ordinal = visited++;
+        String message = event.getMessage();
+        if (message == null || distances.length == 0) {
+            return;
+        }
+        // Messages that would need more than half of the statement changed are
+        // no useful hint.
+        int cutoff = size == distances.length ? distances[0] - 1 : statement.length() / 2;
+        int distance = distance(message, cutoff);
+        if (distance <= cutoff) {
+            if (size == distances.length) {
+                removeWorst();
+            }
+            insert(distance, ordinal, message, event.getLoggerName(), event.getLevel());
+        }
+    }
+
+    /*
+     * The edit distance between the statement and the closest substring of
+     * the message (Sellers' algorithm) with Ukkonen's cutoff: only the cells
+     * holding values up to the cutoff are evaluated, and the cutoff is lowered
+     * to each better distance found. Returns a value greater than the cutoff
+     * if the distance exceeds it.
+     */
+    private int distance(String message, int cutoff) {
+        int m = statement.length();
+        if (m - message.length() > cutoff) {
+            return cutoff + 1;
+        }
+        int bound = cutoff;
+        int best = cutoff + 1;
+        for (int i = 0; i <= m; i++) {
+            column[i] = i;
+        }
+        // The last row whose value is within the bound; the rows below are
+        // known to exceed the bound and are not evaluated.
+        int top = Math.min(m, bound);
+        for (int j = 0; j < message.length() && best > 0; j++) {
+            char c = message.charAt(j);
+            int limit = Math.min(m, top + 1);
+            int diagonal = 0;
+            for (int i = 1; i <= limit; i++) {
+                int above = i > top ? bound + 1 : column[i];
+                int value = statement.charAt(i - 1) == c
+                    ? diagonal
+                    : 1 + Math.min(diagonal, Math.min(above, column[i - 1]));
+                diagonal = above;
+                column[i] = value;
+            }
+            top = limit;
+            while (top > 0 && column[top] > bound) {
+                top--;
+            }
+            if (top == m) {
+                best = column[m];
+                bound = best - 1;
+                while (top > 0 && column[top] > bound) {
+                    top--;
+                }
+            }
+        }
+        return best;
+    }
+
+    /*
+     * The heap keeps the worst candidate at its root: the one with the
+     * greatest distance and, among equal distances, the latest one.
+     */
+    private boolean worse(int a, int b) {
+        return distances[a] > distances[b] || distances[a] == distances[b] && ordinals[a] > ordinals[b];
+    }
+
+    private void insert(int distance, long ordinal, String message, String loggerName, Level level) {
+        int index = size++;
+        set(index, distance, ordinal, message, loggerName, level);
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!worse(index, parent)) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void removeWorst() {
+        size--;
+        set(0, distances[size], ordinals[size], messages[size], loggerNames[size], levels[size]);
+        messages[size] = null;
+        loggerNames[size] = null;
+        levels[size] = null;
+        int index = 0;
+        while (true) {
+            int worst = index;
+            for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                if (worse(child, worst)) {
+                    worst = child;
+                }
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void set(int index, int distance, long ordinal, String message, String loggerName, Level level) {
+        distances[index] = distance;
+        ordinals[index] = ordinal;
+        messages[index] = message;
+        loggerNames[index] = loggerName;
+        levels[index] = level;
+    }
+
+    private void swap(int a, int b) {
+        int distance = distances[a];
+        long ordinal = ordinals[a];
+        String message = messages[a];
+        String loggerName = loggerNames[a];
+        Level level = levels[a];
+        set(a, distances[b], ordinals[b], messages[b], loggerNames[b], levels[b]);
+        set(b, distance, ordinal, message, loggerName, level);
+    }
+
+    /**
+     * Get the closest messages found, the closest first and, among equally
+     * close ones, the first captured first.
+     * 
+     * @return The potentially empty list of descriptions of the form
+     *         <code>[distance] LEVEL logger: "message"</code>.
+     */
+    public List<String> getNearest() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> worse(a, b) ? 1 : worse(b, a) ? -1 : 0);
+        List<String> nearest = new ArrayList<>(size);
+        for (int i : order) {
+            nearest.add("[" + distances[i] + "] " + levels[i] + " " + loggerNames[i] + ": \"" + messages[i] + "\"");
+        }
+        return nearest;
+    }
+}
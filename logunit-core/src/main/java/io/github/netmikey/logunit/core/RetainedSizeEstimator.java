@@ -0,0 +1,139 @@
+package io.github.netmikey.logunit.core;
+
+import java.lang.reflect.Array;
+import java.util.Map;
+
+/**
+ * Rough, cheap estimation of the heap size retained by captured log events,
+ * assuming a 64 bit JVM with compressed object pointers.
+ * <p>
+ * The estimation is shallow: objects passed as log arguments are only
+ * accounted for with their header (or their contents, for strings, boxed
+ * primitives and primitive arrays), since walking arbitrary object graphs on
+ * the logging threads would be too expensive.
+ */
+public final class RetainedSizeEstimator {
+
+    /**
+     * Estimated size of a log event object itself and its small fixed-size
+     * members.
+     */
+    public static final long EVENT_OVERHEAD = 128;
+
+    private static final long OBJECT_HEADER = 16;
+
+    private static final long REFERENCE = 4;
+
+    private static final long STRING_OVERHEAD = 40;
+
+    private static final long STACK_FRAME = 72;
+
+    private static final long MAP_ENTRY = 32;
+
+    private static final int MAX_CAUSE_DEPTH = 32;
+
+    private RetainedSizeEstimator() {
+        // Do not instantiate.
+    }
+
+    /**
+     * Estimate the size of a string.
+     * 
+     * @param string
+     *            The string, may be <code>null</code>.
+     * @return The estimated size in bytes.
+     */
+    public static long estimate(String string) {
+        return string == null ? 0 : STRING_OVERHEAD + 2L * string.length();
+    }
+
+    /**
+     * Estimate the size of a log event's argument array.
+     * 
+     * @param arguments
+     *            The arguments, may be <code>null</code>.
+     * @return The estimated size in bytes.
+     */
+    public static long estimate(Object[] arguments) {
+        if (arguments == null) {
+            return 0;
+        }
+        long size = OBJECT_HEADER + REFERENCE * arguments.length;
+        for (Object argument : arguments) {
+            size += estimateArgument(argument);
+        }
+        return size;
+    }
+
+    /**
+     * Estimate the size of a string map, e.g. a copy of the MDC.
+     * 
+     * @param map
+     *            The map, may be <code>null</code>.
+     * @return The estimated size in bytes.
+     */
+    public static long estimate(Map<String, String> map) {
+        if (map == null || map.isEmpty()) {
+            return 0;
+        }
+        long size = OBJECT_HEADER * 3 + REFERENCE * map.size() * 2;
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            size += MAP_ENTRY + estimate(entry.getKey()) + estimate(entry.getValue());
+        }
+        return size;
+    }
+
+    /**
+     * Estimate the size of a throwable including its stack traces and causes.
+     * 
+     * @param throwable
+     *            The throwable, may be <code>null</code>.
+     * @return The estimated size in bytes.
+     */
+    public static long estimate(Throwable throwable) {
+        long size = 0;
+        Throwable current = throwable;
+        for (int depth = 0; current != null && depth < MAX_CAUSE_DEPTH; depth++) {
+            size += estimateThrowable(current.getMessage(), current.getStackTrace().length);
+            current = current.getCause();
+        }
+        return size;
+    }
+
+    /**
+     * Estimate the size of a single throwable level, without its cause.
+     * 
+     * @param message
+     *            The throwable's message, may be <code>null</code>.
+     * @param frameCount
+     *            The number of stack trace frames retained.
+     * @return The estimated size in bytes.
+     */
+    public static long estimateThrowable(String message, int frameCount) {
+        return OBJECT_HEADER * 4 + estimate(message) + (OBJECT_HEADER + REFERENCE * frameCount)
+            + STACK_FRAME * frameCount;
+    }
+
+    private static long estimateArgument(Object argument) {
+        if (argument == null || argument instanceof Enum || argument instanceof Boolean) {
+            // Shared instances
+            return 0;
+        } else if (argument instanceof String) {
+            return estimate((String) argument);
+        } else if (argument instanceof CharSequence) {
+            return STRING_OVERHEAD + 2L * ((CharSequence) argument).length();
+        } else if (argument instanceof long[] || argument instanceof double[]) {
+            return OBJECT_HEADER + 8L * Array.getLength(argument);
+        } else if (argument instanceof int[] || argument instanceof float[]) {
+            return OBJECT_HEADER + 4L * Array.getLength(argument);
+        } else if (argument instanceof short[] || argument instanceof char[]) {
+            return OBJECT_HEADER + 2L * Array.getLength(argument);
+        } else if (argument instanceof byte[] || argument instanceof boolean[]) {
+            return OBJECT_HEADER + Array.getLength(argument);
+        } else if (argument instanceof Object[]) {
+            return OBJECT_HEADER + REFERENCE * ((Object[]) argument).length;
+        } else {
+            return OBJECT_HEADER + 8;
+        }
+    }
+}
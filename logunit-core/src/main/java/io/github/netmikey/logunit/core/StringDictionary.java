@@ -0,0 +1,116 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe dictionary assigning dense integer ids to strings, so that
+ * recurring strings like logger names or message templates are retained once
+ * and can be compared by id. Id <code>0</code> stands for <code>null</code>.
+ */
+public class StringDictionary {
+
+    /**
+     * The id of <code>null</code>.
+     */
+    public static final int NULL_ID = 0;
+
+    /**
+     * The result of {@link #lookup(String)} for strings that have never been
+     * interned. No interned string has this id.
+     */
+    public static final int UNKNOWN_ID = -1;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    private volatile String[] strings = new String[64];
+
+    private volatile int size = 1;
+
+    /**
+     * Get the id of the specified string, assigning a new one if it has
+     * never been interned.
+     * 
+     * @param string
+     *            The string, may be <code>null</code>.
+     * @return The string's id.
+     */
+    public int intern(String string) {
+        if (string == null) {
+            return NULL_ID;
+        }
+        Integer id = ids.get(string);
+        if (id == null) {
+            synchronized (this) {
+                id = ids.get(string);
+                if (id == null) {
+                    int newId = size;
+                    String[] currentStrings = strings;
+                    if (newId == currentStrings.length) {
+                        currentStrings = Arrays.copyOf(currentStrings, newId * 2);
+                    }
+                    currentStrings[newId] = string;
+                    strings = currentStrings;
+                    size = newId + 1;
+                    id = newId;
+                    ids.put(string, id);
+                }
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Get the canonical instance of the specified string, interning it if
+     * necessary. Equal strings passed to this method result in the same
+     * instance.
+     * 
+     * @param string
+     *            The string, may be <code>null</code>.
+     * @return The canonical instance.
+     */
+    public String canonicalize(String string) {
+        return get(intern(string));
+    }
+
+    /**
+     * Get the id of the specified string without interning it.
+     * 
+     * @param string
+     *            The string, may be <code>null</code>.
+     * @return The string's id, or {@link #UNKNOWN_ID} if it has never been
+     *         interned.
+     */
+    public int lookup(String string) {
+        if (string == null) {
+            return NULL_ID;
+        }
+        Integer id = ids.get(string);
+        return id == null ? UNKNOWN_ID : id;
+    }
+
+    /**
+     * Get the string with the specified id.
+     * 
+     * @param id
+     *            The id returned by {@link #intern(String)}.
+     * @return The string.
+     */
+    public String get(int id) {
+        int currentSize = size;
+        if (id < 0 || id >= currentSize) {
+            throw new IndexOutOfBoundsException("Id: " + id + ", Size: " + currentSize);
+        }
+        return strings[id];
+    }
+
+    /**
+     * The number of distinct strings interned, including <code>null</code>.
+     * 
+     * @return The number of strings.
+     */
+    public int size() {
+        return size;
+    }
+}
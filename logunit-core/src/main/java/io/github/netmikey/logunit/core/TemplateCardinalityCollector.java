@@ -0,0 +1,113 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.slf4j.event.LoggingEvent;
+
+import io.github.netmikey.logunit.api.TemplateCardinality;
+import io.github.netmikey.logunit.api.TemplatedLoggingEvent;
+
+/**
+ * Groups captured message templates into families that only differ in their
+ * variable parts and counts the distinct templates per family. Words that
+ * contain a digit, like numbers, ids, dates and UUIDs, are considered
+ * variable.
+ */
+public class TemplateCardinalityCollector {
+
+    private static final Pattern VARIABLE_PART = Pattern.compile("[\\w-]*\\d[\\w-]*");
+
+    private final Map<Family, FamilyStats> families = new HashMap<>();
+
+    /**
+     * Account for a captured event. The event is not retained, so reused
+     * views may be passed.
+     * 
+     * @param event
+     *            The event.
+     */
+    public void add(LoggingEvent event) {
+        String template = TemplatedLoggingEvent.messageTemplateOf(event);
+        if (template == null) {
+            return;
+        }
+        Family family = new Family(event.getLoggerName(), VARIABLE_PART.matcher(template).replaceAll("#"));
+        FamilyStats stats = families.computeIfAbsent(family, f -> new FamilyStats(template));
+        stats.templates.add(template);
+        stats.events++;
+    }
+
+    /**
+     * Get the template families with at least the specified number of
+     * distinct templates, the largest first.
+     * 
+     * @param minDistinctTemplates
+     *            The minimum number of distinct templates.
+     * @return The potentially empty list of families.
+     */
+    public List<TemplateCardinality> getHighCardinalityTemplates(int minDistinctTemplates) {
+        List<TemplateCardinality> result = new ArrayList<>();
+        families.forEach((family, stats) -> {
+            if (stats.templates.size() >= minDistinctTemplates) {
+                result.add(new TemplateCardinality(family.loggerName, family.skeleton, stats.templates.size(),
+                    stats.events, stats.example));
+            }
+        });
+        result.sort(Comparator.comparingInt(TemplateCardinality::getDistinctTemplates).reversed()
+            .thenComparing(TemplateCardinality::getSkeleton));
+        return result;
+    }
+
+    /**
+     * A logger and template skeleton.
+     */
+    private static final class Family {
+
+        private final String loggerName;
+
+        private final String skeleton;
+
+        private Family(String loggerName, String skeleton) {
+            this.loggerName = loggerName;
+            this.skeleton = skeleton;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Family)) {
+                return false;
+            }
+            Family other = (Family) obj;
+            return Objects.equals(loggerName, other.loggerName) && skeleton.equals(other.skeleton);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(loggerName, skeleton);
+        }
+    }
+
+    /**
+     * The templates seen for a family.
+     */
+    private static final class FamilyStats {
+
+        private final Set<String> templates = new HashSet<>();
+
+        private final String example;
+
+        private long events;
+
+        private FamilyStats(String example) {
+            this.example = example;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.github.netmikey.logunit.api.ThrowableSnapshot;
+
+/**
+ * Creates {@link ThrowableSnapshot}s of captured throwables and interns them:
+ * tests that log the same error over and over again share a single snapshot
+ * and identical stack trace frames across different snapshots are shared,
+ * too. The interning pools are bounded; once they are full, new snapshots
+ * are still created but no longer shared.
+ */
+public class ThrowableSnapshotFactory {
+
+    /**
+     * The default number of stack trace frames to retain per throwable.
+     */
+    public static final int DEFAULT_MAX_FRAMES = 32;
+
+    private static final int MAX_INTERNED_SNAPSHOTS = 1024;
+
+    private static final int MAX_INTERNED_FRAMES = 8192;
+
+    private static final int MAX_CAUSE_DEPTH = 32;
+
+    private final int maxFrames;
+
+    private final Map<Key, ThrowableSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    private final Map<StackTraceElement, StackTraceElement> frames = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new factory.
+     * 
+     * @param maxFrames
+     *            The maximum number of stack trace frames to retain per
+     *            throwable, not including its causes.
+     */
+    public ThrowableSnapshotFactory(int maxFrames) {
+        if (maxFrames < 0) {
+            throw new IllegalArgumentException("The number of frames must not be negative but was " + maxFrames);
+        }
+        this.maxFrames = maxFrames;
+    }
+
+    /**
+     * Create the snapshot of a throwable and its causes.
+     * 
+     * @param throwable
+     *            The throwable, may be <code>null</code>.
+     * @return The snapshot, or <code>null</code> if the throwable was
+     *         <code>null</code>. Snapshots are returned as they are.
+     */
+    public ThrowableSnapshot snapshot(Throwable throwable) {
+        return snapshot(throwable, 0);
+    }
+
+    private ThrowableSnapshot snapshot(Throwable throwable, int depth) {
+        if (throwable == null || throwable instanceof ThrowableSnapshot) {
+            return (ThrowableSnapshot) throwable;
+        }
+        ThrowableSnapshot cause = depth < MAX_CAUSE_DEPTH && throwable.getCause() != throwable
+            ? snapshot(throwable.getCause(), depth + 1)
+            : null;
+        return snapshot(throwable.getClass().getName(), throwable.getMessage(), throwable.getStackTrace(), cause);
+    }
+
+    /**
+     * Create the snapshot of a throwable described by its parts, e.g. by a
+     * logging framework's serializable representation. The stack trace gets
+     * truncated to this factory's maximum number of frames.
+     * 
+     * @param className
+     *            The fully qualified class name of the throwable.
+     * @param message
+     *            The throwable's message.
+     * @param stackTrace
+     *            The throwable's full stack trace.
+     * @param cause
+     *            The snapshot of the throwable's cause, or <code>null</code>.
+     * @return The snapshot.
+     */
+    public ThrowableSnapshot snapshot(String className, String message, StackTraceElement[] stackTrace,
+        ThrowableSnapshot cause) {
+
+        int retained = Math.min(maxFrames, stackTrace.length);
+        StackTraceElement[] truncated = new StackTraceElement[retained];
+        for (int i = 0; i < retained; i++) {
+            truncated[i] = intern(stackTrace[i]);
+        }
+        Key key = new Key(className, message, truncated, stackTrace.length - retained, cause);
+
+        ThrowableSnapshot snapshot = snapshots.get(key);
+        if (snapshot == null) {
+            snapshot = new ThrowableSnapshot(className, message, truncated, key.omittedFrameCount, cause);
+            if (snapshots.size() < MAX_INTERNED_SNAPSHOTS) {
+                ThrowableSnapshot existing = snapshots.putIfAbsent(key, snapshot);
+                if (existing != null) {
+                    snapshot = existing;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private StackTraceElement intern(StackTraceElement frame) {
+        StackTraceElement interned = frames.get(frame);
+        if (interned == null) {
+            interned = frame;
+            if (frames.size() < MAX_INTERNED_FRAMES) {
+                StackTraceElement existing = frames.putIfAbsent(frame, frame);
+                if (existing != null) {
+                    interned = existing;
+                }
+            }
+        }
+        return interned;
+    }
+
+    /**
+     * Identifies equal snapshots. Causes are compared by identity since they
+     * are interned themselves.
+     */
+    private static final class Key {
+
+        private final String className;
+
+        private final String message;
+
+        private final StackTraceElement[] stackTrace;
+
+        private final int omittedFrameCount;
+
+        private final ThrowableSnapshot cause;
+
+        private final int hash;
+
+        Key(String className, String message, StackTraceElement[] stackTrace, int omittedFrameCount,
+            ThrowableSnapshot cause) {
+
+            this.className = className;
+            this.message = message;
+            this.stackTrace = stackTrace;
+            this.omittedFrameCount = omittedFrameCount;
+            this.cause = cause;
+            this.hash = Objects.hash(className, message, Arrays.hashCode(stackTrace), omittedFrameCount,
+                System.identityHashCode(cause));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash
+                && omittedFrameCount == other.omittedFrameCount
+                && cause == other.cause
+                && Objects.equals(className, other.className)
+                && Objects.equals(message, other.message)
+                && Arrays.equals(stackTrace, other.stackTrace);
+        }
+    }
+}
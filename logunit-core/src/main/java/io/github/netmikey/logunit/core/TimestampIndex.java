@@ -0,0 +1,190 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.Arrays;
+
+/**
+ * Append-only column of capture timestamps that can be binary searched for
+ * time windows.
+ * <p>
+ * Events reach an appender in roughly, but not strictly, chronological order:
+ * two threads racing into the same appender may store an event carrying a
+ * slightly older timestamp right after a newer one. Next to the raw
+ * timestamps, this index therefore keeps their running maximum (which is
+ * monotonic and thus searchable) and the largest reordering lag observed so
+ * far. The lag bounds how far behind the running maximum a late event can be,
+ * which lets {@link #upperBound(long)} widen a window's end just enough to
+ * never miss one.
+ * <p>
+ * Timestamps of evicted events can be {@link #trimTo(int) trimmed} from the
+ * head of the index, releasing their chunks. Trimmed positions keep their
+ * place and read as {@link Long#MIN_VALUE}, so the running maximum stays
+ * monotonic.
+ * <p>
+ * Writes must be serialized by the caller, which is what appenders do anyway
+ * in order to keep the index aligned with their own event storage. Reads may
+ * happen concurrently to writes and see a consistent prefix of the column.
+ */
+public class TimestampIndex {
+
+    private static final int CHUNK_SHIFT = 10;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private long[][] timestamps = new long[16][];
+
+    private long[][] runningMax = new long[16][];
+
+    private volatile long maxLag;
+
+    private volatile int size;
+
+    private volatile int firstIndex;
+
+    /**
+     * Append the timestamp of the next captured event. Must not be called
+     * concurrently.
+     * 
+     * @param timestamp
+     *            The event's timestamp in milliseconds since the epoch.
+     */
+    public void add(long timestamp) {
+        int index = size;
+        int chunk = index >>> CHUNK_SHIFT;
+        if (chunk == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, chunk * 2);
+            runningMax = Arrays.copyOf(runningMax, chunk * 2);
+        }
+        if (timestamps[chunk] == null) {
+            timestamps[chunk] = new long[CHUNK_SIZE];
+            runningMax[chunk] = new long[CHUNK_SIZE];
+        }
+
+        long max = timestamp;
+        if (index > 0) {
+            long previousMax = maxAt(index - 1);
+            if (previousMax > timestamp) {
+                max = previousMax;
+                if (previousMax - timestamp > maxLag) {
+                    maxLag = previousMax - timestamp;
+                }
+            }
+        }
+        timestamps[chunk][index & CHUNK_MASK] = timestamp;
+        runningMax[chunk][index & CHUNK_MASK] = max;
+
+        // Publishes the slot written above to concurrent readers.
+        size = index + 1;
+    }
+
+    /**
+     * The number of timestamps in this index.
+     * 
+     * @return The number of timestamps in this index.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The position of the first timestamp that has not been trimmed.
+     * 
+     * @return The position, which is a multiple of the chunk size.
+     */
+    public int firstIndex() {
+        return firstIndex;
+    }
+
+    /**
+     * Get the timestamp of the event at the specified position.
+     * 
+     * @param index
+     *            The event's position in capture order.
+     * @return The event's timestamp in milliseconds since the epoch, or
+     *         {@link Long#MIN_VALUE} if it has been trimmed.
+     */
+    public long timestampAt(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        long[] chunk = timestamps[index >>> CHUNK_SHIFT];
+        return chunk == null ? Long.MIN_VALUE : chunk[index & CHUNK_MASK];
+    }
+
+    /**
+     * Release the timestamps before the specified position, as far as they
+     * fill whole chunks. Must not be called concurrently to
+     * {@link #add(long)}.
+     * 
+     * @param index
+     *            The position of the first timestamp that must be retained.
+     */
+    public void trimTo(int index) {
+        int first = firstIndex;
+        int end = Math.min(index, size) & ~CHUNK_MASK;
+        if (end <= first) {
+            return;
+        }
+        for (int chunk = first >>> CHUNK_SHIFT; chunk < end >>> CHUNK_SHIFT; chunk++) {
+            timestamps[chunk] = null;
+            runningMax[chunk] = null;
+        }
+        firstIndex = end;
+    }
+
+    /**
+     * Find the position of the first event that may have been logged at or
+     * after the specified point in time. All events before that position are
+     * guaranteed to be older.
+     * 
+     * @param fromMillis
+     *            The start of the time window in milliseconds since the epoch.
+     * @return The inclusive lower bound position, between <code>0</code> and
+     *         {@link #size()}.
+     */
+    public int lowerBound(long fromMillis) {
+        if (fromMillis == Long.MIN_VALUE) {
+            return 0;
+        }
+        return firstMaxAbove(fromMillis - 1, size);
+    }
+
+    /**
+     * Find the position after which no event can have been logged at or
+     * before the specified point in time, taking reordered events into
+     * account.
+     * 
+     * @param toMillis
+     *            The end of the time window in milliseconds since the epoch.
+     * @return The exclusive upper bound position, between <code>0</code> and
+     *         {@link #size()}.
+     */
+    public int upperBound(long toMillis) {
+        int currentSize = size;
+        long lag = maxLag;
+        if (toMillis > Long.MAX_VALUE - lag) {
+            return currentSize;
+        }
+        return firstMaxAbove(toMillis + lag, currentSize);
+    }
+
+    private int firstMaxAbove(long threshold, int currentSize) {
+        int low = 0;
+        int high = currentSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (maxAt(mid) > threshold) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private long maxAt(int index) {
+        long[] chunk = runningMax[index >>> CHUNK_SHIFT];
+        return chunk == null ? Long.MIN_VALUE : chunk[index & CHUNK_MASK];
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.netmikey.logunit.api;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Test that percentiles are within the histogram's relative error of
+     * 1/16 and never above the maximum.
+     */
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+
+        Assertions.assertEquals(100_000, histogram.getTotalCount());
+        Assertions.assertEquals(100_000, histogram.getMax());
+        Assertions.assertEquals(50_000.5, histogram.getMean(), 0.001);
+        assertWithinPrecision(50_000, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(99_000, histogram.getValueAtPercentile(99));
+        assertWithinPrecision(99_900, histogram.getValueAtPercentile(99.9));
+        Assertions.assertEquals(100_000, histogram.getValueAtPercentile(100));
+        Assertions.assertEquals(1, histogram.getValueAtPercentile(0));
+    }
+
+    /**
+     * Test that small values are exact and that the extremes of the range are
+     * recorded.
+     */
+    @Test
+    public void testRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assertions.assertEquals(0, histogram.getValueAtPercentile(50));
+        Assertions.assertEquals(0, histogram.getMean());
+
+        histogram.record(-5);
+        histogram.record(17);
+        histogram.record(Long.MAX_VALUE);
+
+        Assertions.assertEquals(0, histogram.getValueAtPercentile(1));
+        Assertions.assertEquals(17, histogram.getValueAtPercentile(50));
+        Assertions.assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+    }
+
+    /**
+     * Test that copies don't see values recorded afterwards.
+     */
+    @Test
+    public void testCopy() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        LatencyHistogram copy = histogram.copy();
+        histogram.record(2000);
+
+        Assertions.assertEquals(1, copy.getTotalCount());
+        Assertions.assertEquals(1000, copy.getMax());
+        Assertions.assertEquals(2, histogram.getTotalCount());
+    }
+
+    private void assertWithinPrecision(long expected, long actual) {
+        Assertions.assertTrue(Math.abs(actual - expected) <= expected / 16,
+            "expected ~" + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,157 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.LoggingEvent;
+import org.slf4j.event.SubstituteLoggingEvent;
+
+import io.github.netmikey.logunit.api.BackpressurePolicy;
+import io.github.netmikey.logunit.api.EventFlow.Subscriber;
+import io.github.netmikey.logunit.api.EventFlow.Subscription;
+
+/**
+ * Unit tests for {@link BufferedEventPublisher}.
+ */
+public class BufferedEventPublisherTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    /**
+     * Test that the events captured while a slow subscriber's buffer is full
+     * are dropped, keeping the buffered ones.
+     * 
+     * @throws Exception
+     *             Unexpected failure.
+     */
+    @Test
+    public void testDropWithSlowSubscriber() throws Exception {
+        BufferedEventPublisher publisher = new BufferedEventPublisher(2, BackpressurePolicy.DROP);
+
+        Assertions.assertEquals(Arrays.asList("1", "2", "3"), publishToSlowSubscriber(publisher, 6));
+        Assertions.assertEquals(3, publisher.getDroppedCount());
+    }
+
+    /**
+     * Test that the oldest buffered events make room for the events captured
+     * while a slow subscriber's buffer is full.
+     * 
+     * @throws Exception
+     *             Unexpected failure.
+     */
+    @Test
+    public void testLatestWithSlowSubscriber() throws Exception {
+        BufferedEventPublisher publisher = new BufferedEventPublisher(2, BackpressurePolicy.LATEST);
+
+        Assertions.assertEquals(Arrays.asList("1", "5", "6"), publishToSlowSubscriber(publisher, 6));
+        Assertions.assertEquals(3, publisher.getDroppedCount());
+    }
+
+    /**
+     * Test that events are buffered until they are requested, one at a time.
+     * 
+     * @throws Exception
+     *             Unexpected failure.
+     */
+    @Test
+    public void testDeliveryFollowsDemand() throws Exception {
+        BufferedEventPublisher publisher = new BufferedEventPublisher(10, BackpressurePolicy.DROP, Runnable::run);
+        List<String> received = new CopyOnWriteArrayList<>();
+        Subscription[] subscription = new Subscription[1];
+        publisher.subscribe(new RecordingSubscriber(received, new CountDownLatch(1)) {
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription[0] = s;
+            }
+        });
+
+        publisher.eventCaptured(event("1"));
+        publisher.eventCaptured(event("2"));
+        Assertions.assertTrue(received.isEmpty());
+        subscription[0].request(1);
+        Assertions.assertEquals(Arrays.asList("1"), received);
+        subscription[0].request(5);
+        Assertions.assertEquals(Arrays.asList("1", "2"), received);
+        Assertions.assertEquals(0, publisher.getDroppedCount());
+    }
+
+    /*
+     * The subscriber blocks on the first event until all others have been
+     * captured, so its buffer overflows while the logging thread never waits.
+     */
+    private List<String> publishToSlowSubscriber(BufferedEventPublisher publisher, int count)
+        throws InterruptedException {
+        CountDownLatch firstReceived = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(1);
+        List<String> received = new CopyOnWriteArrayList<>();
+        publisher.subscribe(new RecordingSubscriber(received, completed) {
+            @Override
+            public void onNext(LoggingEvent item) {
+                super.onNext(item);
+                firstReceived.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        publisher.eventCaptured(event("1"));
+        Assertions.assertTrue(firstReceived.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        for (int i = 2; i <= count; i++) {
+            publisher.eventCaptured(event(Integer.toString(i)));
+        }
+        proceed.countDown();
+        publisher.close();
+        Assertions.assertTrue(completed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        return received;
+    }
+
+    private LoggingEvent event(String message) {
+        SubstituteLoggingEvent event = new SubstituteLoggingEvent();
+        event.setMessage(message);
+        return event;
+    }
+
+    /**
+     * Requests all events and records their messages.
+     */
+    private static class RecordingSubscriber implements Subscriber<LoggingEvent> {
+
+        private final List<String> received;
+
+        private final CountDownLatch completed;
+
+        RecordingSubscriber(List<String> received, CountDownLatch completed) {
+            this.received = received;
+            this.completed = completed;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(LoggingEvent item) {
+            received.add(item.getMessage());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            Assertions.fail(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link ChunkedArray}.
+ */
+public class ChunkedArrayTest {
+
+    private static final int ELEMENTS = 5000;
+
+    /**
+     * Test appending, positional access and removal across chunks.
+     */
+    @Test
+    public void testAddGetRemove() {
+        ChunkedArray<Integer> array = filled(ELEMENTS);
+
+        Assertions.assertEquals(ELEMENTS, array.size());
+        Assertions.assertEquals(4321, array.get(4321));
+        for (int i = 0; i < 2000; i++) {
+            Assertions.assertEquals(i, array.removeFirst());
+        }
+        Assertions.assertEquals(2000, array.firstIndex());
+        Assertions.assertNull(array.get(1999));
+        Assertions.assertNull(array.get(5));
+        Assertions.assertEquals(2000, array.get(2000));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> array.get(ELEMENTS));
+        while (!array.isEmpty()) {
+            array.removeFirst();
+        }
+        Assertions.assertThrows(NoSuchElementException.class, array::removeFirst);
+    }
+
+    /**
+     * Test that spliterators are sized and split evenly, so parallel streams
+     * see all elements.
+     */
+    @Test
+    public void testSizedSpliterator() {
+        ChunkedArray<Integer> array = filled(ELEMENTS);
+        array.removeFirst();
+
+        Spliterator<Integer> spliterator = array.spliterator();
+        Assertions.assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+        Assertions.assertEquals(ELEMENTS - 1, spliterator.getExactSizeIfKnown());
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        Assertions.assertEquals((ELEMENTS - 1) / 2, prefix.getExactSizeIfKnown());
+        Assertions.assertEquals(ELEMENTS - 1 - (ELEMENTS - 1) / 2, spliterator.getExactSizeIfKnown());
+
+        long sum = StreamSupport.stream(array.spliterator(), true).mapToLong(Integer::longValue).sum();
+        Assertions.assertEquals((long) ELEMENTS * (ELEMENTS - 1) / 2, sum);
+    }
+
+    /**
+     * Test that a spliterator still sees the elements removed after its
+     * creation, while the storage itself releases them.
+     */
+    @Test
+    public void testSpliteratorIsSnapshot() {
+        ChunkedArray<Integer> array = filled(ELEMENTS);
+        Spliterator<Integer> spliterator = array.spliterator();
+        for (int i = 0; i < 3000; i++) {
+            array.removeFirst();
+        }
+        array.add(ELEMENTS);
+
+        List<Integer> seen = new ArrayList<>();
+        spliterator.forEachRemaining(seen::add);
+        Assertions.assertEquals(IntStream.range(0, ELEMENTS).boxed().collect(Collectors.toList()), seen);
+        Assertions.assertNull(array.get(2500));
+        Assertions.assertEquals(ELEMENTS - 3000 + 1,
+            StreamSupport.stream(array.spliterator(), false).count());
+    }
+
+    /**
+     * Test that a spliterator still sees the removed elements once later
+     * spliterators over the same chunks have been traversed and discarded.
+     */
+    @Test
+    public void testInterleavedSpliterators() {
+        ChunkedArray<Integer> array = filled(ELEMENTS);
+        array.removeFirst();
+        Spliterator<Integer> first = array.spliterator();
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals(ELEMENTS - 1 - i, StreamSupport.stream(array.spliterator(), false).count());
+            array.removeFirst();
+        }
+        Spliterator<Integer> second = array.spliterator();
+        Assertions.assertEquals(ELEMENTS - 11, StreamSupport.stream(array.spliterator(), false).count());
+        System.gc();
+        for (int i = 0; i < 1500; i++) {
+            array.removeFirst();
+        }
+
+        List<Integer> seen = new ArrayList<>();
+        first.forEachRemaining(seen::add);
+        Assertions.assertEquals(IntStream.range(1, ELEMENTS).boxed().collect(Collectors.toList()), seen);
+        seen.clear();
+        second.forEachRemaining(seen::add);
+        Assertions.assertEquals(IntStream.range(11, ELEMENTS).boxed().collect(Collectors.toList()), seen);
+    }
+
+    private static ChunkedArray<Integer> filled(int elements) {
+        ChunkedArray<Integer> array = new ChunkedArray<>();
+        for (int i = 0; i < elements; i++) {
+            array.add(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link LineDiff}.
+ */
+public class LineDiffTest {
+
+    /**
+     * Test that equal lines have an empty diff.
+     */
+    @Test
+    public void testEqual() {
+        List<String> lines = Arrays.asList("a", "b");
+        LineDiff diff = new LineDiff(lines, lines, 1, 10);
+
+        Assertions.assertTrue(diff.isComplete());
+        Assertions.assertEquals("", diff.render(100));
+    }
+
+    /**
+     * Test that a changed line is rendered as a deletion and an insertion
+     * with context around them and the changes' line numbers.
+     */
+    @Test
+    public void testChangedLine() {
+        LineDiff diff = new LineDiff(Arrays.asList("a", "b", "c", "d", "e", "f"),
+            Arrays.asList("a", "b", "c", "x", "e", "f"), 1, 10);
+
+        Assertions.assertTrue(diff.isComplete());
+        Assertions.assertEquals("@@ -2 +2 @@\n  b\n  c\n- d\n+ x\n  e\n  f\n", diff.render(100));
+    }
+
+    /**
+     * Test that separate groups of changes get their own headers and that
+     * rendering stops at the line limit.
+     */
+    @Test
+    public void testGroupsAndTruncation() {
+        List<String> expected = lines(20);
+        List<String> actual = lines(20);
+        actual.remove(2);
+        actual.add(15, "inserted");
+        LineDiff diff = new LineDiff(expected, actual, 10, 10);
+
+        String rendered = diff.render(100);
+        Assertions.assertEquals(2, rendered.split("@@ -").length - 1, rendered);
+        Assertions.assertTrue(rendered.startsWith("@@ -10 +10 @@\n  line0\n  line1\n- line2\n"), rendered);
+        Assertions.assertTrue(rendered.contains("+ inserted\n"), rendered);
+        Assertions.assertTrue(diff.render(3).endsWith("... (diff truncated)\n"));
+    }
+
+    /**
+     * Test that no diff is computed for lines differing by more than the
+     * limit.
+     */
+    @Test
+    public void testLimit() {
+        LineDiff diff = new LineDiff(lines(5), Collections.emptyList(), 1, 4);
+
+        Assertions.assertFalse(diff.isComplete());
+        Assertions.assertEquals("", diff.render(100));
+    }
+
+    private List<String> lines(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "line" + i).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.netmikey.logunit.core;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.Level;
+import org.slf4j.event.SubstituteLoggingEvent;
+
+/**
+ * Unit tests for {@link LogVolume}.
+ */
+public class LogVolumeTest {
+
+    private static final String LOGGER_NAME = "VOLUME_LOGGER";
+
+    /**
+     * Test that messages logged without arguments are accounted for together,
+     * so that messages differing between runs don't count as growth, also
+     * after a round trip through a baseline file.
+     * 
+     * @throws Exception
+     *             Unexpected failure.
+     */
+    @Test
+    public void testMessagesWithoutArgumentsAreGrouped() throws Exception {
+        LogVolume baseline = new LogVolume();
+        LogVolume current = new LogVolume();
+        for (int i = 0; i < 10; i++) {
+            baseline.add(event("Request body: " + UUID.randomUUID()));
+            current.add(event("Request body: " + UUID.randomUUID()));
+        }
+        Path file = Files.createTempDirectory("logunit").resolve("baseline.tsv");
+        baseline.write(file);
+
+        Assertions.assertTrue(current.findGrowth(LogVolume.read(file), 0).isEmpty());
+        Assertions.assertTrue(Files.readAllLines(file).get(1).endsWith("\t" + LogVolume.WITHOUT_ARGUMENTS));
+
+        current.add(event("Request body: " + UUID.randomUUID()));
+        Assertions.assertEquals(1, current.findGrowth(baseline, 0).size());
+    }
+
+    /**
+     * Test that templates that are new since the baseline only count as
+     * growth if the total volume grew beyond the tolerance.
+     */
+    @Test
+    public void testNewTemplatesCountAgainstTotal() {
+        LogVolume baseline = new LogVolume();
+        LogVolume current = new LogVolume();
+        for (int i = 0; i < 10; i++) {
+            baseline.add(event("Request {}", i));
+            current.add(event("Request {}", i));
+        }
+        current.add(event("Cache miss {}", 1));
+        Assertions.assertTrue(current.findGrowth(baseline, 0.5).isEmpty());
+
+        for (int i = 0; i < 10; i++) {
+            current.add(event("Cache miss {}", i));
+        }
+        Assertions.assertEquals(1, current.findGrowth(baseline, 0.5).size());
+        Assertions.assertTrue(current.findGrowth(baseline, 0.5).get(0).contains("\"Cache miss {}\": 11 events"),
+            current.findGrowth(baseline, 0.5).toString());
+    }
+
+    private static SubstituteLoggingEvent event(String message, Object... arguments) {
+        SubstituteLoggingEvent event = new SubstituteLoggingEvent();
+        event.setLevel(Level.INFO);
+        event.setLoggerName(LOGGER_NAME);
+        event.setMessage(message);
+        event.setArgumentArray(arguments);
+        return event;
+    }
+}
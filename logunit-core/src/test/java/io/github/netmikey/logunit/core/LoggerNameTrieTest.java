@@ -0,0 +1,46 @@
+package io.github.netmikey.logunit.core;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link LoggerNameTrie}.
+ */
+public class LoggerNameTrieTest {
+
+    /**
+     * Test that the nearest ancestor is found at segment boundaries only.
+     */
+    @Test
+    public void testFindNearest() {
+        LoggerNameTrie<String> trie = new LoggerNameTrie<>();
+        trie.put("com.acme", "acme");
+        trie.put("com.acme.billing.Invoices", "invoices");
+
+        Assertions.assertEquals("acme", trie.findNearest("com.acme"));
+        Assertions.assertEquals("acme", trie.findNearest("com.acme.billing"));
+        Assertions.assertEquals("invoices", trie.findNearest("com.acme.billing.Invoices"));
+        Assertions.assertEquals("invoices", trie.findNearest("com.acme.billing.Invoices.Inner"));
+        Assertions.assertEquals("acme", trie.findNearest("com.acme.billing.InvoicesV2"));
+        Assertions.assertNull(trie.findNearest("com.acmecorp"));
+        Assertions.assertNull(trie.findNearest("com"));
+        Assertions.assertNull(trie.findNearest(""));
+    }
+
+    /**
+     * Test that the empty name is the ancestor of all loggers and that
+     * values are replaced.
+     */
+    @Test
+    public void testRootAndReplace() {
+        LoggerNameTrie<String> trie = new LoggerNameTrie<>();
+        trie.put("", "root");
+        trie.put("org.example", "first");
+        trie.put("org.example", "second");
+
+        Assertions.assertEquals("root", trie.findNearest("com.acme"));
+        Assertions.assertEquals("root", trie.findNearest("org.examples"));
+        Assertions.assertEquals("second", trie.findNearest("org.example.Service"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> trie.put("org", null));
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.netmikey.logunit.api.MemoryBudgetPolicy;
+
+/**
+ * Unit tests for {@link MemoryBudgetGuard}.
+ */
+public class MemoryBudgetGuardTest {
+
+    private static final long EVENT_BYTES = 100 + MemoryBudgetGuard.INDEX_BYTES_PER_EVENT;
+
+    /**
+     * Test that eviction releases the size an event has been charged when it
+     * was retained, even if the event's estimate has changed since.
+     */
+    @Test
+    public void testEvictionReleasesChargedSize() {
+        CaptureStatistics statistics = new CaptureStatistics();
+        MemoryBudgetGuard guard = new MemoryBudgetGuard(statistics);
+        guard.setBudget(3 * EVENT_BYTES, MemoryBudgetPolicy.EVICT_OLDEST);
+        ChunkedArray<StringBuilder> items = new ChunkedArray<>();
+        TimestampIndex timestampIndex = new TimestampIndex();
+
+        for (int i = 0; i < 3; i++) {
+            retain(guard, items, timestampIndex, new StringBuilder(repeat('x', 100)));
+        }
+        // Mutable events may shrink or grow after they have been charged.
+        items.get(0).setLength(0);
+        items.get(1).append(repeat('y', 1000));
+        retain(guard, items, timestampIndex, new StringBuilder(repeat('x', 100)));
+
+        Assertions.assertEquals(1, items.firstIndex());
+        Assertions.assertEquals(3 * EVENT_BYTES, statistics.getRetainedBytes());
+
+        retain(guard, items, timestampIndex, new StringBuilder(repeat('x', 100)));
+        Assertions.assertEquals(2, items.firstIndex());
+        Assertions.assertEquals(3 * EVENT_BYTES, statistics.getRetainedBytes());
+        Assertions.assertEquals(2, statistics.snapshot().getEventsEvicted());
+    }
+
+    private static void retain(MemoryBudgetGuard guard, ChunkedArray<StringBuilder> items,
+        TimestampIndex timestampIndex, StringBuilder event) {
+
+        Assertions.assertTrue(guard.tryRetain(event.length()));
+        items.add(event);
+        timestampIndex.add(System.currentTimeMillis());
+        guard.evictExcess(items, timestampIndex, null);
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.netmikey.logunit.core;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.Level;
+import org.slf4j.event.SubstituteLoggingEvent;
+
+/**
+ * Unit tests for {@link NearestMessageFinder}.
+ */
+public class NearestMessageFinderTest {
+
+    /**
+     * Test that the closest messages are retained by their distance to the
+     * closest substring, ties in capture order, and that distant ones are
+     * not.
+     */
+    @Test
+    public void testNearest() {
+        NearestMessageFinder finder = new NearestMessageFinder("Order 42 placed", 3);
+        visit(finder, "Something else entirely");
+        visit(finder, "Order 43 placed");
+        visit(finder, "Prefix: Order 42 plac");
+        visit(finder, "Order 44 placed");
+        visit(finder, "Order 4 placed by customer");
+        visit(finder, null);
+
+        Assertions.assertEquals(Arrays.asList(
+            "[1] INFO test: \"Order 43 placed\"",
+            "[1] INFO test: \"Order 44 placed\"",
+            "[1] INFO test: \"Order 4 placed by customer\""), finder.getNearest());
+    }
+
+    /**
+     * Test that the worst candidate is replaced by a closer message.
+     */
+    @Test
+    public void testCloserReplacesWorst() {
+        NearestMessageFinder finder = new NearestMessageFinder("Order 42 placed", 2);
+        visit(finder, "Prefix: Order 42 plac");
+        visit(finder, "Order 43 placed");
+        visit(finder, "Order 42 pl");
+        visit(finder, "Order 42 placed!");
+
+        Assertions.assertEquals(Arrays.asList(
+            "[0] INFO test: \"Order 42 placed!\"",
+            "[1] INFO test: \"Order 43 placed\""), finder.getNearest());
+    }
+
+    /**
+     * Test that nothing is retained when no message is close enough.
+     */
+    @Test
+    public void testNoneClose() {
+        NearestMessageFinder finder = new NearestMessageFinder("Order 42 placed", 3);
+        visit(finder, "Completely unrelated");
+        visit(finder, "");
+
+        Assertions.assertTrue(finder.getNearest().isEmpty());
+    }
+
+    private void visit(NearestMessageFinder finder, String message) {
+        SubstituteLoggingEvent event = new SubstituteLoggingEvent();
+        event.setMessage(message);
+        event.setLoggerName("test");
+        event.setLevel(Level.INFO);
+        finder.visit(event);
+    }
+}
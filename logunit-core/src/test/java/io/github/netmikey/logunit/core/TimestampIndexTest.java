@@ -0,0 +1,62 @@
+package io.github.netmikey.logunit.core;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TimestampIndex}.
+ */
+public class TimestampIndexTest {
+
+    /**
+     * Test that the bounds of a time window include events stored out of
+     * order, within the largest reordering lag observed.
+     */
+    @Test
+    public void testBoundsWithReorderedEvents() {
+        TimestampIndex index = new TimestampIndex();
+        index.add(100);
+        index.add(200);
+        index.add(150);
+        index.add(300);
+
+        Assertions.assertEquals(0, index.lowerBound(Long.MIN_VALUE));
+        Assertions.assertEquals(0, index.lowerBound(100));
+        Assertions.assertEquals(1, index.lowerBound(150));
+        Assertions.assertEquals(4, index.lowerBound(301));
+        // The event at 150 arrived 50ms late, so the window ending at 150 has
+        // to include everything up to a running maximum of 200.
+        Assertions.assertEquals(3, index.upperBound(150));
+        Assertions.assertEquals(0, index.upperBound(-51));
+        Assertions.assertEquals(4, index.upperBound(Long.MAX_VALUE));
+        Assertions.assertEquals(150, index.timestampAt(2));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> index.timestampAt(4));
+    }
+
+    /**
+     * Test that trimming releases whole chunks only, that trimmed positions
+     * read as {@link Long#MIN_VALUE} and that the retained ones can still be
+     * searched.
+     */
+    @Test
+    public void testTrim() {
+        TimestampIndex index = new TimestampIndex();
+        for (int i = 0; i < 3000; i++) {
+            index.add(i * 10L);
+        }
+
+        index.trimTo(1000);
+        Assertions.assertEquals(0, index.firstIndex());
+        index.trimTo(2500);
+        Assertions.assertEquals(2048, index.firstIndex());
+        index.trimTo(1024);
+        Assertions.assertEquals(2048, index.firstIndex());
+
+        Assertions.assertEquals(3000, index.size());
+        Assertions.assertEquals(Long.MIN_VALUE, index.timestampAt(10));
+        Assertions.assertEquals(20480, index.timestampAt(2048));
+        Assertions.assertEquals(2500, index.lowerBound(25000));
+        Assertions.assertEquals(2501, index.upperBound(25000));
+        Assertions.assertEquals(2048, index.lowerBound(0));
+    }
+}
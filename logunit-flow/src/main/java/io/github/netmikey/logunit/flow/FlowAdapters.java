@@ -0,0 +1,106 @@
+package io.github.netmikey.logunit.flow;
+
+import java.util.Objects;
+import java.util.concurrent.Flow;
+
+import org.slf4j.event.LoggingEvent;
+
+import io.github.netmikey.logunit.api.EventFlow;
+import io.github.netmikey.logunit.api.LogCapturer;
+
+/**
+ * Adapters between LogUnit's Java 8 {@link EventFlow} interfaces and their
+ * {@link Flow} counterparts, so that captured events can be consumed by
+ * reactive libraries through their <code>Flow</code> interoperability (e.g.
+ * Reactor's <code>JdkFlowAdapter</code> or RxJava's
+ * <code>FlowInterop</code>).
+ */
+public final class FlowAdapters {
+
+    private FlowAdapters() {
+        // Do not instantiate.
+    }
+
+    /**
+     * Create a {@link Flow.Publisher} that publishes each {@link LoggingEvent}
+     * captured by the specified {@link LogCapturer} as soon as it is
+     * captured. See {@link LogCapturer#publisher()}.
+     * 
+     * @param logCapturer
+     *            The {@link LogCapturer} whose events to publish.
+     * @return A new publisher of captured events.
+     */
+    public static Flow.Publisher<LoggingEvent> publisher(LogCapturer logCapturer) {
+        return toFlowPublisher(logCapturer.publisher());
+    }
+
+    /**
+     * Adapt an {@link EventFlow.Publisher} to a {@link Flow.Publisher}.
+     * 
+     * @param <T>
+     *            The published item type.
+     * @param publisher
+     *            The publisher to adapt.
+     * @return A {@link Flow.Publisher} delegating to the specified publisher.
+     */
+    public static <T> Flow.Publisher<T> toFlowPublisher(EventFlow.Publisher<T> publisher) {
+        Objects.requireNonNull(publisher, "publisher");
+        return subscriber -> publisher.subscribe(new SubscriberAdapter<>(Objects.requireNonNull(subscriber)));
+    }
+
+    /**
+     * Passes the signals of an {@link EventFlow.Publisher} on to a
+     * {@link Flow.Subscriber}.
+     */
+    private static class SubscriberAdapter<T> implements EventFlow.Subscriber<T> {
+
+        private final Flow.Subscriber<? super T> subscriber;
+
+        SubscriberAdapter(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void onSubscribe(EventFlow.Subscription subscription) {
+            subscriber.onSubscribe(new SubscriptionAdapter(subscription));
+        }
+
+        @Override
+        public void onNext(T item) {
+            subscriber.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            subscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            subscriber.onComplete();
+        }
+    }
+
+    /**
+     * Passes the requests of a {@link Flow.Subscriber} on to an
+     * {@link EventFlow.Subscription}.
+     */
+    private static class SubscriptionAdapter implements Flow.Subscription {
+
+        private final EventFlow.Subscription subscription;
+
+        SubscriptionAdapter(EventFlow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void request(long n) {
+            subscription.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            subscription.cancel();
+        }
+    }
+}
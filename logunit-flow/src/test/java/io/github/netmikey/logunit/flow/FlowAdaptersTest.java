@@ -0,0 +1,122 @@
+package io.github.netmikey.logunit.flow;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.LoggingEvent;
+
+import io.github.netmikey.logunit.api.LogCapturer;
+
+/**
+ * Unit tests for {@link FlowAdapters}.
+ */
+public class FlowAdaptersTest {
+
+    private static final String LOGGER_NAME = "FLOW_LOGGER";
+
+    private Logger logger = Logger.getLogger(LOGGER_NAME);
+
+    /**
+     * Test that a {@link Flow.Subscriber} requesting one event at a time
+     * receives the captured events in order and is completed after the test.
+     * 
+     * @throws Exception
+     *             Unexpected failure.
+     */
+    @Test
+    public void testFlowSubscriberReceivesEvents() throws Exception {
+        LogCapturer capturer = LogCapturer.create().captureForLogger(LOGGER_NAME);
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        FlowAdapters.publisher(capturer).subscribe(new Flow.Subscriber<LoggingEvent>() {
+
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription = s;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(LoggingEvent item) {
+                received.add(item.getMessage());
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                Assertions.fail(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        });
+
+        capturer.beforeTestExecution(null);
+        logger.info("First");
+        logger.fine("Not captured");
+        logger.warning("Second");
+        capturer.afterTestExecution(null);
+
+        Assertions.assertTrue(completed.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(Arrays.asList("First", "Second"), received);
+    }
+
+    /**
+     * Test that a cancelled {@link Flow.Subscription} stops the delivery.
+     * 
+     * @throws Exception
+     *             Unexpected failure.
+     */
+    @Test
+    public void testCancel() throws Exception {
+        LogCapturer capturer = LogCapturer.create().captureForLogger(LOGGER_NAME);
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch first = new CountDownLatch(1);
+        FlowAdapters.publisher(capturer).subscribe(new Flow.Subscriber<LoggingEvent>() {
+
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription = s;
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(LoggingEvent item) {
+                received.add(item.getMessage());
+                subscription.cancel();
+                first.countDown();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                Assertions.fail(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                Assertions.fail("A cancelled subscription must not complete");
+            }
+        });
+
+        capturer.beforeTestExecution(null);
+        logger.info("First");
+        Assertions.assertTrue(first.await(5, TimeUnit.SECONDS));
+        logger.info("Second");
+        capturer.afterTestExecution(null);
+
+        Assertions.assertEquals(Arrays.asList("First"), received);
+    }
+}
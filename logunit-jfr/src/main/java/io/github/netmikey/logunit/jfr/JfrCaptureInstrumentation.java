@@ -0,0 +1,55 @@
+package io.github.netmikey.logunit.jfr;
+
+import org.slf4j.event.LoggingEvent;
+
+import io.github.netmikey.logunit.api.CaptureInstrumentation;
+import io.github.netmikey.logunit.api.TemplatedLoggingEvent;
+import jdk.jfr.EventType;
+
+/**
+ * {@link CaptureInstrumentation} that emits Java Flight Recorder events: a
+ * {@link LogEventCapturedEvent} per captured log event and a
+ * {@link ReconfigurationEvent} per reconfiguration of the logging framework.
+ * <p>
+ * While no recording has the {@link LogEventCapturedEvent} enabled, log
+ * providers skip this instrumentation after a single check of the event
+ * type's state.
+ */
+public class JfrCaptureInstrumentation implements CaptureInstrumentation {
+
+    private static final EventType LOG_EVENT_CAPTURED = EventType.getEventType(LogEventCapturedEvent.class);
+
+    @Override
+    public boolean isEnabled() {
+        return LOG_EVENT_CAPTURED.isEnabled();
+    }
+
+    @Override
+    public void eventCaptured(LoggingEvent event) {
+        LogEventCapturedEvent jfrEvent = new LogEventCapturedEvent();
+        if (jfrEvent.shouldCommit()) {
+            jfrEvent.loggerName = event.getLoggerName();
+            jfrEvent.level = event.getLevel() == null ? null : event.getLevel().name();
+            jfrEvent.messageTemplate = event instanceof TemplatedLoggingEvent
+                ? ((TemplatedLoggingEvent) event).getMessageTemplate()
+                : event.getMessage();
+            jfrEvent.threadName = event.getThreadName();
+            jfrEvent.commit();
+        }
+    }
+
+    @Override
+    public void reconfigure(String phase, Runnable reconfiguration) {
+        ReconfigurationEvent jfrEvent = new ReconfigurationEvent();
+        jfrEvent.begin();
+        try {
+            reconfiguration.run();
+        } finally {
+            jfrEvent.end();
+            if (jfrEvent.shouldCommit()) {
+                jfrEvent.phase = phase;
+                jfrEvent.commit();
+            }
+        }
+    }
+}
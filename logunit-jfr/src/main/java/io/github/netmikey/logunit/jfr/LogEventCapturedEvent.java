@@ -0,0 +1,37 @@
+package io.github.netmikey.logunit.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event emitted for each log event captured by LogUnit.
+ */
+@Name(LogEventCapturedEvent.NAME)
+@Label("Log Event Captured")
+@Description("A log event has been captured by LogUnit")
+@Category({ "LogUnit" })
+@StackTrace(false)
+public class LogEventCapturedEvent extends Event {
+
+    /**
+     * The name of this event type.
+     */
+    public static final String NAME = "io.github.netmikey.logunit.LogEventCaptured";
+
+    @Label("Logger Name")
+    String loggerName;
+
+    @Label("Level")
+    String level;
+
+    @Label("Message Template")
+    String messageTemplate;
+
+    @Label("Thread Name")
+    @Description("The name of the thread that emitted the log event")
+    String threadName;
+}
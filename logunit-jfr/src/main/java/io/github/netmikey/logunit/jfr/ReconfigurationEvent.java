@@ -0,0 +1,29 @@
+package io.github.netmikey.logunit.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning a reconfiguration of the logging framework performed by
+ * LogUnit around a test.
+ */
+@Name(ReconfigurationEvent.NAME)
+@Label("Logging Reconfiguration")
+@Description("LogUnit reconfigured the logging framework")
+@Category({ "LogUnit" })
+@StackTrace(false)
+public class ReconfigurationEvent extends Event {
+
+    /**
+     * The name of this event type.
+     */
+    public static final String NAME = "io.github.netmikey.logunit.Reconfiguration";
+
+    @Label("Phase")
+    @Description("The test lifecycle phase the reconfiguration belongs to")
+    String phase;
+}
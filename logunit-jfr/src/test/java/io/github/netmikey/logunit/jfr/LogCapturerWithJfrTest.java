@@ -0,0 +1,80 @@
+package io.github.netmikey.logunit.jfr;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.MethodOrderer.MethodName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import io.github.netmikey.logunit.api.LogCapturer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Unit test that records LogUnit's activity with Java Flight Recorder and
+ * validates the emitted events.
+ */
+@TestMethodOrder(MethodName.class)
+public class LogCapturerWithJfrTest {
+
+    private static final String LOGGER_NAME = "JFR_LOGGER";
+
+    private Logger logger = Logger.getLogger(LOGGER_NAME);
+
+    /**
+     * Test that the instrumentation isn't enabled while nothing is recording
+     * its events.
+     */
+    @Test
+    public void test1DisabledWithoutRecording() {
+        Assertions.assertFalse(new JfrCaptureInstrumentation().isEnabled());
+    }
+
+    /**
+     * Test that captured log events and reconfigurations are recorded.
+     * 
+     * @throws Exception
+     *             Unexpected failure.
+     */
+    @Test
+    public void test2EventsRecorded() throws Exception {
+        LogCapturer capturer = LogCapturer.create().captureForLogger(LOGGER_NAME);
+        Path recordingFile = Files.createTempFile("logunit", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(LogEventCapturedEvent.NAME);
+            recording.enable(ReconfigurationEvent.NAME);
+            recording.start();
+
+            capturer.beforeTestExecution(null);
+            logger.log(java.util.logging.Level.INFO, "Hello {0}", "JFR");
+            logger.fine("Not captured");
+            capturer.afterTestExecution(null);
+
+            recording.stop();
+            recording.dump(recordingFile);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+            List<RecordedEvent> captured = events.stream()
+                .filter(e -> e.getEventType().getName().equals(LogEventCapturedEvent.NAME))
+                .collect(Collectors.toList());
+            Assertions.assertEquals(1, captured.size());
+            Assertions.assertEquals(LOGGER_NAME, captured.get(0).getString("loggerName"));
+            Assertions.assertEquals("INFO", captured.get(0).getString("level"));
+            Assertions.assertEquals("Hello {0}", captured.get(0).getString("messageTemplate"));
+
+            List<String> phases = events.stream()
+                .filter(e -> e.getEventType().getName().equals(ReconfigurationEvent.NAME))
+                .map(e -> e.getString("phase"))
+                .collect(Collectors.toList());
+            Assertions.assertEquals(List.of("beforeTestExecution", "afterTestExecution"), phases);
+        } finally {
+            Files.deleteIfExists(recordingFile);
+        }
+    }
+}
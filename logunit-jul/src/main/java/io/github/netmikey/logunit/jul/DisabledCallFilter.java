@@ -0,0 +1,71 @@
+package io.github.netmikey.logunit.jul;
+
+import java.util.function.Function;
+import java.util.logging.Filter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import io.github.netmikey.logunit.core.DisabledCallCounter;
+
+/**
+ * A {@link Filter} that counts and rejects log records below the level they
+ * are captured at. JUL checks a {@link Logger}'s level before creating a
+ * record and has no hook in between, so to see disabled calls, the captured
+ * loggers are opened up to all levels and this filter takes over their level
+ * check. It is installed on the captured loggers, chaining their original
+ * filter, and on the capturing handler, which also receives the records of
+ * the captured loggers' descendants. Since these descendants inherit the
+ * opened level, it is also installed without a counter on the other handlers
+ * their records reach, which would otherwise receive them.
+ */
+public class DisabledCallFilter implements Filter {
+
+    private final DisabledCallCounter counter;
+
+    private final Function<String, Level> captureLevelLookup;
+
+    private final Filter originalFilter;
+
+    /**
+     * Create a new filter.
+     * 
+     * @param counter
+     *            The counter to record disabled calls to, or
+     *            <code>null</code> to only reject them.
+     * @param captureLevelLookup
+     *            The function returning the level the logger with a given
+     *            name is captured at, or <code>null</code> if it isn't.
+     * @param originalFilter
+     *            The filter to consult for records that are not rejected, or
+     *            <code>null</code> for none.
+     */
+    public DisabledCallFilter(DisabledCallCounter counter, Function<String, Level> captureLevelLookup,
+        Filter originalFilter) {
+
+        this.counter = counter;
+        this.captureLevelLookup = captureLevelLookup;
+        this.originalFilter = originalFilter;
+    }
+
+    @Override
+    public boolean isLoggable(LogRecord record) {
+        Level captureLevel = captureLevelLookup.apply(record.getLoggerName());
+        if (captureLevel != null && record.getLevel().intValue() < captureLevel.intValue()) {
+            if (counter != null) {
+                counter.record(record.getMessage(), record.getParameters());
+            }
+            return false;
+        }
+        return originalFilter == null || originalFilter.isLoggable(record);
+    }
+
+    /**
+     * Get the filter this one chains to.
+     * 
+     * @return Returns the originalFilter.
+     */
+    public Filter getOriginalFilter() {
+        return originalFilter;
+    }
+}
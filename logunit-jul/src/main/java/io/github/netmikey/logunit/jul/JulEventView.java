@@ -0,0 +1,115 @@
+package io.github.netmikey.logunit.jul;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.LogRecord;
+
+import org.slf4j.Marker;
+import org.slf4j.event.KeyValuePair;
+import org.slf4j.event.LoggingEvent;
+
+import io.github.netmikey.logunit.api.TemplatedLoggingEvent;
+
+/**
+ * {@link LoggingEvent} view over a JUL {@link LogRecord}. A view can be
+ * pointed at another record, so a single instance can present any number of
+ * records one after another without allocating.
+ */
+public class JulEventView implements TemplatedLoggingEvent {
+
+    private LogRecord record;
+
+    /**
+     * Create a view that is not pointed at any record yet.
+     */
+    public JulEventView() {
+        // Point it at a record using setRecord.
+    }
+
+    /**
+     * Create a view over the specified record.
+     * 
+     * @param record
+     *            The record to present.
+     */
+    public JulEventView(LogRecord record) {
+        this.record = record;
+    }
+
+    /**
+     * Point this view at another record.
+     * 
+     * @param record
+     *            The record to present.
+     * @return A self-reference to this view.
+     */
+    public JulEventView setRecord(LogRecord record) {
+        this.record = record;
+        return this;
+    }
+
+    @Override
+    public long getTimeStamp() {
+        return record.getMillis();
+    }
+
+    @Override
+    public Throwable getThrowable() {
+        return record.getThrown();
+    }
+
+    @Override
+    public String getThreadName() {
+        return String.valueOf(record.getThreadID());
+    }
+
+    @Override
+    public String getMessage() {
+        return record.getMessage();
+    }
+
+    @Override
+    public String getMessageTemplate() {
+        return record.getMessage();
+    }
+
+    @Override
+    public List<Object> getArguments() {
+        Object[] parameters = record.getParameters();
+        if (null == parameters) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(parameters);
+    }
+
+    @Override
+    public List<KeyValuePair> getKeyValuePairs() {
+        return Collections.emptyList();
+    }
+
+    // for compatibility with older apis
+    public Marker getMarker() {
+        return null;
+    }
+
+    @Override
+    public List<Marker> getMarkers() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String getLoggerName() {
+        return record.getLoggerName();
+    }
+
+    @Override
+    public org.slf4j.event.Level getLevel() {
+        return LevelMapper.mapLevel(record.getLevel());
+    }
+
+    @Override
+    public Object[] getArgumentArray() {
+        return record.getParameters();
+    }
+}
@@ -1,19 +1,26 @@
 package io.github.netmikey.logunit.jul;
 
 import java.util.*;
+import java.util.logging.Filter;
+import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import org.junit.jupiter.api.extension.ExtensionContext;
-import org.slf4j.Marker;
-import org.slf4j.event.KeyValuePair;
 import org.slf4j.event.LoggingEvent;
 
+import io.github.netmikey.logunit.api.EventVisitor;
 import io.github.netmikey.logunit.api.LogCapturer;
+import io.github.netmikey.logunit.api.RateHistogram;
+import io.github.netmikey.logunit.core.ArgumentSnapshots;
 import io.github.netmikey.logunit.core.BaseLogProvider;
+import io.github.netmikey.logunit.core.EventDictionary;
+import io.github.netmikey.logunit.core.RetainedSizeEstimator;
+import io.github.netmikey.logunit.core.ThrowableSnapshotFactory;
 
 /**
  * {@link LogCapturer} implementation based on JUL.
@@ -22,6 +29,9 @@ public class JulLogProvider extends BaseLogProvider {
 
     private final ListHandler listHandler = new ListHandler();
 
+    private final EventDictionary<LogRecord> eventDictionary = new EventDictionary<>(
+        LogRecord::getLoggerName, LogRecord::getMessage, LogRecord::getParameters, LogRecord::getMillis);
+
     /**
      * We hold references to loggers we have intercepted to avoid them being
      * garbage collected and reconstructed without our handler in between
@@ -31,6 +41,30 @@ public class JulLogProvider extends BaseLogProvider {
 
     private final Map<String, Level> originalLevels = new HashMap<>();
 
+    private final Map<String, Filter> originalFilters = new HashMap<>();
+
+    private final Map<Handler, Filter> originalHandlerFilters = new IdentityHashMap<>();
+
+    private PatternRoutingHandler patternRoutingHandler;
+
+    private Level originalRootLevel;
+
+    /**
+     * Default constructor.
+     */
+    public JulLogProvider() {
+        super();
+        listHandler.setStatistics(getStatistics());
+        listHandler.setItemDetacher(this::detach);
+        listHandler.setEventDictionary(eventDictionary);
+        listHandler.setMemoryBudgetGuard(getMemoryBudgetGuard(), this::estimateRetainedSize);
+        listHandler.setAppendListener(record -> {
+            if (hasCaptureListeners()) {
+                fireEventCaptured(mapEvent(record));
+            }
+        });
+    }
+
     @Override
     public void provideForType(Class<?> type, org.slf4j.event.Level level) {
         provideForLogger(type.getName(), level);
@@ -38,31 +72,109 @@ public class JulLogProvider extends BaseLogProvider {
 
     @Override
     public List<LoggingEvent> getEvents() {
-        return StreamSupport.stream(listHandler.spliterator(), false)
-            .map(this::mapEvent)
-            .collect(Collectors.toList());
+        return streamEvents(false).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<LoggingEvent> streamEvents(boolean parallel) {
+        return StreamSupport.stream(listHandler.spliterator(), parallel).map(this::mapEvent);
+    }
+
+    @Override
+    public void forEachEvent(EventVisitor visitor) {
+        JulEventView view = new JulEventView();
+        listHandler.spliterator().forEachRemaining(record -> visitor.visit(view.setRecord(record)));
+    }
+
+    @Override
+    public List<LoggingEvent> getEventsBetween(long fromMillis, long toMillis) {
+        return getEventsBetween(listHandler.getItems(), listHandler.getTimestampIndex(),
+            fromMillis, toMillis, this::mapEvent);
+    }
+
+    @Override
+    public List<LoggingEvent> getEventsFromLogger(String loggerName) {
+        return getEventsWithId(listHandler.getItems(), eventDictionary.getLoggerNameIds(),
+            eventDictionary.getLoggerNames().lookup(loggerName), this::mapEvent);
+    }
+
+    @Override
+    public List<LoggingEvent> getEventsWithTemplate(String template) {
+        return getEventsWithTemplate(listHandler.getItems(), eventDictionary, template, LogRecord::getMessage,
+            this::mapEvent);
+    }
+
+    @Override
+    public RateHistogram getRateHistogram(String loggerName) {
+        return eventDictionary.getLoggerRates().histogram(eventDictionary.getLoggerNames().lookup(loggerName));
     }
 
     @Override
     public void beforeTestExecution(ExtensionContext context) {
-        addAppenderToLoggingSources();
+        reconfigureBeforeTestExecution(this::addAppenderToLoggingSources);
     }
 
     @Override
     public void afterTestExecution(ExtensionContext context) {
-        listHandler.flush();
-        listHandler.close();
-        detachAppenderFromLoggingSources();
+        reconfigureAfterTestExecution(() -> {
+            listHandler.flush();
+            listHandler.close();
+            detachAppenderFromLoggingSources();
+        });
     }
 
     private void addAppenderToLoggingSources() {
+        // JUL has no hook at the start of a log call, measuring starts in the handler.
+        listHandler.setLoggingCostRecorder(getLoggingCostRecorder());
+        if (isDisabledCallDetection()) {
+            listHandler.setFilter(new DisabledCallFilter(getDisabledCallCounter(), this::getJulCaptureLevel, null));
+        }
         getLoggerNames().forEach((loggerName, level) -> {
             addAppenderToLogger(loggerName, LevelMapper.mapLevel(level));
         });
+        if (!getLoggerPatterns().isEmpty()) {
+            attachPatternRouting();
+        }
     }
 
     private void detachAppenderFromLoggingSources() {
+        if (patternRoutingHandler != null) {
+            detachPatternRouting();
+        }
         getLoggerNames().keySet().forEach(this::detachAppenderFromLogger);
+        originalHandlerFilters.forEach(Handler::setFilter);
+        originalHandlerFilters.clear();
+        listHandler.setFilter(null);
+        listHandler.setLoggingCostRecorder(null);
+    }
+
+    /*
+     * JUL has no hook before its level check, so the root logger's level is
+     * lowered for loggers matched by pattern to inherit. Loggers with a level
+     * of their own keep it.
+     */
+    private void attachPatternRouting() {
+        Logger rootLogger = Logger.getLogger("");
+        patternRoutingHandler = new PatternRoutingHandler(listHandler, this::getPatternCaptureLevel);
+        rootLogger.addHandler(patternRoutingHandler);
+        originalRootLevel = rootLogger.getLevel();
+        Level patternLevel = LevelMapper.mapLevel(getLoggerPatterns().getLowestLevel());
+        if (originalRootLevel == null || patternLevel.intValue() < originalRootLevel.intValue()) {
+            rootLogger.setLevel(patternLevel);
+        }
+    }
+
+    private void detachPatternRouting() {
+        Logger rootLogger = Logger.getLogger("");
+        rootLogger.removeHandler(patternRoutingHandler);
+        rootLogger.setLevel(originalRootLevel);
+        patternRoutingHandler = null;
+        originalRootLevel = null;
+    }
+
+    private Level getJulCaptureLevel(String loggerName) {
+        org.slf4j.event.Level level = getCaptureLevel(loggerName);
+        return level == null ? null : LevelMapper.mapLevel(level);
     }
 
     private void addAppenderToLogger(String name, Level level) {
@@ -73,7 +185,36 @@ public class JulLogProvider extends BaseLogProvider {
         logger.addHandler(listHandler);
         loggers.put(logger.getName(), logger);
         originalLevels.put(logger.getName(), logger.getLevel());
-        logger.setLevel(level);
+        if (isDisabledCallDetection()) {
+            // The filter takes over the level check so it sees disabled calls.
+            originalFilters.put(logger.getName(), logger.getFilter());
+            logger.setFilter(new DisabledCallFilter(getDisabledCallCounter(), this::getJulCaptureLevel,
+                logger.getFilter()));
+            logger.setLevel(Level.ALL);
+            filterOtherHandlers(logger);
+        } else {
+            logger.setLevel(level);
+        }
+    }
+
+    /*
+     * The logger's descendants inherit its opened level, and a logger's
+     * filter doesn't apply to its descendants' records. So that the handlers
+     * up the hierarchy don't receive their records below the capture level,
+     * these handlers reject them until the test has ended.
+     */
+    private void filterOtherHandlers(Logger logger) {
+        for (Logger current = logger; current != null; current = current.getParent()) {
+            for (Handler handler : current.getHandlers()) {
+                if (handler != listHandler && !originalHandlerFilters.containsKey(handler)) {
+                    originalHandlerFilters.put(handler, handler.getFilter());
+                    handler.setFilter(new DisabledCallFilter(null, this::getJulCaptureLevel, handler.getFilter()));
+                }
+            }
+            if (!current.getUseParentHandlers()) {
+                break;
+            }
+        }
     }
 
     private void detachAppenderFromLogger(String name) {
@@ -87,69 +228,44 @@ public class JulLogProvider extends BaseLogProvider {
         if (originalLevel != null) {
             logger.setLevel(originalLevel);
         }
+        if (originalFilters.containsKey(logger.getName())) {
+            // Don't leave the logger open to all levels, even if it had none.
+            logger.setLevel(originalLevel);
+            logger.setFilter(originalFilters.remove(logger.getName()));
+        }
     }
 
-    private LoggingEvent mapEvent(LogRecord record) {
-        return new LoggingEvent() {
-
-            @Override
-            public long getTimeStamp() {
-                return record.getMillis();
-            }
-
-            @Override
-            public Throwable getThrowable() {
-                return record.getThrown();
-            }
-
-            @Override
-            public String getThreadName() {
-                return String.valueOf(record.getThreadID());
-            }
-
-            @Override
-            public String getMessage() {
-                return record.getMessage();
-            }
-
-            @Override
-            public List<Object> getArguments() {
-                Object[] parameters = record.getParameters();
-                if (null == parameters) {
-                    return Collections.emptyList();
-                }
-                return Arrays.asList(parameters);
-            }
-
-            @Override
-            public List<KeyValuePair> getKeyValuePairs() {
-                return Collections.emptyList();
-            }
-
-            // for compatibility with older apis
-            public Marker getMarker() {
-                return null;
-            }
-
-            @Override
-            public List<Marker> getMarkers() {
-                return Collections.emptyList();
-            }
-
-            @Override
-            public String getLoggerName() {
-                return record.getLoggerName();
-            }
+    private LogRecord detach(LogRecord record) {
+        ThrowableSnapshotFactory throwableSnapshotFactory = getThrowableSnapshotFactory();
+        boolean detachThrowable = throwableSnapshotFactory != null && record.getThrown() != null;
+        boolean detachArguments = isDetachArguments() && record.getParameters() != null;
+        if (!detachThrowable && !detachArguments) {
+            return record;
+        }
+        // Other handlers may still process the original, so leave it as is.
+        LogRecord copy = new LogRecord(record.getLevel(),
+            eventDictionary.canonicalizeTemplate(record.getMessage(), record.getParameters()));
+        copy.setLoggerName(eventDictionary.getLoggerNames().canonicalize(record.getLoggerName()));
+        copy.setMillis(record.getMillis());
+        copy.setParameters(detachArguments ? ArgumentSnapshots.detach(record.getParameters()) : record.getParameters());
+        copy.setResourceBundle(record.getResourceBundle());
+        copy.setResourceBundleName(record.getResourceBundleName());
+        copy.setSequenceNumber(record.getSequenceNumber());
+        copy.setSourceClassName(record.getSourceClassName());
+        copy.setSourceMethodName(record.getSourceMethodName());
+        copy.setThreadID(record.getThreadID());
+        copy.setThrown(detachThrowable ? throwableSnapshotFactory.snapshot(record.getThrown()) : record.getThrown());
+        return copy;
+    }
 
-            @Override
-            public org.slf4j.event.Level getLevel() {
-                return LevelMapper.mapLevel(record.getLevel());
-            }
+    private long estimateRetainedSize(LogRecord record) {
+        return RetainedSizeEstimator.EVENT_OVERHEAD
+            + RetainedSizeEstimator.estimate(record.getMessage())
+            + RetainedSizeEstimator.estimate(record.getParameters())
+            + RetainedSizeEstimator.estimate(record.getThrown());
+    }
 
-            @Override
-            public Object[] getArgumentArray() {
-                return record.getParameters();
-            }
-        };
+    private LoggingEvent mapEvent(LogRecord record) {
+        return new JulEventView(record);
     }
 }
@@ -1,21 +1,92 @@
 package io.github.netmikey.logunit.jul;
 
 import java.util.Spliterator;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
 import java.util.logging.Handler;
 import java.util.logging.LogRecord;
 
+import io.github.netmikey.logunit.core.CaptureStatistics;
+import io.github.netmikey.logunit.core.ChunkedArray;
+import io.github.netmikey.logunit.core.EventDictionary;
+import io.github.netmikey.logunit.core.LoggingCostRecorder;
+import io.github.netmikey.logunit.core.MemoryBudgetGuard;
+import io.github.netmikey.logunit.core.TimestampIndex;
+
 /**
  * A {@link Handler} implementation that captures {@link LogRecord}s in a
  * thread-safe list.
  */
 public class ListHandler extends Handler {
 
-    private ConcurrentLinkedQueue<LogRecord> list = new ConcurrentLinkedQueue<>();
+    private final ChunkedArray<LogRecord> list = new ChunkedArray<>();
+
+    private final TimestampIndex timestampIndex = new TimestampIndex();
+
+    private volatile Consumer<? super LogRecord> appendListener;
+
+    private volatile CaptureStatistics statistics = new CaptureStatistics();
+
+    private volatile ToLongFunction<? super LogRecord> sizeEstimator;
+
+    private volatile MemoryBudgetGuard memoryBudgetGuard;
+
+    private volatile UnaryOperator<LogRecord> itemDetacher;
+
+    private volatile EventDictionary<? super LogRecord> eventDictionary;
+
+    private volatile LoggingCostRecorder loggingCostRecorder;
 
     @Override
-    public void publish(LogRecord record) {
-        list.add(record);
+    public void publish(LogRecord original) {
+        if (!isLoggable(original)) {
+            return;
+        }
+        LoggingCostRecorder costRecorder = loggingCostRecorder;
+        if (costRecorder == null) {
+            capture(original);
+        } else {
+            costRecorder.beginIfIdle();
+            try {
+                capture(original);
+            } finally {
+                costRecorder.end(original.getLoggerName());
+            }
+        }
+    }
+
+    private void capture(LogRecord original) {
+        long start = System.nanoTime();
+        UnaryOperator<LogRecord> detacher = itemDetacher;
+        LogRecord record = detacher == null ? original : detacher.apply(original);
+        MemoryBudgetGuard guard = memoryBudgetGuard;
+        long size = guard == null ? 0 : sizeEstimator.applyAsLong(record);
+        // Keep the list, the timestamp index and the event dictionary aligned.
+        synchronized (timestampIndex) {
+            if (list.isFull()) {
+                statistics.recordDropped();
+                return;
+            }
+            if (guard != null && !guard.tryRetain(size)) {
+                return;
+            }
+            list.add(record);
+            timestampIndex.add(record.getMillis());
+            EventDictionary<? super LogRecord> dictionary = eventDictionary;
+            if (dictionary != null) {
+                dictionary.add(record);
+            }
+            if (guard != null) {
+                guard.evictExcess(list, timestampIndex, dictionary);
+            }
+        }
+
+        Consumer<? super LogRecord> listener = appendListener;
+        if (listener != null) {
+            listener.accept(record);
+        }
+        statistics.recordCaptured(System.nanoTime() - start);
     }
 
     @Override
@@ -28,6 +99,81 @@ public class ListHandler extends Handler {
         // Nothing to do.
     }
 
+    /**
+     * Set the callback that gets invoked with each item right after it has
+     * been stored.
+     * 
+     * @param appendListener
+     *            The callback, or <code>null</code> for none.
+     */
+    public void setAppendListener(Consumer<? super LogRecord> appendListener) {
+        this.appendListener = appendListener;
+    }
+
+    /**
+     * Set the function applied to each item before it is stored, which may
+     * return a copy that doesn't reference live objects the original holds
+     * on to.
+     * 
+     * @param itemDetacher
+     *            The function, or <code>null</code> to store items as they
+     *            are.
+     */
+    public void setItemDetacher(UnaryOperator<LogRecord> itemDetacher) {
+        this.itemDetacher = itemDetacher;
+    }
+
+    /**
+     * Set the guard accounting for the items' retained heap size and
+     * enforcing a memory budget on them.
+     * 
+     * @param memoryBudgetGuard
+     *            The {@link MemoryBudgetGuard}, or <code>null</code> for
+     *            none.
+     * @param sizeEstimator
+     *            The function estimating an item's retained heap size in
+     *            bytes.
+     */
+    public void setMemoryBudgetGuard(MemoryBudgetGuard memoryBudgetGuard,
+        ToLongFunction<? super LogRecord> sizeEstimator) {
+
+        this.sizeEstimator = sizeEstimator;
+        this.memoryBudgetGuard = memoryBudgetGuard;
+    }
+
+    /**
+     * Set the dictionary recording the ids of each stored item's logger name
+     * and message template. Must be set before the first item is published.
+     * 
+     * @param eventDictionary
+     *            The {@link EventDictionary}, or <code>null</code> for none.
+     */
+    public void setEventDictionary(EventDictionary<? super LogRecord> eventDictionary) {
+        this.eventDictionary = eventDictionary;
+    }
+
+    /**
+     * Set the recorder measuring the cost of each log call that reaches this
+     * appender, unless measuring has been started before already.
+     * 
+     * @param loggingCostRecorder
+     *            The {@link LoggingCostRecorder}, or <code>null</code> for
+     *            none.
+     */
+    public void setLoggingCostRecorder(LoggingCostRecorder loggingCostRecorder) {
+        this.loggingCostRecorder = loggingCostRecorder;
+    }
+
+    /**
+     * Set the recorder for this appender's capture overhead.
+     * 
+     * @param statistics
+     *            The {@link CaptureStatistics}.
+     */
+    public void setStatistics(CaptureStatistics statistics) {
+        this.statistics = statistics;
+    }
+
     /**
      * Get the items.
      * 
@@ -36,4 +182,23 @@ public class ListHandler extends Handler {
     public Spliterator<LogRecord> spliterator() {
         return list.spliterator();
     }
+
+    /**
+     * Get the item storage, which supports positional access.
+     * 
+     * @return The {@link ChunkedArray} holding the items.
+     */
+    public ChunkedArray<LogRecord> getItems() {
+        return list;
+    }
+
+    /**
+     * Get the index over the items' timestamps, aligned with the items'
+     * order.
+     * 
+     * @return The {@link TimestampIndex}.
+     */
+    public TimestampIndex getTimestampIndex() {
+        return timestampIndex;
+    }
 }
@@ -0,0 +1,51 @@
+package io.github.netmikey.logunit.jul;
+
+import java.util.function.Function;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * A {@link Handler} attached to the root logger that forwards the records of
+ * loggers matched by pattern at or above their captured level to the actual
+ * capturing handler. Records of all other loggers are ignored, so records of
+ * loggers the capturing handler is attached to directly are not captured
+ * twice.
+ */
+public class PatternRoutingHandler extends Handler {
+
+    private final Handler target;
+
+    private final Function<String, org.slf4j.event.Level> captureLevelLookup;
+
+    /**
+     * Create a new handler.
+     * 
+     * @param target
+     *            The handler to forward matching records to.
+     * @param captureLevelLookup
+     *            The level at which the logger with a given name is captured
+     *            by pattern, or <code>null</code> if it isn't.
+     */
+    public PatternRoutingHandler(Handler target, Function<String, org.slf4j.event.Level> captureLevelLookup) {
+        this.target = target;
+        this.captureLevelLookup = captureLevelLookup;
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        org.slf4j.event.Level captureLevel = captureLevelLookup.apply(record.getLoggerName());
+        if (captureLevel != null && record.getLevel().intValue() >= LevelMapper.mapLevel(captureLevel).intValue()) {
+            target.publish(record);
+        }
+    }
+
+    @Override
+    public void flush() {
+        // Nothing is buffered.
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release.
+    }
+}
@@ -3,6 +3,10 @@ package io.github.netmikey.logunit.jul;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 import org.junit.jupiter.api.Assertions;
@@ -12,7 +16,10 @@ import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.slf4j.event.Level;
 
+import io.github.netmikey.logunit.api.CaptureStats;
+import io.github.netmikey.logunit.api.DisabledCallStats;
 import io.github.netmikey.logunit.api.LogCapturer;
+import io.github.netmikey.logunit.api.ThrowableSnapshot;
 import org.slf4j.event.LoggingEvent;
 
 /**
@@ -30,6 +37,12 @@ public class LogCapturerWithJulTest {
 
     private static final String LOGGER_NAME = "CUSTOM_LOGGER";
 
+    private static final String COMPACT_LOGGER_NAME = "COMPACT_LOGGER";
+
+    private static final String DISABLED_LOGGER_NAME = "DISABLED_LOGGER";
+
+    private static final String PACKAGE_NAME = "io.github.netmikey.logunit.captured";
+
     private Logger namedLogger = Logger.getLogger(LOGGER_NAME);
 
     /**
@@ -114,6 +127,155 @@ public class LogCapturerWithJulTest {
         Assertions.assertSame(Collections.emptyList(), event.getMarkers());
     }
 
+    @Test
+    void test5Stats() {
+        logEverythingOnce(namedLogger);
+
+        CaptureStats stats = namedLoggerWarnCapturer.stats();
+        Assertions.assertEquals(2, stats.getEventsCaptured());
+        Assertions.assertEquals(0, stats.getEventsDropped());
+        Assertions.assertTrue(stats.getEstimatedRetainedBytes() > 0);
+        Assertions.assertEquals(2, stats.getAppendLatency().getTotalCount());
+        Assertions.assertTrue(stats.getAppendLatency().getValueAtPercentile(50) <= stats.getAppendLatency().getMax());
+        Assertions.assertTrue(stats.getBeforeTestExecutionNanos() > 0);
+    }
+
+    /**
+     * Test that a {@link LogCapturer} with compact throwables retains
+     * truncated, interned snapshots instead of the logged throwables.
+     * 
+     * @throws Exception
+     *             Unexpected failure.
+     */
+    @Test
+    void test6CompactThrowables() throws Exception {
+        LogCapturer compactCapturer = LogCapturer.create()
+            .captureForLogger(COMPACT_LOGGER_NAME)
+            .withCompactThrowables(2);
+        Logger compactLogger = Logger.getLogger(COMPACT_LOGGER_NAME);
+        IllegalStateException thrown = new IllegalStateException("Outer", new IllegalArgumentException("Inner"));
+
+        captureDuring(compactCapturer, () -> {
+            compactLogger.log(java.util.logging.Level.SEVERE, "First failure", thrown);
+            compactLogger.log(java.util.logging.Level.SEVERE, "Second failure", thrown);
+        });
+
+        List<LoggingEvent> events = compactCapturer.getEvents();
+        Throwable first = events.get(0).getThrowable();
+        Assertions.assertTrue(first instanceof ThrowableSnapshot);
+        ThrowableSnapshot snapshot = (ThrowableSnapshot) first;
+        Assertions.assertEquals(IllegalStateException.class.getName(), snapshot.getClassName());
+        Assertions.assertEquals("Outer", snapshot.getMessage());
+        Assertions.assertArrayEquals(Arrays.copyOf(thrown.getStackTrace(), 2), snapshot.getStackTrace());
+        Assertions.assertEquals(thrown.getStackTrace().length - 2, snapshot.getOmittedFrameCount());
+        Assertions.assertEquals(IllegalArgumentException.class.getName(), snapshot.getCause().getClassName());
+        Assertions.assertEquals("Inner", snapshot.getCause().getMessage());
+        Assertions.assertSame(snapshot, events.get(1).getThrowable(), "should share the interned snapshot");
+    }
+
+    /**
+     * Test that log calls rejected by level are counted, including those of
+     * descendant loggers, that the other handlers up the hierarchy don't
+     * receive them, and that the loggers are restored afterwards.
+     */
+    @Test
+    void test7DisabledCallDetection() throws Exception {
+        LogCapturer disabledCapturer = LogCapturer.create().captureForLogger(DISABLED_LOGGER_NAME)
+            .withDisabledCallDetection();
+        Logger disabledLogger = Logger.getLogger(DISABLED_LOGGER_NAME);
+        Logger childLogger = Logger.getLogger(DISABLED_LOGGER_NAME + ".child");
+        List<Integer> value = Arrays.asList(1, 2);
+        List<String> received = new CopyOnWriteArrayList<>();
+        Handler parentHandler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (isLoggable(record) && record.getLoggerName().startsWith(DISABLED_LOGGER_NAME)) {
+                    received.add(record.getMessage());
+                }
+            }
+
+            @Override
+            public void flush() {
+                // Nothing buffered.
+            }
+
+            @Override
+            public void close() {
+                // Nothing to release.
+            }
+        };
+        Logger parentLogger = disabledLogger.getParent();
+        parentLogger.addHandler(parentHandler);
+
+        try {
+            captureDuring(disabledCapturer, () -> {
+                disabledLogger.fine("Constant message");
+                disabledLogger.log(java.util.logging.Level.FINE, "Lazy value {0}", value);
+                disabledLogger.fine("Eager value " + value);
+                childLogger.log(java.util.logging.Level.FINE, "Eager argument {0}", value.toString());
+                childLogger.info("Enabled value");
+                Logger.getLogger(DISABLED_LOGGER_NAME + ".created.during.test").fine("Late message");
+            });
+        } finally {
+            parentLogger.removeHandler(parentHandler);
+        }
+
+        DisabledCallStats stats = disabledCapturer.disabledCalls();
+        Assertions.assertEquals(5, stats.getDisabledCalls(), stats.toString());
+        Assertions.assertEquals(1, stats.getCallsWithEagerMessages(), stats.toString());
+        Assertions.assertEquals(1, stats.getCallsWithNonTrivialArguments(), stats.toString());
+        Assertions.assertEquals(1, disabledCapturer.size());
+        Assertions.assertEquals(Collections.singletonList("Enabled value"), received);
+        Assertions.assertNull(parentHandler.getFilter());
+        Assertions.assertNull(disabledLogger.getFilter());
+        Assertions.assertFalse(disabledLogger.isLoggable(java.util.logging.Level.FINE));
+    }
+
+    /**
+     * Test that capturing for a package captures all loggers within it,
+     * including those created after the test has started, but none outside
+     * of it.
+     */
+    @Test
+    void test8CaptureForPackage() throws Exception {
+        LogCapturer packageCapturer = LogCapturer.create().captureForPackage(PACKAGE_NAME, Level.DEBUG);
+
+        captureDuring(packageCapturer, () -> {
+            Logger.getLogger(PACKAGE_NAME + ".billing.Invoices").fine("Invoice created");
+            Logger.getLogger(PACKAGE_NAME + ".shipping.Parcels").info("Parcel sent");
+            Logger.getLogger(PACKAGE_NAME + "corp.Outsider").warning("Outside the package");
+        });
+
+        Assertions.assertEquals(2, packageCapturer.size());
+        packageCapturer.assertContains("Invoice created");
+        packageCapturer.assertContains("Parcel sent");
+        packageCapturer.assertDoesNotContain("Outside the package");
+    }
+
+    /**
+     * Test that capturing by pattern captures the matching loggers created
+     * during the test at their captured level, but no others.
+     */
+    @Test
+    void test9CaptureForLoggers() throws Exception {
+        LogCapturer patternCapturer = LogCapturer.create()
+            .captureForLoggersMatching("*.repository.*", Level.DEBUG)
+            .captureForLoggers(Pattern.compile("com\\.acme\\..*Client"));
+
+        captureDuring(patternCapturer, () -> {
+            Logger.getLogger("com.acme.repository.UserRepository").fine("User loaded");
+            Logger.getLogger("com.acme.http.PaymentClient").info("Payment sent");
+            Logger.getLogger("com.acme.http.PaymentClient").fine("Payment details");
+            Logger.getLogger("com.acme.service.UserService").info("User service");
+        });
+
+        Assertions.assertEquals(2, patternCapturer.size());
+        patternCapturer.assertContains("User loaded");
+        patternCapturer.assertContains("Payment sent");
+        patternCapturer.assertDoesNotContain("Payment details");
+        patternCapturer.assertDoesNotContain("User service");
+    }
+
     private void logEverythingOnce(Logger logger) {
         logger.finest("Some finest message");
         logger.finer("Some finer message");
@@ -124,6 +286,28 @@ public class LogCapturerWithJulTest {
         logger.severe("Some severe message");
     }
 
+    /*
+     * Runs the code between the capturer's test execution callbacks, as JUnit
+     * does for capturers registered as extensions.
+     */
+    private static void captureDuring(LogCapturer capturer, CapturedCode code) throws Exception {
+        capturer.beforeTestExecution(null);
+        try {
+            code.run();
+        } finally {
+            capturer.afterTestExecution(null);
+        }
+    }
+
+    /**
+     * Code logging events while a {@link LogCapturer} is capturing.
+     */
+    @FunctionalInterface
+    private interface CapturedCode {
+
+        void run() throws Exception;
+    }
+
     /**
      * The logger will not be constructed until the object is. This tests that
      * log messages will be captured without allowing the intercepted Logger to
@@ -0,0 +1,83 @@
+package io.github.netmikey.logunit.log4j2;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.slf4j.Marker;
+import org.slf4j.event.KeyValuePair;
+import org.slf4j.event.SubstituteLoggingEvent;
+
+import io.github.netmikey.logunit.api.TemplatedLoggingEvent;
+
+/**
+ * The copy of a Log4j2 {@link LogEvent} retained by the {@link ListAppender},
+ * keeping the message template, key-value pairs and context data along with
+ * the formatted message.
+ */
+public class CapturedLogEvent extends SubstituteLoggingEvent implements TemplatedLoggingEvent {
+
+    private String messageTemplate;
+
+    private List<KeyValuePair> keyValuePairs = Collections.emptyList();
+
+    private Map<String, String> mdc = Collections.emptyMap();
+
+    @Override
+    public String getMessageTemplate() {
+        return messageTemplate;
+    }
+
+    /**
+     * Set the messageTemplate.
+     * 
+     * @param messageTemplate
+     *            The messageTemplate to set.
+     */
+    public void setMessageTemplate(String messageTemplate) {
+        this.messageTemplate = messageTemplate;
+    }
+
+    @Override
+    public List<Object> getArguments() {
+        List<Object> arguments = super.getArguments();
+        return arguments == null ? Collections.emptyList() : arguments;
+    }
+
+    @Override
+    public List<Marker> getMarkers() {
+        List<Marker> markers = super.getMarkers();
+        return markers == null ? Collections.emptyList() : markers;
+    }
+
+    @Override
+    public List<KeyValuePair> getKeyValuePairs() {
+        return keyValuePairs;
+    }
+
+    /**
+     * Set the keyValuePairs.
+     * 
+     * @param keyValuePairs
+     *            The keyValuePairs to set.
+     */
+    public void setKeyValuePairs(List<KeyValuePair> keyValuePairs) {
+        this.keyValuePairs = keyValuePairs;
+    }
+
+    @Override
+    public Map<String, String> getMdc() {
+        return mdc;
+    }
+
+    /**
+     * Set the MDC, i.e. the event's context data.
+     * 
+     * @param mdc
+     *            The unmodifiable MDC to set.
+     */
+    public void setMdc(Map<String, String> mdc) {
+        this.mdc = mdc;
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.netmikey.logunit.log4j2;
+
+import java.util.function.Predicate;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.filter.AbstractFilter;
+
+import io.github.netmikey.logunit.core.DisabledCallCounter;
+
+/**
+ * A context-wide {@link Filter} that counts log calls rejected by level.
+ * Context-wide filters are consulted before Log4j2's level check, so they see
+ * calls that never become log events. This filter never influences the
+ * decision.
+ */
+public class DisabledCallFilter extends AbstractFilter {
+
+    private final DisabledCallCounter counter;
+
+    private final Predicate<String> loggerNameFilter;
+
+    /**
+     * Create a new filter.
+     * 
+     * @param counter
+     *            The counter to record disabled calls to.
+     * @param loggerNameFilter
+     *            Whether calls to the logger with a given name should be
+     *            counted.
+     */
+    public DisabledCallFilter(DisabledCallCounter counter, Predicate<String> loggerNameFilter) {
+        super(Result.NEUTRAL, Result.NEUTRAL);
+        this.counter = counter;
+        this.loggerNameFilter = loggerNameFilter;
+    }
+
+    /*
+     * AbstractFilter routes the variants with a fixed number of parameters
+     * here.
+     */
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object... params) {
+        record(logger, level, msg, params);
+        return Result.NEUTRAL;
+    }
+
+    /*
+     * Messages logged along with a throwable arrive here. Level checks such
+     * as isDebugEnabled() do as well, but without a message.
+     */
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, Object msg, Throwable t) {
+        if (msg instanceof String) {
+            record(logger, level, (String) msg, null);
+        }
+        return Result.NEUTRAL;
+    }
+
+    private void record(Logger logger, Level level, String msg, Object[] params) {
+        if (level.intLevel() > logger.getLevel().intLevel() && loggerNameFilter.test(logger.getName())) {
+            counter.record(msg, params);
+        }
+    }
+}
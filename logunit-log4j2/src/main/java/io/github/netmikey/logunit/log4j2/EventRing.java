@@ -0,0 +1,148 @@
+package io.github.netmikey.logunit.log4j2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+import org.slf4j.event.LoggingEvent;
+
+/**
+ * Fixed-capacity ring of preallocated slots that Log4j2 {@link LogEvent}s are
+ * copied into without allocating: messages are formatted into each slot's
+ * reusable {@link StringBuilder}, all other fields are references to values
+ * the event already holds. Once the ring is full, each event overwrites the
+ * oldest one. {@link LoggingEvent}s are only created when the captured events
+ * are read.
+ * <p>
+ * Thread-safe: all access is synchronized on the ring.
+ */
+public class EventRing {
+
+    private final Slot[] slots;
+
+    private int next;
+
+    private int size;
+
+    /**
+     * Create a new ring, preallocating all of its slots.
+     * 
+     * @param capacity
+     *            The maximum number of events retained.
+     * @param initialMessageCapacity
+     *            The initial capacity of each slot's message buffer, in
+     *            chars. Buffers grow as needed and keep their size.
+     */
+    public EventRing(int capacity, int initialMessageCapacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive but was " + capacity);
+        }
+        slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot(initialMessageCapacity);
+        }
+    }
+
+    /**
+     * Copy the specified event into the next slot.
+     * 
+     * @param event
+     *            The event, which may be reused by Log4j2 afterwards.
+     * @return <code>true</code> if the oldest event has been overwritten.
+     */
+    public synchronized boolean add(LogEvent event) {
+        slots[next].copyFrom(event);
+        next = (next + 1) % slots.length;
+        if (size < slots.length) {
+            size++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Create copies of the retained events, oldest first.
+     * 
+     * @return The list of copies.
+     */
+    public synchronized List<LoggingEvent> copyEvents() {
+        List<LoggingEvent> events = new ArrayList<>(size);
+        int first = (next + slots.length - size) % slots.length;
+        for (int i = 0; i < size; i++) {
+            events.add(slots[(first + i) % slots.length].toEvent());
+        }
+        return events;
+    }
+
+    /**
+     * Get the number of retained events.
+     * 
+     * @return The number of events.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Get the maximum number of retained events.
+     * 
+     * @return The capacity.
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * A preallocated event slot.
+     */
+    private static final class Slot {
+
+        private final StringBuilder message;
+
+        private long timeStamp;
+
+        private org.slf4j.event.Level level;
+
+        private String loggerName;
+
+        private String threadName;
+
+        private String messageTemplate;
+
+        private Throwable throwable;
+
+        private Slot(int initialMessageCapacity) {
+            message = new StringBuilder(initialMessageCapacity);
+        }
+
+        private void copyFrom(LogEvent event) {
+            Message logMessage = event.getMessage();
+            message.setLength(0);
+            if (logMessage instanceof StringBuilderFormattable) {
+                ((StringBuilderFormattable) logMessage).formatTo(message);
+            } else {
+                message.append(logMessage.getFormattedMessage());
+            }
+            timeStamp = event.getTimeMillis();
+            level = LevelMapper.mapLevel(event.getLevel());
+            loggerName = event.getLoggerName();
+            threadName = event.getThreadName();
+            messageTemplate = logMessage.getFormat();
+            throwable = event.getThrown();
+        }
+
+        private CapturedLogEvent toEvent() {
+            CapturedLogEvent e = new CapturedLogEvent();
+            e.setTimeStamp(timeStamp);
+            e.setThrowable(throwable);
+            e.setThreadName(threadName);
+            e.setMessage(message.toString());
+            e.setMessageTemplate(messageTemplate);
+            e.setLoggerName(loggerName);
+            e.setLevel(level);
+            return e;
+        }
+    }
+}
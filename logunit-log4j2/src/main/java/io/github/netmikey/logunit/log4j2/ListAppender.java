@@ -1,10 +1,19 @@
 package io.github.netmikey.logunit.log4j2;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Spliterator;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
 import java.util.logging.LogRecord;
 
+import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.core.Appender;
 import org.apache.logging.log4j.core.Filter;
 import org.apache.logging.log4j.core.Layout;
@@ -12,8 +21,23 @@ import org.apache.logging.log4j.core.LogEvent;
 import org.apache.logging.log4j.core.appender.AbstractAppender;
 import org.apache.logging.log4j.core.config.Property;
 import org.apache.logging.log4j.core.layout.PatternLayout;
+import org.apache.logging.log4j.message.MapMessage;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.util.IndexedReadOnlyStringMap;
+import org.apache.logging.log4j.util.ReadOnlyStringMap;
+import org.slf4j.IMarkerFactory;
+import org.slf4j.event.KeyValuePair;
 import org.slf4j.event.LoggingEvent;
-import org.slf4j.event.SubstituteLoggingEvent;
+import org.slf4j.helpers.BasicMarkerFactory;
+
+import io.github.netmikey.logunit.core.CaptureStatistics;
+import io.github.netmikey.logunit.core.ChunkedArray;
+import io.github.netmikey.logunit.core.ContextSnapshots;
+import io.github.netmikey.logunit.core.DeliveryBarrier;
+import io.github.netmikey.logunit.core.EventDictionary;
+import io.github.netmikey.logunit.core.LoggingCostRecorder;
+import io.github.netmikey.logunit.core.MemoryBudgetGuard;
+import io.github.netmikey.logunit.core.TimestampIndex;
 
 /**
  * An {@link Appender} implementation that captures {@link LogRecord}s in a
@@ -21,7 +45,35 @@ import org.slf4j.event.SubstituteLoggingEvent;
  */
 public class ListAppender extends AbstractAppender {
 
-    private ConcurrentLinkedQueue<LoggingEvent> list = new ConcurrentLinkedQueue<>();
+    private final ChunkedArray<LoggingEvent> list = new ChunkedArray<>();
+
+    private final TimestampIndex timestampIndex = new TimestampIndex();
+
+    private final ContextSnapshots contextSnapshots = new ContextSnapshots();
+
+    private final IMarkerFactory markerFactory = new BasicMarkerFactory();
+
+    private volatile Consumer<? super LoggingEvent> appendListener;
+
+    private volatile CaptureStatistics statistics = new CaptureStatistics();
+
+    private volatile ToLongFunction<? super LoggingEvent> sizeEstimator;
+
+    private volatile MemoryBudgetGuard memoryBudgetGuard;
+
+    private volatile UnaryOperator<CapturedLogEvent> itemDetacher;
+
+    private volatile EventDictionary<? super CapturedLogEvent> eventDictionary;
+
+    private volatile LoggingCostRecorder loggingCostRecorder;
+
+    private volatile String sentinelLoggerName;
+
+    private volatile DeliveryBarrier deliveryBarrier;
+
+    private volatile EventRing eventRing;
+
+    private volatile BooleanSupplier listening;
 
     /**
      * Create a new instance.
@@ -57,26 +109,260 @@ public class ListAppender extends AbstractAppender {
 
     @Override
     public void append(LogEvent event) {
+        DeliveryBarrier barrier = deliveryBarrier;
+        if (barrier != null && sentinelLoggerName.equals(event.getLoggerName())) {
+            barrier.deliver(Long.parseLong(event.getMessage().getFormattedMessage()));
+            return;
+        }
+        LoggingCostRecorder costRecorder = loggingCostRecorder;
+        if (costRecorder == null) {
+            capture(event);
+        } else {
+            costRecorder.beginIfIdle();
+            try {
+                capture(event);
+            } finally {
+                costRecorder.end(event.getLoggerName());
+            }
+        }
+    }
+
+    private void capture(LogEvent event) {
+        long start = System.nanoTime();
+        EventRing ring = eventRing;
+        if (ring != null) {
+            captureIntoRing(ring, event, start);
+            return;
+        }
         /*
          * Log4j seems to reuse the LogEvent object in subsequent event
          * propagations. If we merely hold a reference to the event itself, we
          * will end up with all event references pointing to the last LogEvent.
          * Make sure we copy the event's values immediately.
          */
-        list.add(mapEvent(event));
+        UnaryOperator<CapturedLogEvent> detacher = itemDetacher;
+        CapturedLogEvent mapped = detacher == null ? mapEvent(event) : detacher.apply(mapEvent(event));
+        MemoryBudgetGuard guard = memoryBudgetGuard;
+        long size = guard == null ? 0 : sizeEstimator.applyAsLong(mapped);
+        // Keep the list, the timestamp index and the event dictionary aligned.
+        synchronized (timestampIndex) {
+            if (list.isFull()) {
+                statistics.recordDropped();
+                return;
+            }
+            if (guard != null && !guard.tryRetain(size)) {
+                return;
+            }
+            list.add(mapped);
+            timestampIndex.add(mapped.getTimeStamp());
+            EventDictionary<? super CapturedLogEvent> dictionary = eventDictionary;
+            if (dictionary != null) {
+                dictionary.add(mapped);
+            }
+            if (guard != null) {
+                guard.evictExcess(list, timestampIndex, dictionary);
+            }
+        }
+
+        Consumer<? super LoggingEvent> listener = appendListener;
+        if (listener != null) {
+            listener.accept(mapped);
+        }
+        statistics.recordCaptured(System.nanoTime() - start);
+    }
+
+    /*
+     * Garbage-free path: no detaching, dictionary or memory budget, the ring
+     * bounds the retained events by itself.
+     */
+    private void captureIntoRing(EventRing ring, LogEvent event, long start) {
+        if (ring.add(event)) {
+            statistics.recordEvicted();
+        }
+        Consumer<? super LoggingEvent> listener = appendListener;
+        if (listener != null && listening.getAsBoolean()) {
+            listener.accept(mapEvent(event));
+        }
+        statistics.recordCaptured(System.nanoTime() - start);
     }
 
-    private LoggingEvent mapEvent(LogEvent iEvent) {
-        SubstituteLoggingEvent e = new SubstituteLoggingEvent();
+    private CapturedLogEvent mapEvent(LogEvent iEvent) {
+        Message message = iEvent.getMessage();
+        CapturedLogEvent e = new CapturedLogEvent();
         e.setTimeStamp(iEvent.getTimeMillis());
         e.setThrowable(iEvent.getThrown());
         e.setThreadName(iEvent.getThreadName());
-        e.setMessage(iEvent.getMessage().getFormattedMessage());
+        e.setMessage(message.getFormattedMessage());
+        e.setMessageTemplate(message.getFormat());
+        e.setArgumentArray(message.getParameters());
         e.setLoggerName(iEvent.getLoggerName());
         e.setLevel(LevelMapper.mapLevel(iEvent.getLevel()));
+        if (iEvent.getMarker() != null) {
+            e.addMarker(mapMarker(iEvent.getMarker()));
+        }
+        if (message instanceof MapMessage) {
+            e.setKeyValuePairs(mapKeyValuePairs((MapMessage<?, ?>) message));
+        }
+        e.setMdc(shareContextData(iEvent.getContextData()));
         return e;
     }
 
+    private org.slf4j.Marker mapMarker(Marker marker) {
+        org.slf4j.Marker mapped = markerFactory.getMarker(marker.getName());
+        if (marker.hasParents()) {
+            for (Marker parent : marker.getParents()) {
+                mapped.add(mapMarker(parent));
+            }
+        }
+        return mapped;
+    }
+
+    /*
+     * Map messages, including structured data messages, carry Log4j2's
+     * structured key-value pairs.
+     */
+    private static List<KeyValuePair> mapKeyValuePairs(MapMessage<?, ?> message) {
+        List<KeyValuePair> pairs = new ArrayList<>(message.getData().size());
+        message.getData().forEach((key, value) -> pairs.add(new KeyValuePair(key, value)));
+        return Collections.unmodifiableList(pairs);
+    }
+
+    /*
+     * Log4j2 copies the context data into each event. Equal copies are
+     * replaced by a shared snapshot, compared without allocating for the
+     * usual indexed context data implementations.
+     */
+    private Map<String, String> shareContextData(ReadOnlyStringMap data) {
+        if (data == null || data.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        if (!(data instanceof IndexedReadOnlyStringMap)) {
+            Map<String, String> map = data.toMap();
+            return contextSnapshots.share(map.hashCode(), map.size(),
+                (key, value) -> map.containsKey(key) && Objects.equals(map.get(key), value), () -> map);
+        }
+        IndexedReadOnlyStringMap indexed = (IndexedReadOnlyStringMap) data;
+        int hash = 0;
+        for (int i = 0; i < indexed.size(); i++) {
+            hash += indexed.getKeyAt(i).hashCode() ^ Objects.hashCode(toStringValue(indexed.getValueAt(i)));
+        }
+        return contextSnapshots.share(hash, indexed.size(),
+            (key, value) -> indexed.containsKey(key) && Objects.equals(toStringValue(indexed.getValue(key)), value),
+            indexed::toMap);
+    }
+
+    private static String toStringValue(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Set the callback that gets invoked with each item right after it has
+     * been stored.
+     * 
+     * @param appendListener
+     *            The callback, or <code>null</code> for none.
+     */
+    public void setAppendListener(Consumer<? super LoggingEvent> appendListener) {
+        this.appendListener = appendListener;
+    }
+
+    /**
+     * Set the function applied to each item before it is stored, which may
+     * return a copy that doesn't reference live objects the original holds
+     * on to.
+     * 
+     * @param itemDetacher
+     *            The function, or <code>null</code> to store items as they
+     *            are.
+     */
+    public void setItemDetacher(UnaryOperator<CapturedLogEvent> itemDetacher) {
+        this.itemDetacher = itemDetacher;
+    }
+
+    /**
+     * Set the guard accounting for the items' retained heap size and
+     * enforcing a memory budget on them.
+     * 
+     * @param memoryBudgetGuard
+     *            The {@link MemoryBudgetGuard}, or <code>null</code> for
+     *            none.
+     * @param sizeEstimator
+     *            The function estimating an item's retained heap size in
+     *            bytes.
+     */
+    public void setMemoryBudgetGuard(MemoryBudgetGuard memoryBudgetGuard,
+        ToLongFunction<? super LoggingEvent> sizeEstimator) {
+
+        this.sizeEstimator = sizeEstimator;
+        this.memoryBudgetGuard = memoryBudgetGuard;
+    }
+
+    /**
+     * Set the dictionary recording the ids of each stored item's logger name
+     * and message template. Must be set before the first item is appended.
+     * 
+     * @param eventDictionary
+     *            The {@link EventDictionary}, or <code>null</code> for none.
+     */
+    public void setEventDictionary(EventDictionary<? super CapturedLogEvent> eventDictionary) {
+        this.eventDictionary = eventDictionary;
+    }
+
+    /**
+     * Set the recorder measuring the cost of each log call that reaches this
+     * appender, unless measuring has been started before already.
+     * 
+     * @param loggingCostRecorder
+     *            The {@link LoggingCostRecorder}, or <code>null</code> for
+     *            none.
+     */
+    public void setLoggingCostRecorder(LoggingCostRecorder loggingCostRecorder) {
+        this.loggingCostRecorder = loggingCostRecorder;
+    }
+
+    /**
+     * Set the barrier to signal when a sentinel event arrives. Sentinel events
+     * are logged to a dedicated logger with a {@link DeliveryBarrier} token as
+     * their message and are not captured.
+     * 
+     * @param sentinelLoggerName
+     *            The name of the logger sentinel events are logged to.
+     * @param deliveryBarrier
+     *            The {@link DeliveryBarrier}, or <code>null</code> for none.
+     */
+    public void setDeliveryBarrier(String sentinelLoggerName, DeliveryBarrier deliveryBarrier) {
+        this.sentinelLoggerName = sentinelLoggerName;
+        this.deliveryBarrier = deliveryBarrier;
+    }
+
+    /**
+     * Capture into the specified {@link EventRing} instead of the item
+     * storage, without allocating per event. In this mode, items are neither
+     * detached nor recorded in the event dictionary or memory budget, and the
+     * append listener is only invoked, with a copy of the event, while
+     * <code>listening</code> returns <code>true</code>.
+     * 
+     * @param eventRing
+     *            The {@link EventRing}, or <code>null</code> to capture into
+     *            the item storage.
+     * @param listening
+     *            Whether the append listener needs to be invoked.
+     */
+    public void setEventRing(EventRing eventRing, BooleanSupplier listening) {
+        this.listening = listening;
+        this.eventRing = eventRing;
+    }
+
+    /**
+     * Set the recorder for this appender's capture overhead.
+     * 
+     * @param statistics
+     *            The {@link CaptureStatistics}.
+     */
+    public void setStatistics(CaptureStatistics statistics) {
+        this.statistics = statistics;
+    }
+
     /**
      * Get the items.
      * 
@@ -86,4 +372,23 @@ public class ListAppender extends AbstractAppender {
         return list.spliterator();
     }
 
+    /**
+     * Get the item storage, which supports positional access.
+     * 
+     * @return The {@link ChunkedArray} holding the items.
+     */
+    public ChunkedArray<LoggingEvent> getItems() {
+        return list;
+    }
+
+    /**
+     * Get the index over the items' timestamps, aligned with the items'
+     * order.
+     * 
+     * @return The {@link TimestampIndex}.
+     */
+    public TimestampIndex getTimestampIndex() {
+        return timestampIndex;
+    }
+
 }
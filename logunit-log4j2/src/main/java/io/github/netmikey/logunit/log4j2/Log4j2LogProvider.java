@@ -1,21 +1,41 @@
 package io.github.netmikey.logunit.log4j2;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Objects;
 import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Filter.Result;
 import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.async.AsyncLoggerConfig;
+import org.apache.logging.log4j.core.async.AsyncLoggerContext;
 import org.apache.logging.log4j.core.config.AppenderRef;
 import org.apache.logging.log4j.core.config.Configuration;
 import org.apache.logging.log4j.core.config.LoggerConfig;
+import org.apache.logging.log4j.message.SimpleMessage;
 import org.junit.jupiter.api.extension.ExtensionContext;
 import org.slf4j.event.LoggingEvent;
 
+import io.github.netmikey.logunit.api.EventVisitor;
 import io.github.netmikey.logunit.api.LogCapturer;
+import io.github.netmikey.logunit.api.RateHistogram;
+import io.github.netmikey.logunit.api.TemplatedLoggingEvent;
+import io.github.netmikey.logunit.core.ArgumentSnapshots;
 import io.github.netmikey.logunit.core.BaseLogProvider;
+import io.github.netmikey.logunit.core.DeliveryBarrier;
+import io.github.netmikey.logunit.core.EventDictionary;
+import io.github.netmikey.logunit.core.KeyValueIndex;
+import io.github.netmikey.logunit.core.LoggingCostRecorder;
+import io.github.netmikey.logunit.core.RetainedSizeEstimator;
+import io.github.netmikey.logunit.core.ThrowableSnapshotFactory;
 
 /**
  * {@link LogCapturer} implementation based on Log4j.
@@ -24,36 +44,254 @@ public class Log4j2LogProvider extends BaseLogProvider {
 
     private static final Random RAND = new Random();
 
+    private static final String SENTINEL_LOGGER_PREFIX = "io.github.netmikey.logunit.sync.";
+
+    private static final String FQCN = Log4j2LogProvider.class.getName();
+
+    private static final Duration AFTER_TEST_SYNC_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final int INITIAL_MESSAGE_CAPACITY = 256;
+
     private final ListAppender listAppender;
 
+    private final String sentinelLoggerName;
+
+    private final DeliveryBarrier deliveryBarrier = new DeliveryBarrier();
+
+    private volatile boolean asyncDelivery;
+
+    private DisabledCallFilter disabledCallFilter;
+
+    private LoggingCostFilter loggingCostFilter;
+
+    private LoggerPatternFilter patternLevelFilter;
+
+    private volatile EventRing eventRing;
+
+    private final EventDictionary<CapturedLogEvent> eventDictionary = new EventDictionary<>(
+        CapturedLogEvent::getLoggerName, CapturedLogEvent::getMessageTemplate, CapturedLogEvent::getArgumentArray,
+        CapturedLogEvent::getTimeStamp);
+
     /**
      * Default constructor.
      */
     public Log4j2LogProvider() {
         super();
         listAppender = ListAppender.create("LogUnitListAppender" + RAND.nextInt());
+        sentinelLoggerName = SENTINEL_LOGGER_PREFIX + listAppender.getName();
+        listAppender.setDeliveryBarrier(sentinelLoggerName, deliveryBarrier);
+        listAppender.setStatistics(getStatistics());
+        listAppender.setItemDetacher(this::detach);
+        listAppender.setEventDictionary(eventDictionary);
+        listAppender.setMemoryBudgetGuard(getMemoryBudgetGuard(), this::estimateRetainedSize);
+        listAppender.setAppendListener(event -> {
+            if (hasCaptureListeners()) {
+                fireEventCaptured(event);
+            }
+        });
     }
 
     @Override
     public List<LoggingEvent> getEvents() {
-        return StreamSupport.stream(listAppender.spliterator(), false)
-            .collect(Collectors.toList());
+        EventRing ring = eventRing;
+        if (ring != null) {
+            return ring.copyEvents();
+        }
+        return streamEvents(false).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<LoggingEvent> streamEvents(boolean parallel) {
+        EventRing ring = eventRing;
+        if (ring != null) {
+            List<LoggingEvent> events = ring.copyEvents();
+            return parallel ? events.parallelStream() : events.stream();
+        }
+        return StreamSupport.stream(listAppender.spliterator(), parallel);
+    }
+
+    /*
+     * Both the ListAppender and the ring hand out our own copies, which can
+     * be visited as they are.
+     */
+    @Override
+    public void forEachEvent(EventVisitor visitor) {
+        streamEvents(false).forEach(visitor::visit);
+    }
+
+    @Override
+    public List<LoggingEvent> getEventsBetween(long fromMillis, long toMillis) {
+        if (eventRing != null) {
+            return getRingEvents(event -> event.getTimeStamp() >= fromMillis && event.getTimeStamp() <= toMillis);
+        }
+        return getEventsBetween(listAppender.getItems(), listAppender.getTimestampIndex(),
+            fromMillis, toMillis, Function.identity());
+    }
+
+    @Override
+    public List<LoggingEvent> getEventsFromLogger(String loggerName) {
+        if (eventRing != null) {
+            return getRingEvents(event -> Objects.equals(event.getLoggerName(), loggerName));
+        }
+        return getEventsWithId(listAppender.getItems(), eventDictionary.getLoggerNameIds(),
+            eventDictionary.getLoggerNames().lookup(loggerName), Function.identity());
+    }
+
+    @Override
+    public List<LoggingEvent> getEventsWithTemplate(String template) {
+        if (eventRing != null) {
+            return getRingEvents(event -> Objects.equals(TemplatedLoggingEvent.messageTemplateOf(event), template));
+        }
+        return getEventsWithTemplate(listAppender.getItems(), eventDictionary, template,
+            TemplatedLoggingEvent::messageTemplateOf, Function.identity());
+    }
+
+    @Override
+    public List<LoggingEvent> getEventsWithKey(String key, Object value) {
+        KeyValueIndex index = eventDictionary.getKeyValueIndex();
+        if (eventRing != null || index == null || !index.isIndexed(key)) {
+            return super.getEventsWithKey(key, value);
+        }
+        return getEventsWithKey(listAppender.getItems(), index, key, value, Function.identity());
+    }
+
+    @Override
+    public void setIndexedKeys(Set<String> keys) {
+        eventDictionary.indexKeys(keys,
+            (event, key) -> KeyValueIndex.valueOf(event.getKeyValuePairs(), event.getMdc(), key));
+    }
+
+    @Override
+    public RateHistogram getRateHistogram(String loggerName) {
+        if (eventRing != null) {
+            return super.getRateHistogram(loggerName);
+        }
+        return eventDictionary.getLoggerRates().histogram(eventDictionary.getLoggerNames().lookup(loggerName));
+    }
+
+    /*
+     * The ring is bounded and has no indexes, scanning a copy is good enough.
+     */
+    private List<LoggingEvent> getRingEvents(Predicate<LoggingEvent> predicate) {
+        return eventRing.copyEvents().stream().filter(predicate).collect(Collectors.toList());
+    }
+
+    @Override
+    public void setGarbageFreeCapture(int capacity) {
+        eventRing = new EventRing(capacity, INITIAL_MESSAGE_CAPACITY);
+        listAppender.setEventRing(eventRing, this::hasCaptureListeners);
+    }
+
+    /*
+     * With async loggers, all loggers share a single queue, and so do all
+     * AsyncLoggerConfigs, so a sentinel logged after the events arrives after
+     * them. It is logged past the level and context-wide filter checks and at
+     * FATAL, which queue-full policies don't discard, so nothing but a
+     * reconfiguration that replaced the sentinel logger can drop it.
+     */
+    @Override
+    public boolean sync(Duration timeout) {
+        if (!asyncDelivery || !listAppender.isStarted()) {
+            return true;
+        }
+        LoggerConfig sentinelConfig = getLoggerContext().getConfiguration().getLoggerConfig(sentinelLoggerName);
+        if (!sentinelConfig.getAppenders().containsKey(listAppender.getName())) {
+            throw new IllegalStateException("The sync sentinel would be filtered: the Log4j2 configuration has been "
+                + "replaced since the capture started, logger " + sentinelLoggerName + " no longer exists");
+        }
+        long token = deliveryBarrier.issue();
+        SimpleMessage sentinel = new SimpleMessage(Long.toString(token));
+        getLoggerContext().getLogger(sentinelLoggerName).logMessage(FQCN, Level.FATAL, null, sentinel, null);
+        return deliveryBarrier.await(token, timeout);
     }
 
     @Override
     public void beforeTestExecution(ExtensionContext context) {
-        // Register ListAppender instance with log4j2
-        getLoggerContext().getConfiguration().addAppender(listAppender);
-        createLoggersAndAddAppender();
-        listAppender.start();
-        getLoggerContext().updateLoggers();
+        reconfigureBeforeTestExecution(() -> {
+            asyncDelivery = isDeliveredAsynchronously();
+            // Register ListAppender instance with log4j2
+            getLoggerContext().getConfiguration().addAppender(listAppender);
+            createLoggersAndAddAppender();
+            listAppender.start();
+            if (!getLoggerPatterns().isEmpty()) {
+                attachPatternRouting();
+            }
+            if (isDisabledCallDetection()) {
+                disabledCallFilter = new DisabledCallFilter(getDisabledCallCounter(),
+                    loggerName -> getCaptureLevel(loggerName) != null);
+                disabledCallFilter.start();
+                getLoggerContext().getConfiguration().addFilter(disabledCallFilter);
+            }
+            LoggingCostRecorder loggingCostRecorder = getLoggingCostRecorder();
+            if (loggingCostRecorder != null) {
+                listAppender.setLoggingCostRecorder(loggingCostRecorder);
+                loggingCostFilter = new LoggingCostFilter(loggingCostRecorder,
+                    loggerName -> getCaptureLevel(loggerName) != null);
+                loggingCostFilter.start();
+                getLoggerContext().getConfiguration().addFilter(loggingCostFilter);
+            }
+            getLoggerContext().updateLoggers();
+        });
     }
 
     @Override
     public void afterTestExecution(ExtensionContext context) {
-        listAppender.stop();
-        removeLoggers();
-        getLoggerContext().updateLoggers();
+        try {
+            // Capture the events still on their way before detaching.
+            sync(AFTER_TEST_SYNC_TIMEOUT);
+        } finally {
+            detachAppender();
+        }
+    }
+
+    private void detachAppender() {
+        reconfigureAfterTestExecution(() -> {
+            listAppender.stop();
+            if (patternLevelFilter != null) {
+                detachPatternRouting();
+            }
+            if (disabledCallFilter != null) {
+                getLoggerContext().getConfiguration().removeFilter(disabledCallFilter);
+                disabledCallFilter.stop();
+                disabledCallFilter = null;
+            }
+            if (loggingCostFilter != null) {
+                getLoggerContext().getConfiguration().removeFilter(loggingCostFilter);
+                loggingCostFilter.stop();
+                loggingCostFilter = null;
+                listAppender.setLoggingCostRecorder(null);
+            }
+            removeLoggers();
+            getLoggerContext().updateLoggers();
+        });
+    }
+
+    /*
+     * Since the event is our own copy, it is detached in place and its
+     * recurring strings are replaced by their canonical instances.
+     */
+    private CapturedLogEvent detach(CapturedLogEvent event) {
+        event.setLoggerName(eventDictionary.getLoggerNames().canonicalize(event.getLoggerName()));
+        event.setMessageTemplate(
+            eventDictionary.canonicalizeTemplate(event.getMessageTemplate(), event.getArgumentArray()));
+        ThrowableSnapshotFactory throwableSnapshotFactory = getThrowableSnapshotFactory();
+        if (throwableSnapshotFactory != null && event.getThrowable() != null) {
+            event.setThrowable(throwableSnapshotFactory.snapshot(event.getThrowable()));
+        }
+        if (isDetachArguments() && event.getArgumentArray() != null) {
+            event.setArgumentArray(ArgumentSnapshots.detach(event.getArgumentArray()));
+        }
+        return event;
+    }
+
+    /*
+     * The MDC is not accounted for, since events share their snapshots.
+     */
+    private long estimateRetainedSize(LoggingEvent event) {
+        return RetainedSizeEstimator.EVENT_OVERHEAD
+            + RetainedSizeEstimator.estimate(event.getMessage())
+            + RetainedSizeEstimator.estimate(event.getArgumentArray())
+            + RetainedSizeEstimator.estimate(event.getThrowable());
     }
 
     private LoggerContext getLoggerContext() {
@@ -67,6 +305,9 @@ public class Log4j2LogProvider extends BaseLogProvider {
         getLoggerNames().forEach((loggerName, level) -> {
             createLoggerAndAddAppender(loggerName, LevelMapper.mapLevel(level));
         });
+        if (asyncDelivery) {
+            createSentinelLogger();
+        }
     }
 
     private void removeLoggers() {
@@ -74,6 +315,30 @@ public class Log4j2LogProvider extends BaseLogProvider {
             removeLogger(loggerType.getName());
         });
         getLoggerNames().keySet().forEach(this::removeLogger);
+        if (asyncDelivery) {
+            removeLogger(sentinelLoggerName);
+        }
+    }
+
+    /*
+     * The context-wide filter is added first so that calls it enables aren't
+     * judged by the logger's own level by the filters after it.
+     */
+    private void attachPatternRouting() {
+        Configuration cfg = getLoggerContext().getConfiguration();
+        patternLevelFilter = new LoggerPatternFilter(this::getPatternCaptureLevel, Result.ACCEPT, Result.NEUTRAL);
+        patternLevelFilter.start();
+        cfg.addFilter(patternLevelFilter);
+        cfg.getRootLogger().addAppender(listAppender, Level.ALL,
+            new LoggerPatternFilter(this::getPatternCaptureLevel, Result.ACCEPT, Result.DENY));
+    }
+
+    private void detachPatternRouting() {
+        Configuration cfg = getLoggerContext().getConfiguration();
+        cfg.getRootLogger().removeAppender(listAppender.getName());
+        cfg.removeFilter(patternLevelFilter);
+        patternLevelFilter.stop();
+        patternLevelFilter = null;
     }
 
     private void createLoggerAndAddAppender(String loggerName, Level level) {
@@ -92,6 +357,39 @@ public class Log4j2LogProvider extends BaseLogProvider {
         cfg.addLogger(loggerConfig.getName(), loggerConfig);
     }
 
+    /*
+     * The loggers we create are synchronous, so our appender only receives
+     * events on another thread if all loggers are async or if it is attached
+     * to an AsyncRoot for pattern routing.
+     */
+    private boolean isDeliveredAsynchronously() {
+        return getLoggerContext() instanceof AsyncLoggerContext
+            || !getLoggerPatterns().isEmpty()
+                && getLoggerContext().getConfiguration().getRootLogger() instanceof AsyncLoggerConfig;
+    }
+
+    /*
+     * Sentinels only go to our appender: no additivity, no other appenders.
+     * Behind an AsyncRoot, the sentinel logger must be an AsyncLoggerConfig
+     * to share its queue.
+     */
+    private void createSentinelLogger() {
+        Configuration cfg = getLoggerContext().getConfiguration();
+        AppenderRef ref = AppenderRef.createAppenderRef(listAppender.getName(), null, null);
+        LoggerConfig.Builder<?> builder = cfg.getRootLogger() instanceof AsyncLoggerConfig
+            ? AsyncLoggerConfig.newAsyncBuilder()
+            : LoggerConfig.newBuilder();
+        LoggerConfig loggerConfig = builder
+            .withAdditivity(false)
+            .withLevel(Level.ALL)
+            .withLoggerName(sentinelLoggerName)
+            .withIncludeLocation("false")
+            .withRefs(new AppenderRef[] { ref }).withConfig(cfg)
+            .build();
+        loggerConfig.addAppender(listAppender, null, null);
+        cfg.addLogger(loggerConfig.getName(), loggerConfig);
+    }
+
     private void removeLogger(String loggerName) {
         getLoggerContext().getConfiguration().removeLogger(loggerName);
     }
@@ -0,0 +1,70 @@
+package io.github.netmikey.logunit.log4j2;
+
+import java.util.function.Function;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.filter.AbstractFilter;
+import org.apache.logging.log4j.message.Message;
+
+/**
+ * A {@link Filter} that matches the log calls and events of loggers matched
+ * by pattern at or above their captured level. Used context-wide, it enables
+ * these levels before Log4j2's level check rejects them, since such loggers
+ * may be created at any time. Used on the root logger's appender reference,
+ * it routes only these events to LogUnit's appender, so events of loggers the
+ * appender is attached to directly are not captured twice.
+ */
+public class LoggerPatternFilter extends AbstractFilter {
+
+    private final Function<String, org.slf4j.event.Level> captureLevelLookup;
+
+    /**
+     * Create a new filter.
+     * 
+     * @param captureLevelLookup
+     *            The level at which the logger with a given name is captured
+     *            by pattern, or <code>null</code> if it isn't.
+     * @param onMatch
+     *            The result for matching calls and events.
+     * @param onMismatch
+     *            The result for all other calls and events.
+     */
+    public LoggerPatternFilter(Function<String, org.slf4j.event.Level> captureLevelLookup, Result onMatch,
+        Result onMismatch) {
+
+        super(onMatch, onMismatch);
+        this.captureLevelLookup = captureLevelLookup;
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object... params) {
+        return filter(logger.getName(), level);
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, Object msg, Throwable t) {
+        return filter(logger.getName(), level);
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, Message msg, Throwable t) {
+        return filter(logger.getName(), level);
+    }
+
+    @Override
+    public Result filter(LogEvent event) {
+        return filter(event.getLoggerName(), event.getLevel());
+    }
+
+    private Result filter(String loggerName, Level level) {
+        org.slf4j.event.Level captureLevel = captureLevelLookup.apply(loggerName);
+        if (captureLevel != null && level.intLevel() <= LevelMapper.mapLevel(captureLevel).intLevel()) {
+            return onMatch;
+        }
+        return onMismatch;
+    }
+}
@@ -0,0 +1,72 @@
+package io.github.netmikey.logunit.log4j2;
+
+import java.util.function.Predicate;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.filter.AbstractFilter;
+import org.apache.logging.log4j.message.Message;
+
+import io.github.netmikey.logunit.core.LoggingCostRecorder;
+
+/**
+ * A context-wide {@link Filter} that starts measuring the cost of each
+ * enabled log call. Context-wide filters are consulted at the very start of a
+ * log call, before Log4j2 creates the message and the log event, so the
+ * measurement includes all of Log4j2's work. This filter never influences the
+ * decision.
+ */
+public class LoggingCostFilter extends AbstractFilter {
+
+    private final LoggingCostRecorder recorder;
+
+    private final Predicate<String> loggerNameFilter;
+
+    /**
+     * Create a new filter.
+     * 
+     * @param recorder
+     *            The recorder to start measurements on.
+     * @param loggerNameFilter
+     *            Whether calls to the logger with a given name should be
+     *            measured.
+     */
+    public LoggingCostFilter(LoggingCostRecorder recorder, Predicate<String> loggerNameFilter) {
+        super(Result.NEUTRAL, Result.NEUTRAL);
+        this.recorder = recorder;
+        this.loggerNameFilter = loggerNameFilter;
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object... params) {
+        begin(logger, level);
+        return Result.NEUTRAL;
+    }
+
+    /*
+     * Level checks such as isDebugEnabled() arrive here without a message.
+     */
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, Object msg, Throwable t) {
+        if (msg != null) {
+            begin(logger, level);
+        }
+        return Result.NEUTRAL;
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, Message msg, Throwable t) {
+        if (msg != null) {
+            begin(logger, level);
+        }
+        return Result.NEUTRAL;
+    }
+
+    private void begin(Logger logger, Level level) {
+        if (level.intLevel() <= logger.getLevel().intLevel() && loggerNameFilter.test(logger.getName())) {
+            recorder.begin();
+        }
+    }
+}
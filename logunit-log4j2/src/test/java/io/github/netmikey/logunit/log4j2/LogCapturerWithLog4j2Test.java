@@ -1,15 +1,35 @@
 package io.github.netmikey.logunit.log4j2;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.MarkerManager;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.core.Filter.Result;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilder;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilderFactory;
+import org.apache.logging.log4j.core.config.builder.impl.BuiltConfiguration;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.message.StringMapMessage;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.MethodOrderer.MethodName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.slf4j.event.Level;
+import org.slf4j.event.LoggingEvent;
 
+import io.github.netmikey.logunit.api.DisabledCallStats;
 import io.github.netmikey.logunit.api.LogCapturer;
+import io.github.netmikey.logunit.api.LoggingCost;
+import io.github.netmikey.logunit.core.LoggingCostRecorder;
 
 /**
  * Unit test that uses the log4j2 API directly, applies {@link LogCapturer}s and
@@ -26,6 +46,16 @@ public class LogCapturerWithLog4j2Test {
 
     private static final String LOGGER_NAME = "CUSTOM_LOGGER";
 
+    private static final String DISABLED_LOGGER_NAME = "DISABLED_LOGGER";
+
+    private static final String COST_LOGGER_NAME = "COST_LOGGER";
+
+    private static final String GARBAGE_FREE_LOGGER_NAME = "GARBAGE_FREE_LOGGER";
+
+    private static final String STRUCTURED_LOGGER_NAME = "STRUCTURED_LOGGER";
+
+    private static final String PACKAGE_NAME = "io.github.netmikey.logunit.captured";
+
     private Logger testLogger = LogManager.getLogger(LogCapturerWithLog4j2Test.class);
 
     private Logger namedLogger = LogManager.getLogger(LOGGER_NAME);
@@ -41,7 +71,7 @@ public class LogCapturerWithLog4j2Test {
      * </ul>
      */
     @Test
-    public void test1CaptureMessages() {
+    public void test01CaptureMessages() {
         logEverythingOnce(testLogger);
         logEverythingOnce(namedLogger);
 
@@ -64,7 +94,7 @@ public class LogCapturerWithLog4j2Test {
      * Test that {@link LogCapturer}s are being reset after each test.
      */
     @Test
-    public void test2CapturerReset() {
+    public void test02CapturerReset() {
         Assertions.assertEquals(0, testLoggerInfoCapturer.size());
         Assertions.assertEquals(0, namedLoggerWarnCapturer.size());
     }
@@ -73,7 +103,7 @@ public class LogCapturerWithLog4j2Test {
      * Test that custom predicate matching works.
      */
     @Test
-    public void test3CustomPredicates() {
+    public void test03CustomPredicates() {
         logEverythingOnce(testLogger);
 
         testLoggerInfoCapturer.assertDoesNotContain(e -> LOGGER_NAME.equals(e.getLoggerName()),
@@ -84,6 +114,272 @@ public class LogCapturerWithLog4j2Test {
             "contain 'Some * message'");
     }
 
+    /**
+     * Test that events can be looked up by their logger name and by their raw
+     * message template, sharing the canonical strings.
+     */
+    @Test
+    public void test04EventsByLoggerAndTemplate() {
+        for (int i = 0; i < 3; i++) {
+            testLogger.info("Number {}", i);
+            namedLogger.warn("Warning number {}", i);
+        }
+
+        List<LoggingEvent> events = testLoggerInfoCapturer.eventsWithTemplate("Number {}");
+        Assertions.assertEquals(3, events.size());
+        Assertions.assertEquals("Number 2", events.get(2).getMessage());
+        Assertions.assertSame(events.get(0).getLoggerName(), events.get(1).getLoggerName());
+
+        Assertions.assertEquals(3, namedLoggerWarnCapturer.eventsFromLogger(LOGGER_NAME).size());
+        Assertions.assertTrue(namedLoggerWarnCapturer.eventsWithTemplate("Number {}").isEmpty());
+    }
+
+    /**
+     * Test that log calls rejected by level are counted, telling apart those
+     * that built their message up front and those passing arguments with
+     * non-trivial <code>toString()</code>s, but not those passing strings.
+     */
+    @Test
+    public void test05DisabledCallDetection() throws Exception {
+        LogCapturer disabledCapturer = LogCapturer.create().captureForLogger(DISABLED_LOGGER_NAME, Level.WARN)
+            .withDisabledCallDetection();
+        Logger disabledLogger = LogManager.getLogger(DISABLED_LOGGER_NAME);
+        List<Integer> value = Arrays.asList(1, 2);
+
+        captureDuring(disabledCapturer, () -> {
+            disabledLogger.info("Constant message");
+            disabledLogger.info("Lazy value {}", value);
+            disabledLogger.info("Eager value " + value);
+            disabledLogger.info("Eager argument {}", value.toString());
+            disabledLogger.info("Eager value with throwable " + value, new IllegalStateException());
+            if (disabledLogger.isInfoEnabled()) {
+                disabledLogger.info("Guarded value " + value);
+            }
+            disabledLogger.warn("Enabled value {}", value);
+        });
+
+        DisabledCallStats stats = disabledCapturer.disabledCalls();
+        Assertions.assertEquals(5, stats.getDisabledCalls(), stats.toString());
+        Assertions.assertEquals(2, stats.getCallsWithEagerMessages(), stats.toString());
+        Assertions.assertEquals(1, stats.getCallsWithNonTrivialArguments(), stats.toString());
+        Assertions.assertEquals(1, disabledCapturer.size());
+    }
+
+    /**
+     * Test that messages concatenated at runtime are told apart from constant
+     * templates.
+     */
+    @Test
+    public void test06Parameterized() {
+        for (int i = 0; i < 3; i++) {
+            testLogger.info("Lazy value {}", i);
+        }
+        testLoggerInfoCapturer.assertAllParameterized();
+
+        for (int i = 0; i < 3; i++) {
+            testLogger.info("Eager value " + i);
+        }
+        Assertions.assertThrows(AssertionError.class, testLoggerInfoCapturer::assertAllParameterized);
+        Assertions.assertEquals(3, testLoggerInfoCapturer.highCardinalityTemplates(3).get(0).getDistinctTemplates());
+    }
+
+    /**
+     * Test that the allocations of captured log calls are measured per
+     * logger.
+     */
+    @Test
+    public void test07LoggingCost() throws Exception {
+        LogCapturer costCapturer = LogCapturer.create().captureForLogger(COST_LOGGER_NAME).measureLoggingCost();
+        Logger costLogger = LogManager.getLogger(COST_LOGGER_NAME);
+
+        captureDuring(costCapturer, () -> {
+            for (int i = 0; i < 100; i++) {
+                costLogger.info("Costly number {}", i);
+            }
+        });
+
+        Assertions.assertEquals(100, costCapturer.loggingCosts().get(COST_LOGGER_NAME).getEvents());
+        costCapturer.assertAllocatedBytesPerEventBelow(COST_LOGGER_NAME, 1_000_000);
+        Assertions.assertThrows(AssertionError.class,
+            () -> costCapturer.assertAllocatedBytesPerEventBelow(COST_LOGGER_NAME, 1));
+    }
+
+    /**
+     * Test that syncing returns right away and doesn't log anything when
+     * events are delivered synchronously.
+     */
+    @Test
+    public void test08Sync() {
+        testLogger.info("Before sync");
+        testLoggerInfoCapturer.sync(Duration.ofSeconds(5));
+        namedLoggerWarnCapturer.sync();
+
+        Assertions.assertEquals(1, testLoggerInfoCapturer.size());
+        Assertions.assertEquals(0, namedLoggerWarnCapturer.size());
+        testLoggerInfoCapturer.assertContains("Before sync");
+    }
+
+    /**
+     * Test that garbage-free capture retains the latest events up to its
+     * capacity, rejects the options it can't honor and that appending to the
+     * ring doesn't allocate.
+     */
+    @Test
+    public void test09GarbageFreeCapture() throws Exception {
+        LogCapturer ringCapturer = LogCapturer.create().captureForLogger(GARBAGE_FREE_LOGGER_NAME)
+            .withGarbageFreeCapture(3);
+        Logger ringLogger = LogManager.getLogger(GARBAGE_FREE_LOGGER_NAME);
+
+        captureDuring(ringCapturer, () -> {
+            for (int i = 1; i <= 5; i++) {
+                ringLogger.info("Ring message {}", i);
+            }
+        });
+
+        Assertions.assertEquals(3, ringCapturer.size());
+        ringCapturer.assertDoesNotContain("Ring message 2");
+        ringCapturer.assertContains("Ring message 3");
+        Assertions.assertEquals(3, ringCapturer.eventsWithTemplate("Ring message {}").size());
+        Assertions.assertEquals(2, ringCapturer.stats().getEventsEvicted());
+        Assertions.assertEquals(0, ringCapturer.stats().getEventsDropped());
+        Assertions.assertThrows(IllegalStateException.class, () -> ringCapturer.withKeyIndex("orderId"));
+        Assertions.assertThrows(IllegalStateException.class, () -> ringCapturer.withMemoryBudget(1024));
+        Assertions.assertThrows(IllegalStateException.class, () -> LogCapturer.create()
+            .captureForLogger(GARBAGE_FREE_LOGGER_NAME).withCompactThrowables().withGarbageFreeCapture(3));
+
+        ListAppender appender = ListAppender.create("GarbageFreeTestAppender");
+        appender.setEventRing(new EventRing(16, 64), () -> false);
+        LoggingCostRecorder recorder = new LoggingCostRecorder();
+        appender.setLoggingCostRecorder(recorder);
+        LogEvent event = Log4jLogEvent.newBuilder()
+            .setLoggerName(GARBAGE_FREE_LOGGER_NAME)
+            .setLevel(org.apache.logging.log4j.Level.INFO)
+            .setMessage(new ParameterizedMessage("Ring message {}", "reused"))
+            .build();
+        for (int i = 0; i < 10_000; i++) {
+            appender.append(event);
+        }
+        LoggingCost cost = recorder.snapshot().get(GARBAGE_FREE_LOGGER_NAME);
+        Assertions.assertTrue(cost.getAllocatedBytesPerEvent() < 1, "Appending allocated: " + cost);
+    }
+
+    /**
+     * Test that capturing for a package captures all loggers within it,
+     * including those created after the test has started, but none outside
+     * of it.
+     */
+    @Test
+    public void test10CaptureForPackage() throws Exception {
+        LogCapturer packageCapturer = LogCapturer.create().captureForPackage(PACKAGE_NAME, Level.DEBUG);
+
+        captureDuring(packageCapturer, () -> {
+            LogManager.getLogger(PACKAGE_NAME + ".billing.Invoices").debug("Invoice created");
+            LogManager.getLogger(PACKAGE_NAME + ".shipping.Parcels").info("Parcel sent");
+            LogManager.getLogger(PACKAGE_NAME + "corp.Outsider").warn("Outside the package");
+        });
+
+        Assertions.assertEquals(2, packageCapturer.size());
+        packageCapturer.assertContains("Invoice created");
+        packageCapturer.assertContains("Parcel sent");
+        packageCapturer.assertDoesNotContain("Outside the package");
+    }
+
+    /**
+     * Test that capturing by pattern captures the matching loggers created
+     * during the test at their captured level, but no others.
+     */
+    @Test
+    public void test11CaptureForLoggers() throws Exception {
+        LogCapturer patternCapturer = LogCapturer.create()
+            .captureForLoggersMatching("*.repository.*", Level.DEBUG)
+            .captureForLoggers(Pattern.compile("com\\.acme\\..*Client"));
+
+        captureDuring(patternCapturer, () -> {
+            LogManager.getLogger("com.acme.repository.UserRepository").debug("User loaded");
+            LogManager.getLogger("com.acme.http.PaymentClient").info("Payment sent");
+            LogManager.getLogger("com.acme.http.PaymentClient").debug("Payment details");
+            LogManager.getLogger("com.acme.service.UserService").info("User service");
+        });
+
+        Assertions.assertEquals(2, patternCapturer.size());
+        patternCapturer.assertContains("User loaded");
+        patternCapturer.assertContains("Payment sent");
+        patternCapturer.assertDoesNotContain("Payment details");
+        patternCapturer.assertDoesNotContain("User service");
+    }
+
+    /**
+     * Test that arguments, markers, map message key-value pairs and context
+     * data are captured, that events with equal context data share it, and
+     * that events are found by key, both indexed and not.
+     */
+    @Test
+    public void test12StructuredData() throws Exception {
+        LogCapturer structuredCapturer = LogCapturer.create().captureForLogger(STRUCTURED_LOGGER_NAME)
+            .withKeyIndex("orderId");
+        Logger structuredLogger = LogManager.getLogger(STRUCTURED_LOGGER_NAME);
+
+        captureDuring(structuredCapturer, () -> {
+            try {
+                ThreadContext.put("tenant", "acme");
+                ThreadContext.put("orderId", "42");
+                structuredLogger.info(MarkerManager.getMarker("AUDIT"), "Order {} placed", 42);
+                structuredLogger.info("Order {} paid", 42);
+                ThreadContext.put("orderId", "43");
+                structuredLogger.info("Order {} placed", 43);
+                ThreadContext.remove("orderId");
+                structuredLogger.info(new StringMapMessage().with("orderId", "44").with("state", "shipped"));
+            } finally {
+                ThreadContext.clearMap();
+            }
+        });
+
+        List<LoggingEvent> order42 = structuredCapturer.eventsWithKey("orderId", 42);
+        Assertions.assertEquals(2, order42.size());
+        CapturedLogEvent placed = (CapturedLogEvent) order42.get(0);
+        CapturedLogEvent paid = (CapturedLogEvent) order42.get(1);
+        Assertions.assertEquals(Arrays.asList(42), placed.getArguments());
+        Assertions.assertEquals("AUDIT", placed.getMarkers().get(0).getName());
+        Assertions.assertEquals("acme", placed.getMdc().get("tenant"));
+        Assertions.assertSame(placed.getMdc(), paid.getMdc());
+        Assertions.assertTrue(paid.getMarkers().isEmpty());
+
+        List<LoggingEvent> order44 = structuredCapturer.eventsWithKey("orderId", "44");
+        Assertions.assertEquals(1, order44.size());
+        Assertions.assertEquals("shipped", order44.get(0).getKeyValuePairs().get(1).value);
+        Assertions.assertEquals(4, structuredCapturer.eventsWithKey("tenant", "acme").size());
+    }
+
+    /**
+     * Test that events delivered through an AsyncRoot are all captured once
+     * synced, even though a context-wide filter would deny the sentinel event
+     * if it were logged like any other.
+     */
+    @Test
+    public void test13SyncBehindAsyncRoot() throws Exception {
+        ConfigurationBuilder<BuiltConfiguration> builder = ConfigurationBuilderFactory.newConfigurationBuilder();
+        builder.add(builder.newFilter("ThresholdFilter", Result.NEUTRAL, Result.DENY)
+            .addAttribute("level", org.apache.logging.log4j.Level.WARN));
+        builder.add(builder.newAsyncRootLogger(org.apache.logging.log4j.Level.ERROR));
+        Configurator.reconfigure(builder.build());
+        try {
+            LogCapturer asyncCapturer = LogCapturer.create().captureForLoggersMatching("*.async.*", Level.WARN);
+            Logger asyncLogger = LogManager.getLogger(PACKAGE_NAME + ".async.Worker");
+
+            captureDuring(asyncCapturer, () -> {
+                Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                    for (int i = 1; i <= 1000; i++) {
+                        asyncLogger.warn("Async message {}", i);
+                        Assertions.assertEquals(i, asyncCapturer.size());
+                    }
+                });
+                asyncCapturer.assertContains("Async message 1000");
+            });
+        } finally {
+            Configurator.reconfigure();
+        }
+    }
+
     private void logEverythingOnce(Logger logger) {
         logger.trace("Some trace message");
         logger.debug("Some debug message");
@@ -91,4 +387,26 @@ public class LogCapturerWithLog4j2Test {
         logger.warn("Some warn message");
         logger.error("Some error message");
     }
+
+    /*
+     * Runs the code between the capturer's test execution callbacks, as JUnit
+     * does for capturers registered as extensions.
+     */
+    private static void captureDuring(LogCapturer capturer, CapturedCode code) throws Exception {
+        capturer.beforeTestExecution(null);
+        try {
+            code.run();
+        } finally {
+            capturer.afterTestExecution(null);
+        }
+    }
+
+    /**
+     * Code logging events while a {@link LogCapturer} is capturing.
+     */
+    @FunctionalInterface
+    private interface CapturedCode {
+
+        void run() throws Exception;
+    }
 }
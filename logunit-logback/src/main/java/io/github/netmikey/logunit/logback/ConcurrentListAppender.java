@@ -2,15 +2,24 @@ package io.github.netmikey.logunit.logback;
 
 import java.util.List;
 import java.util.Spliterator;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
 
 import ch.qos.logback.core.AppenderBase;
 import ch.qos.logback.core.read.ListAppender;
+import io.github.netmikey.logunit.core.CaptureStatistics;
+import io.github.netmikey.logunit.core.ChunkedArray;
+import io.github.netmikey.logunit.core.EventDictionary;
+import io.github.netmikey.logunit.core.LoggingCostRecorder;
+import io.github.netmikey.logunit.core.MemoryBudgetGuard;
+import io.github.netmikey.logunit.core.TimestampIndex;
 
 /**
  * Unfortunately, Logback's {@link ListAppender} isn't thread safe. This is a
  * thread-safe variant based on it. Technically speaking, it doesn't use a
- * {@link List} but a {@link ConcurrentLinkedQueue} and exposes items using a
+ * {@link List} but a {@link ChunkedArray} and exposes items using a
  * {@link Spliterator}.
  * 
  * @see ListAppender
@@ -20,10 +29,172 @@ import ch.qos.logback.core.read.ListAppender;
  */
 public class ConcurrentListAppender<E> extends AppenderBase<E> {
 
-    private ConcurrentLinkedQueue<E> list = new ConcurrentLinkedQueue<E>();
+    private final ChunkedArray<E> list = new ChunkedArray<>();
 
-    protected void append(E e) {
+    private final TimestampIndex timestampIndex = new TimestampIndex();
+
+    private final ToLongFunction<? super E> timestampExtractor;
+
+    private volatile Consumer<? super E> appendListener;
+
+    private volatile CaptureStatistics statistics = new CaptureStatistics();
+
+    private volatile ToLongFunction<? super E> sizeEstimator;
+
+    private volatile MemoryBudgetGuard memoryBudgetGuard;
+
+    private volatile UnaryOperator<E> itemDetacher;
+
+    private volatile EventDictionary<? super E> eventDictionary;
+
+    private volatile LoggingCostRecorder loggingCostRecorder;
+
+    private volatile Function<? super E, String> loggerNameExtractor;
+
+    /**
+     * Create a new instance that indexes items by the time they have been
+     * appended.
+     */
+    public ConcurrentListAppender() {
+        this(e -> System.currentTimeMillis());
+    }
+
+    /**
+     * Create a new instance that indexes items by their own timestamp.
+     * 
+     * @param timestampExtractor
+     *            The function extracting an item's timestamp in milliseconds
+     *            since the epoch.
+     */
+    public ConcurrentListAppender(ToLongFunction<? super E> timestampExtractor) {
+        this.timestampExtractor = timestampExtractor;
+    }
+
+    /*
+     * AppenderBase#doAppend is synchronized, so the list, the timestamp index
+     * and the event dictionary stay aligned.
+     */
+    protected void append(E original) {
+        LoggingCostRecorder costRecorder = loggingCostRecorder;
+        if (costRecorder == null) {
+            capture(original);
+        } else {
+            costRecorder.beginIfIdle();
+            try {
+                capture(original);
+            } finally {
+                costRecorder.end(loggerNameExtractor.apply(original));
+            }
+        }
+    }
+
+    private void capture(E original) {
+        long start = System.nanoTime();
+        UnaryOperator<E> detacher = itemDetacher;
+        E e = detacher == null ? original : detacher.apply(original);
+        if (list.isFull()) {
+            statistics.recordDropped();
+            return;
+        }
+        MemoryBudgetGuard guard = memoryBudgetGuard;
+        if (guard != null && !guard.tryRetain(sizeEstimator.applyAsLong(e))) {
+            return;
+        }
         list.add(e);
+        timestampIndex.add(timestampExtractor.applyAsLong(e));
+        EventDictionary<? super E> dictionary = eventDictionary;
+        if (dictionary != null) {
+            dictionary.add(e);
+        }
+        if (guard != null) {
+            guard.evictExcess(list, timestampIndex, dictionary);
+        }
+
+        Consumer<? super E> listener = appendListener;
+        if (listener != null) {
+            listener.accept(e);
+        }
+        statistics.recordCaptured(System.nanoTime() - start);
+    }
+
+    /**
+     * Set the callback that gets invoked with each item right after it has
+     * been stored.
+     * 
+     * @param appendListener
+     *            The callback, or <code>null</code> for none.
+     */
+    public void setAppendListener(Consumer<? super E> appendListener) {
+        this.appendListener = appendListener;
+    }
+
+    /**
+     * Set the function applied to each item before it is stored, which may
+     * return a copy that doesn't reference live objects the original holds
+     * on to.
+     * 
+     * @param itemDetacher
+     *            The function, or <code>null</code> to store items as they
+     *            are.
+     */
+    public void setItemDetacher(UnaryOperator<E> itemDetacher) {
+        this.itemDetacher = itemDetacher;
+    }
+
+    /**
+     * Set the guard accounting for the items' retained heap size and
+     * enforcing a memory budget on them.
+     * 
+     * @param memoryBudgetGuard
+     *            The {@link MemoryBudgetGuard}, or <code>null</code> for
+     *            none.
+     * @param sizeEstimator
+     *            The function estimating an item's retained heap size in
+     *            bytes.
+     */
+    public void setMemoryBudgetGuard(MemoryBudgetGuard memoryBudgetGuard,
+        ToLongFunction<? super E> sizeEstimator) {
+
+        this.sizeEstimator = sizeEstimator;
+        this.memoryBudgetGuard = memoryBudgetGuard;
+    }
+
+    /**
+     * Set the dictionary recording the ids of each stored item's logger name
+     * and message template. Must be set before the first item is appended.
+     * 
+     * @param eventDictionary
+     *            The {@link EventDictionary}, or <code>null</code> for none.
+     */
+    public void setEventDictionary(EventDictionary<? super E> eventDictionary) {
+        this.eventDictionary = eventDictionary;
+    }
+
+    /**
+     * Set the recorder measuring the cost of each log call that reaches this
+     * appender, unless measuring has been started before already.
+     * 
+     * @param loggingCostRecorder
+     *            The {@link LoggingCostRecorder}, or <code>null</code> for
+     *            none.
+     * @param loggerNameExtractor
+     *            The function extracting an item's logger name.
+     */
+    public void setLoggingCostRecorder(LoggingCostRecorder loggingCostRecorder,
+        Function<? super E, String> loggerNameExtractor) {
+
+        this.loggerNameExtractor = loggerNameExtractor;
+        this.loggingCostRecorder = loggingCostRecorder;
+    }
+
+    /**
+     * Set the recorder for this appender's capture overhead.
+     * 
+     * @param statistics
+     *            The {@link CaptureStatistics}.
+     */
+    public void setStatistics(CaptureStatistics statistics) {
+        this.statistics = statistics;
     }
 
     /**
@@ -34,4 +205,23 @@ public class ConcurrentListAppender<E> extends AppenderBase<E> {
     public Spliterator<E> spliterator() {
         return list.spliterator();
     }
+
+    /**
+     * Get the item storage, which supports positional access.
+     * 
+     * @return The {@link ChunkedArray} holding the items.
+     */
+    public ChunkedArray<E> getItems() {
+        return list;
+    }
+
+    /**
+     * Get the index over the items' timestamps, aligned with the items'
+     * order.
+     * 
+     * @return The {@link TimestampIndex}.
+     */
+    public TimestampIndex getTimestampIndex() {
+        return timestampIndex;
+    }
 }
@@ -0,0 +1,170 @@
+package io.github.netmikey.logunit.logback;
+
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Marker;
+import org.slf4j.event.KeyValuePair;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.LoggerContextVO;
+
+/**
+ * Copy of an {@link ILoggingEvent} to be retained instead of the original,
+ * replacing the original's references to live objects by detached
+ * representations.
+ */
+public class DetachedLoggingEvent implements ILoggingEvent {
+
+    private final String threadName;
+
+    private final Level level;
+
+    private final String message;
+
+    private final Object[] argumentArray;
+
+    private final String formattedMessage;
+
+    private final String loggerName;
+
+    private final LoggerContextVO loggerContextVO;
+
+    private final IThrowableProxy throwableProxy;
+
+    private final StackTraceElement[] callerData;
+
+    private final List<Marker> markerList;
+
+    private final Map<String, String> mdcPropertyMap;
+
+    private final long timeStamp;
+
+    private final int nanoseconds;
+
+    private final long sequenceNumber;
+
+    private final List<KeyValuePair> keyValuePairs;
+
+    /**
+     * Create a copy of the specified event.
+     * 
+     * @param original
+     *            The event to copy.
+     * @param throwableProxy
+     *            The replacement for the original's {@link IThrowableProxy}.
+     * @param argumentArray
+     *            The replacement for the original's arguments.
+     */
+    public DetachedLoggingEvent(ILoggingEvent original, IThrowableProxy throwableProxy, Object[] argumentArray) {
+        this.threadName = original.getThreadName();
+        this.level = original.getLevel();
+        this.message = original.getMessage();
+        this.argumentArray = argumentArray;
+        // Formats using the original arguments.
+        this.formattedMessage = original.getFormattedMessage();
+        this.loggerName = original.getLoggerName();
+        this.loggerContextVO = original.getLoggerContextVO();
+        this.throwableProxy = throwableProxy;
+        this.callerData = original.hasCallerData() ? original.getCallerData() : null;
+        this.markerList = original.getMarkerList();
+        this.mdcPropertyMap = original.getMDCPropertyMap();
+        this.timeStamp = original.getTimeStamp();
+        this.nanoseconds = original.getNanoseconds();
+        this.sequenceNumber = original.getSequenceNumber();
+        this.keyValuePairs = original.getKeyValuePairs();
+    }
+
+    @Override
+    public String getThreadName() {
+        return threadName;
+    }
+
+    @Override
+    public Level getLevel() {
+        return level;
+    }
+
+    @Override
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public Object[] getArgumentArray() {
+        return argumentArray;
+    }
+
+    @Override
+    public String getFormattedMessage() {
+        return formattedMessage;
+    }
+
+    @Override
+    public String getLoggerName() {
+        return loggerName;
+    }
+
+    @Override
+    public LoggerContextVO getLoggerContextVO() {
+        return loggerContextVO;
+    }
+
+    @Override
+    public IThrowableProxy getThrowableProxy() {
+        return throwableProxy;
+    }
+
+    @Override
+    public StackTraceElement[] getCallerData() {
+        return callerData;
+    }
+
+    @Override
+    public boolean hasCallerData() {
+        return callerData != null;
+    }
+
+    @Override
+    public List<Marker> getMarkerList() {
+        return markerList;
+    }
+
+    @Override
+    public Map<String, String> getMDCPropertyMap() {
+        return mdcPropertyMap;
+    }
+
+    @Override
+    @Deprecated
+    public Map<String, String> getMdc() {
+        return mdcPropertyMap;
+    }
+
+    @Override
+    public long getTimeStamp() {
+        return timeStamp;
+    }
+
+    @Override
+    public int getNanoseconds() {
+        return nanoseconds;
+    }
+
+    @Override
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    @Override
+    public List<KeyValuePair> getKeyValuePairs() {
+        return keyValuePairs;
+    }
+
+    @Override
+    public void prepareForDeferredProcessing() {
+        // Everything has been copied already.
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.netmikey.logunit.logback;
+
+import java.util.function.Predicate;
+
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import io.github.netmikey.logunit.core.DisabledCallCounter;
+
+/**
+ * A {@link TurboFilter} that counts log calls rejected by level. Turbo
+ * filters are consulted before Logback's level check, so they see calls that
+ * never become logging events. This filter never influences the decision.
+ */
+public class DisabledCallTurboFilter extends TurboFilter {
+
+    private final DisabledCallCounter counter;
+
+    private final Predicate<String> loggerNameFilter;
+
+    /**
+     * Create a new filter.
+     * 
+     * @param counter
+     *            The counter to record disabled calls to.
+     * @param loggerNameFilter
+     *            Whether calls to the logger with a given name should be
+     *            counted.
+     */
+    public DisabledCallTurboFilter(DisabledCallCounter counter, Predicate<String> loggerNameFilter) {
+        this.counter = counter;
+        this.loggerNameFilter = loggerNameFilter;
+    }
+
+    /*
+     * Level checks such as isDebugEnabled() consult turbo filters without a
+     * format, those are not log calls.
+     */
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+        Throwable t) {
+
+        if (format != null && level.levelInt < logger.getEffectiveLevel().levelInt
+            && loggerNameFilter.test(logger.getName())) {
+
+            counter.record(format, params);
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
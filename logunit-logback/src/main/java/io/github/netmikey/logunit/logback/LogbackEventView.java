@@ -0,0 +1,147 @@
+package io.github.netmikey.logunit.logback;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Marker;
+import org.slf4j.event.KeyValuePair;
+import org.slf4j.event.LoggingEvent;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+import io.github.netmikey.logunit.api.TemplatedLoggingEvent;
+import io.github.netmikey.logunit.core.ThrowableSnapshotFactory;
+
+/**
+ * {@link LoggingEvent} view over a Logback {@link ILoggingEvent}. A view can
+ * be pointed at another event, so a single instance can present any number of
+ * events one after another without allocating.
+ */
+public class LogbackEventView implements TemplatedLoggingEvent {
+
+    private final ThrowableSnapshotFactory proxySnapshotFactory;
+
+    private ILoggingEvent event;
+
+    /**
+     * Create a view that is not pointed at any event yet.
+     * 
+     * @param proxySnapshotFactory
+     *            The factory converting throwable proxies that don't hold the
+     *            original throwable.
+     */
+    public LogbackEventView(ThrowableSnapshotFactory proxySnapshotFactory) {
+        this.proxySnapshotFactory = proxySnapshotFactory;
+    }
+
+    /**
+     * Create a view over the specified event.
+     * 
+     * @param proxySnapshotFactory
+     *            The factory converting throwable proxies that don't hold the
+     *            original throwable.
+     * @param event
+     *            The event to present.
+     */
+    public LogbackEventView(ThrowableSnapshotFactory proxySnapshotFactory, ILoggingEvent event) {
+        this.proxySnapshotFactory = proxySnapshotFactory;
+        this.event = event;
+    }
+
+    /**
+     * Point this view at another event.
+     * 
+     * @param event
+     *            The event to present.
+     * @return A self-reference to this view.
+     */
+    public LogbackEventView setEvent(ILoggingEvent event) {
+        this.event = event;
+        return this;
+    }
+
+    @Override
+    public long getTimeStamp() {
+        return event.getTimeStamp();
+    }
+
+    @Override
+    public Throwable getThrowable() {
+        IThrowableProxy throwableProxy = event.getThrowableProxy();
+        if (throwableProxy == null) {
+            return null;
+        } else if (throwableProxy instanceof ThrowableProxy) {
+            return ((ThrowableProxy) throwableProxy).getThrowable();
+        } else {
+            return ThrowableSnapshotProxy.toSnapshot(throwableProxy, proxySnapshotFactory);
+        }
+    }
+
+    @Override
+    public String getThreadName() {
+        return event.getThreadName();
+    }
+
+    @Override
+    public String getMessage() {
+        return event.getFormattedMessage();
+    }
+
+    @Override
+    public String getMessageTemplate() {
+        return event.getMessage();
+    }
+
+    @Override
+    public List<Object> getArguments() {
+        Object[] arguments = event.getArgumentArray();
+        return arguments == null ? Collections.emptyList() : Arrays.asList(arguments);
+    }
+
+    @Override
+    public List<KeyValuePair> getKeyValuePairs() {
+        List<KeyValuePair> keyValuePairs = event.getKeyValuePairs();
+        return keyValuePairs == null ? Collections.emptyList() : keyValuePairs;
+    }
+
+    /*
+     * Logback's MDC adapter hands out a copy-on-write snapshot that events
+     * share until the MDC changes, so it is retained as it is.
+     */
+    @Override
+    public Map<String, String> getMdc() {
+        Map<String, String> mdc = event.getMDCPropertyMap();
+        return mdc == null ? Collections.emptyMap() : mdc;
+    }
+
+    // for compatibility with older apis
+    public Marker getMarker() {
+        @SuppressWarnings("deprecation")
+        Marker marker = event.getMarker();
+        return marker;
+    }
+
+    @Override
+    public List<Marker> getMarkers() {
+        List<Marker> markers = event.getMarkerList();
+        return markers == null ? Collections.emptyList() : markers;
+    }
+
+    @Override
+    public String getLoggerName() {
+        return event.getLoggerName();
+    }
+
+    @Override
+    public org.slf4j.event.Level getLevel() {
+        return LevelMapper.mapLevel(event.getLevel());
+    }
+
+    @Override
+    public Object[] getArgumentArray() {
+        return event.getArgumentArray();
+    }
+}
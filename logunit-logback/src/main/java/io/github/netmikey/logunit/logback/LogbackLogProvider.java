@@ -1,52 +1,179 @@
 package io.github.netmikey.logunit.logback;
 
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import org.junit.jupiter.api.extension.ExtensionContext;
 import org.slf4j.LoggerFactory;
-import org.slf4j.Marker;
-import org.slf4j.event.KeyValuePair;
 import org.slf4j.event.LoggingEvent;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.IThrowableProxy;
-import ch.qos.logback.classic.spi.ThrowableProxy;
+import io.github.netmikey.logunit.api.EventVisitor;
 import io.github.netmikey.logunit.api.LogCapturer;
+import io.github.netmikey.logunit.api.RateHistogram;
+import io.github.netmikey.logunit.core.ArgumentSnapshots;
 import io.github.netmikey.logunit.core.BaseLogProvider;
+import io.github.netmikey.logunit.core.EventDictionary;
+import io.github.netmikey.logunit.core.KeyValueIndex;
+import io.github.netmikey.logunit.core.LoggingCostRecorder;
+import io.github.netmikey.logunit.core.RetainedSizeEstimator;
+import io.github.netmikey.logunit.core.ThrowableSnapshotFactory;
 
 /**
  * {@link LogCapturer} implementation based on Logback.
  */
 public class LogbackLogProvider extends BaseLogProvider {
 
-    private final ConcurrentListAppender<ILoggingEvent> listAppender = new ConcurrentListAppender<>();
+    private final ConcurrentListAppender<ILoggingEvent> listAppender = new ConcurrentListAppender<>(
+        ILoggingEvent::getTimeStamp);
 
     private final Map<String, Level> originalLevels = new HashMap<>();
 
+    private final EventDictionary<ILoggingEvent> eventDictionary = new EventDictionary<>(
+        ILoggingEvent::getLoggerName, ILoggingEvent::getMessage, ILoggingEvent::getArgumentArray,
+        ILoggingEvent::getTimeStamp);
+
+    private DisabledCallTurboFilter disabledCallTurboFilter;
+
+    private LoggingCostTurboFilter loggingCostTurboFilter;
+
+    private PatternLevelTurboFilter patternLevelTurboFilter;
+
+    private PatternRoutingAppender patternRoutingAppender;
+
+    /**
+     * Converts throwable proxies that don't hold the original throwable.
+     */
+    private final ThrowableSnapshotFactory proxySnapshotFactory = new ThrowableSnapshotFactory(Integer.MAX_VALUE);
+
+    /**
+     * Default constructor.
+     */
+    public LogbackLogProvider() {
+        super();
+        listAppender.setStatistics(getStatistics());
+        listAppender.setItemDetacher(this::detach);
+        listAppender.setEventDictionary(eventDictionary);
+        listAppender.setMemoryBudgetGuard(getMemoryBudgetGuard(), this::estimateRetainedSize);
+        listAppender.setAppendListener(iEvent -> {
+            if (hasCaptureListeners()) {
+                fireEventCaptured(mapEvent(iEvent));
+            }
+        });
+    }
+
     @Override
     public List<LoggingEvent> getEvents() {
-        return StreamSupport.stream(listAppender.spliterator(), false)
-            .map(this::mapEvent)
-            .collect(Collectors.toList());
+        return streamEvents(false).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<LoggingEvent> streamEvents(boolean parallel) {
+        return StreamSupport.stream(listAppender.spliterator(), parallel).map(this::mapEvent);
+    }
+
+    @Override
+    public void forEachEvent(EventVisitor visitor) {
+        LogbackEventView view = new LogbackEventView(proxySnapshotFactory);
+        listAppender.spliterator().forEachRemaining(iEvent -> visitor.visit(view.setEvent(iEvent)));
+    }
+
+    @Override
+    public List<LoggingEvent> getEventsBetween(long fromMillis, long toMillis) {
+        return getEventsBetween(listAppender.getItems(), listAppender.getTimestampIndex(),
+            fromMillis, toMillis, this::mapEvent);
+    }
+
+    @Override
+    public List<LoggingEvent> getEventsFromLogger(String loggerName) {
+        return getEventsWithId(listAppender.getItems(), eventDictionary.getLoggerNameIds(),
+            eventDictionary.getLoggerNames().lookup(loggerName), this::mapEvent);
+    }
+
+    @Override
+    public List<LoggingEvent> getEventsWithTemplate(String template) {
+        return getEventsWithTemplate(listAppender.getItems(), eventDictionary, template, ILoggingEvent::getMessage,
+            this::mapEvent);
+    }
+
+    @Override
+    public List<LoggingEvent> getEventsWithKey(String key, Object value) {
+        KeyValueIndex index = eventDictionary.getKeyValueIndex();
+        if (index == null || !index.isIndexed(key)) {
+            return super.getEventsWithKey(key, value);
+        }
+        return getEventsWithKey(listAppender.getItems(), index, key, value, this::mapEvent);
+    }
+
+    @Override
+    public void setIndexedKeys(Set<String> keys) {
+        eventDictionary.indexKeys(keys,
+            (iEvent, key) -> KeyValueIndex.valueOf(iEvent.getKeyValuePairs(), iEvent.getMDCPropertyMap(), key));
+    }
+
+    @Override
+    public RateHistogram getRateHistogram(String loggerName) {
+        return eventDictionary.getLoggerRates().histogram(eventDictionary.getLoggerNames().lookup(loggerName));
     }
 
     @Override
     public void beforeTestExecution(ExtensionContext context) {
-        addAppenderToLoggingSources();
-        listAppender.start();
+        reconfigureBeforeTestExecution(() -> {
+            addAppenderToLoggingSources();
+            listAppender.start();
+            if (!getLoggerPatterns().isEmpty()) {
+                attachPatternRouting();
+            }
+            if (isDisabledCallDetection()) {
+                disabledCallTurboFilter = new DisabledCallTurboFilter(getDisabledCallCounter(),
+                    loggerName -> getCaptureLevel(loggerName) != null);
+                disabledCallTurboFilter.start();
+                getLoggerContext().addTurboFilter(disabledCallTurboFilter);
+            }
+            LoggingCostRecorder loggingCostRecorder = getLoggingCostRecorder();
+            if (loggingCostRecorder != null) {
+                listAppender.setLoggingCostRecorder(loggingCostRecorder, ILoggingEvent::getLoggerName);
+                loggingCostTurboFilter = new LoggingCostTurboFilter(loggingCostRecorder,
+                    loggerName -> getCaptureLevel(loggerName) != null);
+                loggingCostTurboFilter.start();
+                getLoggerContext().addTurboFilter(loggingCostTurboFilter);
+            }
+        });
     }
 
     @Override
     public void afterTestExecution(ExtensionContext context) {
-        listAppender.stop();
-        detachAppenderFromLoggingSources();
+        reconfigureAfterTestExecution(() -> {
+            if (disabledCallTurboFilter != null) {
+                getLoggerContext().getTurboFilterList().remove(disabledCallTurboFilter);
+                disabledCallTurboFilter.stop();
+                disabledCallTurboFilter = null;
+            }
+            if (loggingCostTurboFilter != null) {
+                getLoggerContext().getTurboFilterList().remove(loggingCostTurboFilter);
+                loggingCostTurboFilter.stop();
+                loggingCostTurboFilter = null;
+                listAppender.setLoggingCostRecorder(null, null);
+            }
+            if (patternRoutingAppender != null) {
+                detachPatternRouting();
+            }
+            listAppender.stop();
+            detachAppenderFromLoggingSources();
+        });
+    }
+
+    private LoggerContext getLoggerContext() {
+        return (LoggerContext) LoggerFactory.getILoggerFactory();
     }
 
     private void addAppenderToLoggingSources() {
@@ -67,6 +194,28 @@ public class LogbackLogProvider extends BaseLogProvider {
         }
     }
 
+    /*
+     * The turbo filter goes first so that calls it enables aren't judged by
+     * the logger's own level by the filters after it.
+     */
+    private void attachPatternRouting() {
+        patternLevelTurboFilter = new PatternLevelTurboFilter(this::getPatternCaptureLevel);
+        patternLevelTurboFilter.start();
+        getLoggerContext().getTurboFilterList().add(0, patternLevelTurboFilter);
+        patternRoutingAppender = new PatternRoutingAppender(listAppender, this::getPatternCaptureLevel);
+        patternRoutingAppender.start();
+        getLoggerContext().getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME).addAppender(patternRoutingAppender);
+    }
+
+    private void detachPatternRouting() {
+        getLoggerContext().getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME).detachAppender(patternRoutingAppender);
+        patternRoutingAppender.stop();
+        patternRoutingAppender = null;
+        getLoggerContext().getTurboFilterList().remove(patternLevelTurboFilter);
+        patternLevelTurboFilter.stop();
+        patternLevelTurboFilter = null;
+    }
+
     private void addAppenderToType(Class<?> type, Level level) {
         addAppenderToLogger((Logger) LoggerFactory.getLogger(type), level);
     }
@@ -97,73 +246,58 @@ public class LogbackLogProvider extends BaseLogProvider {
         }
     }
 
-    private LoggingEvent mapEvent(ILoggingEvent iEvent) {
-        return new LoggingEvent() {
-
-            @Override
-            public long getTimeStamp() {
-                return iEvent.getTimeStamp();
-            }
-
-            @Override
-            public Throwable getThrowable() {
-                IThrowableProxy throwableProxy = iEvent.getThrowableProxy();
-                if (throwableProxy == null) {
-                    return null;
-                } else if (throwableProxy instanceof ThrowableProxy) {
-                    return ((ThrowableProxy) throwableProxy).getThrowable();
-                } else {
-                    throw new IllegalStateException(
-                        "Don't know how to extract the actual Throwable from " + throwableProxy.getClassName());
-                }
-            }
-
-            @Override
-            public String getThreadName() {
-                return iEvent.getThreadName();
-            }
-
-            @Override
-            public String getMessage() {
-                return iEvent.getFormattedMessage();
-            }
-
-            @Override
-            public List<Object> getArguments() {
-                return Arrays.asList(iEvent.getArgumentArray());
-            }
-
-            @Override
-            public List<KeyValuePair> getKeyValuePairs() {
-                return iEvent.getKeyValuePairs();
-            }
-
-            // for compatibility with older apis
-            public Marker getMarker() {
-                @SuppressWarnings("deprecation")
-                Marker marker = iEvent.getMarker();
-                return marker;
-            }
+    private ILoggingEvent detach(ILoggingEvent iEvent) {
+        ThrowableSnapshotFactory throwableSnapshotFactory = getThrowableSnapshotFactory();
+        boolean detachThrowable = throwableSnapshotFactory != null && iEvent.getThrowableProxy() != null;
+        boolean detachArguments = isDetachArguments() && iEvent.getArgumentArray() != null;
+        if (!detachThrowable && !detachArguments) {
+            return iEvent;
+        }
+        IThrowableProxy throwableProxy = detachThrowable
+            ? new ThrowableSnapshotProxy(
+                ThrowableSnapshotProxy.toSnapshot(iEvent.getThrowableProxy(), throwableSnapshotFactory))
+            : iEvent.getThrowableProxy();
+        Object[] arguments = detachArguments
+            ? ArgumentSnapshots.detach(iEvent.getArgumentArray())
+            : iEvent.getArgumentArray();
+        return new DetachedLoggingEvent(iEvent, throwableProxy, arguments);
+    }
 
-            @Override
-            public List<Marker> getMarkers() {
-                return iEvent.getMarkerList();
+    private long estimateRetainedSize(ILoggingEvent iEvent) {
+        long size = RetainedSizeEstimator.EVENT_OVERHEAD
+            + RetainedSizeEstimator.estimate(iEvent.getMessage())
+            + RetainedSizeEstimator.estimate(iEvent.getArgumentArray())
+            + RetainedSizeEstimator.estimate(iEvent.getMDCPropertyMap());
+        for (IThrowableProxy proxy = iEvent.getThrowableProxy(); proxy != null; proxy = proxy.getCause()) {
+            if (proxy instanceof ThrowableSnapshotProxy) {
+                size += RetainedSizeEstimator.estimate(((ThrowableSnapshotProxy) proxy).getSnapshot());
+                break;
             }
+            size += RetainedSizeEstimator.estimateThrowable(proxy.getMessage(),
+                proxy.getStackTraceElementProxyArray().length);
+        }
+        return size;
+    }
 
-            @Override
-            public String getLoggerName() {
-                return iEvent.getLoggerName();
-            }
+    private LoggingEvent mapEvent(ILoggingEvent iEvent) {
+        return new LogbackEventView(proxySnapshotFactory, iEvent);
+    }
 
-            @Override
-            public org.slf4j.event.Level getLevel() {
-                return LevelMapper.mapLevel(iEvent.getLevel());
-            }
+    /**
+     * Get the appender holding the captured events, for tests.
+     * 
+     * @return Returns the listAppender.
+     */
+    ConcurrentListAppender<ILoggingEvent> getListAppender() {
+        return listAppender;
+    }
 
-            @Override
-            public Object[] getArgumentArray() {
-                return iEvent.getArgumentArray();
-            }
-        };
+    /**
+     * Get the dictionary of the captured events, for tests.
+     * 
+     * @return Returns the eventDictionary.
+     */
+    EventDictionary<ILoggingEvent> getEventDictionary() {
+        return eventDictionary;
     }
 }
@@ -0,0 +1,50 @@
+package io.github.netmikey.logunit.logback;
+
+import java.util.function.Predicate;
+
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import io.github.netmikey.logunit.core.LoggingCostRecorder;
+
+/**
+ * A {@link TurboFilter} that starts measuring the cost of each enabled log
+ * call. Turbo filters are consulted at the very start of a log call, before
+ * Logback creates the logging event, so the measurement includes all of
+ * Logback's work. This filter never influences the decision.
+ */
+public class LoggingCostTurboFilter extends TurboFilter {
+
+    private final LoggingCostRecorder recorder;
+
+    private final Predicate<String> loggerNameFilter;
+
+    /**
+     * Create a new filter.
+     * 
+     * @param recorder
+     *            The recorder to start measurements on.
+     * @param loggerNameFilter
+     *            Whether calls to the logger with a given name should be
+     *            measured.
+     */
+    public LoggingCostTurboFilter(LoggingCostRecorder recorder, Predicate<String> loggerNameFilter) {
+        this.recorder = recorder;
+        this.loggerNameFilter = loggerNameFilter;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+        Throwable t) {
+
+        if (format != null && level.levelInt >= logger.getEffectiveLevel().levelInt
+            && loggerNameFilter.test(logger.getName())) {
+
+            recorder.begin();
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
@@ -0,0 +1,43 @@
+package io.github.netmikey.logunit.logback;
+
+import java.util.function.Function;
+
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * A {@link TurboFilter} that enables the levels captured for loggers matched
+ * by pattern. Such loggers may be created at any time, so instead of
+ * lowering their levels, this filter accepts their log calls at or above the
+ * captured level before Logback's level check rejects them.
+ */
+public class PatternLevelTurboFilter extends TurboFilter {
+
+    private final Function<String, org.slf4j.event.Level> captureLevelLookup;
+
+    /**
+     * Create a new filter.
+     * 
+     * @param captureLevelLookup
+     *            The level at which the logger with a given name is captured
+     *            by pattern, or <code>null</code> if it isn't.
+     */
+    public PatternLevelTurboFilter(Function<String, org.slf4j.event.Level> captureLevelLookup) {
+        this.captureLevelLookup = captureLevelLookup;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+        Throwable t) {
+
+        org.slf4j.event.Level captureLevel = captureLevelLookup.apply(logger.getName());
+        if (captureLevel != null && level.levelInt >= LevelMapper.mapLevel(captureLevel).levelInt) {
+            return FilterReply.ACCEPT;
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
@@ -0,0 +1,45 @@
+package io.github.netmikey.logunit.logback;
+
+import java.util.function.Function;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+/**
+ * An {@link Appender} attached to the root logger that forwards the events of
+ * loggers matched by pattern at or above their captured level to the actual
+ * capturing appender. Events of all other loggers are ignored, so events of
+ * loggers the capturing appender is attached to directly are not captured
+ * twice.
+ */
+public class PatternRoutingAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private final Appender<ILoggingEvent> target;
+
+    private final Function<String, org.slf4j.event.Level> captureLevelLookup;
+
+    /**
+     * Create a new appender.
+     * 
+     * @param target
+     *            The appender to forward matching events to.
+     * @param captureLevelLookup
+     *            The level at which the logger with a given name is captured
+     *            by pattern, or <code>null</code> if it isn't.
+     */
+    public PatternRoutingAppender(Appender<ILoggingEvent> target,
+        Function<String, org.slf4j.event.Level> captureLevelLookup) {
+
+        this.target = target;
+        this.captureLevelLookup = captureLevelLookup;
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        org.slf4j.event.Level captureLevel = captureLevelLookup.apply(event.getLoggerName());
+        if (captureLevel != null && event.getLevel().levelInt >= LevelMapper.mapLevel(captureLevel).levelInt) {
+            target.doAppend(event);
+        }
+    }
+}
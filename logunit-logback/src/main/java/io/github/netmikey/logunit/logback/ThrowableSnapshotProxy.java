@@ -0,0 +1,113 @@
+package io.github.netmikey.logunit.logback;
+
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.StackTraceElementProxy;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+import io.github.netmikey.logunit.api.ThrowableSnapshot;
+import io.github.netmikey.logunit.core.ThrowableSnapshotFactory;
+
+/**
+ * {@link IThrowableProxy} presenting a {@link ThrowableSnapshot} to Logback.
+ */
+public class ThrowableSnapshotProxy implements IThrowableProxy {
+
+    private static final IThrowableProxy[] NO_SUPPRESSED = new IThrowableProxy[0];
+
+    private static final int MAX_CAUSE_DEPTH = 32;
+
+    private final ThrowableSnapshot snapshot;
+
+    /**
+     * Create a new proxy.
+     * 
+     * @param snapshot
+     *            The snapshot to present.
+     */
+    public ThrowableSnapshotProxy(ThrowableSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Get the snapshot of any {@link IThrowableProxy} and its causes, e.g. of
+     * a deserialized one that doesn't hold the original throwable.
+     * 
+     * @param proxy
+     *            The proxy, may be <code>null</code>.
+     * @param factory
+     *            The factory to create the snapshot with.
+     * @return The snapshot, or <code>null</code> if the proxy was
+     *         <code>null</code>.
+     */
+    public static ThrowableSnapshot toSnapshot(IThrowableProxy proxy, ThrowableSnapshotFactory factory) {
+        return toSnapshot(proxy, factory, 0);
+    }
+
+    private static ThrowableSnapshot toSnapshot(IThrowableProxy proxy, ThrowableSnapshotFactory factory, int depth) {
+        if (proxy == null) {
+            return null;
+        } else if (proxy instanceof ThrowableSnapshotProxy) {
+            return ((ThrowableSnapshotProxy) proxy).getSnapshot();
+        } else if (proxy instanceof ThrowableProxy) {
+            return factory.snapshot(((ThrowableProxy) proxy).getThrowable());
+        }
+        ThrowableSnapshot cause = depth < MAX_CAUSE_DEPTH && !proxy.isCyclic()
+            ? toSnapshot(proxy.getCause(), factory, depth + 1)
+            : null;
+        StackTraceElementProxy[] frameProxies = proxy.getStackTraceElementProxyArray();
+        StackTraceElement[] stackTrace = new StackTraceElement[frameProxies.length];
+        for (int i = 0; i < frameProxies.length; i++) {
+            stackTrace[i] = frameProxies[i].getStackTraceElement();
+        }
+        return factory.snapshot(proxy.getClassName(), proxy.getMessage(), stackTrace, cause);
+    }
+
+    /**
+     * Get the snapshot.
+     * 
+     * @return Returns the snapshot.
+     */
+    public ThrowableSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public String getMessage() {
+        return snapshot.getMessage();
+    }
+
+    @Override
+    public String getClassName() {
+        return snapshot.getClassName();
+    }
+
+    @Override
+    public StackTraceElementProxy[] getStackTraceElementProxyArray() {
+        StackTraceElement[] stackTrace = snapshot.getStackTrace();
+        StackTraceElementProxy[] frameProxies = new StackTraceElementProxy[stackTrace.length];
+        for (int i = 0; i < stackTrace.length; i++) {
+            frameProxies[i] = new StackTraceElementProxy(stackTrace[i]);
+        }
+        return frameProxies;
+    }
+
+    @Override
+    public int getCommonFrames() {
+        return 0;
+    }
+
+    @Override
+    public IThrowableProxy getCause() {
+        ThrowableSnapshot cause = snapshot.getCause();
+        return cause == null ? null : new ThrowableSnapshotProxy(cause);
+    }
+
+    @Override
+    public IThrowableProxy[] getSuppressed() {
+        return NO_SUPPRESSED;
+    }
+
+    @Override
+    public boolean isCyclic() {
+        return false;
+    }
+}
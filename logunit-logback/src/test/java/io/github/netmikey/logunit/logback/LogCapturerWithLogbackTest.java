@@ -7,16 +7,47 @@ import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 import org.slf4j.event.KeyValuePair;
 import org.slf4j.event.Level;
 
+import ch.qos.logback.classic.spi.LoggingEventVO;
+import io.github.netmikey.logunit.api.DisabledCallStats;
+import io.github.netmikey.logunit.api.EventFlow;
 import io.github.netmikey.logunit.api.LogCapturer;
+import io.github.netmikey.logunit.api.LoggingCost;
+import io.github.netmikey.logunit.api.MemoryBudgetPolicy;
+import io.github.netmikey.logunit.api.RateHistogram;
+import io.github.netmikey.logunit.api.TemplateCardinality;
+import io.github.netmikey.logunit.api.TemplatedLoggingEvent;
+import io.github.netmikey.logunit.api.ThrowableSnapshot;
+import io.github.netmikey.logunit.core.LogProviderFactorySpiLoader;
 import org.slf4j.event.LoggingEvent;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Unit test that uses Logback, applies {@link LogCapturer}s and validates their
@@ -33,6 +64,24 @@ public class LogCapturerWithLogbackTest {
 
     private static final String LOGGER_NAME = "CUSTOM_LOGGER";
 
+    private static final String FAIL_FAST_LOGGER_NAME = "FAIL_FAST_LOGGER";
+
+    private static final String BUDGET_LOGGER_NAME = "BUDGET_LOGGER";
+
+    private static final String VOLUME_LOGGER_NAME = "VOLUME_LOGGER";
+
+    private static final String DISABLED_LOGGER_NAME = "DISABLED_LOGGER";
+
+    private static final String COST_LOGGER_NAME = "COST_LOGGER";
+
+    private static final String PACKAGE_NAME = "io.github.netmikey.logunit.captured";
+
+    private static final String RATE_LOGGER_NAME = "RATE_LOGGER";
+
+    private static final String EXPORT_LOGGER_NAME = "EXPORT_LOGGER";
+
+    private static final String STRUCTURED_LOGGER_NAME = "STRUCTURED_LOGGER";
+
     private Logger testLogger = LoggerFactory.getLogger(LogCapturerWithLogbackTest.class);
 
     private Logger namedLogger = LoggerFactory.getLogger(LOGGER_NAME);
@@ -48,7 +97,7 @@ public class LogCapturerWithLogbackTest {
      * </ul>
      */
     @Test
-    public void test1CaptureMessages() {
+    public void test01CaptureMessages() {
         logEverythingOnce(testLogger);
         logEverythingOnce(namedLogger);
 
@@ -71,7 +120,7 @@ public class LogCapturerWithLogbackTest {
      * Test that {@link LogCapturer}s are being reset after each test.
      */
     @Test
-    public void test2CapturerReset() {
+    public void test02CapturerReset() {
         Assertions.assertEquals(0, testLoggerInfoCapturer.size());
         Assertions.assertEquals(0, namedLoggerWarnCapturer.size());
     }
@@ -80,7 +129,7 @@ public class LogCapturerWithLogbackTest {
      * Test that custom predicate matching works.
      */
     @Test
-    public void test3CustomPredicates() {
+    public void test03CustomPredicates() {
         logEverythingOnce(testLogger);
 
         testLoggerInfoCapturer.assertDoesNotContain(e -> LOGGER_NAME.equals(e.getLoggerName()),
@@ -95,7 +144,7 @@ public class LogCapturerWithLogbackTest {
      * Test that the values of the new fluent interface can be accessed
      */
     @Test
-    void test4FluentApi() {
+    void test04FluentApi() {
         Marker marker1 = MarkerFactory.getMarker("Marker 1");
         Marker marker2 = MarkerFactory.getMarker("Marker 2");
         testLogger
@@ -123,6 +172,716 @@ public class LogCapturerWithLogbackTest {
         Assertions.assertEquals("key2=\"value2\"", pairs.get(1).toString());
     }
 
+    /**
+     * Test that log events can be looked up by the time window they have
+     * been logged in.
+     * 
+     * @throws Exception
+     *             Unexpected failure.
+     */
+    @Test
+    void test05EventsBetween() throws Exception {
+        Instant beforeFirst = Instant.now();
+        testLogger.info("First message");
+        Thread.sleep(20);
+        Instant beforeSecond = Instant.now();
+        testLogger.info("Second message");
+        Instant afterSecond = Instant.now();
+
+        List<LoggingEvent> first = testLoggerInfoCapturer.eventsBetween(beforeFirst, beforeSecond.minusMillis(1));
+        Assertions.assertEquals(1, first.size());
+        Assertions.assertEquals("First message", first.get(0).getMessage());
+
+        List<LoggingEvent> both = testLoggerInfoCapturer.eventsBetween(beforeFirst, afterSecond);
+        Assertions.assertEquals(2, both.size());
+        Assertions.assertEquals("Second message", both.get(1).getMessage());
+
+        Assertions.assertTrue(testLoggerInfoCapturer.eventsBetween(afterSecond.plusSeconds(1),
+            afterSecond.plusSeconds(2)).isEmpty());
+
+        testLoggerInfoCapturer.assertContainsWithin(Duration.ofMinutes(1),
+            e -> e.getMessage().equals("Second message"));
+    }
+
+    /**
+     * Test that subscribers of the {@link LogCapturer}'s publisher receive
+     * events as they are being logged.
+     * 
+     * @throws Exception
+     *             Unexpected failure.
+     */
+    @Test
+    void test06Publisher() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(2);
+        testLoggerInfoCapturer.publisher().subscribe(new EventFlow.Subscriber<LoggingEvent>() {
+
+            @Override
+            public void onSubscribe(EventFlow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(LoggingEvent item) {
+                received.add(item.getMessage());
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                // Not expected.
+            }
+
+            @Override
+            public void onComplete() {
+                // Not expected during the test.
+            }
+        });
+
+        testLogger.debug("Not captured");
+        testLogger.info("First published");
+        testLogger.warn("Second published");
+
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS), "should receive both events");
+        Assertions.assertEquals(Arrays.asList("First published", "Second published"), received);
+    }
+
+    /**
+     * Test that a fail-fast {@link LogCapturer} interrupts the test as soon as
+     * a matching event is logged and fails it afterwards.
+     * 
+     * @throws Exception
+     *             Unexpected failure.
+     */
+    @Test
+    void test07FailFast() throws Exception {
+        LogCapturer failFastCapturer = LogCapturer.create()
+            .captureForLogger(FAIL_FAST_LOGGER_NAME)
+            .failFastOn(e -> Level.ERROR.equals(e.getLevel()));
+        Logger failFastLogger = LoggerFactory.getLogger(FAIL_FAST_LOGGER_NAME);
+
+        AssertionError failure = Assertions.assertThrows(AssertionError.class,
+            () -> captureDuring(failFastCapturer, () -> {
+                failFastLogger.warn("Not fatal");
+                Thread worker = new Thread(() -> failFastLogger.error("Doomed"));
+                worker.start();
+                Assertions.assertThrows(InterruptedException.class, () -> Thread.sleep(10_000));
+                worker.join();
+            }));
+        Assertions.assertTrue(failure.getMessage().contains("Doomed"));
+        Assertions.assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    /**
+     * Test that captured events can be searched with a parallel stream.
+     */
+    @Test
+    void test08ParallelEvents() {
+        for (int i = 0; i < 5000; i++) {
+            testLogger.info("Message number {}", i);
+        }
+
+        Assertions.assertTrue(testLoggerInfoCapturer.parallelEvents().isParallel());
+        Assertions.assertEquals(500, testLoggerInfoCapturer.parallelEvents()
+            .filter(e -> e.getMessage().matches("Message number \\d*0"))
+            .count());
+        Assertions.assertEquals(5000, testLoggerInfoCapturer.parallelEvents().count());
+    }
+
+    /**
+     * Test that a {@link LogCapturer} with a memory budget evicts the oldest
+     * events once the budget is reached.
+     * 
+     * @throws Exception
+     *             Unexpected failure.
+     */
+    @Test
+    void test09MemoryBudgetEvicts() throws Exception {
+        LogCapturer budgetCapturer = LogCapturer.create()
+            .captureForLogger(BUDGET_LOGGER_NAME)
+            .withMemoryBudget(20_000)
+            .withKeyIndex("i");
+        Logger budgetLogger = LoggerFactory.getLogger(BUDGET_LOGGER_NAME);
+        String payload = String.join("", Collections.nCopies(1000, "x"));
+
+        captureDuring(budgetCapturer, () -> {
+            for (int i = 0; i < 100; i++) {
+                budgetLogger.info("Payload {} " + payload, i);
+            }
+            Assertions.assertTrue(budgetCapturer.stats().getEstimatedRetainedBytes() <= 20_000);
+            Assertions.assertTrue(budgetCapturer.size() > 0 && budgetCapturer.size() < 100);
+            Assertions.assertEquals(100 - budgetCapturer.size(), budgetCapturer.stats().getEventsEvicted());
+            budgetCapturer.assertDoesNotContain("Payload 0 ");
+            budgetCapturer.assertContains("Payload 99 ");
+            Assertions.assertEquals(budgetCapturer.size(),
+                budgetCapturer.eventsBetween(Instant.EPOCH, Instant.now()).size());
+
+            for (int i = 0; i < 3000; i++) {
+                budgetLogger.atInfo().addKeyValue("i", i).log("Small {}", i);
+            }
+        });
+
+        // The structures aligned with the evicted events have been trimmed.
+        LogbackLogProvider provider = (LogbackLogProvider) budgetCapturer.getLogProvider();
+        int evicted = provider.getListAppender().getItems().firstIndex();
+        Assertions.assertEquals(3100 - budgetCapturer.size(), evicted);
+        Assertions.assertTrue(evicted >= 2048, "evicted " + evicted);
+        Assertions.assertEquals(evicted & ~1023, provider.getListAppender().getTimestampIndex().firstIndex());
+        Assertions.assertEquals(evicted & ~1023, provider.getEventDictionary().getLoggerNameIds().firstIndex());
+        Assertions.assertEquals(evicted & ~1023, provider.getEventDictionary().getTemplateIds().firstIndex());
+        Assertions.assertNull(provider.getEventDictionary().getKeyValueIndex().getPositions("i", 0));
+        Assertions.assertEquals(1, budgetCapturer.eventsWithKey("i", 2999).size());
+        Assertions.assertEquals(budgetCapturer.size(),
+            budgetCapturer.rateHistogram(BUDGET_LOGGER_NAME).getTotalEvents());
+        Assertions.assertEquals(budgetCapturer.size(),
+            budgetCapturer.eventsBetween(Instant.EPOCH, Instant.now()).size());
+    }
+
+    /**
+     * Test that a {@link LogCapturer} with a failing memory budget stops
+     * retaining events once the budget is reached and fails the test
+     * afterwards.
+     * 
+     * @throws Exception
+     *             Unexpected failure.
+     */
+    @Test
+    void test10MemoryBudgetFails() throws Exception {
+        LogCapturer budgetCapturer = LogCapturer.create()
+            .captureForLogger(BUDGET_LOGGER_NAME)
+            .withMemoryBudget(20_000, MemoryBudgetPolicy.FAIL);
+        Logger budgetLogger = LoggerFactory.getLogger(BUDGET_LOGGER_NAME);
+        String payload = String.join("", Collections.nCopies(1000, "x"));
+
+        AssertionError failure = Assertions.assertThrows(AssertionError.class,
+            () -> captureDuring(budgetCapturer, () -> {
+                for (int i = 0; i < 100; i++) {
+                    budgetLogger.info("Payload {} " + payload, i);
+                }
+            }));
+        Assertions.assertTrue(failure.getMessage().contains("memory budget of 20000 bytes"));
+        budgetCapturer.assertContains("Payload 0 ");
+        budgetCapturer.assertDoesNotContain("Payload 99 ");
+    }
+
+    /**
+     * Test that events whose throwable proxy doesn't hold the original
+     * throwable, like the ones replayed from a remote logback instance,
+     * expose a snapshot of it.
+     */
+    @Test
+    void test11RemoteThrowableProxy() {
+        ch.qos.logback.classic.Logger logbackLogger = (ch.qos.logback.classic.Logger) testLogger;
+        LoggingEventVO remoteEvent = LoggingEventVO.build(new ch.qos.logback.classic.spi.LoggingEvent(
+            getClass().getName(), logbackLogger, ch.qos.logback.classic.Level.ERROR, "Remote failure",
+            new IllegalStateException("Remote cause"), null));
+
+        logbackLogger.callAppenders(remoteEvent);
+
+        Throwable throwable = testLoggerInfoCapturer.assertContains("Remote failure").getThrowable();
+        Assertions.assertTrue(throwable instanceof ThrowableSnapshot);
+        Assertions.assertEquals(IllegalStateException.class.getName(),
+            ((ThrowableSnapshot) throwable).getClassName());
+        Assertions.assertEquals("Remote cause", throwable.getMessage());
+        Assertions.assertTrue(throwable.getStackTrace().length > 0);
+    }
+
+    /**
+     * Test that a {@link LogCapturer} with compact throwables retains
+     * snapshots instead of the logged throwables.
+     * 
+     * @throws Exception
+     *             Unexpected failure.
+     */
+    @Test
+    void test12CompactThrowables() throws Exception {
+        LogCapturer compactCapturer = LogCapturer.create()
+            .captureForLogger(BUDGET_LOGGER_NAME)
+            .withCompactThrowables();
+        Logger compactLogger = LoggerFactory.getLogger(BUDGET_LOGGER_NAME);
+        IllegalStateException thrown = new IllegalStateException("Outer", new IllegalArgumentException("Inner"));
+
+        captureDuring(compactCapturer, () -> {
+            compactLogger.error("Failure number {}", 1, thrown);
+        });
+
+        LoggingEvent event = compactCapturer.assertContains("Failure number 1");
+        Assertions.assertTrue(event.getThrowable() instanceof ThrowableSnapshot);
+        ThrowableSnapshot snapshot = (ThrowableSnapshot) event.getThrowable();
+        Assertions.assertEquals(IllegalStateException.class.getName(), snapshot.getClassName());
+        Assertions.assertEquals("java.lang.IllegalStateException: Outer", snapshot.toString());
+        Assertions.assertEquals("Inner", snapshot.getCause().getMessage());
+        Assertions.assertEquals(Arrays.asList(1), event.getArguments());
+    }
+
+    /**
+     * Test that a {@link LogCapturer} with detached arguments retains the
+     * arguments' state at the time they have been logged instead of the
+     * arguments themselves.
+     * 
+     * @throws Exception
+     *             Unexpected failure.
+     */
+    @Test
+    void test13DetachedArguments() throws Exception {
+        LogCapturer detachedCapturer = LogCapturer.create()
+            .captureForLogger(BUDGET_LOGGER_NAME)
+            .withDetachedArguments();
+        Logger detachedLogger = LoggerFactory.getLogger(BUDGET_LOGGER_NAME);
+        StringBuilder mutable = new StringBuilder("before");
+
+        captureDuring(detachedCapturer, () -> {
+            detachedLogger.info("Logged {} with {} and {}", mutable, 42, new int[] { 1, 2 });
+            mutable.append(" and after");
+        });
+
+        LoggingEvent event = detachedCapturer.assertContains("Logged before with 42 and [1, 2]");
+        Assertions.assertEquals(Arrays.asList("before", 42, "[1, 2]"), event.getArguments());
+    }
+
+    /**
+     * Test that the visitor API visits all events in order through a single,
+     * reused view.
+     */
+    @Test
+    void test14ForEachEvent() {
+        for (int i = 0; i < 1000; i++) {
+            testLogger.info("Visited number {}", i);
+        }
+
+        Set<LoggingEvent> views = Collections.newSetFromMap(new IdentityHashMap<>());
+        AtomicInteger expected = new AtomicInteger();
+        testLoggerInfoCapturer.forEachEvent(event -> {
+            views.add(event);
+            Assertions.assertEquals("Visited number " + expected.getAndIncrement(), event.getMessage());
+            Assertions.assertEquals(Level.INFO, event.getLevel());
+        });
+        Assertions.assertEquals(1000, expected.get());
+        Assertions.assertEquals(1, views.size());
+    }
+
+    /**
+     * Test that events can be looked up by their logger name and by their raw
+     * message template.
+     */
+    @Test
+    void test15EventsByLoggerAndTemplate() {
+        Logger childLogger = LoggerFactory.getLogger(LogCapturerWithLogbackTest.class.getName() + ".child");
+        for (int i = 0; i < 10; i++) {
+            testLogger.info("Parent number {}", i);
+            childLogger.info("Child number {}", i);
+        }
+        childLogger.info("Child done");
+
+        List<LoggingEvent> childEvents = testLoggerInfoCapturer.eventsFromLogger(childLogger.getName());
+        Assertions.assertEquals(11, childEvents.size());
+        Assertions.assertEquals("Child number 0", childEvents.get(0).getMessage());
+        Assertions.assertEquals("Child done", childEvents.get(10).getMessage());
+
+        List<LoggingEvent> parentEvents = testLoggerInfoCapturer.eventsWithTemplate("Parent number {}");
+        Assertions.assertEquals(10, parentEvents.size());
+        Assertions.assertEquals("Parent number 9", parentEvents.get(9).getMessage());
+
+        Assertions.assertTrue(testLoggerInfoCapturer.eventsFromLogger("unknown").isEmpty());
+        Assertions.assertTrue(testLoggerInfoCapturer.eventsWithTemplate("Parent number 1").isEmpty());
+    }
+
+    /**
+     * Test that the first run writes a volume baseline and later runs fail
+     * when the volume grows beyond the tolerance.
+     */
+    @Test
+    void test16VolumeBaseline() throws Exception {
+        Path baselineFile = Files.createTempDirectory("logunit").resolve("baseline.tsv");
+        Logger volumeLogger = LoggerFactory.getLogger(VOLUME_LOGGER_NAME);
+
+        runVolumeBaselineTest(baselineFile, volumeLogger, 2);
+        Assertions.assertTrue(Files.exists(baselineFile));
+        runVolumeBaselineTest(baselineFile, volumeLogger, 3);
+
+        AssertionError error = Assertions.assertThrows(AssertionError.class,
+            () -> runVolumeBaselineTest(baselineFile, volumeLogger, 4));
+        Assertions.assertTrue(error.getMessage().contains("INFO " + VOLUME_LOGGER_NAME + " \"Request {}\": 4 events"),
+            error.getMessage());
+    }
+
+    private void runVolumeBaselineTest(Path baselineFile, Logger logger, int requests) throws Exception {
+        LogCapturer capturer = LogCapturer.create().captureForLogger(VOLUME_LOGGER_NAME)
+            .withVolumeBaseline(baselineFile, 0.5);
+        captureDuring(capturer, () -> {
+            for (int i = 0; i < requests; i++) {
+                logger.info("Request {}", i);
+            }
+        });
+    }
+
+    /**
+     * Test that log calls rejected by level are counted, telling apart those
+     * that built their message up front and those passing arguments with
+     * non-trivial <code>toString()</code>s, but not those passing strings.
+     */
+    @Test
+    void test17DisabledCallDetection() throws Exception {
+        LogCapturer disabledCapturer = LogCapturer.create().captureForLogger(DISABLED_LOGGER_NAME)
+            .withDisabledCallDetection();
+        Logger childLogger = LoggerFactory.getLogger(DISABLED_LOGGER_NAME + ".child");
+        List<Integer> value = Arrays.asList(1, 2);
+
+        captureDuring(disabledCapturer, () -> {
+            childLogger.debug("Constant message");
+            childLogger.debug("Lazy value {}", value);
+            childLogger.debug("Eager value " + value);
+            childLogger.debug("Eager argument {}", value.toString());
+            childLogger.debug("Value argument {} of {}", 1, DISABLED_LOGGER_NAME);
+            if (childLogger.isDebugEnabled()) {
+                childLogger.debug("Guarded value " + value);
+            }
+            childLogger.info("Enabled value {}", value);
+            LoggerFactory.getLogger("UNCAPTURED_LOGGER").trace("Uncaptured value " + value);
+        });
+
+        DisabledCallStats stats = disabledCapturer.disabledCalls();
+        Assertions.assertEquals(5, stats.getDisabledCalls(), stats.toString());
+        Assertions.assertEquals(1, stats.getCallsWithEagerMessages(), stats.toString());
+        Assertions.assertEquals(1, stats.getCallsWithNonTrivialArguments(), stats.toString());
+        Assertions.assertEquals(1, disabledCapturer.size());
+        Assertions.assertThrows(AssertionError.class, disabledCapturer::assertNoEagerDisabledCalls);
+    }
+
+    /**
+     * Test that messages concatenated at runtime are told apart from constant
+     * templates and reported as high-cardinality template families.
+     */
+    @Test
+    void test18Parameterized() {
+        for (int i = 0; i < 5; i++) {
+            testLogger.info("Lazy value {}", i);
+        }
+        testLoggerInfoCapturer.assertAllParameterized();
+        Assertions.assertTrue(testLoggerInfoCapturer.highCardinalityTemplates(2).isEmpty());
+
+        for (int i = 0; i < 5; i++) {
+            testLogger.info("Eager value " + i + " for request-" + (i * 7));
+        }
+        AssertionError error = Assertions.assertThrows(AssertionError.class,
+            testLoggerInfoCapturer::assertAllParameterized);
+        Assertions.assertTrue(error.getMessage().startsWith("5 of 10 captured log events"), error.getMessage());
+
+        List<TemplateCardinality> families = testLoggerInfoCapturer.highCardinalityTemplates(2);
+        Assertions.assertEquals(1, families.size());
+        Assertions.assertEquals("Eager value # for #", families.get(0).getSkeleton());
+        Assertions.assertEquals(5, families.get(0).getDistinctTemplates());
+        Assertions.assertEquals(testLogger.getName(), families.get(0).getLoggerName());
+    }
+
+    /**
+     * Test that the allocations and CPU time of captured log calls are
+     * measured per logger.
+     */
+    @Test
+    void test19LoggingCost() throws Exception {
+        LogCapturer costCapturer = LogCapturer.create().captureForLogger(COST_LOGGER_NAME).measureLoggingCost();
+        Logger costLogger = LoggerFactory.getLogger(COST_LOGGER_NAME);
+
+        captureDuring(costCapturer, () -> {
+            for (int i = 0; i < 100; i++) {
+                costLogger.info("Costly number {}", i);
+            }
+            costLogger.debug("Disabled number {}", 100);
+        });
+
+        LoggingCost cost = costCapturer.loggingCosts().get(COST_LOGGER_NAME);
+        Assertions.assertEquals(100, cost.getEvents());
+        Assertions.assertTrue(cost.getAllocatedBytesPerEvent() > 0, cost.toString());
+        costCapturer.assertAllocatedBytesPerEventBelow(COST_LOGGER_NAME, 1_000_000);
+        costCapturer.assertCpuTimePerEventBelow(COST_LOGGER_NAME, Duration.ofSeconds(1));
+        Assertions.assertThrows(AssertionError.class,
+            () -> costCapturer.assertAllocatedBytesPerEventBelow(COST_LOGGER_NAME, 1));
+    }
+
+    /**
+     * Test that capturing for a package captures all loggers within it,
+     * including those created after the test has started, but none outside
+     * of it.
+     */
+    @Test
+    void test20CaptureForPackage() throws Exception {
+        LogCapturer packageCapturer = LogCapturer.create().captureForPackage(PACKAGE_NAME, Level.DEBUG)
+            .withDisabledCallDetection();
+
+        captureDuring(packageCapturer, () -> {
+            LoggerFactory.getLogger(PACKAGE_NAME + ".billing.Invoices").debug("Invoice created");
+            LoggerFactory.getLogger(PACKAGE_NAME + ".shipping.Parcels").info("Parcel sent");
+            LoggerFactory.getLogger(PACKAGE_NAME + ".billing.Invoices").trace("Invoice {} traced", 1);
+            LoggerFactory.getLogger(PACKAGE_NAME + "corp.Outsider").warn("Outside the package");
+            LoggerFactory.getLogger(PACKAGE_NAME + "corp.Outsider").trace("Outside trace");
+        });
+
+        Assertions.assertEquals(2, packageCapturer.size());
+        packageCapturer.assertContains("Invoice created");
+        packageCapturer.assertContains("Parcel sent");
+        packageCapturer.assertDoesNotContain("Outside the package");
+        Assertions.assertEquals(1, packageCapturer.disabledCalls().getDisabledCalls());
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> LogCapturer.create().captureForPackage(PACKAGE_NAME + "."));
+    }
+
+    /**
+     * Test that capturing by pattern captures the matching loggers created
+     * during the test at their captured level, but no others, and that
+     * loggers also captured by name are captured only once.
+     */
+    @Test
+    void test21CaptureForLoggers() throws Exception {
+        LogCapturer patternCapturer = LogCapturer.create()
+            .captureForLoggersMatching("*.repository.*", Level.DEBUG)
+            .captureForLoggers(Pattern.compile("com\\.acme\\..*Client"))
+            .captureForLogger("com.acme.http.LegacyClient");
+
+        captureDuring(patternCapturer, () -> {
+            LoggerFactory.getLogger("com.acme.repository.UserRepository").debug("User loaded");
+            LoggerFactory.getLogger("com.acme.http.PaymentClient").info("Payment sent");
+            LoggerFactory.getLogger("com.acme.http.PaymentClient").debug("Payment details");
+            LoggerFactory.getLogger("com.acme.http.LegacyClient").info("Legacy call");
+            LoggerFactory.getLogger("com.acme.service.UserService").info("User service");
+        });
+
+        Assertions.assertEquals(3, patternCapturer.size());
+        patternCapturer.assertContains("User loaded");
+        patternCapturer.assertContains("Payment sent");
+        patternCapturer.assertContains("Legacy call");
+        patternCapturer.assertDoesNotContain("Payment details");
+        patternCapturer.assertDoesNotContain("User service");
+    }
+
+    /**
+     * Test that events are counted per second and logger as they are
+     * captured, and that rate assertions report the histogram.
+     */
+    @Test
+    void test22LogRate() throws Exception {
+        LogCapturer rateCapturer = LogCapturer.create().captureForLogger(RATE_LOGGER_NAME);
+        Logger rateLogger = LoggerFactory.getLogger(RATE_LOGGER_NAME);
+
+        captureDuring(rateCapturer, () -> {
+            for (int i = 0; i < 50; i++) {
+                rateLogger.info("Retry {}", i);
+            }
+        });
+
+        RateHistogram histogram = rateCapturer.rateHistogram(RATE_LOGGER_NAME);
+        Assertions.assertEquals(50, histogram.getTotalEvents());
+        Assertions.assertTrue(histogram.getPeakEventsPerSecond() >= 25, histogram.toString());
+        Assertions.assertEquals(0, rateCapturer.rateHistogram("UNCAPTURED_LOGGER").getTotalEvents());
+        rateCapturer.assertRateBelow(RATE_LOGGER_NAME, 51);
+        rateCapturer.assertRateBelow(e -> e.getMessage().endsWith("7"), 6);
+        AssertionError error = Assertions.assertThrows(AssertionError.class,
+            () -> rateCapturer.assertRateBelow(RATE_LOGGER_NAME, 10));
+        Assertions.assertTrue(error.getMessage().contains("#"), error.getMessage());
+    }
+
+    /**
+     * Test that captures are exported as newline-delimited JSON, and that a
+     * failing capturer exports its capture gzipped and truncated to the size
+     * cap.
+     */
+    @Test
+    void test23ExportOnFailure() throws Exception {
+        Path exportDir = Files.createTempDirectory("logunit");
+        LogCapturer exportCapturer = LogCapturer.create().captureForLogger(EXPORT_LOGGER_NAME)
+            .failFastOn(e -> e.getMessage().startsWith("Fatal"))
+            .exportOnFailure(200, true);
+        Logger exportLogger = LoggerFactory.getLogger(EXPORT_LOGGER_NAME);
+
+        String previousExportDir = System.setProperty(LogCapturer.EXPORT_DIR_PROPERTY, exportDir.toString());
+        try {
+            Assertions.assertThrows(AssertionError.class, () -> captureDuring(exportCapturer, () -> {
+                exportLogger.info("Quoted \"{}\"", "value");
+                exportLogger.warn("Line\nbreak", new IllegalStateException("Broken"));
+                for (int i = 0; i < 10; i++) {
+                    exportLogger.info("Filler {}", i);
+                }
+                exportLogger.error("Fatal error");
+            }));
+        } finally {
+            if (previousExportDir == null) {
+                System.clearProperty(LogCapturer.EXPORT_DIR_PROPERTY);
+            } else {
+                System.setProperty(LogCapturer.EXPORT_DIR_PROPERTY, previousExportDir);
+            }
+        }
+
+        Path fullExport = exportDir.resolve("full.ndjson");
+        Assertions.assertEquals(13, exportCapturer.exportTo(fullExport, Long.MAX_VALUE, false));
+        List<String> lines = Files.readAllLines(fullExport);
+        Assertions.assertEquals(13, lines.size());
+        Assertions.assertTrue(lines.get(0).contains("\"message\":\"Quoted \\\"value\\\"\""), lines.get(0));
+        Assertions.assertTrue(lines.get(0).contains("\"template\":\"Quoted \\\"{}\\\"\""), lines.get(0));
+        Assertions.assertTrue(lines.get(1).contains("\"message\":\"Line\\nbreak\""), lines.get(1));
+        Assertions.assertTrue(lines.get(1).contains("\"throwable\":\"java.lang.IllegalStateException: Broken\""),
+            lines.get(1));
+
+        List<Path> exports;
+        try (Stream<Path> files = Files.list(exportDir)) {
+            exports = files.filter(file -> file.toString().endsWith(".ndjson.gz")).collect(Collectors.toList());
+        }
+        Assertions.assertEquals(1, exports.size());
+        List<String> truncated;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            new GZIPInputStream(Files.newInputStream(exports.get(0))), StandardCharsets.UTF_8))) {
+            truncated = reader.lines().collect(Collectors.toList());
+        }
+        Assertions.assertEquals(lines.get(0), truncated.get(0));
+        Assertions.assertTrue(truncated.get(truncated.size() - 1).startsWith("{\"truncated\":true"));
+        Assertions.assertTrue(truncated.stream().mapToInt(String::length).limit(truncated.size() - 1).sum() <= 200);
+    }
+
+    /**
+     * Test that a failed search for a statement reports the closest captured
+     * messages, closest first.
+     */
+    @Test
+    void test24NearestMatches() {
+        testLogger.info("Order 17 shipped to customer 4");
+        testLogger.info("Cache warmed up");
+        testLogger.warn("Order 17 shiped to customer");
+        testLogger.info("Unrelated");
+
+        AssertionError failure = Assertions.assertThrows(AssertionError.class,
+            () -> testLoggerInfoCapturer.assertContains("Order 17 shipped to customer 42"));
+        String message = failure.getMessage();
+        Assertions.assertTrue(message.contains("closest messages by edit distance"), message);
+        int exact = message.indexOf("[1] INFO");
+        int typo = message.indexOf("[4] WARN");
+        Assertions.assertTrue(exact > 0 && typo > exact, message);
+        Assertions.assertFalse(message.contains("Unrelated"), message);
+    }
+
+    /**
+     * Test that the first snapshot assertion writes the snapshot and later
+     * ones report the differences to it as a diff.
+     */
+    @Test
+    void test25Snapshot() throws Exception {
+        Path snapshotDir = Files.createTempDirectory("logunit");
+        String previousSnapshotDir = System.setProperty(LogCapturer.SNAPSHOT_DIR_PROPERTY, snapshotDir.toString());
+        try {
+            testLogger.info("User {} logged in", UUID.randomUUID());
+            testLogger.warn("Password expires soon");
+            testLogger.info("User logged out");
+            testLoggerInfoCapturer.assertMatchesSnapshot("audit/session");
+
+            String loggerName = LogCapturerWithLogbackTest.class.getName();
+            Path snapshot = snapshotDir.resolve("audit/session.log");
+            Assertions.assertEquals(Arrays.asList("INFO\t" + loggerName + "\tUser <uuid> logged in",
+                "WARN\t" + loggerName + "\tPassword expires soon", "INFO\t" + loggerName + "\tUser logged out"),
+                Files.readAllLines(snapshot));
+            testLoggerInfoCapturer.assertMatchesSnapshot("audit/session");
+
+            testLogger.error("Session leaked");
+            AssertionError failure = Assertions.assertThrows(AssertionError.class,
+                () -> testLoggerInfoCapturer.assertMatchesSnapshot("audit/session"));
+            String message = failure.getMessage();
+            Assertions.assertTrue(message.contains("first difference at line 4"), message);
+            Assertions.assertTrue(message.contains("@@ -2 +2 @@\n  WARN"), message);
+            Assertions.assertTrue(message.contains("\n+ ERROR\t" + loggerName + "\tSession leaked\n"), message);
+            Assertions.assertFalse(message.contains("logged in"), message);
+        } finally {
+            if (previousSnapshotDir == null) {
+                System.clearProperty(LogCapturer.SNAPSHOT_DIR_PROPERTY);
+            } else {
+                System.setProperty(LogCapturer.SNAPSHOT_DIR_PROPERTY, previousSnapshotDir);
+            }
+        }
+    }
+
+    /**
+     * Test that key-value pairs, markers and the MDC are captured and that
+     * events are found by key, both indexed and not.
+     */
+    @Test
+    void test26StructuredData() throws Exception {
+        LogCapturer structuredCapturer = LogCapturer.create().captureForLogger(STRUCTURED_LOGGER_NAME)
+            .withKeyIndex("orderId");
+        Logger structuredLogger = LoggerFactory.getLogger(STRUCTURED_LOGGER_NAME);
+        Marker audit = MarkerFactory.getMarker("AUDIT");
+
+        captureDuring(structuredCapturer, () -> {
+            try {
+                MDC.put("tenant", "acme");
+                structuredLogger.atInfo().addMarker(audit).addKeyValue("orderId", 42).log("Order placed");
+                structuredLogger.atInfo().addKeyValue("orderId", 43).log("Order placed");
+                MDC.put("orderId", "42");
+                structuredLogger.info("Order {} shipped", 42);
+            } finally {
+                MDC.clear();
+            }
+        });
+
+        List<LoggingEvent> order42 = structuredCapturer.eventsWithKey("orderId", "42");
+        Assertions.assertEquals(2, order42.size());
+        Assertions.assertEquals(Collections.singletonList(audit), order42.get(0).getMarkers());
+        Assertions.assertTrue(order42.get(0).getArguments().isEmpty());
+        Assertions.assertEquals("acme", TemplatedLoggingEvent.mdcOf(order42.get(0)).get("tenant"));
+        Assertions.assertEquals("Order 42 shipped", order42.get(1).getMessage());
+        Assertions.assertEquals(Arrays.asList(42), order42.get(1).getArguments());
+        Assertions.assertTrue(order42.get(1).getKeyValuePairs().isEmpty());
+        Assertions.assertEquals(3, structuredCapturer.eventsWithKey("tenant", "acme").size());
+        Assertions.assertEquals(1, structuredCapturer.eventsWithKey("orderId", 43).size());
+    }
+
+    /**
+     * Test selecting the LogUnit implementation by name and by class name.
+     */
+    @Test
+    void test27ProviderSelection() {
+        Assertions.assertEquals("logback", LogProviderFactorySpiLoader.getLogProviderFactory().getName());
+        Assertions.assertSame(LogProviderFactorySpiLoader.getLogProviderFactory("logback"),
+            LogProviderFactorySpiLoader.getLogProviderFactory("logback"));
+        Assertions.assertTrue(LogProviderFactorySpiLoader
+            .getLogProviderFactory(LogbackLogProviderFactory.class.getName()) instanceof LogbackLogProviderFactory);
+        Assertions.assertNotNull(LogCapturer.create("logback"));
+
+        IllegalStateException e = Assertions.assertThrows(IllegalStateException.class,
+            () -> LogCapturer.create("log4j2"));
+        Assertions.assertTrue(e.getMessage().contains("logback (" + LogbackLogProviderFactory.class.getName() + ")"),
+            e.getMessage());
+    }
+
+    /**
+     * Test that the distinct messages of events without arguments aren't
+     * interned as templates, so that they are released along with their
+     * events under a memory budget, and can still be looked up.
+     * 
+     * @throws Exception
+     *             Unexpected failure.
+     */
+    @Test
+    void test28DistinctMessagesUnderBudget() throws Exception {
+        LogCapturer budgetCapturer = LogCapturer.create()
+            .captureForLogger(BUDGET_LOGGER_NAME)
+            .withMemoryBudget(20_000);
+        Logger budgetLogger = LoggerFactory.getLogger(BUDGET_LOGGER_NAME);
+        IntFunction<String> requestBody = id -> "Request body: {\"id\": " + id + ", \"items\": []}";
+
+        captureDuring(budgetCapturer, () -> {
+            for (int i = 0; i < 5000; i++) {
+                budgetLogger.info(requestBody.apply(i));
+                budgetLogger.info("Request number {}", i);
+            }
+        });
+
+        LogbackLogProvider provider = (LogbackLogProvider) budgetCapturer.getLogProvider();
+        // Only null and the parameterized template have been interned.
+        Assertions.assertEquals(2, provider.getEventDictionary().getTemplates().size());
+        Assertions.assertTrue(budgetCapturer.size() < 10_000);
+        Assertions.assertEquals(1, budgetCapturer.eventsWithTemplate(requestBody.apply(4999)).size());
+        Assertions.assertTrue(budgetCapturer.eventsWithTemplate(requestBody.apply(0)).isEmpty());
+        Assertions.assertEquals(
+            budgetCapturer.getEvents().stream().filter(e -> e.getMessage().startsWith("Request number")).count(),
+            budgetCapturer.eventsWithTemplate("Request number {}").size());
+    }
+
     private void logEverythingOnce(Logger logger) {
         logger.trace("Some trace message");
         logger.debug("Some debug message");
@@ -130,4 +889,26 @@ public class LogCapturerWithLogbackTest {
         logger.warn("Some warn message");
         logger.error("Some error message");
     }
+
+    /*
+     * Runs the code between the capturer's test execution callbacks, as JUnit
+     * does for capturers registered as extensions.
+     */
+    private static void captureDuring(LogCapturer capturer, CapturedCode code) throws Exception {
+        capturer.beforeTestExecution(null);
+        try {
+            code.run();
+        } finally {
+            capturer.afterTestExecution(null);
+        }
+    }
+
+    /**
+     * Code logging events while a {@link LogCapturer} is capturing.
+     */
+    @FunctionalInterface
+    private interface CapturedCode {
+
+        void run() throws Exception;
+    }
 }